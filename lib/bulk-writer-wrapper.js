@@ -0,0 +1,77 @@
+'use strict';
+
+var Q = require('q');
+var dlog = require('debug')('bulk-writer-wrapper');
+
+// Writes columnar batches to a graph through a Java BulkWriter (see GraphWrapper.bulkWriter), one bridge call per
+// batch.  A batch is an object of equal-length arrays, e.g.
+//   writer.addVertices({ ids: [1, 2], labels: ['person', 'person'], properties: { name: ['marko', 'vadas'] } })
+//   writer.addEdges({ out: [1], in: [2], labels: ['knows'], properties: { weight: [0.5] } })
+//   writer.setVertexProperties({ ids: [2], properties: { age: [27] } })
+// Null labels and property values are skipped.  Each call resolves to the number of rows written.
+var BulkWriterWrapper = module.exports = function (gremlin, writer, graph) {
+  this.gremlin = gremlin;
+  this.writer = writer;
+  this.graph = graph;
+};
+
+BulkWriterWrapper.prototype.unwrap = function () {
+  return this.writer;
+};
+
+// Create sync and async BulkWriterWrapper methods that pass a batch to the BulkWriter method *op* as JSON.  The graph
+// is recorded as changed (see Gremlin._graphChanged) when the batch is written, or when it fails after keeping some
+// of its rows, as told by the writer's *counter* (e.g. getVertexCount).
+function batchWrap(op, counter) {
+  BulkWriterWrapper.prototype[op] = function (batch, callback) {
+    var self = this;
+    var before = self._count(counter);
+    return Q.nbind(self.writer[op], self.writer)(JSON.stringify(batch))
+      .then(function (rows) {
+        self.gremlin._graphChanged(self.graph);
+        dlog('BulkWriterWrapper.prototype.%s:', op, rows);
+        return rows;
+      }, function (err) {
+        self._failed(counter, before);
+        throw err;
+      })
+      .nodeify(callback);
+  };
+
+  BulkWriterWrapper.prototype[op + 'Sync'] = function (batch) {
+    var before = this._count(counter);
+    var rows;
+    try {
+      rows = this.writer[op + 'Sync'](JSON.stringify(batch));
+    } catch (err) {
+      this._failed(counter, before);
+      throw err;
+    }
+    this.gremlin._graphChanged(this.graph);
+    return rows;
+  };
+}
+
+batchWrap('addVertices', 'getVertexCount');
+batchWrap('addEdges', 'getEdgeCount');
+batchWrap('setVertexProperties', 'getUpdateCount');
+
+BulkWriterWrapper.prototype._count = function (counter) {
+  return Number(this.writer[counter + 'Sync']());
+};
+
+// Records that the graph has changed after a failed batch if the writer kept some of its rows.
+BulkWriterWrapper.prototype._failed = function (counter, before) {
+  if (this._count(counter) !== before) {
+    this.gremlin._graphChanged(this.graph);
+  }
+};
+
+// Returns the graph's id for the vertex written with the caller's *id*.
+BulkWriterWrapper.prototype.getVertexIdSync = function (id) {
+  return this.writer.getVertexIdSync(id);
+};
+
+BulkWriterWrapper.prototype.toStringSync = function () {
+  return this.writer.toStringSync();
+};
@@ -18,7 +18,13 @@ EdgeWrapper.prototype.getLabel = function () {
 };
 
 EdgeWrapper.prototype.setProperty = function (key, value, callback) {
-  return Q.nbind(this.el.property, this.el)(key, value).nodeify(callback);
+  var self = this;
+  return Q.nbind(this.el.property, this.el)(key, value)
+    .then(function (prop) {
+      self._graphChanged();
+      return prop;
+    })
+    .nodeify(callback);
 };
 
 EdgeWrapper.prototype.jsonStringifySync = function () {
@@ -54,20 +54,12 @@ ElementWrapper.prototype.valueSync = function (key) {
   return this.el.valueSync(key);
 };
 
+// Fetches the properties *props* in a single bridge call.  Missing properties are undefined.
 ElementWrapper.prototype.values = function (props, callback) {
-  var self = this;
-  var res = {};
-  var propPromises = props.map(
-    function (key) {
-      return self.value(key)
-        .then(function (value) { res[key] = value; });
-    }
-  );
-
-  // Q.all() can be dangerous for operations that modify the database,
-  // but should be fine here since this is read-only.
-  return Q.all(propPromises)
-    .then(function () { return new Q(res); })
+  return this.gremlin.projectProperties([this], props)
+    .then(function (columns) {
+      return _.mapValues(columns, _.first);
+    })
     .nodeify(callback);
 };
 
@@ -86,9 +78,18 @@ ElementWrapper.prototype.setProperties = function (props, callback) {
   return setProps(Object.keys(props)).nodeify(callback);
 };
 
+// Records that the element's graph has changed (see Gremlin._graphChanged).  Mutations call it once they succeed.
+ElementWrapper.prototype._graphChanged = function () {
+  if (this.gremlin._resultCache) {
+    this.gremlin._graphChanged(this.el.graphSync());
+  }
+};
+
 ElementWrapper.prototype.removeProperty = function (key, callback) {
+  var self = this;
   return Q.nbind(this.el.property, this.el)(key)
     .then(function (prop) { return Q.nbind(prop.remove, prop)(); })
+    .then(function () { self._graphChanged(); })
     .nodeify(callback);
 };
 
@@ -108,7 +109,10 @@ ElementWrapper.prototype.removeProperties = function (props, callback) {
 };
 
 ElementWrapper.prototype.remove = function (callback) {
-  return Q.nbind(this.el.remove, this.el)().nodeify(callback);
+  var self = this;
+  return Q.nbind(this.el.remove, this.el)()
+    .then(function () { self._graphChanged(); })
+    .nodeify(callback);
 };
 
 ElementWrapper.prototype.toString = function (callback) {
@@ -4,6 +4,7 @@ var _ = require('lodash');
 var dlog = require('debug')('graph-wrapper');
 var fs = require('fs');
 var jsonStableStringify = require('json-stable-stringify');
+var BulkWriterWrapper = require('./bulk-writer-wrapper');
 var VertexWrapper = require('./vertex-wrapper');
 var EdgeWrapper = require('./edge-wrapper');
 var Q = require('q');
@@ -77,7 +78,10 @@ GraphWrapper.prototype.loadGraphSON = function (filename, callback) {
       var readGraph = Q.nbind(reader.readGraph, reader);
       return readGraph(stream, self.graph);
     })
-    .then(function () { return self; })
+    .then(function () {
+      self.gremlin._graphChanged(self.graph);
+      return self;
+    })
     .nodeify(callback);
 };
 
@@ -90,9 +94,77 @@ GraphWrapper.prototype.loadGraphSONSync = function (filename) {
   builder.mapperSync(mapper);
   var reader = builder.createSync();
   reader.readGraphSync(stream, this.graph);
+  this.gremlin._graphChanged(this.graph);
+  return this;
+};
+
+// Creates a GraphSONBulkLoader configured by *opts*: { batchSize, workers, queueSize }, all optional.
+GraphWrapper.prototype._newGraphSONBulkLoaderSync = function (opts) {
+  opts = opts || {};
+  var builder = this.java.callStaticMethodSync('com.entrendipity.gremlinnode.structure.io.GraphSONBulkLoader', 'build');
+  if (opts.batchSize) builder.batchSizeSync(opts.batchSize);
+  if (opts.workers) builder.workersSync(opts.workers);
+  if (opts.queueSize) builder.queueSizeSync(opts.queueSize);
+  return builder.createSync();
+};
+
+// Loads the graph as GraphSON with the streaming, parallel GraphSONBulkLoader, and returns promise to the graph (for
+// fluent API).  *opts* is optional: { batchSize, workers, queueSize }.  Use this rather than loadGraphSON for large
+// files; elements are committed every batchSize elements for transactional graphs.
+GraphWrapper.prototype.bulkLoadGraphSON = function (filename, opts, callback) {
+  var self = this;
+  if (_.isFunction(opts)) {
+    callback = opts;
+    opts = {};
+  }
+  var FileInputStream = this.java.import('java.io.FileInputStream');
+  var stream = new FileInputStream(filename);
+  var loader = this._newGraphSONBulkLoaderSync(opts);
+  return Q.nbind(loader.load, loader)(stream, self.graph)
+    .then(function (progress) {
+      self.gremlin._graphChanged(self.graph);
+      dlog('GraphWrapper.prototype.bulkLoadGraphSON:', progress.toStringSync());
+      return self;
+    })
+    .nodeify(callback);
+};
+
+// Loads the graph as GraphSON with the streaming, parallel GraphSONBulkLoader, and returns the graph (for fluent API).
+GraphWrapper.prototype.bulkLoadGraphSONSync = function (filename, opts) {
+  var FileInputStream = this.java.import('java.io.FileInputStream');
+  var stream = new FileInputStream(filename);
+  var progress = this._newGraphSONBulkLoaderSync(opts).loadSync(stream, this.graph);
+  this.gremlin._graphChanged(this.graph);
+  dlog('GraphWrapper.prototype.bulkLoadGraphSONSync:', progress.toStringSync());
   return this;
 };
 
+// Builds an AdjacencySnapshot, a read-only copy of the graph's adjacency in int arrays, and returns promise to it.  Its
+// walk method follows out/in/both steps far faster than a traversal of the graph, e.g.
+//   snapshot.walkSync([1], JSON.stringify([['out', 'knows'], ['out', 'created']]))
+// returns the ids that g.V(1).out('knows').out('created').id() would.  The snapshot does not see later changes to the
+// graph; snapshot.rebuildSync(graph, gremlin.toListSync(changedIds)) builds a new one, re-reading only those vertices.
+GraphWrapper.prototype.adjacencySnapshot = function (callback) {
+  var callStaticMethod = Q.nbind(this.java.callStaticMethod, this.java);
+  return callStaticMethod('com.entrendipity.gremlinnode.structure.AdjacencySnapshot', 'build', this.graph)
+    .nodeify(callback);
+};
+
+GraphWrapper.prototype.adjacencySnapshotSync = function () {
+  var AdjacencySnapshot = this.java.import('com.entrendipity.gremlinnode.structure.AdjacencySnapshot');
+  return AdjacencySnapshot.buildSync(this.graph);
+};
+
+// Returns a BulkWriterWrapper that creates vertices and edges from columnar batches, one bridge call per batch, mapping
+// the caller's vertex ids to the graph's.  *opts* is optional: { batchSize }, the number of elements written between
+// commits for transactional graphs.  Use it rather than addVertex and addEdge to ingest many elements.
+GraphWrapper.prototype.bulkWriter = function (opts) {
+  opts = opts || {};
+  var builder = this.java.callStaticMethodSync('com.entrendipity.gremlinnode.structure.BulkWriter', 'build');
+  if (opts.batchSize) builder.batchSizeSync(opts.batchSize);
+  return new BulkWriterWrapper(this.gremlin, builder.createSync(this.graph), this.graph);
+};
+
 // Saves the graph as GraphSON, and returns promise to the graph (for fluent API).
 GraphWrapper.prototype.saveGraphSON = function (filename, callback) {
   var self = this;
@@ -130,6 +202,40 @@ GraphWrapper.prototype.saveGraphSONSync = function (filename) {
   writer.writeGraphSync(stream, this.graph);
 };
 
+// Saves the graph as a compact binary snapshot (see GraphSnapshot), and returns promise to the graph (for fluent API).
+GraphWrapper.prototype.saveSnapshot = function (filename, callback) {
+  var self = this;
+  var callStaticMethod = Q.nbind(this.java.callStaticMethod, this.java);
+  return callStaticMethod('com.entrendipity.gremlinnode.structure.io.GraphSnapshot', 'write', self.graph, filename)
+    .then(function () { return self; })
+    .nodeify(callback);
+};
+
+// Saves the graph as a compact binary snapshot, and returns the graph (for fluent API).
+GraphWrapper.prototype.saveSnapshotSync = function (filename) {
+  this.java.callStaticMethodSync('com.entrendipity.gremlinnode.structure.io.GraphSnapshot', 'write', this.graph, filename);
+  return this;
+};
+
+// Loads a binary snapshot written by saveSnapshot, and returns promise to the graph (for fluent API).
+GraphWrapper.prototype.loadSnapshot = function (filename, callback) {
+  var self = this;
+  var callStaticMethod = Q.nbind(this.java.callStaticMethod, this.java);
+  return callStaticMethod('com.entrendipity.gremlinnode.structure.io.GraphSnapshot', 'read', filename, self.graph)
+    .then(function () {
+      self.gremlin._graphChanged(self.graph);
+      return self;
+    })
+    .nodeify(callback);
+};
+
+// Loads a binary snapshot written by saveSnapshot, and returns the graph (for fluent API).
+GraphWrapper.prototype.loadSnapshotSync = function (filename) {
+  this.java.callStaticMethodSync('com.entrendipity.gremlinnode.structure.io.GraphSnapshot', 'read', filename, this.graph);
+  this.gremlin._graphChanged(this.graph);
+  return this;
+};
+
 // Saves the graph as human-readable, deterministic GraphSON, and returns promise to the graph (for fluent API).
 GraphWrapper.prototype.savePrettyGraphSON = function (filename, callback) {
   var self = this;
@@ -261,11 +367,12 @@ GraphWrapper.prototype.addVertex = function (properties, callback) {
 
   var deferred = Q.defer();
 
+  var graph = this.graph;
   txn.addVertex(gremlin.propertiesToVarArgs(properties), function (err, v) {
     if (err)
       return deferred.reject(err);
-    else
-      return deferred.resolve(gremlin.wrapVertex(v));
+    gremlin._graphChanged(graph);
+    return deferred.resolve(gremlin.wrapVertex(v));
   });
 
   return deferred.promise.nodeify(callback);
@@ -305,8 +412,12 @@ GraphWrapper.prototype.addEdge = function (id, outVertex, inVertex, label, callb
     throw new TypeError('inVertex must be an instance of VertexWrapper');
   }
 
+  var graph = this.graph;
   return Q.nbind(txn.addEdge, txn)(id, outVertex.unwrap(), inVertex.unwrap(), label)
-    .then(function (e) { return new Q(gremlin.wrapEdge(e)); })
+    .then(function (e) {
+      gremlin._graphChanged(graph);
+      return new Q(gremlin.wrapEdge(e));
+    })
     .nodeify(callback);
 };
 
@@ -332,7 +443,10 @@ GraphWrapper.prototype.removeEdge = function (edge, callback) {
     throw new TypeError('edge must be an instance of EdgeWrapper');
   }
 
+  var gremlin = this.gremlin;
+  var graph = this.graph;
   return Q.nbind(txn.removeEdge, txn)(edge.unwrap())
+    .then(function () { gremlin._graphChanged(graph); })
     .nodeify(callback);
 };
 
@@ -358,14 +472,29 @@ GraphWrapper.prototype.commit = function (callback) {
   this.requiresThreadedTransactions();
   var txn = this._getTransaction();
   this._clearTransaction();
-  txn.commit(callback);
+  txn.commit(this._changedCallback(callback));
 };
 
 GraphWrapper.prototype.rollback = function (callback) {
   this.requiresThreadedTransactions();
   var txn = this._getTransaction();
   this._clearTransaction();
-  txn.rollback(callback);
+  txn.rollback(this._changedCallback(callback));
+};
+
+// Returns a node-java callback that records that the graph has changed, unless the call failed, before calling
+// *callback*, if any.
+GraphWrapper.prototype._changedCallback = function (callback) {
+  var gremlin = this.gremlin;
+  var graph = this.graph;
+  return function (err) {
+    if (!err) {
+      gremlin._graphChanged(graph);
+    }
+    if (callback) {
+      callback.apply(this, arguments);
+    }
+  };
 };
 
 GraphWrapper.prototype.shutdown = function (callback) {
@@ -378,14 +507,14 @@ GraphWrapper.prototype.shutdown = function (callback) {
 // gremlin shell extensions for the graph object
 GraphWrapper.prototype._ = function () {
   var txn = this._getTransaction();
-  var traversal = this.gremlin.wrapTraversal(txn);
+  var traversal = this.gremlin.wrapTraversal(txn, this.graph);
   traversal.traversal._Sync();
   return traversal;
 };
 
 GraphWrapper.prototype.start = function (start) {
   var txn = this._getTransaction();
-  var traversal = this.gremlin.wrapTraversal(txn);
+  var traversal = this.gremlin.wrapTraversal(txn, this.graph);
   // conditionally unwrap, we may be being passed a Java list instead
   // of one of our wrapper JavaScript objects
   if (start.unwrap) {
@@ -401,7 +530,7 @@ function graphTraversalWrap(op) {
     dlog('graphTraversalWrap(%s)', op, args);
     var txn = this._getTransaction();
     // We use this with variadic Java calls, so pass the args as a single array.
-    return this.gremlin.wrapTraversal(txn[op + 'Sync'](args));
+    return this.gremlin.wrapTraversal(txn[op + 'Sync'](args), this.graph);
   };
 }
 
@@ -412,6 +541,25 @@ GraphWrapper.prototype.V = graphTraversalWrap('V');
 // Likewise, g.E(key, value) is currently disallowed, but g.E(edgeId, ...) works.
 GraphWrapper.prototype.E = graphTraversalWrap('E');
 
+// Builds a traversal of this graph from *steps* in a single call, e.g.
+//   g.plan([['V'], ['has', 'name', {$: 'name'}], ['out', 'knows']], {name: 'marko'})
+// *steps* is compiled once and cached; *params* supplies the values of its {$: name} placeholders.
+GraphWrapper.prototype.plan = function (steps, params) {
+  var plan = this.gremlin.getPlan(steps);
+  params = params || {};
+  var plain = _.every(params, function (value) { return !_.isObject(value) || _.isArray(value); });
+  var bound;
+  if (plain) {
+    bound = plan.bindSync(this.graph, JSON.stringify(params));
+  } else {
+    var map = new this.HashMap();
+    var gremlin = this.gremlin;
+    _.forEach(params, function (value, key) { map.putSync(key, gremlin._javify(value)); });
+    bound = plan.bindSync(this.graph, map);
+  }
+  return this.gremlin.wrapTraversal(bound, this.graph);
+};
+
 GraphWrapper.prototype.toString = function (callback) {
   return Q.nbind(this.graph.toString, this.graph)().nodeify(callback);
 };
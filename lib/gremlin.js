@@ -58,10 +58,101 @@ var Gremlin = module.exports = function (opts) {
 //   this.Tree = java.import('com.tinkerpop.pipes.util.structures.Tree');   // TK2
   this.Tree = java.import('com.tinkerpop.gremlin.process.graph.util.Tree');   // TK3, but not used directly
 
+  this.ResultEncoder = java.import('com.entrendipity.gremlinnode.bridge.ResultEncoder');
+  this.BatchIterator = java.import('com.entrendipity.gremlinnode.bridge.BatchIterator');
+  this.PropertyProjection = java.import('com.entrendipity.gremlinnode.bridge.PropertyProjection');
+  this.ResultStream = java.import('com.entrendipity.gremlinnode.bridge.ResultStream');
+
+  // By default forEach retrieves one item at a time, so that each item is processed before the next is retrieved.  With
+  // *batchSize* (e.g. BatchIterator.DEFAULT_BATCH_SIZE), it drains Java iterators and traversals that many items per
+  // bridge call instead.  If *maxBatchSize* is larger, the batch size adapts, growing towards *maxBatchSize* while
+  // batches arrive quickly.
+  this._batchSize = opts.batchSize || 1;
+  this._maxBatchSize = Math.max(this._batchSize, opts.maxBatchSize || 0);
+
   // This list of allowed function types should mirror the contents of the com.entrendipity.gremlinnode.function
   // package contained in this repo.
   var groovyFunction = 'com.entrendipity.gremlinnode.function.';
   this.GroovyLambda = java.import(groovyFunction + 'GroovyLambda');
+  this.GroovyLambdaCache = java.import(groovyFunction + 'GroovyLambdaCache');
+  this.Compilation = java.import(groovyFunction + 'GroovyLambda$Compilation');
+  this.LambdaWarmup = java.import(groovyFunction + 'LambdaWarmup');
+  this.InstrumentedGlobFunction = java.import(groovyFunction + 'InstrumentedGlobFunction');
+  this.LambdaMetricsRegistry = java.import(groovyFunction + 'LambdaMetricsRegistry');
+  this.MemoizingGlobFunction = java.import(groovyFunction + 'MemoizingGlobFunction');
+  this.ScriptEnginePool = java.import(groovyFunction + 'ScriptEnginePool');
+  this.ExpressionCompiler = java.import(groovyFunction + 'ExpressionCompiler');
+  this.LambdaFactory = java.import(groovyFunction + 'LambdaFactory');
+
+  // With *nativeExpressions*, dynamic closures in the subset that ExpressionCompiler understands (comparisons,
+  // arithmetic, boolean logic, element values and string length/contains) are evaluated as Java lambdas instead of
+  // being compiled by Groovy.  Other closures are compiled as usual.
+  this._nativeExpressions = !!opts.nativeExpressions;
+
+  // With *scriptEnginePoolSize*, closures are compiled on a pool of that many engines, which share the imports added
+  // by importGroovy, so that concurrent compilations (e.g. by warmUp) do not queue on one engine.
+  this._enginePool = opts.scriptEnginePoolSize > 0 ? new this.ScriptEnginePool(opts.scriptEnginePoolSize) : null;
+
+  // With *isolatedClosures*, closures are compiled in class loaders of their own, keeping at most that many compiled
+  // classes (or IsolatedClosureCompiler.DEFAULT_MAXIMUM_SIZE if true), so that evicted closures can be unloaded and
+  // metaspace stays bounded.  Closures see the engine's default imports and static imports, and those added by
+  // importGroovy.  It takes precedence over *scriptEnginePoolSize*.
+  this.IsolatedClosureCompiler = java.import(groovyFunction + 'IsolatedClosureCompiler');
+  this._closureCompiler = null;
+  if (opts.isolatedClosures) {
+    this._closureCompiler = new this.IsolatedClosureCompiler(_.isNumber(opts.isolatedClosures) ? opts.isolatedClosures
+      : this.IsolatedClosureCompiler.DEFAULT_MAXIMUM_SIZE);
+  }
+
+  // Compiled closures are cached by source, so that the same closure string sent repeatedly is only compiled once.
+  // Set *lambdaCacheSize* to 0 to compile every closure afresh.
+  var lambdaCacheSize = _.isUndefined(opts.lambdaCacheSize) ? this.GroovyLambdaCache.DEFAULT_MAXIMUM_SIZE
+                                                              : opts.lambdaCacheSize;
+  this._lambdaCache = lambdaCacheSize > 0 ? new this.GroovyLambdaCache(lambdaCacheSize) : null;
+
+  // With *filterPushdown*, filter closures that only compare properties of the element with string or int literals,
+  // e.g. '{ it.get().value("age") > 30 }', are replaced by the equivalent has() steps, in traversals and plans alike,
+  // so that the graph can use its indices.  Unlike the closure, which fails the traversal, has() drops elements
+  // without the property.
+  this.FilterPushdown = java.import('com.entrendipity.gremlinnode.traversal.FilterPushdown');
+  this._filterPushdown = !!opts.filterPushdown;
+
+  // Traversal plans (see GraphWrapper.plan) are cached by their structure, so that repeated executions only bind new
+  // parameters.  Set *planCacheSize* to 0 to compile every plan afresh.
+  this.TraversalPlan = java.import('com.entrendipity.gremlinnode.traversal.TraversalPlan');
+  this.TraversalPlanCache = java.import('com.entrendipity.gremlinnode.traversal.TraversalPlanCache');
+  var planCacheSize = _.isUndefined(opts.planCacheSize) ? this.TraversalPlanCache.DEFAULT_MAXIMUM_SIZE
+                                                          : opts.planCacheSize;
+  this._planCache = planCacheSize > 0 ? new this.TraversalPlanCache(planCacheSize, this._filterPushdown) : null;
+
+  // With *traversalResultCache*, TraversalWrapper.toArrayCached serves repeated read traversals from a cache of their
+  // results holding an estimated maximum of that many bytes (or TraversalResultCache.DEFAULT_MAXIMUM_BYTES if true).
+  // Mutations made through the wrappers discard the cached results of the graphs they change.
+  this.TraversalResultCache = java.import('com.entrendipity.gremlinnode.traversal.TraversalResultCache');
+  this._resultCache = null;
+  if (opts.traversalResultCache) {
+    this._resultCache = _.isNumber(opts.traversalResultCache)
+      ? new this.TraversalResultCache(java.newLong(opts.traversalResultCache)) : new this.TraversalResultCache();
+  }
+
+  // Thread-safe lambdas give each Java thread its own copy of the closure, so that one lambda can be shared by
+  // concurrently running traversals.
+  this._threadSafeLambdas = !!opts.threadSafeLambdas;
+
+  // With *lambdaMetrics*, every lambda counts and times its invocations, per closure source.  The metrics are available
+  // from getLambdaMetrics() and over JMX, for the LambdaMetricsRegistry.DEFAULT_MAXIMUM_SIZE sources most recently
+  // instrumented.
+  this._lambdaMetrics = null;
+  if (opts.lambdaMetrics) {
+    this._lambdaMetrics = this.LambdaMetricsRegistry.getDefaultSync();
+    this._lambdaMetrics.registerSync();
+  }
+
+  // TraversalWrapper.submit runs traversals on a Java-side executor, created on first use from *traversalExecutor*:
+  // { threads: N, virtualThreads: bool, queueSize: N }.
+  this.TraversalExecutor = java.import('com.entrendipity.gremlinnode.traversal.TraversalExecutor');
+  this._traversalExecutorOpts = opts.traversalExecutor || {};
+  this._traversalExecutor = null;
 
   this.ScriptEngineLambda = java.import('com.tinkerpop.gremlin.process.computer.util.ScriptEngineLambda');
   this._groovyScriptEngineName = 'Groovy';
@@ -104,6 +195,8 @@ Gremlin.ElementWrapper = require('./element-wrapper');
 Gremlin.VertexWrapper = require('./vertex-wrapper');
 Gremlin.EdgeWrapper = require('./edge-wrapper');
 Gremlin.PathWrapper = require('./path-wrapper');
+Gremlin.ResultStreamWrapper = require('./result-stream-wrapper');
+Gremlin.BulkWriterWrapper = require('./bulk-writer-wrapper');
 
 Gremlin.prototype.isType = function (o, typeName) {
   if (!o || !_.isObject(o)) return false;
@@ -172,8 +265,9 @@ Gremlin.prototype.wrapQuery = function (val) {
   return new QueryWrapper(this, val);
 };
 
-Gremlin.prototype.wrapTraversal = function (val) {
-  return new TraversalWrapper(this, val);
+// *graph* is the Java graph that the traversal reads, if known; toArrayCached needs it.
+Gremlin.prototype.wrapTraversal = function (val, graph) {
+  return new TraversalWrapper(this, val, graph);
 };
 
 Gremlin.prototype.wrapVertex = function (val) {
@@ -222,9 +316,13 @@ Gremlin.prototype.propertiesToVarArgs = function (props, type) {
 // or any type that type that implements hasNext() and next() as methods returning promises,
 // with the semantics of those methods of java.util.iterator.
 // *process* is function(item) {}, and may be either a synchronous function or async function returning a promise.
-// Each item is processed completely before the next item is retrieved.
+// Each item is processed before the next is retrieved, unless opts.batchSize was set: then Java iterators and
+// traversals are drained in batches, so items may be retrieved before earlier items have been processed, but each
+// item is still processed completely before the next item is processed.
 // Returns a promise if callback is omitted, else calls callback asynchronously when all items processed.
 Gremlin.prototype.forEach = function (javaIterator, process, callback) {
+  var self = this;
+
   function _eachIterator(javaIterator, promisedProcess) {
     return javaIterator.hasNext()
       .then(function (hasNext) {
@@ -237,27 +335,239 @@ Gremlin.prototype.forEach = function (javaIterator, process, callback) {
       });
   }
 
+  function _eachBatch(nextBatch, promisedProcess) {
+    return nextBatch()
+      .then(function (batch) {
+        if (batch.length === 0)
+          return null;
+        return batch.reduce(function (promise, item) {
+          return promise.then(function () { return promisedProcess(item); });
+        }, new Q())
+          .then(function () {
+            return _eachBatch(nextBatch, promisedProcess);
+          });
+      });
+  }
+
   if (_.isUndefined(javaIterator.unwrap)) {
     if (this.java.instanceOf(javaIterator, 'java.util.Iterator'))
       javaIterator = new IteratorWrapper(javaIterator);
   }
 
-  return _eachIterator(javaIterator, Q.promised(process)).nodeify(callback);
+  var promisedProcess = Q.promised(process);
+  if (this._batchSize > 1 && (javaIterator instanceof IteratorWrapper || javaIterator instanceof TraversalWrapper)) {
+    // Traversal results are converted as by TraversalWrapper.next(), other iterators' items are passed through.
+    var batchIterator = this.newBatchIterator(javaIterator.unwrap());
+    var nextBatch;
+    if (javaIterator instanceof TraversalWrapper) {
+      nextBatch = function () {
+        return Q.nbind(batchIterator.nextEncodedBatch, batchIterator)()
+          .then(function (encoded) { return self._decode(encoded); });
+      };
+    } else {
+      nextBatch = Q.nbind(batchIterator.nextBatch, batchIterator);
+    }
+    return _eachBatch(nextBatch, promisedProcess).nodeify(callback);
+  }
+
+  return _eachIterator(javaIterator, promisedProcess).nodeify(callback);
+};
+
+// Returns a Java BatchIterator over *javaIterator*, using the batch sizes given by opts.batchSize and
+// opts.maxBatchSize.
+Gremlin.prototype.newBatchIterator = function (javaIterator) {
+  return new this.BatchIterator(javaIterator, this._batchSize, this._maxBatchSize);
+};
+
+// Fetches the properties *keys* of each of *elements* in a single bridge call.
+// *elements* is an array of VertexWrappers, EdgeWrappers or Java elements, or a TraversalWrapper of elements.
+// Returns a promise of columns, an object mapping each key to an array with one value per element; missing properties
+// are undefined.
+Gremlin.prototype.projectProperties = function (elements, keys, callback) {
+  var PropertyProjection = this.PropertyProjection;
+  return Q.nbind(PropertyProjection.encode, PropertyProjection)(this._projectionSource(elements),
+                                                                 this.java.newArray('java.lang.String', keys))
+    .then(this._decode.bind(this))
+    .nodeify(callback);
+};
+
+Gremlin.prototype.projectPropertiesSync = function (elements, keys) {
+  return this._decode(this.PropertyProjection.encodeSync(this._projectionSource(elements),
+                                                         this.java.newArray('java.lang.String', keys)));
+};
+
+Gremlin.prototype._projectionSource = function (elements) {
+  if (_.isArray(elements)) {
+    var self = this;
+    return this.java.newArray('java.lang.Object', elements.map(function (el) { return self._javify(el); }));
+  }
+  return elements.unwrap ? elements.unwrap() : elements;
 };
 
 // Generates a general purpose Groovy lambda that can be used anywhere lambdas are accepted (e.g. filter, map, choose,
 // etc.)
-Gremlin.prototype.newGroovyLambda = function (groovy) {
-  return new this.GroovyLambda(groovy, this.getEngine());
+// *compilation* is optional, one of the GroovyLambda.Compilation values (gremlin.Compilation.DYNAMIC by default).
+Gremlin.prototype.newGroovyLambda = function (groovy, compilation) {
+  return this.getLambdaFactory().newLambdaSync(groovy, compilation || this.Compilation.DYNAMIC);
+};
+
+// Returns a lambda whose batch methods (applyAll, testAll and acceptAll) call the closure *groovy*, which takes a single
+// parameter, once with the whole batch as an Object[]; it must return one result per input (see GroovyLambda.asBatch).
+Gremlin.prototype.newBatchGroovyLambda = function (groovy) {
+  return this.getLambdaFactory().newBatchLambdaSync(groovy);
+};
+
+// Returns the LambdaFactory that creates the lambdas of newGroovyLambda and of traversal plans, as configured by the
+// options above (nativeExpressions, scriptEnginePoolSize, isolatedClosures, lambdaCacheSize, threadSafeLambdas and
+// lambdaMetrics).
+Gremlin.prototype.getLambdaFactory = function () {
+  if (!this._lambdaFactory) {
+    var builder = this.LambdaFactory.buildSync()
+      .enginePoolSync(this._enginePool)
+      .closureCompilerSync(this._closureCompiler)
+      .lambdaCacheSync(this._lambdaCache)
+      .nativeExpressionsSync(this._nativeExpressions)
+      .threadSafeSync(this._threadSafeLambdas)
+      .metricsSync(this._lambdaMetrics);
+    if (!this._closureCompiler && !this._enginePool) {
+      builder.engineSync(this.getEngine());
+    }
+    this._lambdaFactory = builder.createSync();
+  }
+  return this._lambdaFactory;
+};
+
+// Generates a Groovy lambda whose body is compiled with @CompileStatic.  The closure must type check, which usually
+// means declaring parameter types, e.g. '{ Vertex v -> ((String) v.value("name")).length() == 5 }'.
+Gremlin.prototype.newStaticGroovyLambda = function (groovy) {
+  return this.newGroovyLambda(groovy, this.Compilation.STATIC);
+};
+
+// Wraps *lambda* (a closure string or a Java lambda) so that its results are cached per argument: vertices and edges
+// by id, traversers by the object they hold, other values by equality.  Use it only for pure closures, such as
+// predicates on an element's properties.
+// *opts* is optional: { maximumSize: N, expireAfterMillis: T } bounds the cache to N results, each kept for T ms.
+Gremlin.prototype.memoize = function (lambda, opts) {
+  opts = opts || {};
+  if (_.isString(lambda)) {
+    lambda = this.newGroovyLambda(lambda);
+  }
+  return new this.MemoizingGlobFunction(lambda, opts.maximumSize || this.MemoizingGlobFunction.DEFAULT_MAXIMUM_SIZE,
+                                        opts.expireAfterMillis || 0);
+};
+
+// Compiles the closures of *manifest* in parallel into the lambda cache, so that they are ready before the first
+// request needs them.  *manifest* is { closures: [groovy...], imports: [class or package...], samples: [args...],
+// iterations: N, threads: N }, where all but closures are optional.  Each closure is applied *iterations* times to
+// each sample (Java objects or JS scalars) to warm up the JIT.  Returns a promise of one report per closure:
+// { groovy, compiled, compileMillis, invocations, error }.
+Gremlin.prototype.warmUp = function (manifest, callback) {
+  var self = this;
+  var java = this.java;
+  if (!this._lambdaCache) {
+    return Q.reject(new Error('warmUp requires the lambda cache (opts.lambdaCacheSize)')).nodeify(callback);
+  }
+  var runtime = java.callStaticMethodSync('java.lang.Runtime', 'getRuntime');
+  var threads = manifest.threads || runtime.availableProcessorsSync();
+  var compiler = this._closureCompiler || this._enginePool || this.getEngine();
+  var warmup = new this.LambdaWarmup(this._lambdaCache, compiler, threads);
+  warmup.addImportsSync(this.toListSync(manifest.imports || []));
+  var samples = java.newArray('java.lang.Object', (manifest.samples || []).map(this._javify.bind(this)));
+  return Q.nbind(warmup.warm, warmup)(this.toListSync(manifest.closures), samples, manifest.iterations || 0)
+    .then(function (reports) {
+      return self._jsify(self.LambdaWarmup.summarizeSync(reports));
+    })
+    .nodeify(callback);
+};
+
+// Returns the cache of compiled Groovy lambdas, or null if caching is disabled.  The cache reports its hit, miss and
+// eviction counts (e.g. getHitCountSync()).
+Gremlin.prototype.getLambdaCache = function () {
+  return this._lambdaCache;
+};
+
+// Returns the compiled TraversalPlan for *steps*, an array of [stepName, args...] arrays (see TraversalPlan).
+// Strings that look like Groovy closures become lambdas, as they do for TraversalWrapper steps.
+Gremlin.prototype.getPlan = function (steps) {
+  var self = this;
+  var json = JSON.stringify(steps, function (key, value) {
+    return self._isClosure(value) ? { lambda: value } : value;
+  });
+  if (this._planCache) {
+    return this._planCache.getSync(json, this.getLambdaFactory());
+  }
+  return this.TraversalPlan.compileSync(json, this.getLambdaFactory(), this._filterPushdown);
+};
+
+// Returns the cache of compiled traversal plans, or null if caching is disabled.
+Gremlin.prototype.getPlanCache = function () {
+  return this._planCache;
+};
+
+// Returns the cache of traversal results, or null unless opts.traversalResultCache was set.  Its getStatsSync() reports
+// its size, estimated weight, hits, misses, evictions and invalidations.
+Gremlin.prototype.getResultCache = function () {
+  return this._resultCache;
+};
+
+// Records that *graph* (a Java graph) has changed, or that any graph may have changed if *graph* is null, so that the
+// result cache discards the results it holds for it.
+Gremlin.prototype._graphChanged = function (graph) {
+  if (this._resultCache) {
+    if (graph) {
+      this._resultCache.bumpSync(graph);
+    } else {
+      this._resultCache.bumpAllSync();
+    }
+  }
+};
+
+// Returns the TraversalExecutor that runs submitted traversals, creating it on first use.
+Gremlin.prototype.getTraversalExecutor = function () {
+  if (!this._traversalExecutor) {
+    var opts = this._traversalExecutorOpts;
+    var builder = this.TraversalExecutor.buildSync().virtualThreadsSync(!!opts.virtualThreads);
+    if (opts.threads) {
+      builder = builder.threadsSync(opts.threads);
+    }
+    if (opts.queueSize) {
+      builder = builder.queueSizeSync(opts.queueSize);
+    }
+    this._traversalExecutor = builder.createSync();
+  }
+  return this._traversalExecutor;
 };
 
-// Import a Java class or package into the Groovy engine.
+// Returns a snapshot of the invocation metrics of each lambda, keyed by lambda, or null unless opts.lambdaMetrics was
+// set.  Each entry has invocations, errors, totalMillis, meanMicros, p50Micros, p90Micros, p99Micros and histogram.
+Gremlin.prototype.getLambdaMetrics = function () {
+  return this._lambdaMetrics ? JSON.parse(this._lambdaMetrics.snapshotSync()) : null;
+};
+
+// Import a Java class or package into the Groovy engine (and into the engine pool or closure compiler, if any).
 // - *javaClassOrPkg* can be either class name, e.g. 'java.util.HashSet', or package spec, e.g. 'java.util.*'.
 Gremlin.prototype.importGroovy = function (javaClassOrPkg) {
   var engine = this.getEngine();
   var imports = new this.HashSet();
   imports.addSync('import ' + javaClassOrPkg);
   engine.addImportsSync(imports);
+  if (this._enginePool) {
+    this._enginePool.addImportsSync(imports);
+  }
+  if (this._closureCompiler) {
+    this._closureCompiler.addImportsSync(imports);
+  }
+};
+
+// Returns the pool of engines that compile closures, or null unless opts.scriptEnginePoolSize was set.
+Gremlin.prototype.getEnginePool = function () {
+  return this._enginePool;
+};
+
+// Returns the compiler that isolates closure classes, or null unless opts.isolatedClosures was set.  Its getStatsSync()
+// reports the classes and class loaders it holds, and the JVM's metaspace use.
+Gremlin.prototype.getClosureCompiler = function () {
+  return this._closureCompiler;
 };
 
 // Generates a general purpose JavaScript lambda that can be used anywhere lambdas are accepted (e.g. filter, map,
@@ -302,8 +612,8 @@ Gremlin.prototype._toGroovyLambdas = function (groovyClosureStrings) {
     return self._toGroovyLambda(groovy);
   });
 
-  // Put them in a Java array of GroovyLambda type.
-  var className = this.GroovyLambda.class.getNameSync();
+  // Put them in a Java array of GlobFunction type, since lambdas may be decorated (e.g. by InstrumentedGlobFunction).
+  var className = 'com.entrendipity.gremlinnode.function.GlobFunction';
   var javaArray = this.java.newArray(className, lambdas);
   return javaArray;
 };
@@ -321,61 +631,55 @@ Gremlin.prototype._javify = function (arg) {
 };
 
 Gremlin.prototype._jsify = function (arg) {
-  if (!_.isObject(arg)) {
+  if (!_.isObject(arg) || _.isArray(arg)) {
     return arg;
   }
 
-  if (!arg._isType) {
-    arg._isType = {};
-  }
-
   if (arg.longValue) {
-    arg._isType.longValue = true;
     return parseInt(arg.longValue, 10);
-  } else if (this.isType(arg, 'com.tinkerpop.gremlin.structure.Vertex')) {
-    return this.wrapVertex(arg);
-  } else if (this.isType(arg, 'com.tinkerpop.gremlin.structure.Edge')) {
-    return this.wrapEdge(arg);
-  } else if (this.isType(arg, 'java.util.List')) {
-    var arr = [];
-    var it = arg.iteratorSync();
-    while (it.hasNextSync()) {
-      var elem = it.nextSync();
-      var obj = this._jsify(elem);
-      arr.push(obj);
-    }
-    return arr;
-  } else if (this.isType(arg, 'java.util.Map')) {
-    // it seems this type of coercion could be ported to node-java
-    // https://github.com/joeferner/node-java/issues/56
-    var map = {};
-    var it = arg.entrySetSync().iteratorSync();
-    while (it.hasNextSync()) {
-      var pair = it.nextSync();
-      map[pair.getKeySync()] = this._jsify(pair.getValueSync());
+  }
+
+  // Encode the whole result in Java, so that converting it costs one bridge crossing rather than several per element.
+  return this._decode(this.ResultEncoder.encodeSync(arg));
+};
+
+// Revives the [json, references] pair produced by the Java ResultEncoder into the same values that _jsify would
+// produce: wrapped vertices, edges, paths and graphs, plain objects for maps, and {key, count} arrays for bulk sets.
+Gremlin.prototype._decode = function (encoded) {
+  var self = this;
+  var references = encoded[1];
+
+  function revive(value) {
+    if (!_.isObject(value)) {
+      return value;
+    } else if (_.isArray(value)) {
+      return value.map(revive);
     }
-    return map;
-  } else if (this.isType(arg, 'com.tinkerpop.gremlin.process.util.BulkSet')) {
-    var arr = [];
-    var it = arg.iteratorSync();
-    while (it.hasNextSync()) {
-      var key = it.nextSync();
-      var count = this._jsify(arg.getSync(key));
-      var obj = {
-        key: this._jsify(key),
-        count: count
-      };
-      arr.push(obj);
+    switch (value['@']) {
+    case 'v':
+      return self.wrapVertex(references[value.r]);
+    case 'e':
+      return self.wrapEdge(references[value.r]);
+    case 'p':
+      return self.wrapPath(references[value.r]);
+    case 'g':
+      return self.wrap(references[value.r]);
+    case 'u':
+      return undefined;
+    case 'm':
+      return _.mapValues(value.v, revive);
+    case 'b':
+      var arr = [];
+      for (var i = 0; i < value.v.length; i += 2) {
+        arr.push({ key: revive(value.v[i]), count: value.v[i + 1] });
+      }
+      return arr;
+    default:
+      return references[value.r];
     }
-    return arr;
-  } else if (this.isType(arg, 'com.tinkerpop.gremlin.process.Path')) {
-    return this.wrapPath(arg);
-  } else if (this.isType(arg, 'com.tinkerpop.gremlin.structure.Graph')) {
-    return this.wrap(arg);
-  } else if (this.isType(arg, 'java.lang.Object')) {
-    return arg;
   }
-  return arg;
+
+  return revive(JSON.parse(encoded[0]));
 };
 
 Gremlin.prototype._asJSON = function (elem) {
@@ -0,0 +1,101 @@
+'use strict';
+
+var Q = require('q');
+var stream = require('stream');
+var util = require('util');
+var dlog = require('debug')('result-stream-wrapper');
+
+// A readable stream, in object mode, of the results of a Java ResultStream (see TraversalWrapper.stream).
+// Results are polled from the Java ring buffer at most *batchSize* at a time, and only when the stream's reader wants
+// more, so a slow reader holds back the traversal instead of letting results pile up.
+// The Java producer thread waits for the reader until the stream ends, so a reader that stops early must call cancel()
+// or destroy(), which cancels it too; the stream cancels itself if polling fails.
+// *opts* is optional: { batchSize: N, pollMillis: T, highWaterMark: N }.
+var ResultStreamWrapper = module.exports = function (gremlin, resultStream, opts) {
+  opts = opts || {};
+  stream.Readable.call(this, { objectMode: true, highWaterMark: opts.highWaterMark || 16 });
+  this.gremlin = gremlin;
+  this.resultStream = resultStream;
+  this._batchSize = opts.batchSize || gremlin.BatchIterator.DEFAULT_BATCH_SIZE;
+  this._pollMillis = opts.pollMillis || 100;
+  this._polling = false;
+  this._cancelled = false;
+};
+
+util.inherits(ResultStreamWrapper, stream.Readable);
+
+ResultStreamWrapper.prototype.unwrap = function () {
+  return this.resultStream;
+};
+
+// Resolves to the next batch of at most *batchSize* decoded results, or to null once the stream is done.  Use either
+// nextBatch or the stream interface, not both.
+ResultStreamWrapper.prototype.nextBatch = function (callback) {
+  var self = this;
+  var resultStream = self.resultStream;
+
+  function poll() {
+    return Q.nbind(resultStream.pollEncoded, resultStream)(self._batchSize, self._pollMillis)
+      .then(function (encoded) {
+        var results = self.gremlin._decode(encoded);
+        if (results.length > 0) {
+          return results;
+        }
+        return resultStream.isDoneSync() ? null : poll();
+      });
+  }
+
+  return poll().nodeify(callback);
+};
+
+// Stops the traversal and ends the stream.
+ResultStreamWrapper.prototype.cancel = function () {
+  if (this._stop()) {
+    this.push(null);
+  }
+};
+
+// Readable calls _destroy from destroy(), which stream consumers (e.g. pipeline) use on the streams they give up on.
+// The stream is already ending, so only the traversal is stopped.
+ResultStreamWrapper.prototype._destroy = function (err, callback) {
+  this._stop();
+  callback(err);
+};
+
+// Cancels the Java stream, once.  Returns false if it was already cancelled.
+ResultStreamWrapper.prototype._stop = function () {
+  if (this._cancelled) {
+    return false;
+  }
+  this._cancelled = true;
+  this.resultStream.cancelSync();
+  return true;
+};
+
+ResultStreamWrapper.prototype._read = function () {
+  var self = this;
+  if (self._polling || self._cancelled) {
+    return;
+  }
+  self._polling = true;
+  self.nextBatch()
+    .then(function (results) {
+      self._polling = false;
+      if (self._cancelled) {
+        return;
+      }
+      if (results === null) {
+        dlog('ResultStreamWrapper: done');
+        self.push(null);
+        return;
+      }
+      results.forEach(function (result) {
+        self.push(result);
+      });
+    }, function (err) {
+      self._polling = false;
+      self._stop();
+      self.emit('error', err);
+    })
+    .done();
+};
@@ -3,11 +3,12 @@
 var _ = require('lodash');
 var GraphWrapper = require('./graph-wrapper');
 var Q = require('q');
+var ResultStreamWrapper = require('./result-stream-wrapper');
 var dlog = require('debug')('traversal-wrapper');
 
 var assert = require('assert'); // TODO: remove
 
-var TraversalWrapper = module.exports = function (gremlin, traversal) {
+var TraversalWrapper = module.exports = function (gremlin, traversal, graph) {
   assert.ok(traversal);
   // Both Traversal and __ (class) have a compatible shape.
   assert.ok(gremlin.isType(traversal, 'com.tinkerpop.gremlin.process.Traversal') ||
@@ -15,6 +16,7 @@ var TraversalWrapper = module.exports = function (gremlin, traversal) {
              traversal.class.getNameSync() === 'com.tinkerpop.gremlin.process.graph.traversal.__'));
   this.gremlin = gremlin;
   this.traversal = traversal;
+  this.graph = graph || null;
 };
 
 TraversalWrapper.prototype.unwrap = function () {
@@ -30,7 +32,7 @@ TraversalWrapper.prototype.add = function (type, args) {
   // TraversalWrapper for AnonymousGraphTraversal, which does NOT return "this".  Thus, we wrap the return value in a
   // new TraversalWrapper to be safe.
   var that = this.traversal[type + 'Sync'].apply(this.traversal, args);
-  return this.gremlin.wrapTraversal(that);
+  return this.gremlin.wrapTraversal(that, this.graph);
 };
 
 TraversalWrapper.prototype.V = function () {
@@ -97,22 +99,22 @@ TraversalWrapper.prototype.in = function () {
 
 TraversalWrapper.prototype.addInE = function (edgeLabel, stepLabel, props) {
   var that = this.traversal.addInESync(edgeLabel, stepLabel, this.gremlin.propertiesToVarArgs(props));
-  return this.gremlin.wrapTraversal(that);
+  return this.gremlin.wrapTraversal(that, this.graph);
 };
 
 TraversalWrapper.prototype.addOutE = function (edgeLabel, stepLabel, props) {
   var that = this.traversal.addOutESync(edgeLabel, stepLabel, this.gremlin.propertiesToVarArgs(props));
-  return this.gremlin.wrapTraversal(that);
+  return this.gremlin.wrapTraversal(that, this.graph);
 };
 
 TraversalWrapper.prototype.addBothE = function (edgeLabel, stepLabel, props) {
   var that = this.traversal.addBothESync(edgeLabel, stepLabel, this.gremlin.propertiesToVarArgs(props));
-  return this.gremlin.wrapTraversal(that);
+  return this.gremlin.wrapTraversal(that, this.graph);
 };
 
 TraversalWrapper.prototype.addE = function (direction, edgeLabel, stepLabel, props) {
   var that = this.traversal.addESync(direction, edgeLabel, stepLabel, this.gremlin.propertiesToVarArgs(props));
-  return this.gremlin.wrapTraversal(that);
+  return this.gremlin.wrapTraversal(that, this.graph);
 };
 
 TraversalWrapper.prototype.inV = function () {
@@ -249,7 +251,17 @@ TraversalWrapper.prototype.except = function () {
   return this.add('except', args);
 };
 
+// With opts.filterPushdown, a closure that only compares properties of the element with literals, e.g.
+// '{ it.get().value("age") > 30 }', is replaced by the equivalent has() steps (see FilterPushdown).
 TraversalWrapper.prototype.filter = function (closure) {
+  var gremlin = this.gremlin;
+  if (gremlin._filterPushdown && gremlin._isClosure(closure) &&
+      gremlin.isType(this.traversal, 'com.tinkerpop.gremlin.process.graph.traversal.GraphTraversal')) {
+    var pushedDown = gremlin.FilterPushdown.filterSync(this.traversal, closure);
+    if (pushedDown) {
+      return gremlin.wrapTraversal(pushedDown, this.graph);
+    }
+  }
   var args = Array.prototype.slice.call(arguments).map(this.gremlin._javify.bind(this.gremlin));
   return this.add('filter', args);
 };
@@ -523,30 +535,92 @@ TraversalWrapper.prototype.equals = traversalPromiseWrap('equals');
 TraversalWrapper.prototype.size = traversalPromiseWrap('size');
 TraversalWrapper.prototype.toList = traversalPromiseWrap('toList');
 
+// Drains the traversal and returns its results converted as by Gremlin._jsify.  The results are encoded in Java by
+// ResultEncoder and decoded here, so the whole array costs a single bridge crossing.
 TraversalWrapper.prototype.toArray = function (callback) {
   var self = this;
+  var ResultEncoder = self.gremlin.ResultEncoder;
 
-  return self.toList()
-    .then(function (list) {
-      var arr = [];
-      for (var i = 0, l = list.sizeSync(); i < l; i++) {
-        var it = list.getSync(i);
-        arr.push(self.gremlin._jsify(it));
-      }
+  return Q.nbind(ResultEncoder.encodeAll, ResultEncoder)(self.traversal)
+    .then(function (encoded) {
+      var arr = self.gremlin._decode(encoded);
       dlog('TraversalWrapper.prototype.toArray:', arr.length, arr);
       return arr;
     })
     .nodeify(callback);
 };
 
-TraversalWrapper.prototype.toArraySync = function () {
+// Like toArray, but the results are served from the result cache (see opts.traversalResultCache) while the graph is
+// unchanged, keyed by the traversal's steps and their arguments.  Use it only for traversals that do not modify the
+// graph.  Without a result cache, or for traversals not started from a graph, it is simply toArray.
+TraversalWrapper.prototype.toArrayCached = function (callback) {
   var self = this;
-  var list = self.traversal.toListSync();
-  var arr = [];
-  for (var i = 0, l = list.sizeSync(); i < l; i++) {
-    var it = list.getSync(i);
-    arr.push(self.gremlin._jsify(it));
+  var cache = self.gremlin.getResultCache();
+  if (!cache || !self.graph) {
+    return self.toArray(callback);
   }
+
+  return Q.nbind(cache.encodeAll, cache)(self.graph, self.traversal)
+    .then(function (encoded) {
+      var arr = self.gremlin._decode(encoded);
+      dlog('TraversalWrapper.prototype.toArrayCached:', arr.length, arr);
+      return arr;
+    })
+    .nodeify(callback);
+};
+
+// Like toArray, but runs the traversal on the Java-side TraversalExecutor (see Gremlin.getTraversalExecutor) instead of
+// one of node-java's few worker threads, so that many independent traversals can run at once.
+// *priority* is optional (0 by default); when the executor is busy, traversals with a higher priority start first.
+TraversalWrapper.prototype.submit = function (priority, callback) {
+  if (_.isFunction(priority)) {
+    callback = priority;
+    priority = 0;
+  }
+  var self = this;
+  var deferred = Q.defer();
+  // node-java holds a persistent reference to every proxy, and to the closure behind it, until it is unref'd.  The
+  // proxy is released once the executor has called it back, or at once if the traversal could not be submitted (older
+  // versions of node-java have no unref, and keep every proxy).
+  var onComplete = self.gremlin.java.newProxy('java.util.function.BiConsumer', {
+    accept: function (encoded, err) {
+      release();
+      if (err) {
+        deferred.reject(new Error(err.toStringSync()));
+      } else {
+        deferred.resolve(self.gremlin._decode(encoded));
+      }
+    }
+  });
+  function release() {
+    if (_.isFunction(onComplete.unref)) {
+      onComplete.unref();
+    }
+  }
+  try {
+    self.gremlin.getTraversalExecutor().submitEncodedSync(self.traversal, priority || 0, onComplete);
+  } catch (err) {
+    release();
+    deferred.reject(err);
+  }
+  return deferred.promise.nodeify(callback);
+};
+
+// Returns a readable stream (in object mode) of the traversal's results, which start flowing while the traversal is
+// still running.  A Java thread runs the traversal into a ring buffer of *capacity* results, pausing whenever the
+// buffer is full, so memory use is bounded however many results there are.  A stream that is not read to its end must
+// be cancelled: call cancel() on it to stop the traversal and release its thread.
+// *opts* is optional: { capacity: N, batchSize: N, pollMillis: T, highWaterMark: N } (see ResultStreamWrapper).
+TraversalWrapper.prototype.stream = function (opts) {
+  opts = opts || {};
+  var capacity = opts.capacity || this.gremlin.ResultStream.DEFAULT_CAPACITY;
+  var resultStream = new this.gremlin.ResultStream(this.traversal, capacity);
+  return new ResultStreamWrapper(this.gremlin, resultStream, opts);
+};
+
+TraversalWrapper.prototype.toArraySync = function () {
+  var self = this;
+  var arr = self.gremlin._decode(self.gremlin.ResultEncoder.encodeAllSync(self.traversal));
   dlog('TraversalWrapper.prototype.toArraySync:', arr.length, arr);
   return arr;
 };
@@ -24,12 +24,21 @@ VertexWrapper.prototype.addEdge = function (label, inVertex, properties, callbac
   assert(_.isObject(properties));
   assert(inVertex instanceof VertexWrapper);
   return Q.nbind(self.el.addEdge, self.el)(label, inVertex.unwrap(), self.gremlin.propertiesToVarArgs(properties))
-    .then(function (e) { return self.gremlin.wrapEdge(e); })
+    .then(function (e) {
+      self._graphChanged();
+      return self.gremlin.wrapEdge(e);
+    })
     .nodeify(callback);
 };
 
 VertexWrapper.prototype.setProperty = function (key, value, callback) {
-  return Q.nbind(this.el.singleProperty, this.el)(key, value, this.gremlin.emptyArrayList).nodeify(callback);
+  var self = this;
+  return Q.nbind(this.el.singleProperty, this.el)(key, value, this.gremlin.emptyArrayList)
+    .then(function (prop) {
+      self._graphChanged();
+      return prop;
+    })
+    .nodeify(callback);
 };
 
 VertexWrapper.simplifyVertexProperties = function (obj) {
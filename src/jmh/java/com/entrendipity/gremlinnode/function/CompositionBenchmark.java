@@ -0,0 +1,97 @@
+package com.entrendipity.gremlinnode.function;
+
+import com.tinkerpop.gremlin.groovy.jsr223.GremlinGroovyScriptEngine;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import javax.script.ScriptException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of andThen chains and negation built by AbstractGlobFunction, compared against the same compositions of plain
+ * Java lambdas.  The stages themselves are Java lambdas, so that the numbers measure composition overhead rather than
+ * Groovy dispatch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompositionBenchmark {
+
+    @Param({"1", "5", "20"})
+    public int depth;
+
+    private GlobFunction globChain;
+    private Function<Object, Object> javaChain;
+
+    private GlobFunction globNegated;
+    private GlobFunction globDoubleNegated;
+    private Predicate<Object> javaNegated;
+    private Predicate<Object> javaDoubleNegated;
+
+    private Integer x = 42;
+
+    @Setup
+    public void setup() throws ScriptException {
+        final GremlinGroovyScriptEngine engine = new GremlinGroovyScriptEngine();
+        final Function<Object, Object> increment = a -> (Integer) a + 1;
+
+        GlobFunction glob = new GroovyLambda("{ x -> x }", engine);
+        Function<Object, Object> java = a -> a;
+        for (int i = 0; i < depth; i++) {
+            glob = glob.andThen(increment);
+            java = java.andThen(increment);
+        }
+        globChain = glob;
+        javaChain = java;
+
+        final GroovyLambda predicate = new GroovyLambda("{ x -> x < 100 }", engine);
+        final Predicate<Object> javaPredicate = a -> (Integer) a < 100;
+        globNegated = predicate.negate();
+        globDoubleNegated = predicate.negate().negate();
+        javaNegated = javaPredicate.negate();
+        javaDoubleNegated = javaPredicate.negate().negate();
+    }
+
+    @Benchmark
+    public Object andThenChainGlob() {
+        return globChain.apply(x);
+    }
+
+    @Benchmark
+    public Object andThenChainJava() {
+        return javaChain.apply(x);
+    }
+
+    @Benchmark
+    public boolean negateGlob() {
+        return globNegated.test(x);
+    }
+
+    @Benchmark
+    public boolean negateJava() {
+        return javaNegated.test(x);
+    }
+
+    @Benchmark
+    public boolean doubleNegateGlob() {
+        return globDoubleNegated.test(x);
+    }
+
+    @Benchmark
+    public boolean doubleNegateJava() {
+        return javaDoubleNegated.test(x);
+    }
+}
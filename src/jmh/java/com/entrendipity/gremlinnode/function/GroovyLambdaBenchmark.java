@@ -0,0 +1,198 @@
+package com.entrendipity.gremlinnode.function;
+
+import com.tinkerpop.gremlin.groovy.jsr223.GremlinGroovyScriptEngine;
+import com.tinkerpop.gremlin.util.function.TriConsumer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import javax.script.ScriptException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Construction and per-arity call cost of GroovyLambda, each compared against an equivalent plain Java lambda.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroovyLambdaBenchmark {
+
+    private GremlinGroovyScriptEngine engine;
+    private GroovyLambdaCache cache;
+
+    private GroovyLambda function;
+    private GroovyLambda biFunction;
+    private GroovyLambda supplier;
+    private GroovyLambda consumer;
+    private GroovyLambda biConsumer;
+    private GroovyLambda triConsumer;
+    private GroovyLambda predicate;
+    private GroovyLambda biPredicate;
+    private GroovyLambda staticPredicate;
+
+    private Function<Object, Object> javaFunction;
+    private BiFunction<Object, Object, Object> javaBiFunction;
+    private Supplier<Object> javaSupplier;
+    private Consumer<Object> javaConsumer;
+    private BiConsumer<Object, Object> javaBiConsumer;
+    private TriConsumer<Object, Object, Object> javaTriConsumer;
+    private Predicate<Object> javaPredicate;
+    private BiPredicate<Object, Object> javaBiPredicate;
+
+    private Integer x = 42;
+    private Integer y = 58;
+    private Integer z = 7;
+
+    @Setup
+    public void setup() throws ScriptException {
+        engine = new GremlinGroovyScriptEngine();
+        cache = new GroovyLambdaCache();
+
+        function = new GroovyLambda("{ x -> x + 2 }", engine);
+        biFunction = new GroovyLambda("{ x, y -> x + y }", engine);
+        supplier = new GroovyLambda("{ -> 42 }", engine);
+        consumer = new GroovyLambda("{ x -> x }", engine);
+        biConsumer = new GroovyLambda("{ x, y -> x }", engine);
+        triConsumer = new GroovyLambda("{ x, y, z -> x }", engine);
+        predicate = new GroovyLambda("{ x -> x < 100 }", engine);
+        biPredicate = new GroovyLambda("{ x, y -> x < y }", engine);
+        staticPredicate = GroovyLambda.compileStatic("{ Integer x -> x < 100 }", engine);
+
+        javaFunction = a -> (Integer) a + 2;
+        javaBiFunction = (a, b) -> (Integer) a + (Integer) b;
+        javaSupplier = () -> 42;
+        javaConsumer = a -> { };
+        javaBiConsumer = (a, b) -> { };
+        javaTriConsumer = (a, b, c) -> { };
+        javaPredicate = a -> (Integer) a < 100;
+        javaBiPredicate = (a, b) -> (Integer) a < (Integer) b;
+    }
+
+    // Construction
+
+    @Benchmark
+    public Object constructGroovyLambda() throws ScriptException {
+        return new GroovyLambda("{ x -> x + 2 }", engine);
+    }
+
+    @Benchmark
+    public Object constructStaticGroovyLambda() throws ScriptException {
+        return GroovyLambda.compileStatic("{ Integer x -> x + 2 }", engine);
+    }
+
+    @Benchmark
+    public Object lookupCachedGroovyLambda() throws ScriptException {
+        return cache.get("{ x -> x + 2 }", engine);
+    }
+
+    // Function.apply
+
+    @Benchmark
+    public Object applyGroovy() {
+        return function.apply(x);
+    }
+
+    @Benchmark
+    public Object applyJava() {
+        return javaFunction.apply(x);
+    }
+
+    // BiFunction.apply
+
+    @Benchmark
+    public Object biApplyGroovy() {
+        return biFunction.apply(x, y);
+    }
+
+    @Benchmark
+    public Object biApplyJava() {
+        return javaBiFunction.apply(x, y);
+    }
+
+    // Supplier.get
+
+    @Benchmark
+    public Object getGroovy() {
+        return supplier.get();
+    }
+
+    @Benchmark
+    public Object getJava() {
+        return javaSupplier.get();
+    }
+
+    // Consumer.accept, BiConsumer.accept, TriConsumer.accept
+
+    @Benchmark
+    public void acceptGroovy() {
+        consumer.accept(x);
+    }
+
+    @Benchmark
+    public void acceptJava() {
+        javaConsumer.accept(x);
+    }
+
+    @Benchmark
+    public void biAcceptGroovy() {
+        biConsumer.accept(x, y);
+    }
+
+    @Benchmark
+    public void biAcceptJava() {
+        javaBiConsumer.accept(x, y);
+    }
+
+    @Benchmark
+    public void triAcceptGroovy() {
+        triConsumer.accept(x, y, z);
+    }
+
+    @Benchmark
+    public void triAcceptJava() {
+        javaTriConsumer.accept(x, y, z);
+    }
+
+    // Predicate.test, BiPredicate.test
+
+    @Benchmark
+    public boolean testGroovy() {
+        return predicate.test(x);
+    }
+
+    @Benchmark
+    public boolean testStaticGroovy() {
+        return staticPredicate.test(x);
+    }
+
+    @Benchmark
+    public boolean testJava() {
+        return javaPredicate.test(x);
+    }
+
+    @Benchmark
+    public boolean biTestGroovy() {
+        return biPredicate.test(x, y);
+    }
+
+    @Benchmark
+    public boolean biTestJava() {
+        return javaBiPredicate.test(x, y);
+    }
+}
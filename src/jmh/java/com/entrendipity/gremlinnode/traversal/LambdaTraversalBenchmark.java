@@ -0,0 +1,103 @@
+package com.entrendipity.gremlinnode.traversal;
+
+import com.entrendipity.gremlinnode.function.GroovyLambda;
+import com.tinkerpop.gremlin.groovy.jsr223.GremlinGroovyScriptEngine;
+import com.tinkerpop.gremlin.process.T;
+import com.tinkerpop.gremlin.process.Traverser;
+import com.tinkerpop.gremlin.process.graph.traversal.__;
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.structure.Vertex;
+import com.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import com.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import javax.script.ScriptException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end filter and choose traversals driven by Groovy lambdas, compared against the same traversals driven by
+ * plain Java lambdas.  The "classic" graph is TinkerFactory.createClassic(); the numeric graph sizes are generated
+ * graphs with that many vertices and four random out-edges per vertex.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LambdaTraversalBenchmark {
+
+    private final static String[] NAMES = {"marko", "vadas", "lop", "josh", "ripple", "peter"};
+    private final static int EDGES_PER_VERTEX = 4;
+
+    @Param({"classic", "10000", "100000"})
+    public String graphName;
+
+    private Graph graph;
+
+    private Predicate<Traverser<Vertex>> groovyFilter;
+    private Predicate<Traverser<Vertex>> javaFilter;
+    private Predicate<Vertex> groovyChoose;
+    private Predicate<Vertex> javaChoose;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws ScriptException {
+        graph = "classic".equals(graphName) ? TinkerFactory.createClassic() : generate(Integer.parseInt(graphName));
+
+        final GremlinGroovyScriptEngine engine = new GremlinGroovyScriptEngine();
+        groovyFilter = new GroovyLambda("{ it -> it.get().label() == 'person' }", engine);
+        javaFilter = t -> t.get().label().equals("person");
+        groovyChoose = new GroovyLambda("{ v -> v.value('name').length() == 5 }", engine);
+        javaChoose = v -> v.<String>value("name").length() == 5;
+    }
+
+    @Benchmark
+    public long filterGroovy() {
+        return graph.V().filter(groovyFilter).count().next();
+    }
+
+    @Benchmark
+    public long filterJava() {
+        return graph.V().filter(javaFilter).count().next();
+    }
+
+    @Benchmark
+    public long chooseGroovy() {
+        return graph.V().choose(groovyChoose, __.out(), __.in()).count().next();
+    }
+
+    @Benchmark
+    public long chooseJava() {
+        return graph.V().choose(javaChoose, __.out(), __.in()).count().next();
+    }
+
+    // Generate a graph of *size* vertices, labelled and named like the classic graph, with random edges.
+    private static Graph generate(final int size) {
+        final Random random = new Random(size);
+        final Graph generated = TinkerGraph.open();
+        final Vertex[] vertices = new Vertex[size];
+        for (int i = 0; i < size; i++) {
+            final String name = NAMES[random.nextInt(NAMES.length)];
+            final String label = random.nextBoolean() ? "person" : "software";
+            vertices[i] = generated.addVertex(T.label, label, "name", name);
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < EDGES_PER_VERTEX; j++) {
+                vertices[i].addEdge(random.nextBoolean() ? "knows" : "created", vertices[random.nextInt(size)]);
+            }
+        }
+        return generated;
+    }
+}
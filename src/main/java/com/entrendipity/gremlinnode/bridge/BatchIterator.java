@@ -0,0 +1,112 @@
+package com.entrendipity.gremlinnode.bridge;
+
+import com.entrendipity.gremlinnode.function.GlobFunction;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drain an Iterator (typically a Traversal) in batches, so that the Node bridge pays for one call per batch rather
+ * than a hasNext() and a next() call per result.
+ *
+ * Batches are either raw (nextBatch, an Object[] of results) or encoded by ResultEncoder (nextEncodedBatch).  A fixed
+ * batch iterator always asks for batchSize results.  An adaptive batch iterator (maxBatchSize > batchSize) doubles
+ * its batch size, up to maxBatchSize, each time a full batch is produced within the target latency, and halves it,
+ * down to batchSize, when a batch takes longer than that.  Thus cheap results are fetched in large batches, while a
+ * slow traversal still delivers its first results promptly.
+ */
+public class BatchIterator {
+
+    public final static int DEFAULT_BATCH_SIZE = 100;
+    public final static long DEFAULT_TARGET_MILLIS = 10;
+
+    private final Iterator<?> iterator;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long targetNanos;
+    private int batchSize;
+
+    public BatchIterator(final Iterator<?> iterator) {
+        this(iterator, DEFAULT_BATCH_SIZE);
+    }
+
+    public BatchIterator(final Iterator<?> iterator, final int batchSize) {
+        this(iterator, batchSize, batchSize);
+    }
+
+    public BatchIterator(final Iterator<?> iterator, final int batchSize, final int maxBatchSize) {
+        this(iterator, batchSize, maxBatchSize, DEFAULT_TARGET_MILLIS);
+    }
+
+    public BatchIterator(final Iterator<?> iterator, final int batchSize, final int maxBatchSize,
+                         final long targetMillis) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        if (maxBatchSize < batchSize) {
+            throw new IllegalArgumentException("maxBatchSize " + maxBatchSize + " is less than batchSize " + batchSize);
+        }
+        this.iterator = iterator;
+        this.minBatchSize = batchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        this.batchSize = batchSize;
+    }
+
+    public boolean hasNext() {
+        return iterator.hasNext();
+    }
+
+    /**
+     * The number of results the next batch will hold, at most.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public boolean isAdaptive() {
+        return maxBatchSize > minBatchSize;
+    }
+
+    /**
+     * Return up to getBatchSize() results.  The array is empty once the iterator is exhausted.
+     */
+    public Object[] nextBatch() {
+        return take().toArray();
+    }
+
+    /**
+     * Return up to getBatchSize() results, encoded as a JSON array by ResultEncoder.  Returns {json, references}.
+     */
+    public Object[] nextEncodedBatch() {
+        return ResultEncoder.encode(take());
+    }
+
+    /**
+     * Return up to getBatchSize() results, mapped by *function* in a single applyAll call.
+     */
+    public Object[] nextBatch(final GlobFunction function) {
+        return function.applyAll(take());
+    }
+
+    private List<Object> take() {
+        final long start = System.nanoTime();
+        final List<Object> batch = new ArrayList<>(batchSize);
+        for (int count = 0; count < batchSize && iterator.hasNext(); count++) {
+            batch.add(iterator.next());
+        }
+        if (isAdaptive()) {
+            adapt(batch.size(), System.nanoTime() - start);
+        }
+        return batch;
+    }
+
+    private void adapt(final int produced, final long elapsedNanos) {
+        if (elapsedNanos > targetNanos) {
+            batchSize = Math.max(minBatchSize, batchSize / 2);
+        } else if (produced == batchSize) {
+            batchSize = (int) Math.min(maxBatchSize, 2L * batchSize);
+        }
+    }
+}
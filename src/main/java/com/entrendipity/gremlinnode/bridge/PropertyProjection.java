@@ -0,0 +1,103 @@
+package com.entrendipity.gremlinnode.bridge;
+
+import com.tinkerpop.gremlin.structure.Element;
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.structure.Property;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Project properties of many elements in a single pass, as columns: one array per property key, with one entry per
+ * element.
+ *
+ * A property the element does not have is ResultEncoder.UNDEFINED (undefined in JavaScript), and a vertex property
+ * with several values is the list of its values.  Elements are read with propertyIterator, so that missing properties
+ * are detected without throwing and catching exceptions.
+ */
+public class PropertyProjection {
+
+    public final static Object MISSING = ResultEncoder.UNDEFINED;
+
+    private PropertyProjection() {
+    }
+
+    /**
+     * Project *keys* of each element of *elements*.  Returns one column per key, in the order of *keys*.
+     */
+    public static Object[][] project(final Iterator<?> elements, final String... keys) {
+        final List<List<Object>> columns = new ArrayList<>(keys.length);
+        for (int k = 0; k < keys.length; k++) {
+            columns.add(new ArrayList<>());
+        }
+        while (elements.hasNext()) {
+            final Object element = elements.next();
+            for (int k = 0; k < keys.length; k++) {
+                columns.get(k).add(element instanceof Element ? value((Element) element, keys[k]) : MISSING);
+            }
+        }
+        final Object[][] result = new Object[keys.length][];
+        for (int k = 0; k < keys.length; k++) {
+            result[k] = columns.get(k).toArray();
+        }
+        return result;
+    }
+
+    public static Object[][] project(final Object[] elements, final String... keys) {
+        return project(Arrays.asList(elements).iterator(), keys);
+    }
+
+    /**
+     * Project *keys* of the vertices of *graph* with the given *ids*.  A vertex that does not exist has every key
+     * missing.
+     */
+    public static Object[][] projectVertexIds(final Graph graph, final Object[] ids, final String... keys) {
+        final List<Object> vertices = new ArrayList<>(ids.length);
+        for (final Object id : ids) {
+            final Iterator<?> found = graph.vertexIterator(id);
+            vertices.add(found.hasNext() ? found.next() : null);
+        }
+        return project(vertices.iterator(), keys);
+    }
+
+    /**
+     * As project, but encoded by ResultEncoder as a map from each key to its column.  Returns {json, references}.
+     */
+    public static Object[] encode(final Iterator<?> elements, final String... keys) {
+        return ResultEncoder.encode(toMap(keys, project(elements, keys)));
+    }
+
+    public static Object[] encode(final Object[] elements, final String... keys) {
+        return encode(Arrays.asList(elements).iterator(), keys);
+    }
+
+    public static Object[] encodeVertexIds(final Graph graph, final Object[] ids, final String... keys) {
+        return ResultEncoder.encode(toMap(keys, projectVertexIds(graph, ids, keys)));
+    }
+
+    private static Map<String, Object[]> toMap(final String[] keys, final Object[][] columns) {
+        final Map<String, Object[]> map = new LinkedHashMap<>();
+        for (int k = 0; k < keys.length; k++) {
+            map.put(keys[k], columns[k]);
+        }
+        return map;
+    }
+
+    private static Object value(final Element element, final String key) {
+        final Iterator<? extends Property<Object>> properties = element.propertyIterator(key);
+        if (!properties.hasNext()) {
+            return MISSING;
+        }
+        final Object first = properties.next().value();
+        if (!properties.hasNext()) {
+            return first;
+        }
+        final List<Object> values = new ArrayList<>();
+        values.add(first);
+        properties.forEachRemaining(property -> values.add(property.value()));
+        return values;
+    }
+}
@@ -0,0 +1,226 @@
+package com.entrendipity.gremlinnode.bridge;
+
+import com.tinkerpop.gremlin.process.Path;
+import com.tinkerpop.gremlin.process.util.BulkSet;
+import com.tinkerpop.gremlin.structure.Edge;
+import com.tinkerpop.gremlin.structure.Element;
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.structure.Vertex;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encode traversal results for the Node bridge in a single call.
+ *
+ * Walking a result element by element from JavaScript costs several bridge crossings per element.  Instead, the
+ * encoder walks the result in Java and returns a two element array: a JSON string, and an array of the Java objects
+ * that the JSON refers to.  lib/gremlin.js (Gremlin._decode) turns the pair back into exactly what Gremlin._jsify
+ * produces element by element.
+ *
+ * Scalars (strings, booleans, finite numbers, null) are plain JSON, and lists and arrays are JSON arrays.  Everything
+ * else is a JSON object tagged by its "@" member:
+ *
+ *   {"@":"v","id":ID,"r":N}    a Vertex, with its id, and its index N in the references array
+ *   {"@":"e","id":ID,"r":N}    an Edge
+ *   {"@":"p","r":N}            a Path
+ *   {"@":"g","r":N}            a Graph
+ *   {"@":"o","r":N}            any other Java object, passed through unchanged
+ *   {"@":"m","v":{...}}        a Map, with keys converted to strings
+ *   {"@":"b","v":[K,C,...]}    a BulkSet, as alternating keys and counts
+ *   {"@":"u"}                  ResultEncoder.UNDEFINED, which marks a missing value
+ */
+public class ResultEncoder {
+
+    /**
+     * A marker for a missing value, which is decoded as undefined.
+     */
+    public final static Object UNDEFINED = new Object() {
+        public String toString() {
+            return "undefined";
+        }
+    };
+
+    private final StringBuilder json = new StringBuilder();
+    private final List<Object> references = new ArrayList<>();
+
+    private ResultEncoder() {
+    }
+
+    /**
+     * Encode a single result.  Returns {json, references}.
+     */
+    public static Object[] encode(final Object result) {
+        final ResultEncoder encoder = new ResultEncoder();
+        encoder.value(result);
+        return encoder.toArray();
+    }
+
+    /**
+     * Drain *results* and encode them as one JSON array.  Returns {json, references}.
+     */
+    public static Object[] encodeAll(final Iterator<?> results) {
+        return encodeAll(results, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Take at most *limit* results from *results* and encode them as one JSON array.  Returns {json, references}.
+     */
+    public static Object[] encodeAll(final Iterator<?> results, final int limit) {
+        final ResultEncoder encoder = new ResultEncoder();
+        encoder.json.append('[');
+        for (int count = 0; count < limit && results.hasNext(); count++) {
+            if (count > 0) {
+                encoder.json.append(',');
+            }
+            encoder.value(results.next());
+        }
+        encoder.json.append(']');
+        return encoder.toArray();
+    }
+
+    private Object[] toArray() {
+        return new Object[] { json.toString(), references.toArray() };
+    }
+
+    private void value(final Object value) {
+        if (value == null) {
+            json.append("null");
+        } else if (value == UNDEFINED) {
+            json.append("{\"@\":\"u\"}");
+        } else if (value instanceof String) {
+            string((String) value);
+        } else if (value instanceof Boolean) {
+            json.append(((Boolean) value).booleanValue());
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+                   || value instanceof Byte) {
+            json.append(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            // Widen floats exactly as the bridge does, so that 0.4f decodes to 0.4000000059604645 either way.
+            final double d = ((Number) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                reference("o", value);
+            } else {
+                json.append(d);
+            }
+        } else if (value instanceof Character) {
+            string(value.toString());
+        } else if (value instanceof Vertex) {
+            element("v", (Vertex) value);
+        } else if (value instanceof Edge) {
+            element("e", (Edge) value);
+        } else if (value instanceof List) {
+            list((List<?>) value);
+        } else if (value instanceof Object[]) {
+            array((Object[]) value);
+        } else if (value instanceof Map) {
+            map((Map<?, ?>) value);
+        } else if (value instanceof BulkSet) {
+            bulkSet((BulkSet) value);
+        } else if (value instanceof Path) {
+            reference("p", value);
+        } else if (value instanceof Graph) {
+            reference("g", value);
+        } else {
+            reference("o", value);
+        }
+    }
+
+    private void reference(final String tag, final Object value) {
+        json.append("{\"@\":\"").append(tag).append("\",\"r\":").append(references.size()).append('}');
+        references.add(value);
+    }
+
+    private void element(final String tag, final Element element) {
+        json.append("{\"@\":\"").append(tag).append("\",\"id\":");
+        value(element.id());
+        json.append(",\"r\":").append(references.size()).append('}');
+        references.add(element);
+    }
+
+    private void list(final List<?> list) {
+        json.append('[');
+        boolean first = true;
+        for (Object item : list) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            value(item);
+        }
+        json.append(']');
+    }
+
+    private void array(final Object[] array) {
+        json.append('[');
+        for (int i = 0; i < array.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            value(array[i]);
+        }
+        json.append(']');
+    }
+
+    private void map(final Map<?, ?> map) {
+        json.append("{\"@\":\"m\",\"v\":{");
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            string(String.valueOf(entry.getKey()));
+            json.append(':');
+            value(entry.getValue());
+        }
+        json.append("}}");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void bulkSet(final BulkSet bulkSet) {
+        json.append("{\"@\":\"b\",\"v\":[");
+        boolean first = true;
+        for (Object key : (Iterable<Object>) bulkSet) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            value(key);
+            json.append(',').append(bulkSet.get(key));
+        }
+        json.append("]}");
+    }
+
+    private void string(final String s) {
+        json.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || Character.isSurrogate(c)) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
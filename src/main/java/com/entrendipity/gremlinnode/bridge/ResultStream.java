@@ -0,0 +1,254 @@
+package com.entrendipity.gremlinnode.bridge;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stream the results of an Iterator (typically a Traversal) to the Node bridge while it is still running.
+ *
+ * A producer thread drains the iterator into a bounded ring buffer, and the consumer polls the buffer in batches.  When
+ * the buffer is full the producer waits, so a slow consumer holds back the traversal rather than letting results pile
+ * up on the heap.  cancel() discards whatever is buffered and interrupts the producer, whether it is waiting for room
+ * or still computing a result; the producer checks for cancellation between results, so it stops before the next one
+ * even if the iterator ignores the interrupt.
+ *
+ * If the iterator throws, the results produced before the failure are still delivered, then the next poll throws the
+ * exception (a checked exception or an Error wrapped in an IllegalStateException), after which the stream is done.
+ *
+ * The producer thread waits for the consumer for as long as the stream is open, so a consumer that stops before the
+ * stream is done must call cancel(); otherwise the thread, and the traversal it holds, stay parked for good.
+ */
+public class ResultStream {
+
+    public final static int DEFAULT_CAPACITY = 1024;
+
+    private final Iterator<?> iterator;
+    private final Object[] buffer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    // Guarded by lock.
+    private int head;
+    private int count;
+    private boolean finished;
+    private boolean cancelled;
+    private Throwable failure;
+
+    private final Thread producer;
+    private final LongAdder produced = new LongAdder();
+    private final LongAdder consumed = new LongAdder();
+    private final LongAdder producerWaits = new LongAdder();
+
+    public ResultStream(final Iterator<?> iterator) {
+        this(iterator, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Start draining *iterator* into a buffer of *capacity* results.
+     */
+    public ResultStream(final Iterator<?> iterator, final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.iterator = iterator;
+        this.buffer = new Object[capacity];
+        this.producer = new Thread(this::produce, "result-stream-producer");
+        this.producer.setDaemon(true);
+        this.producer.start();
+    }
+
+    /**
+     * Take up to *maxResults* results, waiting at most *timeoutMillis* for the first one.  Returns an empty array if
+     * none arrived in time, or if the stream is done (see isDone).
+     */
+    public Object[] poll(final int maxResults, final long timeoutMillis) throws InterruptedException {
+        return take(maxResults, timeoutMillis).toArray();
+    }
+
+    /**
+     * As poll, but encoded as a JSON array by ResultEncoder.  Returns {json, references}.
+     */
+    public Object[] pollEncoded(final int maxResults, final long timeoutMillis) throws InterruptedException {
+        return ResultEncoder.encode(take(maxResults, timeoutMillis));
+    }
+
+    /**
+     * True once every result (and any failure) has been taken, or the stream has been cancelled.
+     */
+    public boolean isDone() {
+        lock.lock();
+        try {
+            return cancelled || (finished && count == 0 && failure == null);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Interrupt the producer and discard the buffered results.  Further polls return nothing.
+     */
+    public void cancel() {
+        lock.lock();
+        try {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            clear();
+            notFull.signalAll();
+            notEmpty.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+        producer.interrupt();
+    }
+
+    public boolean isCancelled() {
+        lock.lock();
+        try {
+            return cancelled;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return buffer.length;
+    }
+
+    /**
+     * The number of results produced but not yet taken.
+     */
+    public int getBuffered() {
+        lock.lock();
+        try {
+            return count;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public long getProducedCount() {
+        return produced.sum();
+    }
+
+    public long getConsumedCount() {
+        return consumed.sum();
+    }
+
+    /**
+     * The number of times the producer waited for the consumer because the buffer was full.
+     */
+    public long getProducerWaitCount() {
+        return producerWaits.sum();
+    }
+
+    public String toString() {
+        return "ResultStream(buffered=" + getBuffered() + ", capacity=" + getCapacity()
+            + ", produced=" + getProducedCount() + ", consumed=" + getConsumedCount() + ")";
+    }
+
+    // Runs on the producer thread.
+    private void produce() {
+        try {
+            while (!isCancelled() && iterator.hasNext()) {
+                if (!put(iterator.next())) {
+                    return;
+                }
+            }
+            finish(null);
+        }
+        catch (InterruptedException ie) {
+            finish(null);
+        }
+        catch (Throwable t) {
+            finish(t);
+        }
+    }
+
+    // Append *result*, waiting for room.  Returns false if the stream was cancelled.
+    private boolean put(final Object result) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            if (count == buffer.length && !cancelled) {
+                producerWaits.increment();
+                do {
+                    notFull.await();
+                } while (count == buffer.length && !cancelled);
+            }
+            if (cancelled) {
+                return false;
+            }
+            buffer[(head + count) % buffer.length] = result;
+            count++;
+            produced.increment();
+            notEmpty.signal();
+            return true;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void finish(final Throwable failure) {
+        lock.lock();
+        try {
+            this.finished = true;
+            this.failure = failure;
+            notEmpty.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Object> take(final int maxResults, final long timeoutMillis) throws InterruptedException {
+        final List<Object> batch = new ArrayList<>(Math.min(maxResults, buffer.length));
+        lock.lockInterruptibly();
+        try {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            while (count == 0 && !finished && !cancelled && remaining > 0) {
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+            while (count > 0 && batch.size() < maxResults) {
+                batch.add(buffer[head]);
+                buffer[head] = null;
+                head = (head + 1) % buffer.length;
+                count--;
+            }
+            if (!batch.isEmpty()) {
+                consumed.add(batch.size());
+                notFull.signal();
+            } else if (failure != null && !cancelled) {
+                final Throwable thrown = failure;
+                failure = null;
+                if (thrown instanceof RuntimeException) {
+                    throw (RuntimeException) thrown;
+                }
+                throw new IllegalStateException("Result stream failed: " + thrown, thrown);
+            }
+            return batch;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void clear() {
+        while (count > 0) {
+            buffer[head] = null;
+            head = (head + 1) % buffer.length;
+            count--;
+        }
+    }
+}
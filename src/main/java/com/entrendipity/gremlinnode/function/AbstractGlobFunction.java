@@ -15,30 +15,30 @@ abstract class AbstractGlobFunction implements GlobFunction {
     // GlobFunction.andThen
     @Override
     public GlobFunction andThen(GlobFunction then) {
-        return new AndThenGlobFunction(this, then);
+        return ComposedGlobFunction.andThen(this, then);
     }
 
     // Function.andThen, BiFunction.andThen
     @Override
     public GlobFunction andThen(Function then) {
-        return new AndThenGlobFunction(this, then);
+        return ComposedGlobFunction.andThen(this, then);
     }
 
     // Consumer.andThen
     @Override
     public GlobFunction andThen(Consumer then) {
-        return new AndThenGlobFunction(this, then);
+        return ComposedGlobFunction.andThen(this, then);
     }
 
     // BiConsumer.andThen
     @Override
     public GlobFunction andThen(BiConsumer then) {
-        return new AndThenGlobFunction(this, then);
+        return ComposedGlobFunction.andThen(this, then);
     }
 
     // Predicate.negate, BiPredicate.negate
     @Override
     public GlobFunction negate() {
-        return new NegateGlobFunction(this);
+        return ComposedGlobFunction.negate(this);
     }
 }
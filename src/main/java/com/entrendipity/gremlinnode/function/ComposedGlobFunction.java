@@ -0,0 +1,192 @@
+package com.entrendipity.gremlinnode.function;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Implementation of GlobFunction which implements the andThen and negate composition APIs.
+ *
+ * Compositions are flattened rather than nested: composing a ComposedGlobFunction copies its stages into a new one, so
+ * that a chain of any length is evaluated by a single loop over an array of stages.  Negation only affects
+ * Predicate/BiPredicate results, which come from the first function alone, so it is kept as a single flag and
+ * adjacent negations cancel out.  Identity stages are dropped.  Neither changes the string form, which still shows
+ * every negation and stage, as the nested compositions did.
+ */
+final class ComposedGlobFunction extends AbstractGlobFunction {
+
+    private final static Function[] NO_FUNCTIONS = {};
+    private final static Consumer[] NO_CONSUMERS = {};
+    private final static BiConsumer[] NO_BICONSUMERS = {};
+
+    private final static Function IDENTITY = Function.identity();
+    private final static Function UNARY_IDENTITY = UnaryOperator.identity();
+
+    // The first function, which is never itself a ComposedGlobFunction.
+    private final GlobFunction first;
+
+    // Whether the Predicate/BiPredicate result of the first function is negated.
+    private final boolean negated;
+
+    // Stages run after the first function, in order, for each of the composable interfaces.
+    private final Function[] functions;
+    private final Consumer[] consumers;
+    private final BiConsumer[] biconsumers;
+
+    private final String description;
+
+    private ComposedGlobFunction(final GlobFunction first, final boolean negated, final Function[] functions,
+                                 final Consumer[] consumers, final BiConsumer[] biconsumers, final String description) {
+        this.first = first;
+        this.negated = negated;
+        this.functions = functions;
+        this.consumers = consumers;
+        this.biconsumers = biconsumers;
+        this.description = description;
+    }
+
+    private static ComposedGlobFunction of(final GlobFunction that) {
+        if (that instanceof ComposedGlobFunction) {
+            return (ComposedGlobFunction) that;
+        }
+        return new ComposedGlobFunction(that, false, NO_FUNCTIONS, NO_CONSUMERS, NO_BICONSUMERS, that.toString());
+    }
+
+    private static boolean isIdentity(final Object then) {
+        return then == IDENTITY || then == UNARY_IDENTITY;
+    }
+
+    private static <T> T[] append(final T[] stages, final T then) {
+        final T[] result = Arrays.copyOf(stages, stages.length + 1);
+        result[stages.length] = then;
+        return result;
+    }
+
+    private static <T> T[] append(final T[] stages, final T then, final T[] thenStages) {
+        final T[] result = Arrays.copyOf(stages, stages.length + 1 + thenStages.length);
+        result[stages.length] = then;
+        System.arraycopy(thenStages, 0, result, stages.length + 1, thenStages.length);
+        return result;
+    }
+
+    // GlobFunction.andThen
+    static GlobFunction andThen(final GlobFunction that, final GlobFunction then) {
+        final ComposedGlobFunction composed = of(that);
+        final String description = composed.description + " then " + then.toString();
+        if (then instanceof ComposedGlobFunction) {
+            // The negation of *then* only affects its own test(), which a composition never calls.
+            final ComposedGlobFunction tail = (ComposedGlobFunction) then;
+            return new ComposedGlobFunction(composed.first, composed.negated,
+                                            append(composed.functions, tail.first, tail.functions),
+                                            append(composed.consumers, tail.first, tail.consumers),
+                                            append(composed.biconsumers, tail.first, tail.biconsumers),
+                                            description);
+        }
+        return new ComposedGlobFunction(composed.first, composed.negated,
+                                        append(composed.functions, then),
+                                        append(composed.consumers, then),
+                                        append(composed.biconsumers, then),
+                                        description);
+    }
+
+    // Function.andThen, BiFunction.andThen
+    static GlobFunction andThen(final GlobFunction that, final Function then) {
+        final ComposedGlobFunction composed = of(that);
+        return new ComposedGlobFunction(composed.first, composed.negated,
+                                        isIdentity(then) ? composed.functions : append(composed.functions, then),
+                                        composed.consumers, composed.biconsumers,
+                                        composed.description + " then " + then.toString());
+    }
+
+    // Consumer.andThen
+    static GlobFunction andThen(final GlobFunction that, final Consumer then) {
+        final ComposedGlobFunction composed = of(that);
+        return new ComposedGlobFunction(composed.first, composed.negated,
+                                        composed.functions, append(composed.consumers, then), composed.biconsumers,
+                                        composed.description + " then " + then.toString());
+    }
+
+    // BiConsumer.andThen
+    static GlobFunction andThen(final GlobFunction that, final BiConsumer then) {
+        final ComposedGlobFunction composed = of(that);
+        return new ComposedGlobFunction(composed.first, composed.negated,
+                                        composed.functions, composed.consumers, append(composed.biconsumers, then),
+                                        composed.description + " then " + then.toString());
+    }
+
+    // Predicate.negate, BiPredicate.negate
+    static GlobFunction negate(final GlobFunction that) {
+        final ComposedGlobFunction composed = of(that);
+        return new ComposedGlobFunction(composed.first, !composed.negated,
+                                        composed.functions, composed.consumers, composed.biconsumers,
+                                        "-(" + composed.description + ")");
+    }
+
+    public String toString() {
+        return description;
+    }
+
+    // Function.apply, UnaryOperator.apply
+    @Override
+    public Object apply(final Object a) {
+        Object result = first.apply(a);
+        for (final Function function : functions) {
+            result = function.apply(result);
+        }
+        return result;
+    }
+
+    // BiFunction.apply, BinaryOperator.apply
+    @Override
+    public Object apply(final Object a, final Object b) {
+        Object result = first.apply(a, b);
+        for (final Function function : functions) {
+            result = function.apply(result);
+        }
+        return result;
+    }
+
+    // Supplier.get
+    @Override
+    public Object get() {
+        return first.get();
+    }
+
+    // Consumer.accept
+    @Override
+    public void accept(final Object a) {
+        first.accept(a);
+        for (final Consumer consumer : consumers) {
+            consumer.accept(a);
+        }
+    }
+
+    // BiConsumer.accept
+    @Override
+    public void accept(final Object a, final Object b) {
+        first.accept(a, b);
+        for (final BiConsumer biconsumer : biconsumers) {
+            biconsumer.accept(a, b);
+        }
+    }
+
+    // TriConsumer.accept
+    @Override
+    public void accept(final Object a, final Object b, final Object c) {
+        first.accept(a, b, c);
+    }
+
+    // Predicate.test
+    @Override
+    public boolean test(final Object a) {
+        return first.test(a) != negated;
+    }
+
+    // BiPredicate.test
+    @Override
+    public boolean test(final Object a, final Object b) {
+        return first.test(a, b) != negated;
+    }
+}
@@ -0,0 +1,1041 @@
+package com.entrendipity.gremlinnode.function;
+
+import com.tinkerpop.gremlin.process.Traverser;
+import com.tinkerpop.gremlin.structure.Compare;
+import com.tinkerpop.gremlin.structure.Contains;
+import com.tinkerpop.gremlin.structure.Element;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+/**
+ * Compile simple closures into ExpressionLambdas, which evaluate them without the Groovy runtime.
+ *
+ * The subset covers most of the predicates and mappers that are sent to the bridge:
+ *
+ *   closure     { expr }, { a -> expr } or { a, b -> expr }; without parameters the argument is "it"
+ *   literals    integers, decimals, 'strings' and "strings" without ${}, true, false, null, and [lists]
+ *   operators   ! and unary -, * %, + -, < <= > >=, == !=, && ||, and parentheses
+ *   methods     x.get(), x.value('key'), x.id(), x.label(), x.length(), x.size(), x.contains(y), x.startsWith(y),
+ *               x.endsWith(y), x.toLowerCase(), x.toUpperCase()
+ *
+ * Operators follow Groovy semantics: numbers are promoted as Groovy promotes them (int, long, BigInteger, BigDecimal,
+ * double), == compares numbers by value and anything else with equals(), null sorts before everything, + concatenates
+ * when either side is a String, and && || ! use Groovy truth.  Division is left to Groovy, because Groovy divides
+ * integers into BigDecimals, and so are other method calls, which may be methods Groovy adds to the JDK classes.
+ *
+ * tryCompile returns null for anything outside the subset, and compile falls back to a GroovyLambda for it.
+ */
+public class ExpressionCompiler {
+
+    /**
+     * A compiled expression, evaluated with the closure's (at most two) arguments.
+     */
+    interface Expr {
+        Object eval(Object a, Object b);
+    }
+
+    // The has() predicates equivalent to each comparison operator.
+    private final static Map<String, BiPredicate<Object, Object>> COMPARISONS = new HashMap<>();
+
+    static {
+        COMPARISONS.put("==", Compare.eq);
+        COMPARISONS.put("!=", Compare.neq);
+        COMPARISONS.put("<", Compare.lt);
+        COMPARISONS.put("<=", Compare.lte);
+        COMPARISONS.put(">", Compare.gt);
+        COMPARISONS.put(">=", Compare.gte);
+    }
+
+    private final String source;
+    private final List<Token> tokens;
+    private int position;
+    private final List<String> parameters = new ArrayList<>();
+
+    private ExpressionCompiler(final String source) {
+        this.source = source;
+        this.tokens = new Lexer(source).tokens();
+    }
+
+    /**
+     * Compile *groovy* into an ExpressionLambda, or return null if it is outside the supported subset.
+     */
+    public static ExpressionLambda tryCompile(final String groovy) {
+        try {
+            final ExpressionCompiler compiler = new ExpressionCompiler(groovy);
+            return new ExpressionLambda(groovy, compiler.closure());
+        }
+        catch (Unsupported u) {
+            return null;
+        }
+    }
+
+    /**
+     * Compile *groovy* into an ExpressionLambda if it is in the supported subset, and into a GroovyLambda on *engine*
+     * otherwise.
+     */
+    public static GlobFunction compile(final String groovy, final ScriptEngine engine) throws ScriptException {
+        final ExpressionLambda lambda = tryCompile(groovy);
+        return lambda != null ? lambda : new GroovyLambda(groovy, engine);
+    }
+
+    public static GlobFunction compile(final String groovy) throws ScriptException {
+        return compile(groovy, GroovyLambda.getDefaultEngine());
+    }
+
+    /**
+     * True if *groovy* is in the supported subset.
+     */
+    public static boolean isSupported(final String groovy) {
+        return tryCompile(groovy) != null;
+    }
+
+    /**
+     * Recognize a filter closure that only compares properties of the traverser's element with literals, e.g.
+     *
+     *   { it.get().value('name') == 'marko' && it.get().value('age') > 30 }
+     *   { t -> ['lop', 'ripple'].contains(t.get().value('name')) }
+     *
+     * and return the equivalent has() conditions, all of which must hold.  Return null for any other closure.
+     *
+     * Only string and int literals are pushed down, since has() compares with equals() and compareTo() where the
+     * closure would promote numbers as Groovy does.  An int literal is compared with Compare.X when the property is an
+     * Integer too, and as the closure would compare them otherwise, e.g. with a Float weight.
+     */
+    public static List<Condition> filterConditions(final String groovy) {
+        try {
+            final ExpressionCompiler compiler = new ExpressionCompiler(groovy);
+            final Expr body = compiler.closure();
+            final List<Condition> conditions = new ArrayList<>();
+            return compiler.parameters.size() == 1 && conditions(body, conditions) ? conditions : null;
+        }
+        catch (Unsupported u) {
+            return null;
+        }
+    }
+
+    /**
+     * A condition equivalent to has(key, predicate, value).
+     */
+    public final static class Condition {
+        private final String key;
+        private final BiPredicate<Object, Object> predicate;
+        private final Object value;
+
+        Condition(final String key, final BiPredicate<Object, Object> predicate, final Object value) {
+            this.key = key;
+            this.predicate = predicate;
+            this.value = value;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public BiPredicate<Object, Object> getPredicate() {
+            return predicate;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public String toString() {
+            return "has(" + key + ", " + predicate + ", " + value + ")";
+        }
+    }
+
+    // Add the conditions that *expr* is a conjunction of to *conditions*, returning false if it is anything else.
+    private static boolean conditions(final Expr expr, final List<Condition> conditions) {
+        if (expr instanceof And) {
+            final And and = (And) expr;
+            return conditions(and.left, conditions) && conditions(and.right, conditions);
+        } else if (expr instanceof Comparison) {
+            final Comparison comparison = (Comparison) expr;
+            String key = traverserProperty(comparison.left);
+            Object value = pushableLiteral(comparison.right);
+            String operator = comparison.operator;
+            if (key == null) {
+                // literal OP property, so flip the comparison around.
+                key = traverserProperty(comparison.right);
+                value = pushableLiteral(comparison.left);
+                operator = operator.replace('<', '~').replace('>', '<').replace('~', '>');
+            }
+            if (key == null || value == null) {
+                return false;
+            }
+            final BiPredicate<Object, Object> predicate = value instanceof Integer ? new IntegerComparison(operator)
+                                                                                   : COMPARISONS.get(operator);
+            conditions.add(new Condition(key, predicate, value));
+            return true;
+        } else if (expr instanceof ContainsCall && ((ContainsCall) expr).target instanceof ListLiteral) {
+            final ContainsCall contains = (ContainsCall) expr;
+            final String key = traverserProperty(contains.argument);
+            final List<Object> values = new ArrayList<>();
+            for (final Expr item : ((ListLiteral) contains.target).items) {
+                final Object value = pushableLiteral(item);
+                if (value == null) {
+                    return false;
+                }
+                values.add(value);
+            }
+            if (key == null) {
+                return false;
+            }
+            conditions.add(new Condition(key, Contains.within, values));
+            return true;
+        }
+        return false;
+    }
+
+    // The value of a string or int literal, which has() compares as the closure would, or null.  List.contains is
+    // equals() in Groovy as well, so an int literal only matches Integer properties in either.
+    private static Object pushableLiteral(final Expr expr) {
+        final Object value = literal(expr);
+        return value instanceof String || value instanceof Integer ? value : null;
+    }
+
+    /**
+     * has(key, predicate, n) for an int literal n: Compare.X when the property is an Integer, and otherwise the
+     * closure's comparison, with Groovy's numeric promotion.
+     */
+    private final static class IntegerComparison implements BiPredicate<Object, Object> {
+        private final String operator;
+        private final BiPredicate<Object, Object> compare;
+
+        IntegerComparison(final String operator) {
+            this.operator = operator;
+            this.compare = COMPARISONS.get(operator);
+        }
+
+        @Override
+        public boolean test(final Object property, final Object literal) {
+            return property instanceof Integer ? compare.test(property, literal)
+                                               : compare(operator, property, literal);
+        }
+
+        public String toString() {
+            return compare.toString();
+        }
+    }
+
+    // The key of an expression of the form arg.get().value('key') on the closure's only argument, or null.
+    private static String traverserProperty(final Expr expr) {
+        if (expr instanceof Value) {
+            final Value value = (Value) expr;
+            if (value.target instanceof Get && ((Get) value.target).target instanceof Argument
+                && ((Argument) ((Get) value.target).target).index == 0 && value.key instanceof Literal
+                && ((Literal) value.key).value instanceof String) {
+                return (String) ((Literal) value.key).value;
+            }
+        }
+        return null;
+    }
+
+    // The value of a string, number or boolean literal, or null.
+    private static Object literal(final Expr expr) {
+        if (expr instanceof Literal) {
+            final Object value = ((Literal) expr).value;
+            if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    // Parser
+
+    private Expr closure() {
+        expect("{");
+        if (hasParameters()) {
+            while (!peek("->")) {
+                if (!parameters.isEmpty()) {
+                    expect(",");
+                }
+                parameters.add(identifier());
+            }
+            if (parameters.size() > 2) {
+                throw new Unsupported("more than two parameters");
+            }
+        } else {
+            parameters.add("it");
+        }
+        accept("->");
+        final Expr body = expression();
+        expect("}");
+        if (position != tokens.size()) {
+            throw new Unsupported("text after the closure");
+        }
+        return body;
+    }
+
+    // True if the closure starts with a parameter list: identifiers separated by commas, followed by ->.
+    private boolean hasParameters() {
+        int i = position;
+        while (i < tokens.size()) {
+            final Token token = tokens.get(i);
+            if (token.is("->")) {
+                return true;
+            } else if (token.type != TokenType.IDENTIFIER && !token.is(",")) {
+                return false;
+            }
+            i++;
+        }
+        return false;
+    }
+
+    private Expr expression() {
+        Expr left = and();
+        while (accept("||")) {
+            final Expr l = left;
+            final Expr r = and();
+            left = (a, b) -> truth(l.eval(a, b)) || truth(r.eval(a, b));
+        }
+        return left;
+    }
+
+    private Expr and() {
+        Expr left = equality();
+        while (accept("&&")) {
+            final Expr l = left;
+            final Expr r = equality();
+            left = new And(l, r);
+        }
+        return left;
+    }
+
+    private Expr equality() {
+        Expr left = relational();
+        while (peek("==") || peek("!=")) {
+            final String operator = next().text;
+            left = new Comparison(operator, left, relational());
+        }
+        return left;
+    }
+
+    private Expr relational() {
+        Expr left = additive();
+        while (peek("<") || peek("<=") || peek(">") || peek(">=")) {
+            final String operator = next().text;
+            left = new Comparison(operator, left, additive());
+        }
+        return left;
+    }
+
+    private Expr additive() {
+        Expr left = multiplicative();
+        while (true) {
+            final Expr l = left;
+            if (accept("+")) {
+                final Expr r = multiplicative();
+                left = (a, b) -> plus(l.eval(a, b), r.eval(a, b));
+            } else if (accept("-")) {
+                final Expr r = multiplicative();
+                left = (a, b) -> arithmetic('-', l.eval(a, b), r.eval(a, b));
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Expr multiplicative() {
+        Expr left = unary();
+        while (true) {
+            final Expr l = left;
+            if (accept("*")) {
+                final Expr r = unary();
+                left = (a, b) -> arithmetic('*', l.eval(a, b), r.eval(a, b));
+            } else if (accept("%")) {
+                final Expr r = unary();
+                left = (a, b) -> arithmetic('%', l.eval(a, b), r.eval(a, b));
+            } else if (peek("/")) {
+                throw new Unsupported("division");
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Expr unary() {
+        if (accept("!")) {
+            final Expr operand = unary();
+            return (a, b) -> !truth(operand.eval(a, b));
+        } else if (accept("-")) {
+            final Expr operand = unary();
+            return (a, b) -> arithmetic('-', 0, operand.eval(a, b));
+        }
+        return postfix();
+    }
+
+    private Expr postfix() {
+        Expr target = primary();
+        while (accept(".")) {
+            final String method = identifier();
+            if (!peek("(")) {
+                throw new Unsupported("property access ." + method);
+            }
+            expect("(");
+            final List<Expr> arguments = new ArrayList<>();
+            while (!accept(")")) {
+                if (!arguments.isEmpty()) {
+                    expect(",");
+                }
+                arguments.add(expression());
+            }
+            target = call(target, method, arguments);
+        }
+        return target;
+    }
+
+    private Expr primary() {
+        final Token token = next();
+        switch (token.type) {
+            case NUMBER:
+            case STRING:
+                return new Literal(token.value);
+            case IDENTIFIER:
+                switch (token.text) {
+                    case "true":
+                        return new Literal(Boolean.TRUE);
+                    case "false":
+                        return new Literal(Boolean.FALSE);
+                    case "null":
+                        return new Literal(null);
+                    default:
+                        final int index = parameters.indexOf(token.text);
+                        if (index < 0) {
+                            throw new Unsupported("unknown variable " + token.text);
+                        }
+                        return new Argument(index);
+                }
+            default:
+                if (token.is("(")) {
+                    final Expr inner = expression();
+                    expect(")");
+                    return inner;
+                } else if (token.is("[")) {
+                    final List<Expr> items = new ArrayList<>();
+                    while (!accept("]")) {
+                        if (!items.isEmpty()) {
+                            expect(",");
+                        }
+                        items.add(expression());
+                    }
+                    return new ListLiteral(items);
+                }
+                throw new Unsupported("unexpected " + token.text);
+        }
+    }
+
+    private Expr call(final Expr target, final String method, final List<Expr> arguments) {
+        if (arguments.isEmpty()) {
+            switch (method) {
+                case "get":
+                    return new Get(target);
+                case "id":
+                    return (a, b) -> element(target.eval(a, b), method).id();
+                case "label":
+                    return (a, b) -> element(target.eval(a, b), method).label();
+                case "length":
+                case "size":
+                    return (a, b) -> size(target.eval(a, b), method);
+                case "toLowerCase":
+                    return (a, b) -> string(target.eval(a, b), method).toLowerCase();
+                case "toUpperCase":
+                    return (a, b) -> string(target.eval(a, b), method).toUpperCase();
+                default:
+                    break;
+            }
+        } else if (arguments.size() == 1) {
+            final Expr argument = arguments.get(0);
+            switch (method) {
+                case "value":
+                    return new Value(target, argument);
+                case "contains":
+                    return new ContainsCall(target, argument);
+                case "startsWith":
+                    return (a, b) -> string(target.eval(a, b), method).startsWith(string(argument.eval(a, b), method));
+                case "endsWith":
+                    return (a, b) -> string(target.eval(a, b), method).endsWith(string(argument.eval(a, b), method));
+                default:
+                    break;
+            }
+        }
+        throw new Unsupported("method " + method + " with " + arguments.size() + " arguments");
+    }
+
+    private Token next() {
+        if (position == tokens.size()) {
+            throw new Unsupported("unexpected end of " + source);
+        }
+        return tokens.get(position++);
+    }
+
+    private boolean peek(final String symbol) {
+        return position < tokens.size() && tokens.get(position).is(symbol);
+    }
+
+    private boolean accept(final String symbol) {
+        if (peek(symbol)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(final String symbol) {
+        if (!accept(symbol)) {
+            throw new Unsupported("expected " + symbol);
+        }
+    }
+
+    private String identifier() {
+        final Token token = next();
+        if (token.type != TokenType.IDENTIFIER) {
+            throw new Unsupported("expected an identifier");
+        }
+        return token.text;
+    }
+
+    // Runtime support, following Groovy's semantics for the operators in the subset.
+
+    static boolean truth(final Object value) {
+        if (value == null) {
+            return false;
+        } else if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).signum() != 0;
+        } else if (value instanceof Number) {
+            return ((Number) value).doubleValue() != 0;
+        } else if (value instanceof CharSequence) {
+            return ((CharSequence) value).length() > 0;
+        } else if (value instanceof Collection) {
+            return !((Collection<?>) value).isEmpty();
+        } else if (value instanceof Map) {
+            return !((Map<?, ?>) value).isEmpty();
+        }
+        return true;
+    }
+
+    private static boolean equal(final Object left, final Object right) {
+        if (left == null || right == null) {
+            return left == right;
+        } else if (left instanceof Number && right instanceof Number) {
+            return compareNumbers((Number) left, (Number) right) == 0;
+        } else if (left instanceof CharSequence && right instanceof CharSequence) {
+            return left.toString().equals(right.toString());
+        }
+        return left.equals(right);
+    }
+
+    // left OPERATOR right, for one of the comparison operators.
+    private static boolean compare(final String operator, final Object left, final Object right) {
+        switch (operator) {
+            case "==":
+                return equal(left, right);
+            case "!=":
+                return !equal(left, right);
+            case "<":
+                return compare(left, right) < 0;
+            case "<=":
+                return compare(left, right) <= 0;
+            case ">":
+                return compare(left, right) > 0;
+            default:
+                return compare(left, right) >= 0;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(final Object left, final Object right) {
+        if (left == null || right == null) {
+            return left == right ? 0 : (left == null ? -1 : 1);
+        } else if (left instanceof Number && right instanceof Number) {
+            return compareNumbers((Number) left, (Number) right);
+        } else if (left instanceof CharSequence && right instanceof CharSequence) {
+            return left.toString().compareTo(right.toString());
+        } else if (left instanceof Comparable && left.getClass().isInstance(right)) {
+            return ((Comparable<Object>) left).compareTo(right);
+        }
+        throw new IllegalArgumentException("Cannot compare " + left.getClass().getName() + " with value '" + left
+                                           + "' and " + right.getClass().getName() + " with value '" + right + "'");
+    }
+
+    // The kinds of number Groovy promotes to, in increasing order of precedence.
+    private enum Kind { INT, LONG, BIG_INTEGER, BIG_DECIMAL, DOUBLE }
+
+    private static Kind kind(final Number n) {
+        if (n instanceof Integer || n instanceof Short || n instanceof Byte) {
+            return Kind.INT;
+        } else if (n instanceof Long) {
+            return Kind.LONG;
+        } else if (n instanceof BigInteger) {
+            return Kind.BIG_INTEGER;
+        } else if (n instanceof BigDecimal) {
+            return Kind.BIG_DECIMAL;
+        }
+        return Kind.DOUBLE;
+    }
+
+    private static Kind promote(final Number left, final Number right) {
+        final Kind l = kind(left);
+        final Kind r = kind(right);
+        return l.compareTo(r) >= 0 ? l : r;
+    }
+
+    private static int compareNumbers(final Number left, final Number right) {
+        switch (promote(left, right)) {
+            case INT:
+            case LONG:
+                return Long.compare(left.longValue(), right.longValue());
+            case BIG_INTEGER:
+                return bigInteger(left).compareTo(bigInteger(right));
+            case BIG_DECIMAL:
+                return bigDecimal(left).compareTo(bigDecimal(right));
+            default:
+                return Double.compare(left.doubleValue(), right.doubleValue());
+        }
+    }
+
+    private static Object plus(final Object left, final Object right) {
+        if (left instanceof String || right instanceof String) {
+            return String.valueOf(left) + right;
+        }
+        return arithmetic('+', left, right);
+    }
+
+    private static Number arithmetic(final char operator, final Object leftValue, final Object rightValue) {
+        if (!(leftValue instanceof Number) || !(rightValue instanceof Number)) {
+            throw new IllegalArgumentException("Cannot apply " + operator + " to " + leftValue + " and " + rightValue);
+        }
+        final Number left = (Number) leftValue;
+        final Number right = (Number) rightValue;
+        switch (promote(left, right)) {
+            case INT: {
+                final int l = left.intValue();
+                final int r = right.intValue();
+                return operator == '+' ? l + r : operator == '-' ? l - r : operator == '*' ? l * r : l % r;
+            }
+            case LONG: {
+                final long l = left.longValue();
+                final long r = right.longValue();
+                return operator == '+' ? l + r : operator == '-' ? l - r : operator == '*' ? l * r : l % r;
+            }
+            case BIG_INTEGER: {
+                final BigInteger l = bigInteger(left);
+                final BigInteger r = bigInteger(right);
+                return operator == '+' ? l.add(r) : operator == '-' ? l.subtract(r)
+                    : operator == '*' ? l.multiply(r) : l.mod(r);
+            }
+            case BIG_DECIMAL: {
+                final BigDecimal l = bigDecimal(left);
+                final BigDecimal r = bigDecimal(right);
+                return operator == '+' ? l.add(r) : operator == '-' ? l.subtract(r)
+                    : operator == '*' ? l.multiply(r) : l.remainder(r);
+            }
+            default: {
+                final double l = left.doubleValue();
+                final double r = right.doubleValue();
+                return operator == '+' ? l + r : operator == '-' ? l - r : operator == '*' ? l * r : l % r;
+            }
+        }
+    }
+
+    private static BigInteger bigInteger(final Number n) {
+        return n instanceof BigInteger ? (BigInteger) n : BigInteger.valueOf(n.longValue());
+    }
+
+    private static BigDecimal bigDecimal(final Number n) {
+        if (n instanceof BigDecimal) {
+            return (BigDecimal) n;
+        } else if (n instanceof BigInteger) {
+            return new BigDecimal((BigInteger) n);
+        }
+        return BigDecimal.valueOf(n.longValue());
+    }
+
+    private static Object get(final Object target) {
+        if (target instanceof Traverser) {
+            return ((Traverser<?>) target).get();
+        } else if (target instanceof Supplier) {
+            return ((Supplier<?>) target).get();
+        }
+        return invoke(target, "get");
+    }
+
+    private static Element element(final Object target, final String method) {
+        if (target instanceof Element) {
+            return (Element) target;
+        }
+        throw noSuchMethod(target, method);
+    }
+
+    private static String string(final Object target, final String method) {
+        if (target instanceof CharSequence) {
+            return target.toString();
+        }
+        throw noSuchMethod(target, method);
+    }
+
+    private static Object size(final Object target, final String method) {
+        if (target instanceof CharSequence) {
+            return ((CharSequence) target).length();
+        } else if (target instanceof Collection) {
+            return ((Collection<?>) target).size();
+        } else if (target instanceof Map) {
+            return ((Map<?, ?>) target).size();
+        } else if (target != null && target.getClass().isArray()) {
+            return Array.getLength(target);
+        }
+        return invoke(target, method);
+    }
+
+    private static Object contains(final Object target, final Object value) {
+        if (target instanceof CharSequence) {
+            return target.toString().contains(string(value, "contains"));
+        } else if (target instanceof Collection) {
+            return ((Collection<?>) target).contains(value);
+        }
+        return invoke(target, "contains", value);
+    }
+
+    // Call a public method of *target* by name, for receivers that the fast paths above do not know.
+    private static Object invoke(final Object target, final String method, final Object... arguments) {
+        if (target == null) {
+            throw new NullPointerException("Cannot invoke method " + method + "() on null object");
+        }
+        for (final Method candidate : target.getClass().getMethods()) {
+            if (candidate.getName().equals(method) && candidate.getParameterCount() == arguments.length
+                && Modifier.isPublic(candidate.getDeclaringClass().getModifiers())
+                && accepts(candidate.getParameterTypes(), arguments)) {
+                try {
+                    return candidate.invoke(target, arguments);
+                }
+                catch (InvocationTargetException ite) {
+                    final Throwable cause = ite.getCause();
+                    throw cause instanceof RuntimeException ? (RuntimeException) cause
+                        : new IllegalStateException(cause);
+                }
+                catch (IllegalAccessException iae) {
+                    throw new IllegalStateException(iae);
+                }
+            }
+        }
+        throw noSuchMethod(target, method);
+    }
+
+    private static boolean accepts(final Class<?>[] types, final Object[] arguments) {
+        for (int i = 0; i < types.length; i++) {
+            if (arguments[i] != null && !box(types[i]).isInstance(arguments[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Class<?> box(final Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        } else if (type == int.class) {
+            return Integer.class;
+        } else if (type == long.class) {
+            return Long.class;
+        } else if (type == double.class) {
+            return Double.class;
+        } else if (type == boolean.class) {
+            return Boolean.class;
+        } else if (type == char.class) {
+            return Character.class;
+        } else if (type == float.class) {
+            return Float.class;
+        } else if (type == short.class) {
+            return Short.class;
+        }
+        return Byte.class;
+    }
+
+    private static IllegalArgumentException noSuchMethod(final Object target, final String method) {
+        return new IllegalArgumentException("No method " + method + "() for "
+                                            + (target == null ? "null" : target.getClass().getName()));
+    }
+
+    // Expressions that filterConditions looks into; the rest are plain lambdas.
+
+    private final static class Literal implements Expr {
+        private final Object value;
+
+        Literal(final Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object eval(final Object a, final Object b) {
+            return value;
+        }
+    }
+
+    private final static class Argument implements Expr {
+        private final int index;
+
+        Argument(final int index) {
+            this.index = index;
+        }
+
+        @Override
+        public Object eval(final Object a, final Object b) {
+            return index == 0 ? a : b;
+        }
+    }
+
+    private final static class ListLiteral implements Expr {
+        private final List<Expr> items;
+
+        ListLiteral(final List<Expr> items) {
+            this.items = items;
+        }
+
+        @Override
+        public Object eval(final Object a, final Object b) {
+            final List<Object> list = new ArrayList<>(items.size());
+            for (final Expr item : items) {
+                list.add(item.eval(a, b));
+            }
+            return list;
+        }
+    }
+
+    private final static class And implements Expr {
+        private final Expr left;
+        private final Expr right;
+
+        And(final Expr left, final Expr right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Object eval(final Object a, final Object b) {
+            return truth(left.eval(a, b)) && truth(right.eval(a, b));
+        }
+    }
+
+    private final static class Comparison implements Expr {
+        private final String operator;
+        private final Expr left;
+        private final Expr right;
+
+        Comparison(final String operator, final Expr left, final Expr right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Object eval(final Object a, final Object b) {
+            return compare(operator, left.eval(a, b), right.eval(a, b));
+        }
+    }
+
+    private final static class Get implements Expr {
+        private final Expr target;
+
+        Get(final Expr target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object eval(final Object a, final Object b) {
+            return get(target.eval(a, b));
+        }
+    }
+
+    private final static class Value implements Expr {
+        private final Expr target;
+        private final Expr key;
+
+        Value(final Expr target, final Expr key) {
+            this.target = target;
+            this.key = key;
+        }
+
+        @Override
+        public Object eval(final Object a, final Object b) {
+            return element(target.eval(a, b), "value").value(string(key.eval(a, b), "value"));
+        }
+    }
+
+    private final static class ContainsCall implements Expr {
+        private final Expr target;
+        private final Expr argument;
+
+        ContainsCall(final Expr target, final Expr argument) {
+            this.target = target;
+            this.argument = argument;
+        }
+
+        @Override
+        public Object eval(final Object a, final Object b) {
+            return contains(target.eval(a, b), argument.eval(a, b));
+        }
+    }
+
+    // Lexer
+
+    private enum TokenType { IDENTIFIER, NUMBER, STRING, SYMBOL }
+
+    private final static class Token {
+        private final TokenType type;
+        private final String text;
+        private final Object value;
+
+        Token(final TokenType type, final String text, final Object value) {
+            this.type = type;
+            this.text = text;
+            this.value = value;
+        }
+
+        boolean is(final String symbol) {
+            return type == TokenType.SYMBOL && text.equals(symbol);
+        }
+    }
+
+    private final static class Lexer {
+        private final static String[] SYMBOLS = {
+            "->", "==", "!=", "<=", ">=", "&&", "||", "{", "}", "(", ")", "[", "]", ",", ".", "<", ">", "!", "+",
+            "-", "*", "%", "/"
+        };
+
+        private final String source;
+        private int i;
+
+        Lexer(final String source) {
+            this.source = source;
+        }
+
+        List<Token> tokens() {
+            final List<Token> tokens = new ArrayList<>();
+            while (true) {
+                while (i < source.length() && Character.isWhitespace(source.charAt(i))) {
+                    i++;
+                }
+                if (i == source.length()) {
+                    return tokens;
+                }
+                final char c = source.charAt(i);
+                if (Character.isJavaIdentifierStart(c) && c != '$') {
+                    final int start = i;
+                    while (i < source.length() && Character.isJavaIdentifierPart(source.charAt(i))) {
+                        i++;
+                    }
+                    tokens.add(new Token(TokenType.IDENTIFIER, source.substring(start, i), null));
+                } else if (Character.isDigit(c)) {
+                    tokens.add(number());
+                } else if (c == '\'' || c == '"') {
+                    tokens.add(string(c));
+                } else {
+                    tokens.add(symbol());
+                }
+            }
+        }
+
+        private Token number() {
+            final int start = i;
+            while (i < source.length() && Character.isDigit(source.charAt(i))) {
+                i++;
+            }
+            boolean decimal = false;
+            if (i + 1 < source.length() && source.charAt(i) == '.' && Character.isDigit(source.charAt(i + 1))) {
+                decimal = true;
+                i++;
+                while (i < source.length() && Character.isDigit(source.charAt(i))) {
+                    i++;
+                }
+            }
+            if (i < source.length() && Character.isJavaIdentifierPart(source.charAt(i))) {
+                throw new Unsupported("number suffix or exponent");
+            }
+            final String text = source.substring(start, i);
+            if (decimal) {
+                return new Token(TokenType.NUMBER, text, new BigDecimal(text));
+            }
+            if (text.length() > 1 && text.charAt(0) == '0') {
+                // Groovy reads 010 as octal.
+                throw new Unsupported("integer with a leading zero");
+            }
+            final BigInteger value = new BigInteger(text);
+            final Object number = value.bitLength() < 32 ? (Object) value.intValue()
+                : value.bitLength() < 64 ? (Object) value.longValue() : value;
+            return new Token(TokenType.NUMBER, text, number);
+        }
+
+        private Token string(final char quote) {
+            final int start = i++;
+            final StringBuilder value = new StringBuilder();
+            while (i < source.length() && source.charAt(i) != quote) {
+                char c = source.charAt(i++);
+                if (c == '$' && quote == '"') {
+                    throw new Unsupported("GString");
+                } else if (c == '\\') {
+                    if (i == source.length()) {
+                        break;
+                    }
+                    c = source.charAt(i++);
+                    switch (c) {
+                        case 'n':
+                            c = '\n';
+                            break;
+                        case 't':
+                            c = '\t';
+                            break;
+                        case 'r':
+                            c = '\r';
+                            break;
+                        case '\\':
+                        case '\'':
+                        case '"':
+                        case '$':
+                            break;
+                        default:
+                            throw new Unsupported("escape \\" + c);
+                    }
+                }
+                value.append(c);
+            }
+            if (i == source.length()) {
+                throw new Unsupported("unterminated string");
+            }
+            i++;
+            return new Token(TokenType.STRING, source.substring(start, i), value.toString());
+        }
+
+        private Token symbol() {
+            for (final String symbol : SYMBOLS) {
+                if (source.startsWith(symbol, i)) {
+                    i += symbol.length();
+                    return new Token(TokenType.SYMBOL, symbol, null);
+                }
+            }
+            throw new Unsupported("character " + source.charAt(i));
+        }
+    }
+
+    // Thrown while parsing something outside the subset.
+    private final static class Unsupported extends RuntimeException {
+        Unsupported(final String message) {
+            super(message, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.entrendipity.gremlinnode.function;
+
+/**
+ * A closure compiled by ExpressionCompiler into a tree of Java lambdas, so that evaluating it involves neither the
+ * Groovy runtime nor a Closure.
+ *
+ * An ExpressionLambda holds no per-call state, so it may be evaluated from many threads at once.
+ */
+public class ExpressionLambda extends AbstractGlobFunction implements PrimitiveGlobFunction {
+
+    private final String source;
+    private final ExpressionCompiler.Expr expr;
+
+    ExpressionLambda(final String source, final ExpressionCompiler.Expr expr) {
+        this.source = source;
+        this.expr = expr;
+    }
+
+    /**
+     * An ExpressionLambda is already thread safe, so this returns it unchanged, as GroovyLambda.threadSafe would.
+     */
+    public ExpressionLambda threadSafe() {
+        return this;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String toString() {
+        return "ExpressionLambda(" + source + ")";
+    }
+
+    // Function.apply, UnaryOperator.apply
+    @Override
+    public Object apply(final Object a) {
+        return expr.eval(a, null);
+    }
+
+    // BiFunction.apply, BinaryOperator.apply
+    @Override
+    public Object apply(final Object a, final Object b) {
+        return expr.eval(a, b);
+    }
+
+    // Supplier.get
+    @Override
+    public Object get() {
+        return expr.eval(null, null);
+    }
+
+    // Consumer.accept
+    @Override
+    public void accept(final Object a) {
+        expr.eval(a, null);
+    }
+
+    // BiConsumer.accept
+    @Override
+    public void accept(final Object a, final Object b) {
+        expr.eval(a, b);
+    }
+
+    // TriConsumer.accept
+    @Override
+    public void accept(final Object a, final Object b, final Object c) {
+        throw new UnsupportedOperationException(this + " takes at most two arguments");
+    }
+
+    // Predicate.test
+    @Override
+    public boolean test(final Object a) {
+        return (boolean) expr.eval(a, null);
+    }
+
+    // BiPredicate.test
+    @Override
+    public boolean test(final Object a, final Object b) {
+        return (boolean) expr.eval(a, b);
+    }
+
+    // ToIntFunction.applyAsInt
+    @Override
+    public int applyAsInt(final Object a) {
+        return ((Number) expr.eval(a, null)).intValue();
+    }
+
+    // ToLongFunction.applyAsLong
+    @Override
+    public long applyAsLong(final Object a) {
+        return ((Number) expr.eval(a, null)).longValue();
+    }
+
+    // ToDoubleFunction.applyAsDouble
+    @Override
+    public double applyAsDouble(final Object a) {
+        return ((Number) expr.eval(a, null)).doubleValue();
+    }
+
+    // ToIntBiFunction.applyAsInt
+    @Override
+    public int applyAsInt(final Object a, final Object b) {
+        return ((Number) expr.eval(a, b)).intValue();
+    }
+
+    // ToLongBiFunction.applyAsLong
+    @Override
+    public long applyAsLong(final Object a, final Object b) {
+        return ((Number) expr.eval(a, b)).longValue();
+    }
+
+    // ToDoubleBiFunction.applyAsDouble
+    @Override
+    public double applyAsDouble(final Object a, final Object b) {
+        return ((Number) expr.eval(a, b)).doubleValue();
+    }
+
+    // IntPredicate.test
+    @Override
+    public boolean testInt(final int a) {
+        return (boolean) expr.eval(a, null);
+    }
+
+    // LongPredicate.test
+    @Override
+    public boolean testLong(final long a) {
+        return (boolean) expr.eval(a, null);
+    }
+
+    // DoublePredicate.test
+    @Override
+    public boolean testDouble(final double a) {
+        return (boolean) expr.eval(a, null);
+    }
+}
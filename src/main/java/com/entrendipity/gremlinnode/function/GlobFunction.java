@@ -1,6 +1,8 @@
 package com.entrendipity.gremlinnode.function;
 
 import com.tinkerpop.gremlin.util.function.TriConsumer;
+import java.util.BitSet;
+import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
@@ -13,6 +15,9 @@ import java.util.function.UnaryOperator;
 
 /**
  * Declare a versatile interface that combines many of the java.util.function interfaces.
+ *
+ * The batch methods (applyAll, testAll, acceptAll) evaluate the function over many inputs in one call, so that an
+ * implementation can amortize its per-call costs across the batch.  By default they call the function once per input.
  */
 public interface GlobFunction
     extends Function, UnaryOperator, BiFunction, BinaryOperator, Supplier, Consumer, BiConsumer, TriConsumer
@@ -26,4 +31,43 @@ public interface GlobFunction
 
     // Predicate.negate, BiPredicate.negate
     GlobFunction negate();
+
+    // Function.apply over a batch: results[i] = apply(inputs[i]).
+    default Object[] applyAll(final Object[] inputs) {
+        final Object[] results = new Object[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            results[i] = apply(inputs[i]);
+        }
+        return results;
+    }
+
+    default Object[] applyAll(final List inputs) {
+        return applyAll(inputs.toArray());
+    }
+
+    // Predicate.test over a batch: bit i is set if test(inputs[i]).
+    default BitSet testAll(final Object[] inputs) {
+        final BitSet passed = new BitSet(inputs.length);
+        for (int i = 0; i < inputs.length; i++) {
+            if (test(inputs[i])) {
+                passed.set(i);
+            }
+        }
+        return passed;
+    }
+
+    default BitSet testAll(final List inputs) {
+        return testAll(inputs.toArray());
+    }
+
+    // Consumer.accept over a batch, in order.
+    default void acceptAll(final Object[] inputs) {
+        for (final Object input : inputs) {
+            accept(input);
+        }
+    }
+
+    default void acceptAll(final List inputs) {
+        acceptAll(inputs.toArray());
+    }
 }
@@ -2,22 +2,70 @@ package com.entrendipity.gremlinnode.function;
 
 import com.tinkerpop.gremlin.process.computer.util.ScriptEngineCache;
 import groovy.lang.Closure;
+import java.util.BitSet;
+import java.util.Collection;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 
 /**
  * Create a versatile lambda from a Groovy closure.
  *
+ * A GroovyLambda calls a single closure from every thread.  Groovy closures carry mutable state (delegate, resolve
+ * strategy, directive), so a lambda that is evaluated concurrently, e.g. by parallel traversals or by graph computer
+ * workers, should be obtained through {@link #threadSafe()}, which gives each thread its own clone of the closure.
+ *
+ * Closures are compiled dynamically by default.  Hot predicates and mappers whose parameters are declared with types,
+ * e.g. { Vertex v -> v.value('name') == 'marko' }, can instead be compiled with @CompileStatic (see
+ * {@link #compileStatic(String, ScriptEngine)}), so that the body of the closure uses static method dispatch.
+ *
+ * The PrimitiveGlobFunction entry points unbox the closure's result exactly once, so numeric results are never
+ * re-boxed on their way to a primitive consumer such as a Comparator.comparingDouble() key.
+ *
+ * A closure of one parameter, e.g. { Object[] xs -> xs.collect { it * 2 } }, can be called as a batch closure through
+ * {@link #asBatch()}: applyAll, testAll and acceptAll call it once with the whole batch as an Object[], and it returns
+ * an array or collection holding one result per input.  Single-argument calls pass it a batch of one, and calls with
+ * no or several arguments are unsupported.  Other lambdas are called once per input by the batch methods, but the
+ * closure to call is looked up only once per batch.
+ *
  * Based on code written by Marko A. Rodriguez (http://markorodriguez.com)
  */
-public class GroovyLambda extends AbstractGlobFunction {
+public class GroovyLambda extends AbstractGlobFunction implements PrimitiveGlobFunction {
 
     private final String groovy;
     private final ScriptEngine engine;
+    private final Compilation compilation;
     private final Closure closure;
 
+    // True if the closure is called with a whole batch of inputs as an Object[] (see asBatch).
+    private final boolean batch;
+
+    // Per-thread clones of the closure, or null if this lambda calls the shared closure directly.
+    private final ThreadLocal<Closure> threadClosures;
+
+    // Lazily created thread-safe twin of this lambda.
+    private volatile GroovyLambda threadSafe;
+
     private final static String GROOVY_SCRIPT_ENGINE_NAME = "Groovy";
 
+    // Name of the script method that returns a closure compiled under a compilation annotation.
+    private final static String COMPILED_CLOSURE_METHOD = "gremlinNodeClosure";
+
+    /**
+     * How the closure is compiled.  TYPE_CHECKED and STATIC require the closure to type check, which usually means
+     * declaring the types of its parameters.
+     */
+    public enum Compilation {
+        DYNAMIC(null),
+        TYPE_CHECKED("groovy.transform.TypeChecked"),
+        STATIC("groovy.transform.CompileStatic");
+
+        private final String annotation;
+
+        Compilation(final String annotation) {
+            this.annotation = annotation;
+        }
+    }
+
     public static ScriptEngine getDefaultEngine() {
         return ScriptEngineCache.get(GROOVY_SCRIPT_ENGINE_NAME);
     }
@@ -27,60 +75,323 @@ public class GroovyLambda extends AbstractGlobFunction {
     }
 
     public GroovyLambda(final String groovy, final ScriptEngine engine) throws ScriptException {
+        this(groovy, engine, Compilation.DYNAMIC);
+    }
+
+    public GroovyLambda(final String groovy, final ScriptEngine engine, final Compilation compilation)
+        throws ScriptException {
         this.groovy = groovy;
         this.engine = engine;
-        this.closure = (Closure) this.engine.eval(groovy);
+        this.compilation = compilation;
+        this.closure = compile(groovy, engine, compilation);
+        this.batch = false;
+        this.threadClosures = null;
+    }
+
+    public static GroovyLambda compileStatic(final String groovy) throws ScriptException {
+        return compileStatic(groovy, getDefaultEngine());
+    }
+
+    public static GroovyLambda compileStatic(final String groovy, final ScriptEngine engine) throws ScriptException {
+        return new GroovyLambda(groovy, engine, Compilation.STATIC);
+    }
+
+    public static GroovyLambda typeChecked(final String groovy, final ScriptEngine engine) throws ScriptException {
+        return new GroovyLambda(groovy, engine, Compilation.TYPE_CHECKED);
+    }
+
+    private static Closure compile(final String groovy, final ScriptEngine engine, final Compilation compilation)
+        throws ScriptException {
+        if (compilation == Compilation.DYNAMIC) {
+            return (Closure) engine.eval(groovy);
+        }
+
+        try {
+            return (Closure) engine.eval(script(groovy, compilation));
+        }
+        catch (ScriptException se) {
+            throw compilationFailed(groovy, compilation, se);
+        }
+    }
+
+    // A script whose value is the closure *groovy*, compiled as *compilation* asks.
+    static String script(final String groovy, final Compilation compilation) {
+        if (compilation == Compilation.DYNAMIC) {
+            return "return " + groovy + "\n";
+        }
+
+        // Annotations apply to declarations, not expressions, so wrap the closure in an annotated script method and
+        // return the closure from it.  The closure keeps its own line; error messages are offset by two lines.
+        return "@" + compilation.annotation + "\n"
+            + "Closure " + COMPILED_CLOSURE_METHOD + "() {\n"
+            + "return " + groovy + "\n"
+            + "}\n"
+            + COMPILED_CLOSURE_METHOD + "()\n";
+    }
+
+    static ScriptException compilationFailed(final String groovy, final Compilation compilation,
+                                             final Exception cause) {
+        final String how = compilation == Compilation.DYNAMIC ? "" : " with @" + compilation.annotation;
+        final ScriptException reported =
+            new ScriptException("Unable to compile closure" + how + ": " + groovy + "\n" + cause.getMessage());
+        reported.initCause(cause);
+        return reported;
+    }
+
+    // Wrap a closure compiled elsewhere, e.g. by an IsolatedClosureCompiler.
+    GroovyLambda(final String groovy, final Closure closure, final Compilation compilation) {
+        this.groovy = groovy;
+        this.engine = null;
+        this.compilation = compilation;
+        this.closure = closure;
+        this.batch = false;
+        this.threadClosures = null;
+    }
+
+    // Create a thread-safe lambda that shares the compiled closure of *that*.
+    private GroovyLambda(final GroovyLambda that) {
+        this.groovy = that.groovy;
+        this.engine = that.engine;
+        this.compilation = that.compilation;
+        this.closure = that.closure;
+        this.batch = that.batch;
+        this.threadClosures = ThreadLocal.withInitial(() -> (Closure) that.closure.clone());
+        this.threadSafe = this;
+    }
+
+    // Create a batch lambda that shares the compiled closure, and the per-thread clones if any, of *that*.
+    private GroovyLambda(final GroovyLambda that, final boolean batch) {
+        this.groovy = that.groovy;
+        this.engine = that.engine;
+        this.compilation = that.compilation;
+        this.closure = that.closure;
+        this.batch = batch;
+        this.threadClosures = that.threadClosures;
+        if (threadClosures != null) {
+            this.threadSafe = this;
+        }
+    }
+
+    /**
+     * Return a lambda which may be evaluated from many threads at once.  The compiled closure is shared, but each
+     * thread calls its own clone of it.  Repeated calls return the same instance.
+     */
+    public GroovyLambda threadSafe() {
+        GroovyLambda result = threadSafe;
+        if (result == null) {
+            synchronized (this) {
+                result = threadSafe;
+                if (result == null) {
+                    result = threadSafe = new GroovyLambda(this);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return a lambda that calls the closure, which must take a single parameter, once per batch of inputs (see
+     * above).  The lambda is thread safe if this one is.
+     */
+    public GroovyLambda asBatch() {
+        if (batch) {
+            return this;
+        }
+        if (closure.getMaximumNumberOfParameters() != 1) {
+            throw new IllegalArgumentException("A batch closure must take a single parameter: " + groovy);
+        }
+        return new GroovyLambda(this, true);
+    }
+
+    /**
+     * True if the closure is called with a whole batch of inputs as an Object[].
+     */
+    public boolean isBatch() {
+        return batch;
+    }
+
+    public Compilation getCompilation() {
+        return compilation;
+    }
+
+    public boolean isThreadSafe() {
+        return threadClosures != null;
+    }
+
+    // The closure to call on the current thread.
+    Closure closure() {
+        return threadClosures == null ? closure : threadClosures.get();
     }
 
     public String toString() {
         return "GroovyLambda(" + groovy + ")";
     }
 
+    // Call the closure with a single input, as a batch of one if it is a batch closure.
+    private Object call(final Object a) {
+        if (batch) {
+            return results(closure().call(new Object[] { new Object[] { a } }), 1)[0];
+        }
+        return closure().call(a);
+    }
+
+    // Call the closure with no or several arguments, which a batch closure does not take.
+    private Object call(final Object... args) {
+        if (batch) {
+            throw new UnsupportedOperationException(this + " is a batch lambda, which is called with one input");
+        }
+        return closure().call(args);
+    }
+
+    // The results of a batch call, which must be an array or a collection holding one result per input.
+    private Object[] results(final Object value, final int expected) {
+        final Object[] results = value instanceof Object[] ? (Object[]) value
+            : value instanceof Collection ? ((Collection<?>) value).toArray() : null;
+        if (results == null || results.length != expected) {
+            throw new IllegalStateException(this + " returned " + value + " for a batch of " + expected + " inputs");
+        }
+        return results;
+    }
+
     // Function.apply, UnaryOperator.apply
     @Override
     public Object apply(final Object a) {
-        return this.closure.call(a);
+        return call(a);
     }
 
     // BiFunction.apply, BinaryOperator.apply
     @Override
     public Object apply(final Object a, final Object b) {
-        return this.closure.call(a, b);
+        return call(a, b);
     }
 
     // Supplier.get
     @Override
     public Object get() {
-        return this.closure.call();
+        return call();
     }
 
     // Consumer.accept
     @Override
     public void accept(final Object a) {
-        this.closure.call(a);
+        call(a);
     }
 
     // BiConsumer.accept
     @Override
     public void accept(final Object a, final Object b) {
-        this.closure.call(a, b);
+        call(a, b);
     }
 
     // TriConsumer.accept
     @Override
     public void accept(final Object a, final Object b, final Object c) {
-        this.closure.call(a, b, c);
+        call(a, b, c);
     }
 
     // Predicate.test
     @Override
     public boolean test(final Object a) {
-        return (boolean) this.closure.call(a);
+        return (boolean) call(a);
     }
 
     // BiPredicate.test
     @Override
     public boolean test(final Object a, final Object b) {
-        return (boolean) this.closure.call(a, b);
+        return (boolean) call(a, b);
+    }
+
+    // ToIntFunction.applyAsInt
+    @Override
+    public int applyAsInt(final Object a) {
+        return ((Number) call(a)).intValue();
+    }
+
+    // ToLongFunction.applyAsLong
+    @Override
+    public long applyAsLong(final Object a) {
+        return ((Number) call(a)).longValue();
+    }
+
+    // ToDoubleFunction.applyAsDouble
+    @Override
+    public double applyAsDouble(final Object a) {
+        return ((Number) call(a)).doubleValue();
+    }
+
+    // ToIntBiFunction.applyAsInt
+    @Override
+    public int applyAsInt(final Object a, final Object b) {
+        return ((Number) call(a, b)).intValue();
+    }
+
+    // ToLongBiFunction.applyAsLong
+    @Override
+    public long applyAsLong(final Object a, final Object b) {
+        return ((Number) call(a, b)).longValue();
+    }
+
+    // ToDoubleBiFunction.applyAsDouble
+    @Override
+    public double applyAsDouble(final Object a, final Object b) {
+        return ((Number) call(a, b)).doubleValue();
+    }
+
+    // GlobFunction.applyAll
+    @Override
+    public Object[] applyAll(final Object[] inputs) {
+        final Closure closure = closure();
+        if (batch) {
+            return results(closure.call(new Object[] { inputs }), inputs.length);
+        }
+        final Object[] results = new Object[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            results[i] = closure.call(inputs[i]);
+        }
+        return results;
+    }
+
+    // GlobFunction.testAll
+    @Override
+    public BitSet testAll(final Object[] inputs) {
+        final Object[] results = applyAll(inputs);
+        final BitSet passed = new BitSet(inputs.length);
+        for (int i = 0; i < results.length; i++) {
+            if ((boolean) results[i]) {
+                passed.set(i);
+            }
+        }
+        return passed;
+    }
+
+    // GlobFunction.acceptAll
+    @Override
+    public void acceptAll(final Object[] inputs) {
+        final Closure closure = closure();
+        if (batch) {
+            closure.call(new Object[] { inputs });
+            return;
+        }
+        for (final Object input : inputs) {
+            closure.call(input);
+        }
+    }
+
+    // IntPredicate.test
+    @Override
+    public boolean testInt(final int a) {
+        return (boolean) call(a);
+    }
+
+    // LongPredicate.test
+    @Override
+    public boolean testLong(final long a) {
+        return (boolean) call(a);
+    }
+
+    // DoublePredicate.test
+    @Override
+    public boolean testDouble(final double a) {
+        return (boolean) call(a);
     }
 }
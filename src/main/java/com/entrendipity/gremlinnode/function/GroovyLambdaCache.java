@@ -0,0 +1,149 @@
+package com.entrendipity.gremlinnode.function;
+
+import com.entrendipity.gremlinnode.util.BoundedCache;
+import com.tinkerpop.gremlin.groovy.jsr223.GremlinGroovyScriptEngine;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+/**
+ * A bounded, thread-safe LRU cache of compiled GroovyLambda instances.
+ *
+ * Lambdas are keyed by the closure source, the engine (or other compiler) that compiled them, and its import set at
+ * the time of the lookup, so that adding imports to an engine never hands back a lambda that was compiled without them.
+ * Closures are compiled outside the cache's lock; if two threads race to compile the same closure, the first one to
+ * finish wins (see BoundedCache).
+ */
+public class GroovyLambdaCache {
+
+    public final static int DEFAULT_MAXIMUM_SIZE = 1000;
+
+    private final int maximumSize;
+    private final BoundedCache<Key, GroovyLambda> lambdas;
+
+    public GroovyLambdaCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public GroovyLambdaCache(final int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.lambdas = new BoundedCache<>(maximumSize);
+    }
+
+    public GroovyLambda get(final String groovy) throws ScriptException {
+        return get(groovy, GroovyLambda.getDefaultEngine());
+    }
+
+    public GroovyLambda get(final String groovy, final ScriptEngine engine) throws ScriptException {
+        return get(groovy, engine, GroovyLambda.Compilation.DYNAMIC);
+    }
+
+    public GroovyLambda get(final String groovy, final ScriptEngine engine, final GroovyLambda.Compilation compilation)
+        throws ScriptException {
+        final Key key = new Key(groovy, engine, compilation, importsOf(engine));
+        final GroovyLambda lambda = lambdas.get(key);
+        return lambda != null ? lambda : lambdas.putIfAbsent(key, new GroovyLambda(groovy, engine, compilation));
+    }
+
+    /**
+     * Look up *groovy*, compiling it on one of the engines of *pool* on a miss.  Lambdas compiled by a pool are shared
+     * by all of its engines, since they have the same imports.
+     */
+    public GroovyLambda get(final String groovy, final ScriptEnginePool pool,
+                            final GroovyLambda.Compilation compilation) throws ScriptException {
+        final Key key = new Key(groovy, pool, compilation, pool.getImports());
+        final GroovyLambda lambda = lambdas.get(key);
+        return lambda != null ? lambda : lambdas.putIfAbsent(key, pool.compile(groovy, compilation));
+    }
+
+    /**
+     * Look up *groovy*, compiling it with *compiler* on a miss.  Lambdas evicted from this cache let the compiler's
+     * classes be unloaded once the compiler has evicted them too.
+     */
+    public GroovyLambda get(final String groovy, final IsolatedClosureCompiler compiler,
+                            final GroovyLambda.Compilation compilation) throws ScriptException {
+        final Key key = new Key(groovy, compiler, compilation, compiler.getImports());
+        final GroovyLambda lambda = lambdas.get(key);
+        return lambda != null ? lambda : lambdas.putIfAbsent(key, compiler.compile(groovy, compilation));
+    }
+
+    public void clear() {
+        lambdas.clear();
+    }
+
+    public int size() {
+        return lambdas.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHitCount() {
+        return lambdas.getHitCount();
+    }
+
+    public long getMissCount() {
+        return lambdas.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return lambdas.getEvictionCount();
+    }
+
+    public String toString() {
+        return "GroovyLambdaCache(size=" + size() + ", maximumSize=" + maximumSize
+            + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + ")";
+    }
+
+    // Imports currently configured on the engine.  Engines other than GremlinGroovyScriptEngine have no way to add
+    // imports, so their import set never changes.
+    static Map<String, Set<String>> importsOf(final ScriptEngine engine) {
+        if (engine instanceof GremlinGroovyScriptEngine) {
+            return ((GremlinGroovyScriptEngine) engine).imports();
+        }
+        return Collections.emptyMap();
+    }
+
+    // The compiler is a ScriptEngine, a ScriptEnginePool or an IsolatedClosureCompiler, compared by identity.
+    private final static class Key {
+        private final String groovy;
+        private final Object compiler;
+        private final GroovyLambda.Compilation compilation;
+        private final Object imports;
+        private final int hash;
+
+        Key(final String groovy, final Object compiler, final GroovyLambda.Compilation compilation,
+            final Object imports) {
+            this.groovy = groovy;
+            this.compiler = compiler;
+            this.compilation = compilation;
+            this.imports = imports;
+            this.hash = 31 * (31 * (31 * groovy.hashCode() + System.identityHashCode(compiler))
+                              + compilation.hashCode()) + imports.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key that = (Key) other;
+            return this.hash == that.hash
+                && this.compiler == that.compiler
+                && this.compilation == that.compilation
+                && this.groovy.equals(that.groovy)
+                && this.imports.equals(that.imports);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
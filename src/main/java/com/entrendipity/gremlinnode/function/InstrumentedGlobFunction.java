@@ -0,0 +1,382 @@
+package com.entrendipity.gremlinnode.function;
+
+import java.util.BitSet;
+import java.util.function.Supplier;
+
+/**
+ * Decorate a GlobFunction with LambdaMetrics: every call is counted and timed, and calls that throw are counted as
+ * errors.
+ *
+ * The decorator is transparent: it has the same string representation as the function it decorates, and its
+ * PrimitiveGlobFunction entry points call the decorated function's own if it has them, and otherwise unbox the
+ * results of its apply and test.  The batch methods are passed on to the decorated function, and each batch is
+ * recorded as a single call.
+ */
+public class InstrumentedGlobFunction extends IdentityGlobFunction implements PrimitiveGlobFunction {
+
+    private final LambdaMetrics metrics;
+    private final PrimitiveGlobFunction primitive;
+
+    public InstrumentedGlobFunction(final GlobFunction that) {
+        this(that, LambdaMetricsRegistry.getDefault());
+    }
+
+    public InstrumentedGlobFunction(final GlobFunction that, final LambdaMetricsRegistry registry) {
+        super(that);
+        this.metrics = registry.metricsFor(that.toString());
+        this.primitive = that instanceof PrimitiveGlobFunction ? (PrimitiveGlobFunction) that : new Unboxing(that);
+    }
+
+    public LambdaMetrics getMetrics() {
+        return metrics;
+    }
+
+    public GlobFunction getDelegate() {
+        return that;
+    }
+
+    public String toString() {
+        return that.toString();
+    }
+
+    // Count and time *call*, counting it as an error if it throws.  Only the entry points that return objects use it:
+    // the others are timed inline, so that they neither allocate a lambda nor box their result.
+    private <T> T timed(final Supplier<T> call) {
+        final long start = System.nanoTime();
+        try {
+            return call.get();
+        }
+        catch (RuntimeException | Error e) {
+            metrics.error();
+            throw e;
+        }
+        finally {
+            metrics.record(System.nanoTime() - start);
+        }
+    }
+
+    // Function.apply, UnaryOperator.apply
+    @Override
+    public Object apply(final Object a) {
+        return timed(() -> that.apply(a));
+    }
+
+    // BiFunction.apply, BinaryOperator.apply
+    @Override
+    public Object apply(final Object a, final Object b) {
+        return timed(() -> that.apply(a, b));
+    }
+
+    // Supplier.get
+    @Override
+    public Object get() {
+        return timed(() -> that.get());
+    }
+
+    // Consumer.accept
+    @Override
+    public void accept(final Object a) {
+        final long start = System.nanoTime();
+        try {
+            that.accept(a);
+        }
+        catch (RuntimeException | Error e) {
+            metrics.error();
+            throw e;
+        }
+        finally {
+            metrics.record(System.nanoTime() - start);
+        }
+    }
+
+    // BiConsumer.accept
+    @Override
+    public void accept(final Object a, final Object b) {
+        final long start = System.nanoTime();
+        try {
+            that.accept(a, b);
+        }
+        catch (RuntimeException | Error e) {
+            metrics.error();
+            throw e;
+        }
+        finally {
+            metrics.record(System.nanoTime() - start);
+        }
+    }
+
+    // TriConsumer.accept
+    @Override
+    public void accept(final Object a, final Object b, final Object c) {
+        final long start = System.nanoTime();
+        try {
+            that.accept(a, b, c);
+        }
+        catch (RuntimeException | Error e) {
+            metrics.error();
+            throw e;
+        }
+        finally {
+            metrics.record(System.nanoTime() - start);
+        }
+    }
+
+    // Predicate.test
+    @Override
+    public boolean test(final Object a) {
+        final long start = System.nanoTime();
+        try {
+            return that.test(a);
+        }
+        catch (RuntimeException | Error e) {
+            metrics.error();
+            throw e;
+        }
+        finally {
+            metrics.record(System.nanoTime() - start);
+        }
+    }
+
+    // BiPredicate.test
+    @Override
+    public boolean test(final Object a, final Object b) {
+        final long start = System.nanoTime();
+        try {
+            return that.test(a, b);
+        }
+        catch (RuntimeException | Error e) {
+            metrics.error();
+            throw e;
+        }
+        finally {
+            metrics.record(System.nanoTime() - start);
+        }
+    }
+
+    // GlobFunction.applyAll; the whole batch is recorded as one call.
+    @Override
+    public Object[] applyAll(final Object[] inputs) {
+        return timed(() -> that.applyAll(inputs));
+    }
+
+    // GlobFunction.testAll; the whole batch is recorded as one call.
+    @Override
+    public BitSet testAll(final Object[] inputs) {
+        return timed(() -> that.testAll(inputs));
+    }
+
+    // GlobFunction.acceptAll; the whole batch is recorded as one call.
+    @Override
+    public void acceptAll(final Object[] inputs) {
+        final long start = System.nanoTime();
+        try {
+            that.acceptAll(inputs);
+        }
+        catch (RuntimeException | Error e) {
+            metrics.error();
+            throw e;
+        }
+        finally {
+            metrics.record(System.nanoTime() - start);
+        }
+    }
+
+    // ToIntFunction.applyAsInt
+    @Override
+    public int applyAsInt(final Object a) {
+        final long start = System.nanoTime();
+        try {
+            return primitive.applyAsInt(a);
+        }
+        catch (RuntimeException | Error e) {
+            metrics.error();
+            throw e;
+        }
+        finally {
+            metrics.record(System.nanoTime() - start);
+        }
+    }
+
+    // ToLongFunction.applyAsLong
+    @Override
+    public long applyAsLong(final Object a) {
+        final long start = System.nanoTime();
+        try {
+            return primitive.applyAsLong(a);
+        }
+        catch (RuntimeException | Error e) {
+            metrics.error();
+            throw e;
+        }
+        finally {
+            metrics.record(System.nanoTime() - start);
+        }
+    }
+
+    // ToDoubleFunction.applyAsDouble
+    @Override
+    public double applyAsDouble(final Object a) {
+        final long start = System.nanoTime();
+        try {
+            return primitive.applyAsDouble(a);
+        }
+        catch (RuntimeException | Error e) {
+            metrics.error();
+            throw e;
+        }
+        finally {
+            metrics.record(System.nanoTime() - start);
+        }
+    }
+
+    // ToIntBiFunction.applyAsInt
+    @Override
+    public int applyAsInt(final Object a, final Object b) {
+        final long start = System.nanoTime();
+        try {
+            return primitive.applyAsInt(a, b);
+        }
+        catch (RuntimeException | Error e) {
+            metrics.error();
+            throw e;
+        }
+        finally {
+            metrics.record(System.nanoTime() - start);
+        }
+    }
+
+    // ToLongBiFunction.applyAsLong
+    @Override
+    public long applyAsLong(final Object a, final Object b) {
+        final long start = System.nanoTime();
+        try {
+            return primitive.applyAsLong(a, b);
+        }
+        catch (RuntimeException | Error e) {
+            metrics.error();
+            throw e;
+        }
+        finally {
+            metrics.record(System.nanoTime() - start);
+        }
+    }
+
+    // ToDoubleBiFunction.applyAsDouble
+    @Override
+    public double applyAsDouble(final Object a, final Object b) {
+        final long start = System.nanoTime();
+        try {
+            return primitive.applyAsDouble(a, b);
+        }
+        catch (RuntimeException | Error e) {
+            metrics.error();
+            throw e;
+        }
+        finally {
+            metrics.record(System.nanoTime() - start);
+        }
+    }
+
+    // IntPredicate.test
+    @Override
+    public boolean testInt(final int a) {
+        final long start = System.nanoTime();
+        try {
+            return primitive.testInt(a);
+        }
+        catch (RuntimeException | Error e) {
+            metrics.error();
+            throw e;
+        }
+        finally {
+            metrics.record(System.nanoTime() - start);
+        }
+    }
+
+    // LongPredicate.test
+    @Override
+    public boolean testLong(final long a) {
+        final long start = System.nanoTime();
+        try {
+            return primitive.testLong(a);
+        }
+        catch (RuntimeException | Error e) {
+            metrics.error();
+            throw e;
+        }
+        finally {
+            metrics.record(System.nanoTime() - start);
+        }
+    }
+
+    // DoublePredicate.test
+    @Override
+    public boolean testDouble(final double a) {
+        final long start = System.nanoTime();
+        try {
+            return primitive.testDouble(a);
+        }
+        catch (RuntimeException | Error e) {
+            metrics.error();
+            throw e;
+        }
+        finally {
+            metrics.record(System.nanoTime() - start);
+        }
+    }
+
+    // The primitive entry points of a function that has none of its own, by unboxing its results.
+    private final static class Unboxing implements PrimitiveGlobFunction {
+
+        private final GlobFunction that;
+
+        Unboxing(final GlobFunction that) {
+            this.that = that;
+        }
+
+        @Override
+        public int applyAsInt(final Object a) {
+            return ((Number) that.apply(a)).intValue();
+        }
+
+        @Override
+        public long applyAsLong(final Object a) {
+            return ((Number) that.apply(a)).longValue();
+        }
+
+        @Override
+        public double applyAsDouble(final Object a) {
+            return ((Number) that.apply(a)).doubleValue();
+        }
+
+        @Override
+        public int applyAsInt(final Object a, final Object b) {
+            return ((Number) that.apply(a, b)).intValue();
+        }
+
+        @Override
+        public long applyAsLong(final Object a, final Object b) {
+            return ((Number) that.apply(a, b)).longValue();
+        }
+
+        @Override
+        public double applyAsDouble(final Object a, final Object b) {
+            return ((Number) that.apply(a, b)).doubleValue();
+        }
+
+        @Override
+        public boolean testInt(final int a) {
+            return that.test(a);
+        }
+
+        @Override
+        public boolean testLong(final long a) {
+            return that.test(a);
+        }
+
+        @Override
+        public boolean testDouble(final double a) {
+            return that.test(a);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.entrendipity.gremlinnode.function;
+
+import com.entrendipity.gremlinnode.util.BoundedCache;
+import com.tinkerpop.gremlin.groovy.DefaultImportCustomizerProvider;
+import com.tinkerpop.gremlin.groovy.ImportCustomizerProvider;
+import groovy.lang.Binding;
+import groovy.lang.Closure;
+import groovy.lang.GroovyClassLoader;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.script.ScriptException;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.customizers.ImportCustomizer;
+import org.codehaus.groovy.runtime.InvokerHelper;
+
+/**
+ * Compile closures into classes that can be unloaded again, so that a long running process which accepts ad-hoc
+ * closures does not fill metaspace.
+ *
+ * A script engine defines every class it generates in one class loader, and keeps them all, so each new closure adds
+ * to metaspace for good.  Here, each closure source is compiled in a class loader of its own, and a bounded LRU map
+ * keeps the compiled script classes, so that identical sources reuse their class.  Once a class has been evicted from
+ * the map and every lambda created from it is unreachable (e.g. evicted from a GroovyLambdaCache), its class loader
+ * and classes can be unloaded.
+ *
+ * Closures are compiled with the default imports and static imports of GremlinGroovyScriptEngine (e.g. T, Direction
+ * and Compare and their constants), as well as DEFAULT_IMPORTS and any added with addImports, so that a closure
+ * compiles here as it does on an engine.
+ *
+ * The compiler reports how many classes it holds, how many class loaders it has created and how many of those have
+ * since been collected, along with the JVM's class counts and metaspace use.
+ */
+public class IsolatedClosureCompiler {
+
+    public final static int DEFAULT_MAXIMUM_SIZE = 1000;
+
+    /**
+     * Packages imported into every closure, so that e.g. { Vertex v -> ... } type checks.
+     */
+    public final static List<String> DEFAULT_IMPORTS = Collections.unmodifiableList(Arrays.asList(
+        "import com.tinkerpop.gremlin.process.*",
+        "import com.tinkerpop.gremlin.process.graph.traversal.*",
+        "import com.tinkerpop.gremlin.structure.*",
+        "import java.util.function.*"));
+
+    private final static String CLASS_NAME_PREFIX = "GremlinNodeClosure";
+
+    // The imports that GremlinGroovyScriptEngine starts with.
+    private final static ImportCustomizerProvider ENGINE_IMPORTS = new DefaultImportCustomizerProvider();
+
+    private final int maximumSize;
+    private final ClassLoader parent;
+    private final BoundedCache<Key, Compiled> classes;
+    private final AtomicLong sequence = new AtomicLong();
+
+    // Guarded by this.  Replaced, never modified, when imports are added.
+    private Set<String> imports = new LinkedHashSet<>();
+    private CompilerConfiguration configuration;
+
+    // Phantom references to the class loaders created so far, so that their collection can be counted.
+    private final ReferenceQueue<GroovyClassLoader> collectedLoaders = new ReferenceQueue<>();
+    private final Set<Reference<GroovyClassLoader>> liveLoaders = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder loadersCreated = new LongAdder();
+    private final LongAdder loadersCollected = new LongAdder();
+
+    public IsolatedClosureCompiler() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public IsolatedClosureCompiler(final int maximumSize) {
+        this(maximumSize, IsolatedClosureCompiler.class.getClassLoader());
+    }
+
+    public IsolatedClosureCompiler(final int maximumSize, final ClassLoader parent) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.parent = parent;
+        this.classes = new BoundedCache<>(maximumSize, (key, compiled) -> compiled.release());
+        addImports(DEFAULT_IMPORTS);
+    }
+
+    /**
+     * Add import statements, e.g. "import com.example.Thing" or "import com.example.*".  Classes compiled with the
+     * previous imports are discarded.
+     */
+    public synchronized void addImports(final Collection<String> statements) {
+        final Set<String> updated = new LinkedHashSet<>(imports);
+        for (final String statement : statements) {
+            updated.add(statement.trim());
+        }
+        if (updated.equals(imports) && configuration != null) {
+            return;
+        }
+        final ImportCustomizer customizer = new ImportCustomizer();
+        for (final String statement : updated) {
+            final String name = statement.startsWith("import ") ? statement.substring("import ".length()).trim()
+                                                                : statement;
+            if (name.endsWith(".*")) {
+                customizer.addStarImports(name.substring(0, name.length() - 2));
+            } else {
+                customizer.addImports(name);
+            }
+        }
+        final CompilerConfiguration updatedConfiguration = new CompilerConfiguration();
+        updatedConfiguration.addCompilationCustomizers(ENGINE_IMPORTS.getImportCustomizer(), customizer);
+        imports = updated;
+        configuration = updatedConfiguration;
+        clear();
+    }
+
+    /**
+     * The import statements in effect.
+     */
+    public synchronized Set<String> getImports() {
+        return Collections.unmodifiableSet(imports);
+    }
+
+    public GroovyLambda compile(final String groovy) throws ScriptException {
+        return compile(groovy, GroovyLambda.Compilation.DYNAMIC);
+    }
+
+    /**
+     * Return a lambda for *groovy*, reusing the class compiled for an identical source if there is one.
+     */
+    public GroovyLambda compile(final String groovy, final GroovyLambda.Compilation compilation)
+        throws ScriptException {
+        final Key key = new Key(groovy, compilation);
+        Compiled compiled = classes.get(key);
+        if (compiled == null) {
+            // Compile outside the cache's lock; if two threads race, the first class stored wins.
+            compiled = classes.putIfAbsent(key, define(groovy, compilation));
+        }
+        try {
+            final Object closure = InvokerHelper.createScript(compiled.scriptClass, new Binding()).run();
+            return new GroovyLambda(groovy, (Closure) closure, compilation);
+        }
+        catch (RuntimeException re) {
+            throw GroovyLambda.compilationFailed(groovy, compilation, re);
+        }
+    }
+
+    public void clear() {
+        classes.clear();
+    }
+
+    /**
+     * The number of compiled closure classes held for reuse.
+     */
+    public int size() {
+        return classes.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHitCount() {
+        return classes.getHitCount();
+    }
+
+    public long getMissCount() {
+        return classes.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return classes.getEvictionCount();
+    }
+
+    public long getLoaderCount() {
+        return loadersCreated.sum();
+    }
+
+    /**
+     * The number of class loaders, and so closure classes, that have been garbage collected.
+     */
+    public long getCollectedLoaderCount() {
+        expungeCollectedLoaders();
+        return loadersCollected.sum();
+    }
+
+    /**
+     * The number of class loaders that have not been collected yet, whether or not their classes are still in use.
+     */
+    public int getLiveLoaderCount() {
+        expungeCollectedLoaders();
+        return liveLoaders.size();
+    }
+
+    /**
+     * The bytes of metaspace in use by the whole JVM, or -1 if the JVM has no Metaspace memory pool.
+     */
+    public static long getMetaspaceUsed() {
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if ("Metaspace".equals(pool.getName())) {
+                return pool.getUsage().getUsed();
+            }
+        }
+        return -1;
+    }
+
+    public Map<String, Object> getStats() {
+        final ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+        final Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("classes", size());
+        stats.put("maximumSize", maximumSize);
+        stats.put("hits", getHitCount());
+        stats.put("misses", getMissCount());
+        stats.put("evictions", getEvictionCount());
+        stats.put("loaders", getLoaderCount());
+        stats.put("liveLoaders", getLiveLoaderCount());
+        stats.put("collectedLoaders", getCollectedLoaderCount());
+        stats.put("jvmLoadedClasses", classLoading.getLoadedClassCount());
+        stats.put("jvmUnloadedClasses", classLoading.getUnloadedClassCount());
+        stats.put("metaspaceUsed", getMetaspaceUsed());
+        return stats;
+    }
+
+    public String toString() {
+        return "IsolatedClosureCompiler(classes=" + size() + ", maximumSize=" + maximumSize
+            + ", liveLoaders=" + getLiveLoaderCount() + ", collectedLoaders=" + getCollectedLoaderCount() + ")";
+    }
+
+    // Compile *groovy* into a script class in a class loader of its own.
+    private Compiled define(final String groovy, final GroovyLambda.Compilation compilation) throws ScriptException {
+        final CompilerConfiguration compilerConfiguration;
+        synchronized (this) {
+            compilerConfiguration = configuration;
+        }
+        expungeCollectedLoaders();
+        final GroovyClassLoader loader = new GroovyClassLoader(parent, compilerConfiguration);
+        liveLoaders.add(new PhantomReference<>(loader, collectedLoaders));
+        loadersCreated.increment();
+        try {
+            return new Compiled(loader.parseClass(GroovyLambda.script(groovy, compilation),
+                                                  CLASS_NAME_PREFIX + sequence.incrementAndGet() + ".groovy"),
+                                loader);
+        }
+        catch (RuntimeException re) {
+            throw GroovyLambda.compilationFailed(groovy, compilation, re);
+        }
+    }
+
+    private void expungeCollectedLoaders() {
+        Reference<? extends GroovyClassLoader> reference;
+        while ((reference = collectedLoaders.poll()) != null) {
+            if (liveLoaders.remove(reference)) {
+                loadersCollected.increment();
+            }
+        }
+    }
+
+    // A compiled script class and the class loader that defined it.
+    private final static class Compiled {
+        private final Class<?> scriptClass;
+        private final GroovyClassLoader loader;
+
+        Compiled(final Class<?> scriptClass, final GroovyClassLoader loader) {
+            this.scriptClass = scriptClass;
+            this.loader = loader;
+        }
+
+        // Drop the loader's own references to its classes, and their meta classes, which would otherwise keep them
+        // loaded.  Lambdas still using the classes keep working; their meta classes are recreated on demand.
+        void release() {
+            loader.clearCache();
+        }
+    }
+
+    private final static class Key {
+        private final String groovy;
+        private final GroovyLambda.Compilation compilation;
+
+        Key(final String groovy, final GroovyLambda.Compilation compilation) {
+            this.groovy = groovy;
+            this.compilation = compilation;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key that = (Key) other;
+            return this.compilation == that.compilation && this.groovy.equals(that.groovy);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * groovy.hashCode() + compilation.hashCode();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.entrendipity.gremlinnode.function;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+/**
+ * Create lambdas from closure sources the way a Gremlin instance is configured to in lib/gremlin.js: natively if
+ * nativeExpressions is set and ExpressionCompiler understands the closure, and otherwise compiled by an
+ * IsolatedClosureCompiler, a ScriptEnginePool or a script engine, through a GroovyLambdaCache if there is one.  The
+ * lambdas are then made thread safe and instrumented if those options are set.
+ *
+ * Gremlin.newGroovyLambda and the lambdas of traversal plans are both created by the instance's factory, so that a
+ * closure compiles the same way wherever it is sent.
+ */
+public class LambdaFactory {
+
+    private final ScriptEngine engine;
+    private final ScriptEnginePool enginePool;
+    private final IsolatedClosureCompiler closureCompiler;
+    private final GroovyLambdaCache lambdaCache;
+    private final boolean nativeExpressions;
+    private final boolean threadSafe;
+    private final LambdaMetricsRegistry metrics;
+
+    private LambdaFactory(final Builder builder) {
+        this.engine = builder.engine != null ? builder.engine : GroovyLambda.getDefaultEngine();
+        this.enginePool = builder.enginePool;
+        this.closureCompiler = builder.closureCompiler;
+        this.lambdaCache = builder.lambdaCache;
+        this.nativeExpressions = builder.nativeExpressions;
+        this.threadSafe = builder.threadSafe;
+        this.metrics = builder.metrics;
+    }
+
+    public static Builder build() {
+        return new Builder();
+    }
+
+    public GlobFunction newLambda(final String groovy) throws ScriptException {
+        return newLambda(groovy, GroovyLambda.Compilation.DYNAMIC);
+    }
+
+    public GlobFunction newLambda(final String groovy, final GroovyLambda.Compilation compilation)
+        throws ScriptException {
+        GlobFunction lambda = null;
+        if (nativeExpressions && compilation == GroovyLambda.Compilation.DYNAMIC) {
+            // An ExpressionLambda is cheap to compile, so it is not cached.
+            lambda = ExpressionCompiler.tryCompile(groovy);
+        }
+        if (lambda == null) {
+            lambda = compile(groovy, compilation);
+            if (threadSafe) {
+                lambda = ((GroovyLambda) lambda).threadSafe();
+            }
+        }
+        if (metrics != null) {
+            lambda = new InstrumentedGlobFunction(lambda, metrics);
+        }
+        return lambda;
+    }
+
+    /**
+     * Create a lambda that calls the closure *groovy* once per batch of inputs (see GroovyLambda.asBatch).  Batch
+     * closures are always compiled by Groovy, since ExpressionCompiler evaluates one input at a time.
+     */
+    public GlobFunction newBatchLambda(final String groovy) throws ScriptException {
+        GroovyLambda lambda = compile(groovy, GroovyLambda.Compilation.DYNAMIC).asBatch();
+        if (threadSafe) {
+            lambda = lambda.threadSafe();
+        }
+        return metrics != null ? new InstrumentedGlobFunction(lambda, metrics) : lambda;
+    }
+
+    /**
+     * The imports that closures are compiled with, which change when imports are added to the compiler.
+     */
+    public Object getImports() {
+        if (closureCompiler != null) {
+            return closureCompiler.getImports();
+        } else if (enginePool != null) {
+            return enginePool.getImports();
+        }
+        return GroovyLambdaCache.importsOf(engine);
+    }
+
+    public String toString() {
+        final Object compiler = closureCompiler != null ? closureCompiler : enginePool != null ? enginePool : engine;
+        return "LambdaFactory(compiler=" + compiler + ", cached=" + (lambdaCache != null)
+            + ", nativeExpressions=" + nativeExpressions + ", threadSafe=" + threadSafe
+            + ", instrumented=" + (metrics != null) + ")";
+    }
+
+    private GroovyLambda compile(final String groovy, final GroovyLambda.Compilation compilation)
+        throws ScriptException {
+        if (closureCompiler != null) {
+            return lambdaCache != null ? lambdaCache.get(groovy, closureCompiler, compilation)
+                                       : closureCompiler.compile(groovy, compilation);
+        } else if (enginePool != null) {
+            return lambdaCache != null ? lambdaCache.get(groovy, enginePool, compilation)
+                                       : enginePool.compile(groovy, compilation);
+        }
+        return lambdaCache != null ? lambdaCache.get(groovy, engine, compilation)
+                                   : new GroovyLambda(groovy, engine, compilation);
+    }
+
+    public static final class Builder {
+
+        private ScriptEngine engine;
+        private ScriptEnginePool enginePool;
+        private IsolatedClosureCompiler closureCompiler;
+        private GroovyLambdaCache lambdaCache;
+        private boolean nativeExpressions;
+        private boolean threadSafe;
+        private LambdaMetricsRegistry metrics;
+
+        private Builder() {
+        }
+
+        /**
+         * The engine that compiles closures if there is neither a closure compiler nor an engine pool; by default,
+         * GroovyLambda.getDefaultEngine().
+         */
+        public Builder engine(final ScriptEngine engine) {
+            this.engine = engine;
+            return this;
+        }
+
+        public Builder enginePool(final ScriptEnginePool enginePool) {
+            this.enginePool = enginePool;
+            return this;
+        }
+
+        /**
+         * The compiler of closures into class loaders of their own, which takes precedence over an engine pool.
+         */
+        public Builder closureCompiler(final IsolatedClosureCompiler closureCompiler) {
+            this.closureCompiler = closureCompiler;
+            return this;
+        }
+
+        public Builder lambdaCache(final GroovyLambdaCache lambdaCache) {
+            this.lambdaCache = lambdaCache;
+            return this;
+        }
+
+        public Builder nativeExpressions(final boolean nativeExpressions) {
+            this.nativeExpressions = nativeExpressions;
+            return this;
+        }
+
+        public Builder threadSafe(final boolean threadSafe) {
+            this.threadSafe = threadSafe;
+            return this;
+        }
+
+        /**
+         * The registry that lambdas record their invocations in, or null not to instrument them.
+         */
+        public Builder metrics(final LambdaMetricsRegistry metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public LambdaFactory create() {
+            return new LambdaFactory(this);
+        }
+    }
+}
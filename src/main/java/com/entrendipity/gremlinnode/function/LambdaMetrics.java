@@ -0,0 +1,141 @@
+package com.entrendipity.gremlinnode.function;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Invocation count, error count and latency histogram of one lambda.
+ *
+ * All counters are LongAdders, which stripe their updates across cells, so recording from many threads at once does
+ * not contend on a single memory location.  Latencies are counted in power-of-two buckets of nanoseconds: bucket i
+ * holds latencies in [2^i, 2^(i+1)), so percentiles are accurate to within a factor of two.
+ */
+public final class LambdaMetrics {
+
+    private final static int BUCKETS = 40; // 2^40 ns is about 18 minutes, which is plenty.
+
+    private final String source;
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder[] histogram = new LongAdder[BUCKETS];
+
+    LambdaMetrics(final String source) {
+        this.source = source;
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record one invocation that took *nanos*.
+     */
+    public void record(final long nanos) {
+        invocations.increment();
+        totalNanos.add(nanos);
+        histogram[bucket(nanos)].increment();
+    }
+
+    /**
+     * Record that an invocation threw.  The invocation itself is still recorded with record().
+     */
+    public void error() {
+        errors.increment();
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public long getInvocationCount() {
+        return invocations.sum();
+    }
+
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * The latency, in nanoseconds, that at least *fraction* of the invocations did not exceed, rounded up to a power
+     * of two.  Returns 0 if there have been no invocations.
+     */
+    public long getPercentileNanos(final double fraction) {
+        final long[] counts = counts();
+        long total = 0;
+        for (final long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return 1L << (i + 1);
+            }
+        }
+        return 1L << BUCKETS;
+    }
+
+    public void reset() {
+        invocations.reset();
+        errors.reset();
+        totalNanos.reset();
+        for (final LongAdder bucket : histogram) {
+            bucket.reset();
+        }
+    }
+
+    /**
+     * A summary suitable for JSON: counts, total and mean time, percentiles, and the non-empty histogram buckets as
+     * [upper bound in nanoseconds, count] pairs.
+     */
+    public Map<String, Object> toMap() {
+        final long count = getInvocationCount();
+        final long nanos = getTotalNanos();
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put("invocations", count);
+        map.put("errors", getErrorCount());
+        map.put("totalMillis", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        map.put("meanMicros", count == 0 ? 0.0 : nanos / (double) count / TimeUnit.MICROSECONDS.toNanos(1));
+        map.put("p50Micros", getPercentileNanos(0.5) / (double) TimeUnit.MICROSECONDS.toNanos(1));
+        map.put("p90Micros", getPercentileNanos(0.9) / (double) TimeUnit.MICROSECONDS.toNanos(1));
+        map.put("p99Micros", getPercentileNanos(0.99) / (double) TimeUnit.MICROSECONDS.toNanos(1));
+        final List<long[]> buckets = new ArrayList<>();
+        final long[] counts = counts();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                buckets.add(new long[] {1L << (i + 1), counts[i]});
+            }
+        }
+        map.put("histogram", buckets);
+        return map;
+    }
+
+    public String toString() {
+        return "LambdaMetrics(" + source + ", invocations=" + getInvocationCount() + ", errors=" + getErrorCount()
+            + ", totalNanos=" + getTotalNanos() + ")";
+    }
+
+    private long[] counts() {
+        final long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram[i].sum();
+        }
+        return counts;
+    }
+
+    private static int bucket(final long nanos) {
+        return nanos <= 1 ? 0 : Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(nanos));
+    }
+}
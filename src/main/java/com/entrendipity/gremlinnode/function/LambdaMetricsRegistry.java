@@ -0,0 +1,159 @@
+package com.entrendipity.gremlinnode.function;
+
+import com.entrendipity.gremlinnode.util.BoundedCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The LambdaMetrics of each lambda source, for InstrumentedGlobFunction.
+ *
+ * Lambdas with the same source share their metrics.  The registry can be registered as an MXBean, and snapshot()
+ * returns all of the metrics as JSON.
+ *
+ * The registry holds the metrics of at most maximumSize sources, so that a process which instruments ad-hoc closures
+ * does not accumulate metrics for good.  The sources least recently instrumented are dropped first; lambdas that were
+ * created for them keep recording into their own metrics, which the registry no longer reports.
+ */
+public class LambdaMetricsRegistry implements LambdaMetricsRegistryMXBean {
+
+    public final static String DEFAULT_OBJECT_NAME = "com.entrendipity.gremlinnode:type=LambdaMetrics";
+
+    public final static int DEFAULT_MAXIMUM_SIZE = 1000;
+
+    private final static LambdaMetricsRegistry DEFAULT = new LambdaMetricsRegistry();
+    private final static ObjectMapper MAPPER = new ObjectMapper();
+
+    private final BoundedCache<String, LambdaMetrics> metrics;
+
+    public LambdaMetricsRegistry() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public LambdaMetricsRegistry(final int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.metrics = new BoundedCache<>(maximumSize);
+    }
+
+    public static LambdaMetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public LambdaMetrics metricsFor(final String source) {
+        final LambdaMetrics lambda = metrics.get(source);
+        return lambda != null ? lambda : metrics.putIfAbsent(source, new LambdaMetrics(source));
+    }
+
+    /**
+     * Register this registry with the platform MBean server under *name*, unless something is already registered
+     * there.  Returns the name.
+     */
+    public synchronized ObjectName register(final String name) throws JMException {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName objectName = new ObjectName(name);
+        if (!server.isRegistered(objectName)) {
+            server.registerMBean(this, objectName);
+        }
+        return objectName;
+    }
+
+    public ObjectName register() throws JMException {
+        return register(DEFAULT_OBJECT_NAME);
+    }
+
+    /**
+     * All metrics as a JSON object, keyed by lambda source.
+     */
+    public String snapshot() {
+        final Map<String, Object> snapshot = new TreeMap<>();
+        for (final LambdaMetrics lambda : metrics.values()) {
+            snapshot.put(lambda.getSource(), lambda.toMap());
+        }
+        try {
+            return MAPPER.writeValueAsString(snapshot);
+        }
+        catch (JsonProcessingException jpe) {
+            throw new IllegalStateException("Unable to write lambda metrics", jpe);
+        }
+    }
+
+    @Override
+    public int getLambdaCount() {
+        return metrics.size();
+    }
+
+    @Override
+    public long getDroppedLambdaCount() {
+        return metrics.getEvictionCount();
+    }
+
+    @Override
+    public long getTotalInvocationCount() {
+        long total = 0;
+        for (final LambdaMetrics lambda : metrics.values()) {
+            total += lambda.getInvocationCount();
+        }
+        return total;
+    }
+
+    @Override
+    public long getTotalErrorCount() {
+        long total = 0;
+        for (final LambdaMetrics lambda : metrics.values()) {
+            total += lambda.getErrorCount();
+        }
+        return total;
+    }
+
+    @Override
+    public String[] getLambdas() {
+        final List<String> sources = new ArrayList<>();
+        for (final LambdaMetrics lambda : metrics.values()) {
+            sources.add(lambda.getSource());
+        }
+        return sources.toArray(new String[sources.size()]);
+    }
+
+    @Override
+    public String getSnapshot() {
+        return snapshot();
+    }
+
+    @Override
+    public long getInvocationCount(final String source) {
+        final LambdaMetrics lambda = find(source);
+        return lambda == null ? 0 : lambda.getInvocationCount();
+    }
+
+    @Override
+    public long getErrorCount(final String source) {
+        final LambdaMetrics lambda = find(source);
+        return lambda == null ? 0 : lambda.getErrorCount();
+    }
+
+    @Override
+    public void reset() {
+        for (final LambdaMetrics lambda : metrics.values()) {
+            lambda.reset();
+        }
+    }
+
+    // The metrics of *source*, without touching them as metricsFor would.
+    private LambdaMetrics find(final String source) {
+        for (final LambdaMetrics lambda : metrics.values()) {
+            if (lambda.getSource().equals(source)) {
+                return lambda;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.entrendipity.gremlinnode.function;
+
+/**
+ * JMX view of a LambdaMetricsRegistry.
+ */
+public interface LambdaMetricsRegistryMXBean {
+
+    int getLambdaCount();
+
+    // The number of sources whose metrics were dropped to keep the registry within its maximum size.
+    long getDroppedLambdaCount();
+
+    long getTotalInvocationCount();
+
+    long getTotalErrorCount();
+
+    // The sources of the lambdas with metrics.
+    String[] getLambdas();
+
+    // The full snapshot, as JSON.
+    String getSnapshot();
+
+    long getInvocationCount(String source);
+
+    long getErrorCount(String source);
+
+    void reset();
+}
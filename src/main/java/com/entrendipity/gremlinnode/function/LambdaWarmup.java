@@ -0,0 +1,230 @@
+package com.entrendipity.gremlinnode.function;
+
+import com.tinkerpop.gremlin.groovy.jsr223.GremlinGroovyScriptEngine;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.script.ScriptEngine;
+
+/**
+ * Compile a manifest of closures in parallel into a GroovyLambdaCache, so that the first requests after startup find
+ * them already compiled.
+ *
+ * Each closure is compiled on one of a pool of threads and, if sample arguments are given, applied to each sample a
+ * number of times so that the JIT compiles the closure's hot paths too.  A Report records each closure's compile time,
+ * the number of sample invocations and the first error, if any.  A closure that fails to compile or to run does not
+ * stop the others.
+ */
+public class LambdaWarmup {
+
+    private final GroovyLambdaCache cache;
+    private final ScriptEngine engine;
+    private final ScriptEnginePool pool;
+    private final IsolatedClosureCompiler compiler;
+    private final int threads;
+
+    public LambdaWarmup(final GroovyLambdaCache cache) {
+        this(cache, GroovyLambda.getDefaultEngine(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public LambdaWarmup(final GroovyLambdaCache cache, final ScriptEngine engine, final int threads) {
+        this(cache, engine, null, null, threads);
+    }
+
+    /**
+     * Compile on the engines of *pool*, so that the threads do not queue on a single engine.
+     */
+    public LambdaWarmup(final GroovyLambdaCache cache, final ScriptEnginePool pool, final int threads) {
+        this(cache, null, pool, null, threads);
+    }
+
+    /**
+     * Compile with *compiler*, into class loaders that can be unloaded.
+     */
+    public LambdaWarmup(final GroovyLambdaCache cache, final IsolatedClosureCompiler compiler, final int threads) {
+        this(cache, null, null, compiler, threads);
+    }
+
+    private LambdaWarmup(final GroovyLambdaCache cache, final ScriptEngine engine, final ScriptEnginePool pool,
+                         final IsolatedClosureCompiler compiler, final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        this.cache = cache;
+        this.engine = engine;
+        this.pool = pool;
+        this.compiler = compiler;
+        this.threads = threads;
+    }
+
+    /**
+     * Add *imports* (e.g. "com.example.*" or "com.example.Thing") to the engine (or other compiler) before any
+     * closure is compiled.
+     */
+    public LambdaWarmup addImports(final Collection<String> imports) {
+        if (!imports.isEmpty()) {
+            if (engine != null && !(engine instanceof GremlinGroovyScriptEngine)) {
+                throw new IllegalStateException("Imports can only be added to a GremlinGroovyScriptEngine");
+            }
+            final HashSet<String> statements = new HashSet<>();
+            for (final String name : imports) {
+                statements.add(name.startsWith("import ") ? name : "import " + name);
+            }
+            if (pool != null) {
+                pool.addImports(statements);
+            } else if (compiler != null) {
+                compiler.addImports(statements);
+            } else {
+                ((GremlinGroovyScriptEngine) engine).addImports(statements);
+            }
+        }
+        return this;
+    }
+
+    public List<Report> warm(final Collection<String> closures) {
+        return warm(closures, new Object[0], 0);
+    }
+
+    /**
+     * Compile *closures*, then apply each one *iterations* times to each of *samples*.  Returns a Report per closure,
+     * in the order given.
+     */
+    public List<Report> warm(final Collection<String> closures, final Object[] samples, final int iterations) {
+        final ExecutorService workers = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, closures.size())));
+        try {
+            final List<Future<Report>> futures = new ArrayList<>(closures.size());
+            for (final String groovy : closures) {
+                futures.add(workers.submit(() -> warm(groovy, samples, iterations)));
+            }
+            final List<Report> reports = new ArrayList<>(futures.size());
+            for (final Future<Report> future : futures) {
+                reports.add(future.get());
+            }
+            return reports;
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while warming up lambdas", ie);
+        }
+        catch (ExecutionException ee) {
+            throw new IllegalStateException("Unable to warm up lambdas: " + ee.getCause(), ee.getCause());
+        }
+        finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private Report warm(final String groovy, final Object[] samples, final int iterations) {
+        final long start = System.nanoTime();
+        final GroovyLambda lambda;
+        try {
+            if (pool != null) {
+                lambda = cache.get(groovy, pool, GroovyLambda.Compilation.DYNAMIC);
+            } else if (compiler != null) {
+                lambda = cache.get(groovy, compiler, GroovyLambda.Compilation.DYNAMIC);
+            } else {
+                lambda = cache.get(groovy, engine);
+            }
+        }
+        catch (Exception e) {
+            return new Report(groovy, false, System.nanoTime() - start, 0, e.toString());
+        }
+        final long compileNanos = System.nanoTime() - start;
+
+        long invocations = 0;
+        String error = null;
+        for (int i = 0; i < iterations; i++) {
+            for (final Object sample : samples) {
+                try {
+                    lambda.apply(sample);
+                }
+                catch (RuntimeException re) {
+                    if (error == null) {
+                        error = re.toString();
+                    }
+                }
+                invocations++;
+            }
+        }
+        return new Report(groovy, true, compileNanos, invocations, error);
+    }
+
+    /**
+     * Convert *reports* to maps with the keys groovy, compiled, compileMillis, invocations and error, e.g. for
+     * ResultEncoder.
+     */
+    public static List<Map<String, Object>> summarize(final List<Report> reports) {
+        final List<Map<String, Object>> summaries = new ArrayList<>(reports.size());
+        for (final Report report : reports) {
+            final Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("groovy", report.getGroovy());
+            summary.put("compiled", report.isCompiled());
+            summary.put("compileMillis", report.getCompileMillis());
+            summary.put("invocations", report.getInvocations());
+            summary.put("error", report.getError());
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    public static final class Report {
+
+        private final String groovy;
+        private final boolean compiled;
+        private final long compileNanos;
+        private final long invocations;
+        private final String error;
+
+        Report(final String groovy, final boolean compiled, final long compileNanos, final long invocations,
+               final String error) {
+            this.groovy = groovy;
+            this.compiled = compiled;
+            this.compileNanos = compileNanos;
+            this.invocations = invocations;
+            this.error = error;
+        }
+
+        public String getGroovy() {
+            return groovy;
+        }
+
+        /**
+         * The time taken to compile the closure, or to find it in the cache.
+         */
+        public double getCompileMillis() {
+            return compileNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        public long getInvocations() {
+            return invocations;
+        }
+
+        /**
+         * The first compilation or invocation error, or null.
+         */
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * True if the closure compiled, whether or not its invocations then failed.
+         */
+        public boolean isCompiled() {
+            return compiled;
+        }
+
+        public String toString() {
+            return String.format("%s: %s in %.1f ms, %d invocations%s", groovy,
+                                 compiled ? "compiled" : "failed to compile", getCompileMillis(), invocations,
+                                 error == null ? "" : ", error " + error);
+        }
+    }
+}
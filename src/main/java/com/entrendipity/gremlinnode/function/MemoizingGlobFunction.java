@@ -0,0 +1,242 @@
+package com.entrendipity.gremlinnode.function;
+
+import com.entrendipity.gremlinnode.util.BoundedCache;
+import com.tinkerpop.gremlin.process.Traverser;
+import com.tinkerpop.gremlin.structure.Edge;
+import com.tinkerpop.gremlin.structure.Element;
+import com.tinkerpop.gremlin.structure.Vertex;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorate a pure GlobFunction with a bounded, thread-safe LRU cache of its results, so that evaluating it again for
+ * the same arguments costs a map lookup rather than a call into Groovy.
+ *
+ * Only the result-producing entry points (apply and test) are memoized; get and accept always call the decorated
+ * function.  Arguments are keyed by identity of value: a Vertex or an Edge by its id, a Traverser by the object it
+ * holds, and anything else by equals().  Memoize only closures that depend on nothing but their arguments' ids and
+ * properties, and never closures that read a traverser's path, loops or sack, or that mutate the graph.
+ *
+ * Entries are evicted least recently used first once there are more than maximumSize of them, and, if an expiry is
+ * given, are recomputed once they are older than it.
+ */
+public class MemoizingGlobFunction extends IdentityGlobFunction {
+
+    public final static int DEFAULT_MAXIMUM_SIZE = 10000;
+
+    // Stands in for a null result, which the map cannot tell apart from a missing entry.
+    private final static Object NULL = new Object();
+
+    private final static int APPLY = 1;
+    private final static int APPLY2 = 2;
+    private final static int TEST = 3;
+    private final static int TEST2 = 4;
+
+    private final int maximumSize;
+    private final long expireAfterNanos;
+    private final BoundedCache<Key, Entry> results;
+
+    public MemoizingGlobFunction(final GlobFunction that) {
+        this(that, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public MemoizingGlobFunction(final GlobFunction that, final int maximumSize) {
+        this(that, maximumSize, 0);
+    }
+
+    /**
+     * Memoize at most *maximumSize* results of *that*, each for at most *expireAfterMillis* (0 for no expiry).
+     */
+    public MemoizingGlobFunction(final GlobFunction that, final int maximumSize, final long expireAfterMillis) {
+        super(that);
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        if (expireAfterMillis < 0) {
+            throw new IllegalArgumentException("expireAfterMillis must not be negative: " + expireAfterMillis);
+        }
+        this.maximumSize = maximumSize;
+        this.expireAfterNanos = TimeUnit.MILLISECONDS.toNanos(expireAfterMillis);
+        this.results = new BoundedCache<>(maximumSize);
+    }
+
+    // Function.apply, UnaryOperator.apply
+    @Override
+    public Object apply(final Object a) {
+        final Key key = new Key(APPLY, a, null);
+        final Object result = lookup(key);
+        return result != null ? unmask(result) : store(key, that.apply(a));
+    }
+
+    // BiFunction.apply, BinaryOperator.apply
+    @Override
+    public Object apply(final Object a, final Object b) {
+        final Key key = new Key(APPLY2, a, b);
+        final Object result = lookup(key);
+        return result != null ? unmask(result) : store(key, that.apply(a, b));
+    }
+
+    // Predicate.test
+    @Override
+    public boolean test(final Object a) {
+        final Key key = new Key(TEST, a, null);
+        final Object result = lookup(key);
+        return result != null ? (Boolean) result : (Boolean) store(key, that.test(a));
+    }
+
+    // BiPredicate.test
+    @Override
+    public boolean test(final Object a, final Object b) {
+        final Key key = new Key(TEST2, a, b);
+        final Object result = lookup(key);
+        return result != null ? (Boolean) result : (Boolean) store(key, that.test(a, b));
+    }
+
+    public GlobFunction getDelegate() {
+        return that;
+    }
+
+    public void clear() {
+        results.clear();
+    }
+
+    public int size() {
+        return results.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getExpireAfterMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(expireAfterNanos);
+    }
+
+    public long getHitCount() {
+        return results.getHitCount();
+    }
+
+    public long getMissCount() {
+        return results.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return results.getEvictionCount();
+    }
+
+    public long getExpirationCount() {
+        return results.getExpirationCount();
+    }
+
+    /**
+     * The fraction of lookups that were answered from the cache, or 0 before the first lookup.
+     */
+    public double getHitRate() {
+        return results.getHitRate();
+    }
+
+    public String toString() {
+        return that.toString();
+    }
+
+    // The cached result for *key*, masked by mask(), or null on a miss.
+    private Object lookup(final Key key) {
+        final Entry entry = results.get(key, expireAfterNanos > 0 ? this::expired : null);
+        return entry == null ? null : entry.result;
+    }
+
+    private boolean expired(final Entry entry) {
+        return System.nanoTime() - entry.created > expireAfterNanos;
+    }
+
+    // The decorated function is called outside the lock, so two threads may both compute the same result; the last
+    // one to finish wins, which is harmless for a pure function.
+    private Object store(final Key key, final Object result) {
+        results.put(key, new Entry(mask(result), System.nanoTime()));
+        return result;
+    }
+
+    private static Object mask(final Object result) {
+        return result == null ? NULL : result;
+    }
+
+    private static Object unmask(final Object result) {
+        return result == NULL ? null : result;
+    }
+
+    // The part of an argument that identifies it for memoization.
+    private static Object identify(final Object argument) {
+        final Object value = argument instanceof Traverser ? ((Traverser) argument).get() : argument;
+        if (value instanceof Vertex) {
+            return new ElementId(Vertex.class, ((Element) value).id());
+        } else if (value instanceof Edge) {
+            return new ElementId(Edge.class, ((Element) value).id());
+        }
+        return value;
+    }
+
+    private final static class Entry {
+        private final Object result;
+        private final long created;
+
+        Entry(final Object result, final long created) {
+            this.result = result;
+            this.created = created;
+        }
+    }
+
+    private final static class ElementId {
+        private final Class<?> type;
+        private final Object id;
+
+        ElementId(final Class<?> type, final Object id) {
+            this.type = type;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof ElementId)) {
+                return false;
+            }
+            final ElementId that = (ElementId) other;
+            return this.type == that.type && Objects.equals(this.id, that.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + Objects.hashCode(id);
+        }
+    }
+
+    private final static class Key {
+        private final int entryPoint;
+        private final Object a;
+        private final Object b;
+        private final int hash;
+
+        Key(final int entryPoint, final Object a, final Object b) {
+            this.entryPoint = entryPoint;
+            this.a = identify(a);
+            this.b = identify(b);
+            this.hash = 31 * (31 * entryPoint + Objects.hashCode(this.a)) + Objects.hashCode(this.b);
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key that = (Key) other;
+            return this.hash == that.hash
+                && this.entryPoint == that.entryPoint
+                && Objects.equals(this.a, that.a)
+                && Objects.equals(this.b, that.b);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
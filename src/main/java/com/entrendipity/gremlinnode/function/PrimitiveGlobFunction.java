@@ -0,0 +1,60 @@
+package com.entrendipity.gremlinnode.function;
+
+import java.util.Comparator;
+import java.util.function.DoublePredicate;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+import java.util.function.ToDoubleBiFunction;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntBiFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongBiFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Declare primitive-specialized counterparts of the GlobFunction interfaces: numeric mappers, predicates over primitive
+ * values, and comparators on primitive keys.
+ *
+ * IntPredicate, LongPredicate and DoublePredicate cannot be combined in one interface (their default methods clash),
+ * so the primitive predicates are declared here as testInt/testLong/testDouble, with adapters to the java.util.function
+ * types.
+ */
+public interface PrimitiveGlobFunction
+    extends ToIntFunction, ToLongFunction, ToDoubleFunction, ToIntBiFunction, ToLongBiFunction, ToDoubleBiFunction {
+
+    // IntPredicate.test
+    boolean testInt(int a);
+
+    // LongPredicate.test
+    boolean testLong(long a);
+
+    // DoublePredicate.test
+    boolean testDouble(double a);
+
+    default IntPredicate asIntPredicate() {
+        return this::testInt;
+    }
+
+    default LongPredicate asLongPredicate() {
+        return this::testLong;
+    }
+
+    default DoublePredicate asDoublePredicate() {
+        return this::testDouble;
+    }
+
+    // Comparator.comparingInt, using this function as the key extractor.
+    default Comparator comparingInt() {
+        return (a, b) -> Integer.compare(applyAsInt(a), applyAsInt(b));
+    }
+
+    // Comparator.comparingLong, using this function as the key extractor.
+    default Comparator comparingLong() {
+        return (a, b) -> Long.compare(applyAsLong(a), applyAsLong(b));
+    }
+
+    // Comparator.comparingDouble, using this function as the key extractor.
+    default Comparator comparingDouble() {
+        return (a, b) -> Double.compare(applyAsDouble(a), applyAsDouble(b));
+    }
+}
@@ -0,0 +1,200 @@
+package com.entrendipity.gremlinnode.function;
+
+import com.tinkerpop.gremlin.groovy.jsr223.GremlinGroovyScriptEngine;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.script.ScriptException;
+
+/**
+ * A fixed pool of GremlinGroovyScriptEngines with identical imports, so that closures can be compiled on several
+ * threads at once instead of queueing on one engine.
+ *
+ * Imports added to the pool are recorded, and each engine catches up with them the next time it is borrowed, so an
+ * engine that is busy compiling is never reconfigured under its caller.  Borrowing waits for an idle engine; the pool
+ * reports how long callers waited and how many engines are in use.
+ */
+public class ScriptEnginePool {
+
+    private final int size;
+    private final BlockingQueue<GremlinGroovyScriptEngine> idle;
+
+    // Imports in the order they were added, and how many of them each engine has applied.  Guarded by this.
+    private final List<String> imports = new ArrayList<>();
+    private final Set<String> importSet = new LinkedHashSet<>();
+    private final Map<GremlinGroovyScriptEngine, Integer> applied = new IdentityHashMap<>();
+
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    public ScriptEnginePool() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ScriptEnginePool(final int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        this.size = size;
+        this.idle = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            final GremlinGroovyScriptEngine engine = new GremlinGroovyScriptEngine();
+            applied.put(engine, 0);
+            idle.add(engine);
+        }
+    }
+
+    /**
+     * Add import statements (e.g. "import com.example.*") to every engine in the pool.
+     */
+    public synchronized void addImports(final Collection<String> statements) {
+        for (final String statement : statements) {
+            if (importSet.add(statement)) {
+                imports.add(statement);
+            }
+        }
+    }
+
+    /**
+     * The import statements added so far.
+     */
+    public synchronized Set<String> getImports() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(importSet));
+    }
+
+    /**
+     * Take an idle engine, waiting for one if they are all in use.  The engine has every import added so far, and
+     * must be given back with release().
+     */
+    public GremlinGroovyScriptEngine borrow() throws InterruptedException {
+        borrows.increment();
+        GremlinGroovyScriptEngine engine = idle.poll();
+        if (engine == null) {
+            final long start = System.nanoTime();
+            engine = idle.take();
+            final long waited = System.nanoTime() - start;
+            waits.increment();
+            waitNanos.add(waited);
+            maxWaitNanos.accumulate(waited);
+        }
+        catchUp(engine);
+        return engine;
+    }
+
+    public void release(final GremlinGroovyScriptEngine engine) {
+        if (!idle.offer(engine)) {
+            throw new IllegalStateException("Engine released to a pool that is already full");
+        }
+    }
+
+    /**
+     * Compile *groovy* on an idle engine.
+     */
+    public GroovyLambda compile(final String groovy, final GroovyLambda.Compilation compilation)
+        throws ScriptException {
+        final GremlinGroovyScriptEngine engine;
+        try {
+            engine = borrow();
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new ScriptException("Interrupted while waiting for a script engine to compile " + groovy);
+        }
+        try {
+            return new GroovyLambda(groovy, engine, compilation);
+        }
+        finally {
+            release(engine);
+        }
+    }
+
+    public GroovyLambda compile(final String groovy) throws ScriptException {
+        return compile(groovy, GroovyLambda.Compilation.DYNAMIC);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getActiveCount() {
+        return size - idle.size();
+    }
+
+    /**
+     * The fraction of engines in use right now.
+     */
+    public double getUtilization() {
+        return getActiveCount() / (double) size;
+    }
+
+    public long getBorrowCount() {
+        return borrows.sum();
+    }
+
+    /**
+     * The number of borrows that had to wait for an engine.
+     */
+    public long getWaitCount() {
+        return waits.sum();
+    }
+
+    /**
+     * The mean time, in milliseconds, that a borrow waited for an engine, over all borrows.
+     */
+    public double getMeanWaitMillis() {
+        final long count = getBorrowCount();
+        return count == 0 ? 0.0 : waitNanos.sum() / 1e6 / count;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1e6;
+    }
+
+    public Map<String, Object> getStats() {
+        final Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("active", getActiveCount());
+        stats.put("utilization", getUtilization());
+        stats.put("borrows", getBorrowCount());
+        stats.put("waits", getWaitCount());
+        stats.put("meanWaitMillis", getMeanWaitMillis());
+        stats.put("maxWaitMillis", getMaxWaitMillis());
+        return stats;
+    }
+
+    public String toString() {
+        return "ScriptEnginePool(size=" + size + ", active=" + getActiveCount() + ", borrows=" + getBorrowCount()
+            + ", waits=" + getWaitCount() + ")";
+    }
+
+    // Apply the imports that *engine* has not seen yet.  The engine is borrowed, so no other thread is using it.
+    private void catchUp(final GremlinGroovyScriptEngine engine) {
+        final Set<String> missing;
+        synchronized (this) {
+            final int seen = applied.get(engine);
+            if (seen == imports.size()) {
+                return;
+            }
+            missing = new HashSet<>(imports.subList(seen, imports.size()));
+            applied.put(engine, imports.size());
+        }
+        engine.addImports(missing);
+    }
+}
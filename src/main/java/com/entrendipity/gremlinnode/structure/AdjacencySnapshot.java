@@ -0,0 +1,505 @@
+package com.entrendipity.gremlinnode.structure;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinkerpop.gremlin.structure.Direction;
+import com.tinkerpop.gremlin.structure.Edge;
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.structure.Vertex;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable, compressed sparse row (CSR) copy of a graph's adjacency, for read-only multi-hop out/in/both walks.
+ *
+ * Vertices are numbered densely, and the edges of each direction are held in two int arrays: the index of the vertex
+ * at the other end, and the index of the edge's label.  The edges of vertex v are those between offsets[v] and
+ * offsets[v + 1], ordered by label, so the edges with one label are a contiguous range found by binary search.
+ * Expanding a neighborhood therefore reads consecutive ints, rather than following hash map entries and edge objects
+ * as a graph such as TinkerGraph does, and allocates nothing but its result.
+ *
+ * A snapshot does not see later changes to the graph.  rebuild(graph, changedIds) makes a new snapshot that re-reads
+ * only the vertices that changed, copying the edges of the others from this one.
+ */
+public final class AdjacencySnapshot {
+
+    private final static ObjectMapper MAPPER = new ObjectMapper();
+
+    private final static int[] ALL_LABELS = new int[0];
+
+    // Vertex index to id, with null for vertices removed by a rebuild, and id to index.
+    private final Object[] ids;
+    private final Map<Object, Integer> indices;
+    private final int vertexCount;
+
+    private final String[] labels;
+    private final Map<String, Integer> labelIndices;
+
+    private final Rows out;
+    private final Rows in;
+
+    private AdjacencySnapshot(final Object[] ids, final Map<Object, Integer> indices, final String[] labels,
+                              final Map<String, Integer> labelIndices, final Edges edges) {
+        this.ids = ids;
+        this.indices = indices;
+        this.labels = labels;
+        this.labelIndices = labelIndices;
+        this.out = new Rows(ids.length, edges.size, edges.sources, edges.targets, edges.labels, labels.length);
+        this.in = new Rows(ids.length, edges.size, edges.targets, edges.sources, edges.labels, labels.length);
+        int live = 0;
+        for (final Object id : ids) {
+            if (id != null) {
+                live++;
+            }
+        }
+        this.vertexCount = live;
+    }
+
+    /**
+     * Build a snapshot of every vertex and edge of *graph*.
+     */
+    public static AdjacencySnapshot build(final Graph graph) {
+        final Indexer indexer = new Indexer(null);
+        for (final Iterator<Vertex> vertices = graph.vertexIterator(); vertices.hasNext(); ) {
+            indexer.vertex(vertices.next().id());
+        }
+        final Edges edges = new Edges();
+        for (final Iterator<Edge> iterator = graph.edgeIterator(); iterator.hasNext(); ) {
+            final Edge edge = iterator.next();
+            edges.add(indexer.vertex(edge.vertexIterator(Direction.OUT).next().id()),
+                      indexer.vertex(edge.vertexIterator(Direction.IN).next().id()),
+                      indexer.label(edge.label()));
+        }
+        return indexer.snapshot(edges);
+    }
+
+    /**
+     * Build a snapshot of *graph* as it is now, given that only the vertices *changedIds* have changed since this
+     * snapshot was built: added, removed, or at either end of an edge that was added or removed.  Vertices found at
+     * the end of a changed vertex's edges that this snapshot does not know are added too.
+     */
+    public AdjacencySnapshot rebuild(final Graph graph, final Collection<?> changedIds) {
+        final Indexer indexer = new Indexer(this);
+        final BitSet changed = new BitSet(ids.length);
+        final List<Vertex> reread = new ArrayList<>();
+        final Set<Object> seen = new HashSet<>();
+        for (final Object id : changedIds) {
+            if (!seen.add(id)) {
+                continue;
+            }
+            final Iterator<Vertex> found = graph.vertexIterator(id);
+            if (found.hasNext()) {
+                final int index = indexer.vertex(id);
+                changed.set(index);
+                reread.add(found.next());
+            } else {
+                final int index = indexer.remove(id);
+                if (index >= 0) {
+                    changed.set(index);
+                }
+            }
+        }
+
+        final Edges edges = new Edges();
+        for (int v = 0; v < ids.length; v++) {
+            if (changed.get(v) || ids[v] == null) {
+                continue;
+            }
+            for (int e = out.offsets[v]; e < out.offsets[v + 1]; e++) {
+                final int target = out.targets[e];
+                if (!indexer.isRemoved(target)) {
+                    edges.add(v, target, out.labels[e]);
+                }
+            }
+        }
+        for (int r = 0; r < reread.size(); r++) {
+            final Vertex vertex = reread.get(r);
+            final int source = indexer.vertex(vertex.id());
+            for (final Iterator<Edge> iterator = vertex.edgeIterator(Direction.OUT); iterator.hasNext(); ) {
+                final Edge edge = iterator.next();
+                final Vertex other = edge.vertexIterator(Direction.IN).next();
+                if (indexOf(other.id()) < 0 && seen.add(other.id())) {
+                    // A new vertex that was not named as changed; its own edges must be read too.
+                    indexer.vertex(other.id());
+                    reread.add(other);
+                }
+                edges.add(source, indexer.vertex(other.id()), indexer.label(edge.label()));
+            }
+        }
+        return indexer.snapshot(edges);
+    }
+
+    /**
+     * The number of vertex indices, including those of vertices removed by a rebuild.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getEdgeCount() {
+        return out.targets.length;
+    }
+
+    public int getLabelCount() {
+        return labels.length;
+    }
+
+    /**
+     * The index of the vertex *id*, or -1 if the snapshot does not have it.
+     */
+    public int indexOf(final Object id) {
+        final Integer index = indices.get(id);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * The id of the vertex *index*, or null if it has been removed.
+     */
+    public Object idOf(final int index) {
+        return ids[index];
+    }
+
+    /**
+     * The index of the edge label *label*, or -1 if no edge has it.
+     */
+    public int labelIndexOf(final String label) {
+        final Integer index = labelIndices.get(label);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * The number of edges of the vertex *index* in *direction*, with the label *label* or any label if it is -1.
+     */
+    public int degree(final int index, final Direction direction, final int label) {
+        int degree = 0;
+        if (direction != Direction.IN) {
+            degree += out.end(index, label) - out.start(index, label);
+        }
+        if (direction != Direction.OUT) {
+            degree += in.end(index, label) - in.start(index, label);
+        }
+        return degree;
+    }
+
+    /**
+     * Pass the index of each vertex adjacent to the vertex *index* in *direction* to *consumer*, once per edge, for
+     * edges with the label *label* or any label if it is -1.
+     */
+    public void forEachNeighbor(final int index, final Direction direction, final int label,
+                                final IntConsumer consumer) {
+        if (direction != Direction.IN) {
+            out.forEach(index, label, consumer);
+        }
+        if (direction != Direction.OUT) {
+            in.forEach(index, label, consumer);
+        }
+    }
+
+    /**
+     * The indices of the vertices adjacent to the vertices *frontier* in *direction*, through edges with one of
+     * *labels* (or any label if there are none), once per edge, as the out/in/both steps would traverse them.
+     */
+    public int[] expand(final int[] frontier, final Direction direction, final String... labels) {
+        final int[] labelFilter = labelIndicesOf(labels);
+        if (labelFilter == null) {
+            return new int[0];
+        }
+        int size = 0;
+        for (final int index : frontier) {
+            size += degree(index, direction, labelFilter);
+        }
+        final int[] expanded = new int[size];
+        int next = 0;
+        for (final int index : frontier) {
+            if (direction != Direction.IN) {
+                next = out.copy(index, labelFilter, expanded, next);
+            }
+            if (direction != Direction.OUT) {
+                next = in.copy(index, labelFilter, expanded, next);
+            }
+        }
+        return expanded;
+    }
+
+    /**
+     * The set of vertex indices adjacent to the set *frontier* in *direction*, through edges with one of *labels* (or
+     * any label if there are none).  Unlike expand, each vertex is reached at most once.
+     */
+    public BitSet reach(final BitSet frontier, final Direction direction, final String... labels) {
+        final BitSet reached = new BitSet(ids.length);
+        final int[] labelFilter = labelIndicesOf(labels);
+        if (labelFilter == null) {
+            return reached;
+        }
+        final int[] labelsToFollow = labelFilter.length == 0 ? new int[] {-1} : labelFilter;
+        for (int index = frontier.nextSetBit(0); index >= 0; index = frontier.nextSetBit(index + 1)) {
+            for (final int label : labelsToFollow) {
+                forEachNeighbor(index, direction, label, reached::set);
+            }
+        }
+        return reached;
+    }
+
+    /**
+     * The ids of the vertices reached from the vertices *startIds* by *steps*, a JSON array of out, in and both steps
+     * with their edge labels, e.g. [["out", "knows"], ["both"]].  Vertices are reached once per path, as by
+     * g.V(startIds).out('knows').both().id().  Start ids the snapshot does not have are ignored.
+     */
+    public Object[] walk(final Object[] startIds, final String steps) {
+        final JsonNode root;
+        try {
+            root = MAPPER.readTree(steps);
+        }
+        catch (IOException ioe) {
+            throw new IllegalArgumentException("Walk steps are not valid JSON: " + steps, ioe);
+        }
+        if (root == null || !root.isArray()) {
+            throw new IllegalArgumentException("Walk steps must be a JSON array: " + steps);
+        }
+
+        int[] frontier = new int[startIds.length];
+        int size = 0;
+        for (final Object id : startIds) {
+            final int index = indexOf(id);
+            if (index >= 0) {
+                frontier[size++] = index;
+            }
+        }
+        frontier = Arrays.copyOf(frontier, size);
+        for (final JsonNode step : root) {
+            final String name = step.isArray() && step.size() > 0 ? step.get(0).asText() : null;
+            final Direction direction = "out".equals(name) ? Direction.OUT
+                : "in".equals(name) ? Direction.IN : "both".equals(name) ? Direction.BOTH : null;
+            if (direction == null) {
+                throw new IllegalArgumentException("Walk steps must be out, in or both: " + step);
+            }
+            final String[] stepLabels = new String[step.size() - 1];
+            for (int i = 1; i < step.size(); i++) {
+                stepLabels[i - 1] = step.get(i).asText();
+            }
+            frontier = expand(frontier, direction, stepLabels);
+        }
+
+        final Object[] reached = new Object[frontier.length];
+        for (int i = 0; i < frontier.length; i++) {
+            reached[i] = ids[frontier[i]];
+        }
+        return reached;
+    }
+
+    public String toString() {
+        return "AdjacencySnapshot(vertices=" + vertexCount + ", edges=" + getEdgeCount() + ", labels=" + labels.length
+            + ")";
+    }
+
+    // The number of edges of the vertex *index* in *direction* with one of *labelFilter*, or any label if it is empty.
+    private int degree(final int index, final Direction direction, final int[] labelFilter) {
+        if (labelFilter.length == 0) {
+            return degree(index, direction, -1);
+        }
+        int degree = 0;
+        for (final int label : labelFilter) {
+            degree += degree(index, direction, label);
+        }
+        return degree;
+    }
+
+    // The indices of *names*, skipping labels that no edge has: ALL_LABELS if there are no names, or null if none of
+    // them is known, so that no edge matches.
+    private int[] labelIndicesOf(final String[] names) {
+        if (names == null || names.length == 0) {
+            return ALL_LABELS;
+        }
+        final int[] indices = new int[names.length];
+        int size = 0;
+        for (final String name : names) {
+            final int index = labelIndexOf(name);
+            if (index >= 0) {
+                indices[size++] = index;
+            }
+        }
+        return size == 0 ? null : Arrays.copyOf(indices, size);
+    }
+
+    // The edges of one direction: for each vertex, a range of the other ends' indices and the labels' indices, ordered
+    // by label.
+    private final static class Rows {
+        private final int[] offsets;
+        private final int[] targets;
+        private final int[] labels;
+
+        // Sort the *size* edges from sources[i] to targets[i] with labels[i] by source, then label, with two stable
+        // counting sorts.
+        Rows(final int vertexCount, final int size, final int[] sources, final int[] targets, final int[] labels,
+             final int labelCount) {
+            final int[] byLabel = new int[size];
+            final int[] labelOffsets = new int[labelCount + 1];
+            for (int e = 0; e < size; e++) {
+                labelOffsets[labels[e] + 1]++;
+            }
+            for (int l = 0; l < labelCount; l++) {
+                labelOffsets[l + 1] += labelOffsets[l];
+            }
+            for (int e = 0; e < size; e++) {
+                byLabel[labelOffsets[labels[e]]++] = e;
+            }
+
+            this.offsets = new int[vertexCount + 1];
+            for (int e = 0; e < size; e++) {
+                offsets[sources[e] + 1]++;
+            }
+            for (int v = 0; v < vertexCount; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            final int[] cursors = Arrays.copyOf(offsets, vertexCount);
+            this.targets = new int[size];
+            this.labels = new int[size];
+            for (final int e : byLabel) {
+                final int position = cursors[sources[e]]++;
+                this.targets[position] = targets[e];
+                this.labels[position] = labels[e];
+            }
+        }
+
+        // The first edge of the vertex *index* with the label *label*, or its first edge if *label* is -1.
+        int start(final int index, final int label) {
+            return label < 0 ? offsets[index] : lowerBound(offsets[index], offsets[index + 1], label);
+        }
+
+        // The edge after the last of the vertex *index* with the label *label*, or after its last if *label* is -1.
+        int end(final int index, final int label) {
+            return label < 0 ? offsets[index + 1] : lowerBound(offsets[index], offsets[index + 1], label + 1);
+        }
+
+        void forEach(final int index, final int label, final IntConsumer consumer) {
+            final int end = end(index, label);
+            for (int e = start(index, label); e < end; e++) {
+                consumer.accept(targets[e]);
+            }
+        }
+
+        // Copy the other ends of the vertex *index*'s edges with one of *labelFilter* into *into* from *next*, and
+        // return the position after them.
+        int copy(final int index, final int[] labelFilter, final int[] into, int next) {
+            if (labelFilter.length == 0) {
+                final int length = offsets[index + 1] - offsets[index];
+                System.arraycopy(targets, offsets[index], into, next, length);
+                return next + length;
+            }
+            for (final int label : labelFilter) {
+                final int start = start(index, label);
+                final int length = end(index, label) - start;
+                System.arraycopy(targets, start, into, next, length);
+                next += length;
+            }
+            return next;
+        }
+
+        // The first edge in [from, to) whose label is at least *label*.
+        private int lowerBound(int from, int to, final int label) {
+            while (from < to) {
+                final int middle = (from + to) >>> 1;
+                if (labels[middle] < label) {
+                    from = middle + 1;
+                } else {
+                    to = middle;
+                }
+            }
+            return from;
+        }
+    }
+
+    // A growable list of edges, as parallel arrays of source, target and label indices.
+    private final static class Edges {
+        private int[] sources = new int[16];
+        private int[] targets = new int[16];
+        private int[] labels = new int[16];
+        private int size;
+
+        void add(final int source, final int target, final int label) {
+            if (size == sources.length) {
+                final int capacity = 2 * size;
+                sources = Arrays.copyOf(sources, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                labels = Arrays.copyOf(labels, capacity);
+            }
+            sources[size] = source;
+            targets[size] = target;
+            labels[size] = label;
+            size++;
+        }
+    }
+
+    // Assigns vertex and label indices while a snapshot is built, starting from those of *base* if it is not null.
+    private final static class Indexer {
+        private final List<Object> ids = new ArrayList<>();
+        private final Map<Object, Integer> indices = new HashMap<>();
+        private final List<String> labels = new ArrayList<>();
+        private final Map<String, Integer> labelIndices = new HashMap<>();
+        private final BitSet removed = new BitSet();
+
+        Indexer(final AdjacencySnapshot base) {
+            if (base != null) {
+                Collections.addAll(ids, base.ids);
+                indices.putAll(base.indices);
+                Collections.addAll(labels, base.labels);
+                labelIndices.putAll(base.labelIndices);
+            }
+        }
+
+        int vertex(final Object id) {
+            final Integer index = indices.get(id);
+            if (index != null) {
+                return index;
+            }
+            ids.add(id);
+            indices.put(id, ids.size() - 1);
+            return ids.size() - 1;
+        }
+
+        // Forget the vertex *id*, keeping its index unused, and return the index or -1.
+        int remove(final Object id) {
+            final Integer index = indices.remove(id);
+            if (index == null) {
+                return -1;
+            }
+            ids.set(index, null);
+            removed.set(index);
+            return index;
+        }
+
+        boolean isRemoved(final int index) {
+            return removed.get(index);
+        }
+
+        int label(final String label) {
+            final Integer index = labelIndices.get(label);
+            if (index != null) {
+                return index;
+            }
+            labels.add(label);
+            labelIndices.put(label, labels.size() - 1);
+            return labels.size() - 1;
+        }
+
+        AdjacencySnapshot snapshot(final Edges edges) {
+            return new AdjacencySnapshot(ids.toArray(), indices, labels.toArray(new String[labels.size()]),
+                                         labelIndices, edges);
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package com.entrendipity.gremlinnode.structure;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinkerpop.gremlin.process.T;
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.structure.Vertex;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Create vertices and edges, and set vertex properties, in columnar batches, so that bulk ingestion from JavaScript
+ * costs one bridge call per batch rather than several per element.
+ *
+ * A batch is a set of columns of equal length: the caller's ids, labels, and one column per property key, plus the
+ * ids of the out and in vertices for edges.  Null labels and property values are skipped.  From JavaScript, batches
+ * are given as JSON objects, e.g.
+ *
+ *   {"ids": [1, 2], "labels": ["person", "software"], "properties": {"name": ["marko", "lop"], "age": [29, null]}}
+ *   {"out": [1], "in": [2], "labels": ["created"], "properties": {"weight": [0.4]}}
+ *
+ * Vertex ids are the caller's.  When the graph accepts user supplied ids they become the ids of the vertices;
+ * otherwise the writer maps them to the ids the graph assigns, keeping the map in memory for its whole life.  Edge
+ * endpoints and property updates are resolved through that map, falling back to vertices already in the graph.
+ *
+ * Transactional graphs are committed every batchSize elements, and at the end of each batch, because successive calls
+ * from JavaScript may run on different threads and graph transactions are usually bound to a thread.  A writer must
+ * not be used by two threads at once.
+ *
+ * If a row cannot be written, its exception is thrown and the batch is not committed: a transactional graph is rolled
+ * back to the last commit, which takes place every batchSize elements, so that no partly written row is committed.
+ * Any failure to roll back is added to the exception as a suppressed one.  Graphs without transactions keep the rows
+ * written before the failure, and whatever the failing row had written.  The counts only include the rows kept.
+ */
+public class BulkWriter {
+
+    public final static int DEFAULT_BATCH_SIZE = 10000;
+
+    private final static ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Graph graph;
+    private final int batchSize;
+    private final boolean transactional;
+    private final boolean userVertexIds;
+    private final boolean userEdgeIds;
+
+    // The caller's vertex ids, mapped to the graph's, when the graph assigns its own ids.
+    private final Map<Object, Object> vertexIds;
+
+    // Vertices resolved since the last commit, which may not be used after it.
+    private final Map<Object, Vertex> resolved = new HashMap<>();
+
+    // The caller's ids of the vertices mapped in vertexIds since the last commit, which a rollback unmaps.
+    private final List<Object> uncommittedIds = new ArrayList<>();
+
+    private final long start = System.nanoTime();
+    private long vertexCount;
+    private long edgeCount;
+    private long updateCount;
+    private long commitCount;
+    private long uncommitted;
+
+    private BulkWriter(final Builder builder, final Graph graph) {
+        this.graph = graph;
+        this.batchSize = builder.batchSize;
+        this.transactional = graph.features().graph().supportsTransactions();
+        this.userVertexIds = graph.features().vertex().supportsUserSuppliedIds();
+        this.userEdgeIds = graph.features().edge().supportsUserSuppliedIds();
+        this.vertexIds = userVertexIds ? Collections.emptyMap() : new HashMap<>();
+    }
+
+    public static Builder build() {
+        return new Builder();
+    }
+
+    /**
+     * Create a vertex for each row of the columns, any of which may be null, and return the number created.
+     */
+    public int addVertices(final Object[] ids, final String[] labels, final Map<String, Object[]> properties) {
+        final int rows = rows(properties, ids, labels);
+        final List<String> keys = keys(properties);
+        final Object[][] columns = columns(keys, properties);
+        try {
+            for (int row = 0; row < rows; row++) {
+                final Object id = ids == null ? null : ids[row];
+                final List<Object> keyValues = new ArrayList<>(2 * (keys.size() + 2));
+                if (labels != null && labels[row] != null) {
+                    keyValues.add(T.label);
+                    keyValues.add(labels[row]);
+                }
+                if (id != null && userVertexIds) {
+                    keyValues.add(T.id);
+                    keyValues.add(id);
+                }
+                addProperties(keyValues, keys, columns, row);
+                final Vertex vertex = graph.addVertex(keyValues.toArray());
+                if (id != null && !userVertexIds) {
+                    vertexIds.put(id, vertex.id());
+                    uncommittedIds.add(id);
+                }
+                vertexCount++;
+                written();
+            }
+            commit();
+            return rows;
+        }
+        catch (RuntimeException e) {
+            vertexCount -= abandon(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Create vertices from a JSON batch of the form {"ids": [...], "labels": [...], "properties": {KEY: [...]}}.
+     */
+    public int addVertices(final String json) {
+        final Map<String, Object> batch = parse(json);
+        return addVertices(column(batch, "ids"), strings(column(batch, "labels")), properties(batch));
+    }
+
+    /**
+     * Create an edge from out[i] to in[i] labelled labels[i] for each row of the columns, and return the number
+     * created.  *ids* and *properties* may be null.
+     */
+    public int addEdges(final Object[] ids, final Object[] outIds, final Object[] inIds, final String[] labels,
+                        final Map<String, Object[]> properties) {
+        if (outIds == null || inIds == null || labels == null) {
+            throw new IllegalArgumentException("An edge batch needs out, in and labels columns");
+        }
+        final int rows = rows(properties, ids, outIds, inIds, labels);
+        final List<String> keys = keys(properties);
+        final Object[][] columns = columns(keys, properties);
+        try {
+            for (int row = 0; row < rows; row++) {
+                final List<Object> keyValues = new ArrayList<>(2 * (keys.size() + 1));
+                if (ids != null && ids[row] != null && userEdgeIds) {
+                    keyValues.add(T.id);
+                    keyValues.add(ids[row]);
+                }
+                addProperties(keyValues, keys, columns, row);
+                vertex(outIds[row]).addEdge(labels[row], vertex(inIds[row]), keyValues.toArray());
+                edgeCount++;
+                written();
+            }
+            commit();
+            return rows;
+        }
+        catch (RuntimeException e) {
+            edgeCount -= abandon(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Create edges from a JSON batch of the form {"ids": [...], "out": [...], "in": [...], "labels": [...],
+     * "properties": {KEY: [...]}}.
+     */
+    public int addEdges(final String json) {
+        final Map<String, Object> batch = parse(json);
+        return addEdges(column(batch, "ids"), column(batch, "out"), column(batch, "in"),
+                        strings(column(batch, "labels")), properties(batch));
+    }
+
+    /**
+     * Set a single-valued property of the vertex ids[i] for each row of the property columns, skipping nulls, and
+     * return the number of vertices updated.
+     */
+    public int setVertexProperties(final Object[] ids, final Map<String, Object[]> properties) {
+        if (ids == null) {
+            throw new IllegalArgumentException("A property batch needs an ids column");
+        }
+        final int rows = rows(properties, ids);
+        final List<String> keys = keys(properties);
+        final Object[][] columns = columns(keys, properties);
+        try {
+            for (int row = 0; row < rows; row++) {
+                final Vertex vertex = vertex(ids[row]);
+                for (int k = 0; k < keys.size(); k++) {
+                    if (columns[k][row] != null) {
+                        vertex.singleProperty(keys.get(k), columns[k][row]);
+                    }
+                }
+                updateCount++;
+                written();
+            }
+            commit();
+            return rows;
+        }
+        catch (RuntimeException e) {
+            updateCount -= abandon(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Set vertex properties from a JSON batch of the form {"ids": [...], "properties": {KEY: [...]}}.
+     */
+    public int setVertexProperties(final String json) {
+        final Map<String, Object> batch = parse(json);
+        return setVertexProperties(column(batch, "ids"), properties(batch));
+    }
+
+    /**
+     * The graph's id for the vertex the caller created as *id*, or *id* itself if the writer did not create it or the
+     * graph accepts user supplied ids.
+     */
+    public Object getVertexId(final Object id) {
+        final Object graphId = vertexIds.get(id);
+        return graphId == null ? id : graphId;
+    }
+
+    public long getVertexCount() {
+        return vertexCount;
+    }
+
+    public long getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * The number of vertices whose properties were set by setVertexProperties.
+     */
+    public long getUpdateCount() {
+        return updateCount;
+    }
+
+    public long getCommitCount() {
+        return commitCount;
+    }
+
+    public double getElementsPerSecond() {
+        final long elapsedNanos = System.nanoTime() - start;
+        return elapsedNanos == 0 ? 0 : (vertexCount + edgeCount + updateCount) * 1e9 / elapsedNanos;
+    }
+
+    public String toString() {
+        return String.format("BulkWriter(vertices=%d, edges=%d, updates=%d, commits=%d, %d ms)",
+                             vertexCount, edgeCount, updateCount, commitCount,
+                             TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    // Count an element written, committing every batchSize elements.
+    private void written() {
+        if (++uncommitted >= batchSize) {
+            commit();
+        }
+    }
+
+    private void commit() {
+        resolved.clear();
+        if (transactional && uncommitted > 0) {
+            graph.tx().commit();
+            commitCount++;
+        }
+        uncommittedIds.clear();
+        uncommitted = 0;
+    }
+
+    // Give up on a batch that failed with *failure*, rolling a transactional graph back to the last commit, and return
+    // the number of rows rolled back.  A failure to roll back is added to *failure*, which the caller rethrows.
+    private long abandon(final RuntimeException failure) {
+        resolved.clear();
+        long rolledBack = 0;
+        if (transactional) {
+            try {
+                graph.tx().rollback();
+            }
+            catch (RuntimeException e) {
+                failure.addSuppressed(e);
+            }
+            for (final Object id : uncommittedIds) {
+                vertexIds.remove(id);
+            }
+            rolledBack = uncommitted;
+        }
+        uncommittedIds.clear();
+        uncommitted = 0;
+        return rolledBack;
+    }
+
+    private Vertex vertex(final Object id) {
+        Vertex vertex = resolved.get(id);
+        if (vertex == null) {
+            final Iterator<Vertex> vertices = graph.vertexIterator(getVertexId(id));
+            if (!vertices.hasNext()) {
+                throw new IllegalArgumentException("There is no vertex with id " + id);
+            }
+            vertex = vertices.next();
+            resolved.put(id, vertex);
+        }
+        return vertex;
+    }
+
+    private static void addProperties(final List<Object> keyValues, final List<String> keys, final Object[][] columns,
+                                      final int row) {
+        for (int k = 0; k < keys.size(); k++) {
+            if (columns[k][row] != null) {
+                keyValues.add(keys.get(k));
+                keyValues.add(columns[k][row]);
+            }
+        }
+    }
+
+    // The keys of the property columns that are not null; like rows(), a null column is taken as absent.
+    private static List<String> keys(final Map<String, Object[]> properties) {
+        final List<String> keys = new ArrayList<>();
+        if (properties != null) {
+            properties.forEach((key, column) -> {
+                if (column != null) {
+                    keys.add(key);
+                }
+            });
+        }
+        return keys;
+    }
+
+    private static Object[][] columns(final List<String> keys, final Map<String, Object[]> properties) {
+        final Object[][] columns = new Object[keys.size()][];
+        for (int k = 0; k < keys.size(); k++) {
+            columns[k] = properties.get(keys.get(k));
+        }
+        return columns;
+    }
+
+    // The number of rows in a batch, which every column that is not null must have.
+    private static int rows(final Map<String, Object[]> properties, final Object[]... columns) {
+        int rows = -1;
+        final List<Object[]> all = new ArrayList<>();
+        Collections.addAll(all, columns);
+        if (properties != null) {
+            all.addAll(properties.values());
+        }
+        for (final Object[] column : all) {
+            if (column == null) {
+                continue;
+            }
+            if (rows >= 0 && column.length != rows) {
+                throw new IllegalArgumentException("Batch columns differ in length: " + rows + " and " + column.length);
+            }
+            rows = column.length;
+        }
+        if (rows < 0) {
+            throw new IllegalArgumentException("A batch needs at least one column");
+        }
+        return rows;
+    }
+
+    private static Map<String, Object> parse(final String json) {
+        try {
+            @SuppressWarnings("unchecked")
+            final Map<String, Object> batch = MAPPER.readValue(json, Map.class);
+            return batch;
+        }
+        catch (IOException ioe) {
+            throw new IllegalArgumentException("Batch is not valid JSON: " + json, ioe);
+        }
+    }
+
+    private static Object[] column(final Map<String, Object> batch, final String name) {
+        final Object column = batch.get(name);
+        if (column == null) {
+            return null;
+        }
+        if (!(column instanceof List)) {
+            throw new IllegalArgumentException("Batch column " + name + " is not an array: " + column);
+        }
+        return ((List<?>) column).toArray();
+    }
+
+    private static String[] strings(final Object[] column) {
+        if (column == null) {
+            return null;
+        }
+        final String[] strings = new String[column.length];
+        for (int i = 0; i < column.length; i++) {
+            strings[i] = column[i] == null ? null : column[i].toString();
+        }
+        return strings;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object[]> properties(final Map<String, Object> batch) {
+        final Map<String, Object[]> properties = new LinkedHashMap<>();
+        final Object columns = batch.get("properties");
+        if (columns instanceof Map) {
+            for (final Map.Entry<String, Object> entry : ((Map<String, Object>) columns).entrySet()) {
+                properties.put(entry.getKey(), column((Map<String, Object>) columns, entry.getKey()));
+            }
+        }
+        return properties;
+    }
+
+    public static final class Builder {
+
+        private int batchSize = DEFAULT_BATCH_SIZE;
+
+        private Builder() {
+        }
+
+        /**
+         * The number of elements written between commits, for transactional graphs.
+         */
+        public Builder batchSize(final int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public BulkWriter create(final Graph graph) {
+            return new BulkWriter(this, graph);
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package com.entrendipity.gremlinnode.structure.io;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinkerpop.gremlin.process.T;
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.structure.Vertex;
+import com.tinkerpop.gremlin.structure.io.graphson.GraphSONMapper;
+import com.tinkerpop.gremlin.structure.io.graphson.GraphSONTokens;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Load a graph written by GraphSONWriter.writeGraph, streaming the input and converting records in parallel.
+ *
+ * A reader thread tokenizes the input one record at a time, a pool of workers converts the records into vertices and
+ * edges to be created, and the calling thread creates them in order, committing every batchSize elements when the
+ * graph supports transactions.  The records in flight are bounded by queueSize, so memory use does not grow with the
+ * size of the input, apart from the map from GraphSON ids to new vertex ids that is needed when the graph does not
+ * accept user supplied ids.
+ *
+ * Elements are created on the calling thread, because graph transactions are usually bound to a thread.
+ */
+public class GraphSONBulkLoader {
+
+    public final static int DEFAULT_BATCH_SIZE = 10000;
+    public final static int DEFAULT_QUEUE_SIZE = 1024;
+
+    private final static TypeReference<HashMap<String, Object>> MAP_TYPE = new TypeReference<HashMap<String, Object>>() {
+    };
+
+    private final ObjectMapper mapper;
+    private final int batchSize;
+    private final int workers;
+    private final int queueSize;
+    private final Consumer<Progress> progressListener;
+    private final long progressInterval;
+
+    private GraphSONBulkLoader(final Builder builder) {
+        this.mapper = builder.mapper.createMapper();
+        this.batchSize = builder.batchSize;
+        this.workers = builder.workers;
+        this.queueSize = builder.queueSize;
+        this.progressListener = builder.progressListener;
+        this.progressInterval = builder.progressInterval > 0 ? builder.progressInterval : builder.batchSize;
+    }
+
+    public static Builder build() {
+        return new Builder();
+    }
+
+    /**
+     * Read the GraphSON graph in *inputStream* into *graph*, and return the final progress.  The stream is closed.
+     * If loading fails, a transactional graph is rolled back to the last commit; the batches committed before the
+     * failure stay in the graph.
+     */
+    public Progress load(final InputStream inputStream, final Graph graph) throws IOException {
+        final BlockingQueue<Future<Record>> queue = new ArrayBlockingQueue<>(queueSize);
+        final ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            final Thread thread = new Thread(runnable, "graphson-bulk-loader-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final Thread reader = new Thread(() -> read(inputStream, queue, pool), "graphson-bulk-loader-reader");
+        reader.setDaemon(true);
+        reader.start();
+        try {
+            return write(queue, graph);
+        }
+        finally {
+            reader.interrupt();
+            pool.shutdownNow();
+        }
+    }
+
+    // Runs on the reader thread: queue a future for each record, followed by the END record.
+    private void read(final InputStream inputStream, final BlockingQueue<Future<Record>> queue,
+                      final ExecutorService pool) {
+        try {
+            try (JsonParser parser = mapper.getFactory().createParser(inputStream)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IOException("Expected GraphSON to start with an Object");
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String fieldName = parser.getCurrentName();
+                    parser.nextToken();
+                    if (GraphSONTokens.VERTICES.equals(fieldName) || GraphSONTokens.EDGES.equals(fieldName)) {
+                        final boolean vertices = GraphSONTokens.VERTICES.equals(fieldName);
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            final JsonNode node = parser.readValueAsTree();
+                            queue.put(CompletableFuture.supplyAsync(
+                                () -> vertices ? toVertexRecord(toMap(node)) : toEdgeRecord(toMap(node)), pool));
+                        }
+                    } else if (GraphSONTokens.VARIABLES.equals(fieldName)) {
+                        final JsonNode node = parser.readValueAsTree();
+                        queue.put(CompletableFuture.completedFuture(Record.variables(toMap(node))));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+            queue.put(CompletableFuture.completedFuture(Record.END));
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        catch (Exception e) {
+            final CompletableFuture<Record> failure = new CompletableFuture<>();
+            failure.completeExceptionally(e);
+            try {
+                queue.put(failure);
+            }
+            catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Runs on the calling thread: create the elements in the order they were read.
+    private Progress write(final BlockingQueue<Future<Record>> queue, final Graph graph) throws IOException {
+        final boolean transactional = graph.features().graph().supportsTransactions();
+        final boolean userVertexIds = graph.features().vertex().supportsUserSuppliedIds();
+        final boolean userEdgeIds = graph.features().edge().supportsUserSuppliedIds();
+        final Map<Object, Object> vertexIds = userVertexIds ? Collections.emptyMap() : new HashMap<>();
+        final long start = System.nanoTime();
+        long vertexCount = 0;
+        long edgeCount = 0;
+        long uncommitted = 0;
+        long nextProgress = progressInterval;
+
+        try {
+            while (true) {
+                final Record record = take(queue);
+                if (record == Record.END) {
+                    break;
+                }
+                switch (record.kind) {
+                    case VERTEX:
+                        final Vertex vertex = graph.addVertex(record.keyValues(userVertexIds));
+                        for (final Object[] property : record.metaProperties) {
+                            vertex.property((String) property[0], property[1], (Object[]) property[2]);
+                        }
+                        if (!userVertexIds) {
+                            vertexIds.put(record.id, vertex.id());
+                        }
+                        vertexCount++;
+                        break;
+                    case EDGE:
+                        final Vertex out = vertex(graph, userVertexIds ? record.outV : vertexIds.get(record.outV));
+                        final Vertex in = vertex(graph, userVertexIds ? record.inV : vertexIds.get(record.inV));
+                        if (out == null || in == null) {
+                            throw new IOException("Edge " + record.id + " refers to a vertex that was not loaded");
+                        }
+                        out.addEdge(record.label, in, record.keyValues(userEdgeIds));
+                        edgeCount++;
+                        break;
+                    case VARIABLES:
+                        for (final Map.Entry<String, Object> variable : record.variables.entrySet()) {
+                            graph.variables().set(variable.getKey(), variable.getValue());
+                        }
+                        break;
+                }
+                if (transactional && ++uncommitted >= batchSize) {
+                    graph.tx().commit();
+                    uncommitted = 0;
+                }
+                if (progressListener != null && vertexCount + edgeCount >= nextProgress) {
+                    progressListener.accept(new Progress(vertexCount, edgeCount, System.nanoTime() - start));
+                    nextProgress += progressInterval;
+                }
+            }
+            if (transactional) {
+                graph.tx().commit();
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            // Roll back the batch in progress; the earlier batches are committed already.
+            if (transactional) {
+                try {
+                    graph.tx().rollback();
+                }
+                catch (RuntimeException re) {
+                    e.addSuppressed(re);
+                }
+            }
+            throw e;
+        }
+        final Progress progress = new Progress(vertexCount, edgeCount, System.nanoTime() - start);
+        if (progressListener != null) {
+            progressListener.accept(progress);
+        }
+        return progress;
+    }
+
+    private static Record take(final BlockingQueue<Future<Record>> queue) throws IOException {
+        try {
+            return queue.take().get();
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading GraphSON", ie);
+        }
+        catch (ExecutionException ee) {
+            final Throwable cause = ee.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Unable to load GraphSON: " + cause, cause);
+        }
+    }
+
+    private static Vertex vertex(final Graph graph, final Object id) {
+        if (id == null) {
+            return null;
+        }
+        final Iterator<Vertex> vertices = graph.vertexIterator(id);
+        return vertices.hasNext() ? vertices.next() : null;
+    }
+
+    private Map<String, Object> toMap(final JsonNode node) {
+        try {
+            return mapper.readValue(mapper.treeAsTokens(node), MAP_TYPE);
+        }
+        catch (IOException ioe) {
+            throw new IllegalStateException("Unable to read GraphSON record: " + node, ioe);
+        }
+    }
+
+    // Runs on a worker thread.
+    @SuppressWarnings("unchecked")
+    private static Record toVertexRecord(final Map<String, Object> data) {
+        final List<Object> properties = new ArrayList<>();
+        final List<Object[]> metaProperties = new ArrayList<>();
+        final Map<String, Object> propertyData = (Map<String, Object>) data.get(GraphSONTokens.PROPERTIES);
+        if (propertyData != null) {
+            for (final Map.Entry<String, Object> entry : propertyData.entrySet()) {
+                final Object values = entry.getValue();
+                for (final Object value : values instanceof List ? (List<Object>) values
+                                                                 : Collections.singletonList(values)) {
+                    if (value instanceof Map && ((Map) value).containsKey(GraphSONTokens.VALUE)) {
+                        final Map<String, Object> property = (Map<String, Object>) value;
+                        final Map<String, Object> meta = (Map<String, Object>) property.get(GraphSONTokens.PROPERTIES);
+                        if (meta != null && !meta.isEmpty()) {
+                            metaProperties.add(new Object[] {entry.getKey(), property.get(GraphSONTokens.VALUE),
+                                                             toKeyValues(meta)});
+                            continue;
+                        }
+                        properties.add(entry.getKey());
+                        properties.add(property.get(GraphSONTokens.VALUE));
+                    } else {
+                        properties.add(entry.getKey());
+                        properties.add(value);
+                    }
+                }
+            }
+        }
+        return new Record(Record.Kind.VERTEX, data.get(GraphSONTokens.ID), (String) data.get(GraphSONTokens.LABEL),
+                          properties.toArray(), metaProperties, null, null, null);
+    }
+
+    // Runs on a worker thread.
+    @SuppressWarnings("unchecked")
+    private static Record toEdgeRecord(final Map<String, Object> data) {
+        final Map<String, Object> propertyData = (Map<String, Object>) data.get(GraphSONTokens.PROPERTIES);
+        final Object[] properties = propertyData == null ? new Object[0] : toKeyValues(propertyData);
+        return new Record(Record.Kind.EDGE, data.get(GraphSONTokens.ID), (String) data.get(GraphSONTokens.LABEL),
+                          properties, Collections.emptyList(), data.get(GraphSONTokens.OUT),
+                          data.get(GraphSONTokens.IN), null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object[] toKeyValues(final Map<String, Object> propertyData) {
+        final Object[] keyValues = new Object[2 * propertyData.size()];
+        int i = 0;
+        for (final Map.Entry<String, Object> entry : propertyData.entrySet()) {
+            final Object value = entry.getValue();
+            keyValues[i++] = entry.getKey();
+            keyValues[i++] = value instanceof Map && ((Map) value).containsKey(GraphSONTokens.VALUE)
+                             ? ((Map<String, Object>) value).get(GraphSONTokens.VALUE) : value;
+        }
+        return keyValues;
+    }
+
+    /**
+     * A vertex, edge or set of graph variables, ready to be created.
+     */
+    private static final class Record {
+
+        enum Kind { VERTEX, EDGE, VARIABLES, END }
+
+        final static Record END = new Record(Kind.END, null, null, null, null, null, null, null);
+
+        final Kind kind;
+        final Object id;
+        final String label;
+        final Object[] properties;
+        final List<Object[]> metaProperties;
+        final Object outV;
+        final Object inV;
+        final Map<String, Object> variables;
+
+        Record(final Kind kind, final Object id, final String label, final Object[] properties,
+               final List<Object[]> metaProperties, final Object outV, final Object inV,
+               final Map<String, Object> variables) {
+            this.kind = kind;
+            this.id = id;
+            this.label = label;
+            this.properties = properties;
+            this.metaProperties = metaProperties;
+            this.outV = outV;
+            this.inV = inV;
+            this.variables = variables;
+        }
+
+        static Record variables(final Map<String, Object> variables) {
+            return new Record(Kind.VARIABLES, null, null, null, null, null, null, variables);
+        }
+
+        // The key/values for addVertex or addEdge.  Vertices get their label here; edges take theirs separately.
+        Object[] keyValues(final boolean withId) {
+            final int prefix = (kind == Kind.VERTEX ? 2 : 0) + (withId ? 2 : 0);
+            final Object[] keyValues = new Object[prefix + properties.length];
+            int i = 0;
+            if (kind == Kind.VERTEX) {
+                keyValues[i++] = T.label;
+                keyValues[i++] = label;
+            }
+            if (withId) {
+                keyValues[i++] = T.id;
+                keyValues[i++] = id;
+            }
+            System.arraycopy(properties, 0, keyValues, i, properties.length);
+            return keyValues;
+        }
+    }
+
+    /**
+     * Counts of the elements created so far, and the time taken.
+     */
+    public static final class Progress {
+
+        private final long vertexCount;
+        private final long edgeCount;
+        private final long elapsedNanos;
+
+        Progress(final long vertexCount, final long edgeCount, final long elapsedNanos) {
+            this.vertexCount = vertexCount;
+            this.edgeCount = edgeCount;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getVertexCount() {
+            return vertexCount;
+        }
+
+        public long getEdgeCount() {
+            return edgeCount;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        public double getElementsPerSecond() {
+            return elapsedNanos == 0 ? 0 : (vertexCount + edgeCount) * 1e9 / elapsedNanos;
+        }
+
+        public String toString() {
+            return String.format("%d vertices, %d edges in %d ms (%.0f elements/s)",
+                                 vertexCount, edgeCount, getElapsedMillis(), getElementsPerSecond());
+        }
+    }
+
+    public static final class Builder {
+
+        private GraphSONMapper mapper = GraphSONMapper.build().embedTypes(true).create();
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        private int workers = Runtime.getRuntime().availableProcessors();
+        private int queueSize = DEFAULT_QUEUE_SIZE;
+        private Consumer<Progress> progressListener;
+        private long progressInterval;
+
+        private Builder() {
+        }
+
+        /**
+         * The mapper used to read the GraphSON, which must match the one it was written with.  By default, the
+         * mapper embeds types, as GraphWrapper.saveGraphSON does.
+         */
+        public Builder mapper(final GraphSONMapper mapper) {
+            this.mapper = mapper;
+            return this;
+        }
+
+        /**
+         * The number of elements created between commits, for transactional graphs.
+         */
+        public Builder batchSize(final int batchSize) {
+            this.batchSize = positive("batchSize", batchSize);
+            return this;
+        }
+
+        /**
+         * The number of threads converting records.
+         */
+        public Builder workers(final int workers) {
+            this.workers = positive("workers", workers);
+            return this;
+        }
+
+        /**
+         * The number of records read ahead of the elements being created.
+         */
+        public Builder queueSize(final int queueSize) {
+            this.queueSize = positive("queueSize", queueSize);
+            return this;
+        }
+
+        /**
+         * Call *listener* every *interval* elements (every batchSize elements if *interval* is 0), and once at the end.
+         */
+        public Builder progress(final Consumer<Progress> listener, final long interval) {
+            this.progressListener = listener;
+            this.progressInterval = interval;
+            return this;
+        }
+
+        public GraphSONBulkLoader create() {
+            return new GraphSONBulkLoader(this);
+        }
+
+        private static int positive(final String name, final int value) {
+            if (value < 1) {
+                throw new IllegalArgumentException(name + " must be positive: " + value);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,551 @@
+package com.entrendipity.gremlinnode.structure.io;
+
+import com.tinkerpop.gremlin.process.T;
+import com.tinkerpop.gremlin.structure.Direction;
+import com.tinkerpop.gremlin.structure.Edge;
+import com.tinkerpop.gremlin.structure.Element;
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.structure.Property;
+import com.tinkerpop.gremlin.structure.Vertex;
+import com.tinkerpop.gremlin.structure.VertexProperty;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Write and read a compact binary snapshot of a graph, for fast startup.
+ *
+ * The snapshot holds the same information as GraphSON (vertices, edges, their ids, labels and properties, vertex
+ * meta-properties, and graph variables), but labels and property keys are stored once in a dictionary and referred
+ * to by index, integers are variable-length, and edges refer to their vertices by position rather than by id.  The
+ * layout is:
+ *
+ *   header      magic "GNS1", then the dictionary size, vertex count and edge count as fixed-width integers
+ *   dictionary  the labels and property keys, as strings
+ *   variables   a count, then key index and value pairs
+ *   vertices    for each: id, label index, property count, then key index, value and meta-properties per property
+ *   edges       for each: id, label index, out and in vertex positions, property count, then key index and value
+ *
+ * Values are a type tag followed by a type specific encoding; values of types other than the primitive wrappers and
+ * String are stored with Java serialization.  Since a snapshot file may come from anywhere, serialized values may
+ * only hold the classes in SERIALIZABLE_CLASSES (collections, big numbers, dates and the like) and arrays of them or
+ * of primitives; writing a graph with other property types fails, and so does reading a file that has them.  For the
+ * same reason, every count, length, dictionary index and vertex position read is checked, against the bytes left when
+ * the input is a file, before it is used.  Reading a file maps it into memory.
+ */
+public class GraphSnapshot {
+
+    private final static int MAGIC = 0x474e5331; // "GNS1"
+
+    private final static byte NULL = 0;
+    private final static byte STRING = 1;
+    private final static byte INTEGER = 2;
+    private final static byte LONG = 3;
+    private final static byte FLOAT = 4;
+    private final static byte DOUBLE = 5;
+    private final static byte TRUE = 6;
+    private final static byte FALSE = 7;
+    private final static byte SHORT = 8;
+    private final static byte BYTE = 9;
+    private final static byte SERIALIZED = 10;
+
+    /**
+     * The classes that serialized values may hold.
+     */
+    public final static Set<String> SERIALIZABLE_CLASSES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        "java.lang.Boolean", "java.lang.Byte", "java.lang.Character", "java.lang.Double", "java.lang.Float",
+        "java.lang.Integer", "java.lang.Long", "java.lang.Number", "java.lang.Short", "java.lang.String",
+        "java.math.BigDecimal", "java.math.BigInteger",
+        "java.util.ArrayList", "java.util.Arrays$ArrayList", "java.util.LinkedList",
+        "java.util.HashMap", "java.util.LinkedHashMap", "java.util.TreeMap",
+        "java.util.HashSet", "java.util.LinkedHashSet", "java.util.TreeSet",
+        "java.util.Date", "java.util.UUID")));
+
+    private final static Pattern PRIMITIVE_ARRAY = Pattern.compile("\\[+[ZBCSIJFD]");
+    private final static Pattern OBJECT_ARRAY = Pattern.compile("\\[+L(.+);");
+
+    private GraphSnapshot() {
+    }
+
+    /**
+     * Write a snapshot of *graph* to the file *filename*.
+     */
+    public static void write(final Graph graph, final String filename) throws IOException {
+        try (OutputStream out = new FileOutputStream(filename)) {
+            write(graph, out);
+        }
+    }
+
+    /**
+     * Write a snapshot of *graph* to *outputStream*, which is flushed but not closed.
+     */
+    public static void write(final Graph graph, final OutputStream outputStream) throws IOException {
+        // The first pass builds the dictionary and counts the elements, so that the header can precede them.
+        final Map<String, Integer> dictionary = new LinkedHashMap<>();
+        final Map<String, Object> variables = variables(graph);
+        variables.keySet().forEach(key -> index(dictionary, key));
+        long vertexCount = 0;
+        for (final Iterator<Vertex> vertices = graph.vertexIterator(); vertices.hasNext(); vertexCount++) {
+            final Vertex vertex = vertices.next();
+            index(dictionary, vertex.label());
+            for (final Iterator<? extends VertexProperty<Object>> properties = vertex.propertyIterator();
+                 properties.hasNext(); ) {
+                final VertexProperty<Object> property = properties.next();
+                index(dictionary, property.key());
+                property.propertyIterator().forEachRemaining(meta -> index(dictionary, meta.key()));
+            }
+        }
+        long edgeCount = 0;
+        for (final Iterator<Edge> edges = graph.edgeIterator(); edges.hasNext(); edgeCount++) {
+            final Edge edge = edges.next();
+            index(dictionary, edge.label());
+            edge.propertyIterator().forEachRemaining(property -> index(dictionary, property.key()));
+        }
+
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeInt(MAGIC);
+        out.writeInt(dictionary.size());
+        out.writeLong(vertexCount);
+        out.writeLong(edgeCount);
+        for (final String word : dictionary.keySet()) {
+            writeString(out, word);
+        }
+
+        writeVarint(out, variables.size());
+        for (final Map.Entry<String, Object> variable : variables.entrySet()) {
+            writeVarint(out, dictionary.get(variable.getKey()));
+            writeValue(out, variable.getValue());
+        }
+
+        final Map<Object, Long> positions = new HashMap<>();
+        long position = 0;
+        for (final Iterator<Vertex> vertices = graph.vertexIterator(); vertices.hasNext(); position++) {
+            final Vertex vertex = vertices.next();
+            positions.put(vertex.id(), position);
+            writeValue(out, vertex.id());
+            writeVarint(out, dictionary.get(vertex.label()));
+            final List<VertexProperty<Object>> properties = new ArrayList<>();
+            vertex.<Object>propertyIterator().forEachRemaining(properties::add);
+            writeVarint(out, properties.size());
+            for (final VertexProperty<Object> property : properties) {
+                writeVarint(out, dictionary.get(property.key()));
+                writeValue(out, property.value());
+                writeProperties(out, dictionary, property);
+            }
+        }
+
+        for (final Iterator<Edge> edges = graph.edgeIterator(); edges.hasNext(); ) {
+            final Edge edge = edges.next();
+            writeValue(out, edge.id());
+            writeVarint(out, dictionary.get(edge.label()));
+            writeVarint(out, positions.get(edge.vertexIterator(Direction.OUT).next().id()));
+            writeVarint(out, positions.get(edge.vertexIterator(Direction.IN).next().id()));
+            writeProperties(out, dictionary, edge);
+        }
+        out.flush();
+    }
+
+    /**
+     * Read the snapshot in the file *filename* into *graph*.  The file is mapped into memory if it is small enough.
+     */
+    public static void read(final String filename, final Graph graph) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() <= Integer.MAX_VALUE) {
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                read(new BufferInput(buffer), graph);
+                return;
+            }
+        }
+        try (InputStream in = new FileInputStream(filename)) {
+            read(in, graph);
+        }
+    }
+
+    /**
+     * Read the snapshot in *inputStream* into *graph*.
+     */
+    public static void read(final InputStream inputStream, final Graph graph) throws IOException {
+        read(new StreamInput(new DataInputStream(new BufferedInputStream(inputStream))), graph);
+    }
+
+    private static void read(final Input in, final Graph graph) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a graph snapshot");
+        }
+        final String[] dictionary = new String[count(in, in.readInt(), "dictionary size", 1)];
+        final Vertex[] vertices = new Vertex[count(in, in.readLong(), "vertex count", 3)];
+        final long edgeCount = in.readLong();
+        if (edgeCount < 0 || edgeCount > in.remaining() / 4) {
+            throw new IOException("Invalid edge count in graph snapshot: " + edgeCount);
+        }
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readString(in);
+        }
+
+        final boolean userVertexIds = graph.features().vertex().supportsUserSuppliedIds();
+        final boolean userEdgeIds = graph.features().edge().supportsUserSuppliedIds();
+
+        final int variableCount = count(in, readVarint(in), "variable count", 2);
+        for (int i = 0; i < variableCount; i++) {
+            graph.variables().set(word(in, dictionary), readValue(in));
+        }
+
+        for (int i = 0; i < vertices.length; i++) {
+            final Object id = readValue(in);
+            final String label = word(in, dictionary);
+            vertices[i] = userVertexIds ? graph.addVertex(T.id, id, T.label, label) : graph.addVertex(T.label, label);
+            final int propertyCount = count(in, readVarint(in), "vertex property count", 3);
+            for (int j = 0; j < propertyCount; j++) {
+                final String key = word(in, dictionary);
+                final Object value = readValue(in);
+                vertices[i].property(key, value, readProperties(in, dictionary, false));
+            }
+        }
+
+        for (long i = 0; i < edgeCount; i++) {
+            final Object id = readValue(in);
+            final String label = word(in, dictionary);
+            final Vertex out = vertex(in, vertices);
+            final Vertex inVertex = vertex(in, vertices);
+            final Object[] keyValues = readProperties(in, dictionary, userEdgeIds);
+            if (userEdgeIds) {
+                keyValues[0] = T.id;
+                keyValues[1] = id;
+            }
+            out.addEdge(label, inVertex, keyValues);
+        }
+
+        if (graph.features().graph().supportsTransactions()) {
+            graph.tx().commit();
+        }
+    }
+
+    private static Map<String, Object> variables(final Graph graph) {
+        return graph.features().graph().variables().supportsVariables() ? graph.variables().asMap()
+                                                                          : new HashMap<>();
+    }
+
+    private static void index(final Map<String, Integer> dictionary, final String word) {
+        if (!dictionary.containsKey(word)) {
+            dictionary.put(word, dictionary.size());
+        }
+    }
+
+    private static void writeProperties(final DataOutputStream out, final Map<String, Integer> dictionary,
+                                        final Element element) throws IOException {
+        final List<Property<Object>> properties = new ArrayList<>();
+        element.<Object>propertyIterator().forEachRemaining(properties::add);
+        writeVarint(out, properties.size());
+        for (final Property<Object> property : properties) {
+            writeVarint(out, dictionary.get(property.key()));
+            writeValue(out, property.value());
+        }
+    }
+
+    // Read properties as key/values, leaving the first two slots free when *reserveId* is set.
+    private static Object[] readProperties(final Input in, final String[] dictionary, final boolean reserveId)
+        throws IOException {
+        final int count = count(in, readVarint(in), "property count", 2);
+        final int offset = reserveId ? 2 : 0;
+        final Object[] keyValues = new Object[offset + 2 * count];
+        for (int i = offset; i < keyValues.length; i += 2) {
+            keyValues[i] = word(in, dictionary);
+            keyValues[i + 1] = readValue(in);
+        }
+        return keyValues;
+    }
+
+    // Check a count of items read from the snapshot, each of which takes at least *bytesEach* bytes,
+    // against the bytes left in the input.
+    private static int count(final Input in, final long count, final String field, final int bytesEach)
+        throws IOException {
+        if (count < 0 || count > (Integer.MAX_VALUE - 8) / bytesEach || count * bytesEach > in.remaining()) {
+            throw new IOException("Invalid " + field + " in graph snapshot: " + count);
+        }
+        return (int) count;
+    }
+
+    // Read a dictionary index, and return its word.
+    private static String word(final Input in, final String[] dictionary) throws IOException {
+        final long index = readVarint(in);
+        if (index < 0 || index >= dictionary.length) {
+            throw new IOException("Invalid dictionary index in graph snapshot: " + index);
+        }
+        return dictionary[(int) index];
+    }
+
+    // Read the position of a vertex, which must have been read already.
+    private static Vertex vertex(final Input in, final Vertex[] vertices) throws IOException {
+        final long position = readVarint(in);
+        if (position < 0 || position >= vertices.length) {
+            throw new IOException("Invalid vertex position in graph snapshot: " + position);
+        }
+        return vertices[(int) position];
+    }
+
+    private static void writeVarint(final DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarint(final Input in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = in.readByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in graph snapshot");
+    }
+
+    private static void writeString(final DataOutputStream out, final String s) throws IOException {
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final Input in) throws IOException {
+        final byte[] bytes = new byte[count(in, readVarint(in), "string length", 1)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeValue(final DataOutputStream out, final Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            writeVarint(out, zigzag((Integer) value));
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            writeVarint(out, zigzag((Long) value));
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+                objects.writeObject(value);
+            }
+            // Check now that the value can be read back, rather than writing a snapshot that cannot be loaded.
+            readSerialized(bytes.toByteArray());
+            out.writeByte(SERIALIZED);
+            writeVarint(out, bytes.size());
+            bytes.writeTo(out);
+        }
+    }
+
+    private static Object readValue(final Input in) throws IOException {
+        final byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case INTEGER:
+                return (int) unzigzag(readVarint(in));
+            case LONG:
+                return unzigzag(readVarint(in));
+            case FLOAT:
+                return Float.intBitsToFloat(in.readInt());
+            case DOUBLE:
+                return Double.longBitsToDouble(in.readLong());
+            case TRUE:
+                return true;
+            case FALSE:
+                return false;
+            case SHORT:
+                return (short) ((in.readByte() & 0xff) << 8 | (in.readByte() & 0xff));
+            case BYTE:
+                return in.readByte();
+            case SERIALIZED:
+                final byte[] bytes = new byte[count(in, readVarint(in), "serialized value length", 1)];
+                in.readFully(bytes);
+                return readSerialized(bytes);
+            default:
+                throw new IOException("Unknown value type in graph snapshot: " + tag);
+        }
+    }
+
+    private static Object readSerialized(final byte[] bytes) throws IOException {
+        try (ObjectInputStream objects = new SnapshotObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return objects.readObject();
+        }
+        catch (ClassNotFoundException cnfe) {
+            throw new IOException("Unable to read value from graph snapshot: " + cnfe.getMessage(), cnfe);
+        }
+    }
+
+    private static boolean isSerializable(final String className) {
+        if (SERIALIZABLE_CLASSES.contains(className) || PRIMITIVE_ARRAY.matcher(className).matches()) {
+            return true;
+        }
+        final Matcher array = OBJECT_ARRAY.matcher(className);
+        return array.matches() && SERIALIZABLE_CLASSES.contains(array.group(1));
+    }
+
+    /**
+     * Deserializes only the classes that isSerializable allows, so that a snapshot file cannot make the reader
+     * instantiate arbitrary classes.
+     */
+    private static final class SnapshotObjectInputStream extends ObjectInputStream {
+
+        SnapshotObjectInputStream(final InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass description)
+            throws IOException, ClassNotFoundException {
+            if (!isSerializable(description.getName())) {
+                throw new InvalidClassException(description.getName(),
+                                                "Property type not supported in graph snapshots");
+            }
+            return super.resolveClass(description);
+        }
+    }
+
+    private static long zigzag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * The few reads the snapshot format needs, from either a mapped buffer or a stream.
+     */
+    private interface Input {
+        byte readByte() throws IOException;
+
+        int readInt() throws IOException;
+
+        long readLong() throws IOException;
+
+        void readFully(byte[] bytes) throws IOException;
+
+        /**
+         * The number of bytes left, or Long.MAX_VALUE if it is not known.
+         */
+        long remaining();
+    }
+
+    private static final class BufferInput implements Input {
+
+        private final ByteBuffer buffer;
+
+        BufferInput(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        public byte readByte() throws IOException {
+            check(1);
+            return buffer.get();
+        }
+
+        public int readInt() throws IOException {
+            check(4);
+            return buffer.getInt();
+        }
+
+        public long readLong() throws IOException {
+            check(8);
+            return buffer.getLong();
+        }
+
+        public void readFully(final byte[] bytes) throws IOException {
+            check(bytes.length);
+            buffer.get(bytes);
+        }
+
+        public long remaining() {
+            return buffer.remaining();
+        }
+
+        private void check(final int length) throws EOFException {
+            if (buffer.remaining() < length) {
+                throw new EOFException("Truncated graph snapshot");
+            }
+        }
+    }
+
+    private static final class StreamInput implements Input {
+
+        private final DataInputStream in;
+
+        StreamInput(final DataInputStream in) {
+            this.in = in;
+        }
+
+        public byte readByte() throws IOException {
+            return in.readByte();
+        }
+
+        public int readInt() throws IOException {
+            return in.readInt();
+        }
+
+        public long readLong() throws IOException {
+            return in.readLong();
+        }
+
+        public void readFully(final byte[] bytes) throws IOException {
+            in.readFully(bytes);
+        }
+
+        public long remaining() {
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.entrendipity.gremlinnode.traversal;
+
+import com.entrendipity.gremlinnode.function.ExpressionCompiler;
+import com.tinkerpop.gremlin.process.graph.traversal.GraphTraversal;
+import java.util.List;
+
+/**
+ * Rewrite filter closures into has() steps, so that the graph can answer them itself.
+ *
+ * A closure such as { it.get().value('name') == 'marko' } is opaque to the traversal: it is called for every element,
+ * even though TinkerGraph could look the answer up in a key index.  When a filter closure is a conjunction of
+ * comparisons (== != < <= > >=) or list containment checks between properties of the traverser's element and
+ * string or int literals, it is replaced by the equivalent has(key, Compare.X, value) and has(key, Contains.within,
+ * list) steps before the traversal runs.  See ExpressionCompiler.filterConditions for the closures recognized.
+ *
+ * The results are those of the closure, except that an element without the property is filtered out, where the
+ * closure would have failed the traversal; this is why the rewrite is opt-in (opts.filterPushdown in lib/gremlin.js).
+ */
+public final class FilterPushdown {
+
+    private FilterPushdown() {
+    }
+
+    /**
+     * Add has steps equivalent to filter(*groovy*) to *traversal*, and return it, or return null if the closure is
+     * not one that can be pushed down.
+     */
+    public static GraphTraversal<?, ?> filter(final GraphTraversal<?, ?> traversal, final String groovy) {
+        final List<ExpressionCompiler.Condition> conditions = ExpressionCompiler.filterConditions(groovy);
+        if (conditions == null) {
+            return null;
+        }
+        GraphTraversal<?, ?> result = traversal;
+        for (final ExpressionCompiler.Condition condition : conditions) {
+            result = result.has(condition.getKey(), condition.getPredicate(), condition.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * True if filter(*groovy*) can be pushed down into has steps.
+     */
+    public static boolean canPushDown(final String groovy) {
+        return ExpressionCompiler.filterConditions(groovy) != null;
+    }
+}
@@ -0,0 +1,362 @@
+package com.entrendipity.gremlinnode.traversal;
+
+import com.entrendipity.gremlinnode.bridge.ResultEncoder;
+import com.tinkerpop.gremlin.process.Traversal;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Run whole traversals concurrently on Java threads, and hand back their results as futures.
+ *
+ * Each asynchronous call from lib/*.js occupies one of node-java's few worker threads until it returns, so one long
+ * traversal delays every call queued behind it.  Submitting a traversal here returns at once; the traversal runs on
+ * the executor's own threads, and its result is delivered through a CompletableFuture or a completion callback.
+ *
+ * In pool mode, a fixed number of threads take traversals highest priority first, and in submission order within a
+ * priority.  In virtual thread mode (Java 21 and later), every traversal gets a thread of its own as soon as it is
+ * submitted, so priorities have no effect.  Either way, at most queueSize traversals may be waiting to start; further
+ * submissions are rejected.
+ *
+ * Traversals run outside the thread that built them, so on transactional graphs they see the executor thread's
+ * transaction.  Submit read-only traversals.
+ */
+public class TraversalExecutor implements AutoCloseable {
+
+    public final static int DEFAULT_QUEUE_SIZE = 10000;
+    public final static int DEFAULT_PRIORITY = 0;
+
+    private final static Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = virtualThreadFactoryMethod();
+
+    private final ExecutorService executor;
+    private final int threads;
+    private final boolean virtualThreads;
+    private final int queueSize;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final LongAccumulator peakQueueDepth = new LongAccumulator(Math::max, 0);
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+
+    private TraversalExecutor(final Builder builder) {
+        this.virtualThreads = builder.virtualThreads && isVirtualThreadSupported();
+        this.threads = virtualThreads ? 0 : builder.threads;
+        this.queueSize = builder.queueSize;
+        this.executor = virtualThreads ? newVirtualThreadPerTaskExecutor() : newPool(builder.threads);
+    }
+
+    public static Builder build() {
+        return new Builder();
+    }
+
+    /**
+     * True if this JVM can run each traversal on a virtual thread of its own.
+     */
+    public static boolean isVirtualThreadSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Run *task* with the default priority.
+     */
+    public <T> CompletableFuture<T> submit(final Callable<T> task) {
+        return submit(task, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Run *task*, ahead of queued tasks of lower *priority*.  Throws RejectedExecutionException if queueSize tasks are
+     * already waiting, or the executor has been shut down.  Cancelling the future before the task starts skips it.
+     */
+    public <T> CompletableFuture<T> submit(final Callable<T> task, final int priority) {
+        final int depth = queued.incrementAndGet();
+        if (depth > queueSize) {
+            queued.decrementAndGet();
+            rejected.increment();
+            throw new RejectedExecutionException("More than " + queueSize + " traversals are waiting to run");
+        }
+        peakQueueDepth.accumulate(depth);
+        final Task<T> wrapper = new Task<>(task, priority, sequence.getAndIncrement());
+        try {
+            executor.execute(wrapper);
+        }
+        catch (RejectedExecutionException ree) {
+            queued.decrementAndGet();
+            rejected.increment();
+            throw ree;
+        }
+        submitted.increment();
+        return wrapper.future;
+    }
+
+    /**
+     * Drain *traversal* with the default priority.  The future holds its results.
+     */
+    public CompletableFuture<List<Object>> submit(final Traversal<?, ?> traversal) {
+        return submit(traversal, DEFAULT_PRIORITY);
+    }
+
+    public CompletableFuture<List<Object>> submit(final Traversal<?, ?> traversal, final int priority) {
+        return submit(() -> {
+            final List<Object> results = new ArrayList<>();
+            traversal.forEachRemaining(results::add);
+            return results;
+        }, priority);
+    }
+
+    /**
+     * Drain *traversal* and encode its results with ResultEncoder.encodeAll.  The future holds {json, references}.
+     */
+    public CompletableFuture<Object[]> submitEncoded(final Traversal<?, ?> traversal, final int priority) {
+        return submit(() -> ResultEncoder.encodeAll(traversal), priority);
+    }
+
+    /**
+     * As submitEncoded, and call *callback* with either the encoded results or the exception when the traversal
+     * completes.  The callback runs on the executor thread.
+     */
+    public CompletableFuture<Object[]> submitEncoded(final Traversal<?, ?> traversal, final int priority,
+                                                     final BiConsumer<Object[], Throwable> callback) {
+        return submitEncoded(traversal, priority).whenComplete(callback);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * The number of submitted tasks that have not started yet.
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    public long getPeakQueueDepth() {
+        return peakQueueDepth.get();
+    }
+
+    public int getRunningCount() {
+        return running.get();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * The mean time, in milliseconds, that tasks waited between submission and starting.
+     */
+    public double getMeanQueueMillis() {
+        return meanMillis(queueNanos.sum(), getCompletedCount() + getFailedCount());
+    }
+
+    /**
+     * The mean time, in milliseconds, that tasks took to run.
+     */
+    public double getMeanRunMillis() {
+        return meanMillis(runNanos.sum(), getCompletedCount() + getFailedCount());
+    }
+
+    public Map<String, Object> getStats() {
+        final Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threads", threads);
+        stats.put("virtualThreads", virtualThreads);
+        stats.put("queueDepth", getQueueDepth());
+        stats.put("peakQueueDepth", getPeakQueueDepth());
+        stats.put("running", getRunningCount());
+        stats.put("submitted", getSubmittedCount());
+        stats.put("completed", getCompletedCount());
+        stats.put("failed", getFailedCount());
+        stats.put("rejected", getRejectedCount());
+        stats.put("meanQueueMillis", getMeanQueueMillis());
+        stats.put("meanRunMillis", getMeanRunMillis());
+        return stats;
+    }
+
+    /**
+     * Stop accepting tasks.  Tasks already submitted still run.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public boolean awaitTermination(final long timeoutMillis) throws InterruptedException {
+        return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    public String toString() {
+        return "TraversalExecutor(" + (virtualThreads ? "virtual threads" : "threads=" + threads)
+            + ", queueDepth=" + getQueueDepth() + ", running=" + getRunningCount() + ")";
+    }
+
+    private static double meanMillis(final long nanos, final long count) {
+        return count == 0 ? 0.0 : nanos / 1e6 / count;
+    }
+
+    private static ExecutorService newPool(final int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(),
+                                      runnable -> {
+                                          final Thread thread =
+                                              new Thread(runnable, "traversal-executor-" + count.incrementAndGet());
+                                          thread.setDaemon(true);
+                                          return thread;
+                                      });
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor is looked up reflectively, so that this class still loads on Java 8.
+    private static Method virtualThreadFactoryMethod() {
+        try {
+            return java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        }
+        catch (NoSuchMethodException nsme) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        }
+        catch (ReflectiveOperationException roe) {
+            throw new IllegalStateException("Unable to create a virtual thread executor", roe);
+        }
+    }
+
+    // A submitted task, ordered highest priority first, then first submitted first.
+    private final class Task<T> implements Runnable, Comparable<Task<?>> {
+        private final Callable<T> callable;
+        private final int priority;
+        private final long sequence;
+        private final long enqueued = System.nanoTime();
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Task(final Callable<T> callable, final int priority, final long sequence) {
+            this.callable = callable;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            queued.decrementAndGet();
+            if (future.isDone()) {
+                return;  // cancelled while it was queued
+            }
+            final long started = System.nanoTime();
+            queueNanos.add(started - enqueued);
+            running.incrementAndGet();
+            try {
+                final T result = callable.call();
+                completed.increment();
+                future.complete(result);
+            }
+            catch (Throwable t) {
+                failed.increment();
+                future.completeExceptionally(t);
+            }
+            finally {
+                running.decrementAndGet();
+                runNanos.add(System.nanoTime() - started);
+            }
+        }
+
+        @Override
+        public int compareTo(final Task<?> other) {
+            if (priority != other.priority) {
+                return Integer.compare(other.priority, priority);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    public static final class Builder {
+
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private boolean virtualThreads;
+        private int queueSize = DEFAULT_QUEUE_SIZE;
+
+        private Builder() {
+        }
+
+        /**
+         * The number of threads running traversals in pool mode.
+         */
+        public Builder threads(final int threads) {
+            this.threads = positive("threads", threads);
+            return this;
+        }
+
+        /**
+         * Run each traversal on a virtual thread of its own, if the JVM supports it (see isVirtualThreadSupported).
+         * Otherwise the executor falls back to pool mode, and isVirtualThreads() returns false.
+         */
+        public Builder virtualThreads(final boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /**
+         * The number of traversals that may wait to start before further submissions are rejected.
+         */
+        public Builder queueSize(final int queueSize) {
+            this.queueSize = positive("queueSize", queueSize);
+            return this;
+        }
+
+        public TraversalExecutor create() {
+            return new TraversalExecutor(this);
+        }
+
+        private static int positive(final String name, final int value) {
+            if (value < 1) {
+                throw new IllegalArgumentException(name + " must be positive: " + value);
+            }
+            return value;
+        }
+    }
+}
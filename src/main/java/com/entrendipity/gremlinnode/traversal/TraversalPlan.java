@@ -0,0 +1,504 @@
+package com.entrendipity.gremlinnode.traversal;
+
+import com.entrendipity.gremlinnode.function.ExpressionCompiler;
+import com.entrendipity.gremlinnode.function.GlobFunction;
+import com.entrendipity.gremlinnode.function.LambdaFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinkerpop.gremlin.process.T;
+import com.tinkerpop.gremlin.process.graph.traversal.GraphTraversal;
+import com.tinkerpop.gremlin.process.graph.traversal.__;
+import com.tinkerpop.gremlin.structure.Compare;
+import com.tinkerpop.gremlin.structure.Contains;
+import com.tinkerpop.gremlin.structure.Direction;
+import com.tinkerpop.gremlin.structure.Graph;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.script.ScriptException;
+
+/**
+ * A traversal described as data, built in a single call.
+ *
+ * A plan is a JSON array of steps, each an array of the step name followed by its arguments, e.g.
+ *
+ *   [["V"], ["has", "name", {"$": "name"}], ["out", "knows"], ["filter", {"lambda": "{ it -> true }"}]]
+ *
+ * Arguments are JSON scalars and arrays, or objects of one of these forms:
+ *
+ *   {"$": NAME}                   a parameter, bound when the plan is bound
+ *   {"lambda": GROOVY}            a lambda, created once by the plan's LambdaFactory when the plan is compiled
+ *   {"__": [STEPS]}               an anonymous traversal, e.g. for choose or local
+ *   {"T": "label"}                an enum constant; also Compare, Contains and Direction
+ *
+ * Compiling a plan parses it and compiles its lambdas; binding it to a graph and parameters builds a new traversal,
+ * calling the step methods found by reflection, which are resolved once per combination of argument types: the most
+ * specific applicable overload wins, and ties are broken by signature rather than by reflection order.  Plans are
+ * meant to be cached by their JSON (see TraversalPlanCache), so that repeated executions only change the parameters.
+ *
+ * When filters are pushed down, a filter step whose closure only compares properties with literals is compiled into has
+ * steps instead (see FilterPushdown).
+ */
+public class TraversalPlan {
+
+    private final static ObjectMapper MAPPER = new ObjectMapper();
+
+    private final static Map<String, Class<?>> ENUMS = new HashMap<>();
+
+    static {
+        ENUMS.put("T", T.class);
+        ENUMS.put("Compare", Compare.class);
+        ENUMS.put("Contains", Contains.class);
+        ENUMS.put("Direction", Direction.class);
+    }
+
+    private final String json;
+    private final Step[] steps;
+    private final Set<String> parameterNames;
+
+    private TraversalPlan(final String json, final Step[] steps, final Set<String> parameterNames) {
+        this.json = json;
+        this.steps = steps;
+        this.parameterNames = Collections.unmodifiableSet(parameterNames);
+    }
+
+    public static TraversalPlan compile(final String json) throws ScriptException {
+        return compile(json, LambdaFactory.build().create());
+    }
+
+    public static TraversalPlan compile(final String json, final LambdaFactory lambdas) throws ScriptException {
+        return compile(json, lambdas, false);
+    }
+
+    /**
+     * Compile the plan *json*, creating its lambdas with *lambdas*, and turning the filters that can be into has
+     * steps if *pushDownFilters* is set.
+     */
+    public static TraversalPlan compile(final String json, final LambdaFactory lambdas, final boolean pushDownFilters)
+        throws ScriptException {
+        final JsonNode root;
+        try {
+            root = MAPPER.readTree(json);
+        }
+        catch (IOException ioe) {
+            throw new IllegalArgumentException("Traversal plan is not valid JSON: " + json, ioe);
+        }
+        final Set<String> parameterNames = new TreeSet<>();
+        final Step[] steps = new Compiler(lambdas, pushDownFilters, parameterNames).steps(root);
+        return new TraversalPlan(json, steps, parameterNames);
+    }
+
+    /**
+     * Build the traversal, starting from *graph*, with the parameters in *parameters*.
+     */
+    public GraphTraversal<?, ?> bind(final Graph graph, final Map<String, ?> parameters) {
+        return (GraphTraversal<?, ?>) build(graph, parameters);
+    }
+
+    /**
+     * Build the traversal, starting from *graph*, with parameters given as a JSON object.
+     */
+    public GraphTraversal<?, ?> bind(final Graph graph, final String parameters) {
+        try {
+            final Map<String, Object> map = new HashMap<>();
+            final Iterator<Map.Entry<String, JsonNode>> fields = MAPPER.readTree(parameters).fields();
+            while (fields.hasNext()) {
+                final Map.Entry<String, JsonNode> field = fields.next();
+                map.put(field.getKey(), scalar(field.getValue()));
+            }
+            return bind(graph, map);
+        }
+        catch (IOException ioe) {
+            throw new IllegalArgumentException("Traversal parameters are not valid JSON: " + parameters, ioe);
+        }
+    }
+
+    /**
+     * Build the plan as an anonymous traversal, whose first step is one of the static methods of __.
+     */
+    public GraphTraversal<?, ?> bindAnonymous(final Map<String, ?> parameters) {
+        return (GraphTraversal<?, ?>) build(null, parameters);
+    }
+
+    public Set<String> getParameterNames() {
+        return parameterNames;
+    }
+
+    public String toString() {
+        return json;
+    }
+
+    private Object build(final Object start, final Map<String, ?> parameters) {
+        Object target = start;
+        for (final Step step : steps) {
+            target = step.invoke(target, parameters);
+        }
+        return target;
+    }
+
+    private static Object scalar(final JsonNode node) {
+        if (node.isNull()) {
+            return null;
+        } else if (node.isTextual()) {
+            return node.textValue();
+        } else if (node.isBoolean()) {
+            return node.booleanValue();
+        } else if (node.isInt()) {
+            return node.intValue();
+        } else if (node.isIntegralNumber()) {
+            return node.longValue();
+        } else if (node.isNumber()) {
+            return node.doubleValue();
+        } else if (node.isArray()) {
+            final Object[] array = new Object[node.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = scalar(node.get(i));
+            }
+            return array;
+        }
+        throw new IllegalArgumentException("Unsupported traversal plan value: " + node);
+    }
+
+    /**
+     * Turns the JSON tree into steps and arguments.
+     */
+    private static final class Compiler {
+
+        private final LambdaFactory lambdas;
+        private final boolean pushDownFilters;
+        private final Set<String> parameterNames;
+
+        Compiler(final LambdaFactory lambdas, final boolean pushDownFilters, final Set<String> parameterNames) {
+            this.lambdas = lambdas;
+            this.pushDownFilters = pushDownFilters;
+            this.parameterNames = parameterNames;
+        }
+
+        Step[] steps(final JsonNode node) throws ScriptException {
+            if (!node.isArray() || node.size() == 0) {
+                throw new IllegalArgumentException("A traversal plan must be a non-empty array of steps: " + node);
+            }
+            final List<Step> steps = new ArrayList<>(node.size());
+            for (int i = 0; i < node.size(); i++) {
+                final JsonNode step = node.get(i);
+                if (!step.isArray() || step.size() == 0 || !step.get(0).isTextual()) {
+                    throw new IllegalArgumentException("A traversal step must be an array starting with its name: "
+                                                       + step);
+                }
+                if (pushDownFilters && pushDown(step, steps)) {
+                    continue;
+                }
+                final Arg[] args = new Arg[step.size() - 1];
+                for (int j = 0; j < args.length; j++) {
+                    args[j] = arg(step.get(j + 1));
+                }
+                steps.add(new Step(step.get(0).textValue(), args));
+            }
+            return steps.toArray(new Step[steps.size()]);
+        }
+
+        // Replace ["filter", {"lambda": GROOVY}] with has steps if the closure only compares properties with
+        // literals (see FilterPushdown), so that the graph can answer them, e.g. from an index.
+        private boolean pushDown(final JsonNode step, final List<Step> steps) {
+            if (!"filter".equals(step.get(0).textValue()) || step.size() != 2 || !step.get(1).isObject()
+                || step.get(1).size() != 1 || !step.get(1).has("lambda")) {
+                return false;
+            }
+            final List<ExpressionCompiler.Condition> conditions =
+                ExpressionCompiler.filterConditions(step.get(1).get("lambda").asText());
+            if (conditions == null) {
+                return false;
+            }
+            for (final ExpressionCompiler.Condition condition : conditions) {
+                final Object[] values = { condition.getKey(), condition.getPredicate(), condition.getValue() };
+                final Arg[] args = new Arg[values.length];
+                for (int j = 0; j < args.length; j++) {
+                    final Object value = values[j];
+                    args[j] = parameters -> value;
+                }
+                steps.add(new Step("has", args));
+            }
+            return true;
+        }
+
+        Arg arg(final JsonNode node) throws ScriptException {
+            if (node.isArray()) {
+                final Arg[] items = new Arg[node.size()];
+                for (int i = 0; i < items.length; i++) {
+                    items[i] = arg(node.get(i));
+                }
+                return parameters -> {
+                    final Object[] array = new Object[items.length];
+                    for (int i = 0; i < items.length; i++) {
+                        array[i] = items[i].value(parameters);
+                    }
+                    return array;
+                };
+            } else if (!node.isObject()) {
+                final Object value = scalar(node);
+                return parameters -> value;
+            } else if (node.size() != 1) {
+                throw new IllegalArgumentException("Unsupported traversal plan argument: " + node);
+            }
+
+            final String kind = node.fieldNames().next();
+            final JsonNode value = node.get(kind);
+            if ("$".equals(kind)) {
+                final String name = value.asText();
+                parameterNames.add(name);
+                return parameters -> {
+                    if (parameters == null || !parameters.containsKey(name)) {
+                        throw new IllegalArgumentException("Missing traversal parameter: " + name);
+                    }
+                    return parameters.get(name);
+                };
+            } else if ("lambda".equals(kind)) {
+                final GlobFunction lambda = lambdas.newLambda(value.asText());
+                return parameters -> lambda;
+            } else if ("__".equals(kind)) {
+                final Step[] nested = steps(value);
+                return parameters -> {
+                    Object target = null;
+                    for (final Step step : nested) {
+                        target = step.invoke(target, parameters);
+                    }
+                    return target;
+                };
+            } else if (ENUMS.containsKey(kind)) {
+                for (final Object constant : ENUMS.get(kind).getEnumConstants()) {
+                    if (((Enum) constant).name().equals(value.asText())) {
+                        return parameters -> constant;
+                    }
+                }
+            }
+            throw new IllegalArgumentException("Unsupported traversal plan argument: " + node);
+        }
+    }
+
+    private interface Arg {
+        Object value(Map<String, ?> parameters);
+    }
+
+    /**
+     * One step: a method name and its arguments.  The methods called are cached per target class and argument types.
+     */
+    private static final class Step {
+
+        // The primitive types in widening order (JLS 5.1.2): each widens to the types after it.  char widens to int
+        // and the types after it.
+        private final static List<Class<?>> WIDENING =
+            Arrays.asList(byte.class, short.class, int.class, long.class, float.class, double.class);
+
+        private final static Map<Class<?>, Class<?>> PRIMITIVES = new HashMap<>();
+
+        static {
+            for (final Class<?> type : WIDENING) {
+                PRIMITIVES.put(box(type), type);
+            }
+            PRIMITIVES.put(Character.class, char.class);
+            PRIMITIVES.put(Boolean.class, boolean.class);
+        }
+
+        private final String name;
+        private final Arg[] args;
+        private final Map<List<Class<?>>, Method> methods = new ConcurrentHashMap<>();
+
+        Step(final String name, final Arg[] args) {
+            this.name = name;
+            this.args = args;
+        }
+
+        // Call this step on *target*, or on __ if *target* is null.
+        Object invoke(final Object target, final Map<String, ?> parameters) {
+            final Object[] values = new Object[args.length];
+            final List<Class<?>> signature = new ArrayList<>(args.length + 1);
+            final Class<?> targetClass = target == null ? __.class : target.getClass();
+            signature.add(targetClass);
+            for (int i = 0; i < args.length; i++) {
+                values[i] = args[i].value(parameters);
+                signature.add(values[i] == null ? null : values[i].getClass());
+            }
+            Method method = methods.get(signature);
+            if (method == null) {
+                method = resolve(targetClass, target == null, values);
+                methods.put(signature, method);
+            }
+            try {
+                return method.invoke(target, adapt(method, values));
+            }
+            catch (IllegalAccessException iae) {
+                throw new IllegalStateException(iae);
+            }
+            catch (InvocationTargetException ite) {
+                final Throwable cause = ite.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IllegalStateException("Traversal step " + name + " failed: " + cause, cause);
+            }
+        }
+
+        private Method resolve(final Class<?> targetClass, final boolean isStatic, final Object[] values) {
+            // getMethods() returns methods in no particular order, so visit them in order of signature.
+            final Method[] candidates = targetClass.getMethods();
+            Arrays.sort(candidates, Comparator.comparing(Method::toGenericString));
+            Method best = null;
+            for (final Method method : candidates) {
+                if (!method.getName().equals(name) || method.isBridge()
+                    || Modifier.isStatic(method.getModifiers()) != isStatic
+                    || !Modifier.isPublic(method.getDeclaringClass().getModifiers())
+                    || !applicable(method, values)) {
+                    continue;
+                }
+                if (best == null || moreSpecific(method, best)) {
+                    best = method;
+                }
+            }
+            if (best == null) {
+                throw new IllegalArgumentException("No traversal step " + name + Arrays.toString(values) + " on "
+                                                   + targetClass.getSimpleName());
+            }
+            return best;
+        }
+
+        private static boolean applicable(final Method method, final Object[] values) {
+            final Class<?>[] types = method.getParameterTypes();
+            if (!method.isVarArgs()) {
+                return types.length == values.length && assignable(types, values, types.length);
+            }
+            final int fixed = types.length - 1;
+            if (values.length < fixed || !assignable(types, values, fixed)) {
+                return false;
+            }
+            if (values.length == types.length && values[fixed] instanceof Object[]) {
+                return true;
+            }
+            final Class<?> component = types[fixed].getComponentType();
+            for (int i = fixed; i < values.length; i++) {
+                if (!assignable(component, values[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean assignable(final Class<?>[] types, final Object[] values, final int count) {
+            for (int i = 0; i < count; i++) {
+                if (!assignable(types[i], values[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean assignable(final Class<?> type, final Object value) {
+            if (value == null) {
+                return !type.isPrimitive();
+            } else if (type.isPrimitive()) {
+                // Method.invoke unboxes and widens, e.g. the Integer of a JSON number to the long of limit(long).
+                final Class<?> primitive = PRIMITIVES.get(value.getClass());
+                return primitive != null && widens(primitive, type);
+            }
+            return type.isInstance(value);
+        }
+
+        // True if the primitive type *from* is *to* or widens to it.
+        private static boolean widens(final Class<?> from, final Class<?> to) {
+            if (from == to) {
+                return true;
+            }
+            final int target = WIDENING.indexOf(to);
+            if (from == char.class) {
+                return target >= WIDENING.indexOf(int.class);
+            }
+            final int source = WIDENING.indexOf(from);
+            return source >= 0 && target > source;
+        }
+
+        // Prefer fixed arity to varargs, then more fixed parameters (only varargs methods of different arity can both
+        // apply), then the method whose parameters are all assignable, or widen, to the other's.
+        private static boolean moreSpecific(final Method a, final Method b) {
+            if (a.isVarArgs() != b.isVarArgs()) {
+                return !a.isVarArgs();
+            }
+            final Class<?>[] as = a.getParameterTypes();
+            final Class<?>[] bs = b.getParameterTypes();
+            if (as.length != bs.length) {
+                return as.length > bs.length;
+            }
+            boolean strictly = false;
+            for (int i = 0; i < as.length; i++) {
+                if (!narrower(as[i], bs[i])) {
+                    return false;
+                }
+                strictly |= !as[i].equals(bs[i]);
+            }
+            return strictly;
+        }
+
+        // True if a parameter of type *a* accepts no value that one of type *b* does not.
+        private static boolean narrower(final Class<?> a, final Class<?> b) {
+            return a.isPrimitive() && b.isPrimitive() ? widens(a, b) : box(b).isAssignableFrom(box(a));
+        }
+
+        // Pack trailing values into the varargs array, converting element types as needed.
+        private static Object[] adapt(final Method method, final Object[] values) {
+            if (!method.isVarArgs()) {
+                return values;
+            }
+            final Class<?>[] types = method.getParameterTypes();
+            final int fixed = types.length - 1;
+            final Class<?> component = types[fixed].getComponentType();
+            final Object[] source;
+            if (values.length == types.length && values[fixed] instanceof Object[]) {
+                if (types[fixed].isInstance(values[fixed])) {
+                    return values;
+                }
+                source = (Object[]) values[fixed];
+            } else {
+                source = Arrays.copyOfRange(values, fixed, values.length);
+            }
+            final Object varargs = Array.newInstance(component, source.length);
+            for (int i = 0; i < source.length; i++) {
+                Array.set(varargs, i, source[i]);
+            }
+            final Object[] adapted = Arrays.copyOf(values, types.length);
+            adapted[fixed] = varargs;
+            return adapted;
+        }
+
+        private static Class<?> box(final Class<?> type) {
+            if (!type.isPrimitive()) {
+                return type;
+            } else if (type == int.class) {
+                return Integer.class;
+            } else if (type == long.class) {
+                return Long.class;
+            } else if (type == double.class) {
+                return Double.class;
+            } else if (type == float.class) {
+                return Float.class;
+            } else if (type == boolean.class) {
+                return Boolean.class;
+            } else if (type == short.class) {
+                return Short.class;
+            } else if (type == byte.class) {
+                return Byte.class;
+            }
+            return Character.class;
+        }
+    }
+}
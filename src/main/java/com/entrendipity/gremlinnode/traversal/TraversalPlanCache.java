@@ -0,0 +1,117 @@
+package com.entrendipity.gremlinnode.traversal;
+
+import com.entrendipity.gremlinnode.function.LambdaFactory;
+import com.entrendipity.gremlinnode.util.BoundedCache;
+import javax.script.ScriptException;
+
+/**
+ * A bounded, thread-safe LRU cache of compiled TraversalPlan instances.
+ *
+ * Plans are keyed by their JSON, which holds the structure of the traversal but not its parameters, together with the
+ * factory that creates their lambdas and the imports it compiles them with, as in GroovyLambdaCache.  Whether filters
+ * are pushed down (see TraversalPlan.compile) is a setting of the cache.
+ */
+public class TraversalPlanCache {
+
+    public final static int DEFAULT_MAXIMUM_SIZE = 1000;
+
+    private final static LambdaFactory DEFAULT_LAMBDAS = LambdaFactory.build().create();
+
+    private final int maximumSize;
+    private final boolean pushDownFilters;
+    private final BoundedCache<Key, TraversalPlan> plans;
+
+    public TraversalPlanCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public TraversalPlanCache(final int maximumSize) {
+        this(maximumSize, false);
+    }
+
+    public TraversalPlanCache(final int maximumSize, final boolean pushDownFilters) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.pushDownFilters = pushDownFilters;
+        this.plans = new BoundedCache<>(maximumSize);
+    }
+
+    public TraversalPlan get(final String json) throws ScriptException {
+        return get(json, DEFAULT_LAMBDAS);
+    }
+
+    /**
+     * Look up *json*, compiling it with lambdas created by *lambdas* on a miss.
+     */
+    public TraversalPlan get(final String json, final LambdaFactory lambdas) throws ScriptException {
+        final Key key = new Key(json, lambdas);
+        final TraversalPlan plan = plans.get(key);
+        return plan != null ? plan : plans.putIfAbsent(key, TraversalPlan.compile(json, lambdas, pushDownFilters));
+    }
+
+    public void clear() {
+        plans.clear();
+    }
+
+    public int size() {
+        return plans.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public boolean getPushDownFilters() {
+        return pushDownFilters;
+    }
+
+    public long getHitCount() {
+        return plans.getHitCount();
+    }
+
+    public long getMissCount() {
+        return plans.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return plans.getEvictionCount();
+    }
+
+    public String toString() {
+        return "TraversalPlanCache(size=" + size() + ", maximumSize=" + maximumSize
+            + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + ")";
+    }
+
+    private final static class Key {
+        private final String json;
+        private final LambdaFactory lambdas;
+        private final Object imports;
+        private final int hash;
+
+        Key(final String json, final LambdaFactory lambdas) {
+            this.json = json;
+            this.lambdas = lambdas;
+            this.imports = lambdas.getImports();
+            this.hash = 31 * (31 * json.hashCode() + System.identityHashCode(lambdas)) + imports.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key that = (Key) other;
+            return this.hash == that.hash
+                && this.lambdas == that.lambdas
+                && this.json.equals(that.json)
+                && this.imports.equals(that.imports);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
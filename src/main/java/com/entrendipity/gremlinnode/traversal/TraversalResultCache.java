@@ -0,0 +1,255 @@
+package com.entrendipity.gremlinnode.traversal;
+
+import com.entrendipity.gremlinnode.bridge.ResultEncoder;
+import com.entrendipity.gremlinnode.util.BoundedCache;
+import com.tinkerpop.gremlin.process.Traversal;
+import com.tinkerpop.gremlin.structure.Graph;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe LRU cache of encoded traversal results, for read traversals that are repeated against a graph
+ * that rarely changes.
+ *
+ * Results are keyed by the graph, its version, and a canonical form of the traversal: by default its string form,
+ * which names each step with its arguments, including the source of its lambdas (e.g. GroovyLambda({ it -> ... })).
+ * Every mutation of a graph must bump its version, which discards the results cached for it; lib/graph-wrapper.js and
+ * the element wrappers do so for the mutations they make.  Only traversals without side effects on the graph should
+ * be cached, and lambdas without a stable string form (e.g. JavaScript lambdas) make every traversal a miss.
+ *
+ * The cache is bounded by an estimate of the memory its results hold, rather than by their number, since one result
+ * list may be far larger than another.  Elements in results are references to the graph's own, and are counted as
+ * such.
+ */
+public class TraversalResultCache {
+
+    public final static long DEFAULT_MAXIMUM_BYTES = 64L * 1024 * 1024;
+
+    // Rough per-object costs for the weight estimate: a map entry with its key, and a reference to an existing object.
+    private final static long ENTRY_BYTES = 128;
+    private final static long REFERENCE_BYTES = 16;
+
+    private final long maximumBytes;
+    private final BoundedCache<Key, Object[]> results;
+
+    // The version of each graph seen so far; weak, so that the cache does not keep graphs alive.  Guarded by versions.
+    private final Map<Graph, GraphVersion> versions = new WeakHashMap<>();
+    private final AtomicLong graphIds = new AtomicLong();
+
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder uncacheable = new LongAdder();
+
+    public TraversalResultCache() {
+        this(DEFAULT_MAXIMUM_BYTES);
+    }
+
+    /**
+     * Create a cache whose results are estimated to hold at most *maximumBytes*.
+     */
+    public TraversalResultCache(final long maximumBytes) {
+        if (maximumBytes < 1) {
+            throw new IllegalArgumentException("maximumBytes must be positive: " + maximumBytes);
+        }
+        this.maximumBytes = maximumBytes;
+        this.results = new BoundedCache<>(maximumBytes, (key, encoded) -> weigh(key.canonical, encoded), null);
+    }
+
+    /**
+     * The canonical form of *traversal*, by which its results are cached.
+     */
+    public static String canonical(final Traversal<?, ?> traversal) {
+        return traversal.toString();
+    }
+
+    /**
+     * Return the results of *traversal* on *graph*, encoded by ResultEncoder.encodeAll, running the traversal only
+     * if they are not cached for the current version of the graph.
+     */
+    public Object[] encodeAll(final Graph graph, final Traversal<?, ?> traversal) {
+        return encodeAll(graph, canonical(traversal), traversal);
+    }
+
+    /**
+     * As encodeAll(graph, traversal), but caching the results under *canonical*, e.g. a traversal plan and its
+     * parameters.
+     */
+    public Object[] encodeAll(final Graph graph, final String canonical, final Traversal<?, ?> traversal) {
+        final GraphVersion graphVersion = version(graph);
+        final Key key = new Key(graphVersion, graphVersion.version.get(), canonical);
+        final Object[] encoded = results.get(key);
+        if (encoded != null) {
+            return encoded;
+        }
+
+        // Run the traversal outside the cache's lock; if two threads race, the first result stored wins.  Results of
+        // a graph whose version moved on meanwhile are removed again, since they may be stale; bump removes those
+        // stored before it.
+        final Object[] computed = ResultEncoder.encodeAll(traversal);
+        if (weigh(canonical, computed) > maximumBytes) {
+            uncacheable.increment();
+            return computed;
+        }
+        final Object[] stored = results.putIfAbsent(key, computed);
+        if (graphVersion.version.get() != key.version) {
+            results.remove(key);
+        }
+        return stored;
+    }
+
+    /**
+     * Record that *graph* has changed, discarding the results cached for it.  Returns its new version.
+     */
+    public long bump(final Graph graph) {
+        final GraphVersion version = version(graph);
+        final long bumped = version.version.incrementAndGet();
+        invalidations.add(results.removeIf((key, encoded) -> key.graph == version));
+        return bumped;
+    }
+
+    /**
+     * Record that every graph may have changed, e.g. after a mutation whose graph is not known.
+     */
+    public void bumpAll() {
+        final List<GraphVersion> all;
+        synchronized (versions) {
+            all = new ArrayList<>(versions.values());
+        }
+        for (final GraphVersion version : all) {
+            version.version.incrementAndGet();
+        }
+        invalidations.add(results.removeIf((key, encoded) -> true));
+    }
+
+    /**
+     * The current version of *graph*, which starts at 0.
+     */
+    public long getVersion(final Graph graph) {
+        return version(graph).version.get();
+    }
+
+    public void clear() {
+        results.clear();
+    }
+
+    public int size() {
+        return results.size();
+    }
+
+    /**
+     * The estimated bytes held by the cached results.
+     */
+    public long getWeight() {
+        return results.getWeight();
+    }
+
+    public long getMaximumBytes() {
+        return maximumBytes;
+    }
+
+    public long getHitCount() {
+        return results.getHitCount();
+    }
+
+    public long getMissCount() {
+        return results.getMissCount();
+    }
+
+    public double getHitRate() {
+        return results.getHitRate();
+    }
+
+    public long getEvictionCount() {
+        return results.getEvictionCount();
+    }
+
+    /**
+     * The number of cached results discarded because their graph changed.
+     */
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * The number of results not cached because they alone exceed the maximum.
+     */
+    public long getUncacheableCount() {
+        return uncacheable.sum();
+    }
+
+    public Map<String, Object> getStats() {
+        final Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size());
+        stats.put("weight", getWeight());
+        stats.put("maximumBytes", maximumBytes);
+        stats.put("hits", getHitCount());
+        stats.put("misses", getMissCount());
+        stats.put("hitRate", getHitRate());
+        stats.put("evictions", getEvictionCount());
+        stats.put("invalidations", getInvalidationCount());
+        stats.put("uncacheable", getUncacheableCount());
+        return stats;
+    }
+
+    public String toString() {
+        return "TraversalResultCache(size=" + size() + ", weight=" + getWeight() + ", maximumBytes=" + maximumBytes
+            + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + ")";
+    }
+
+    private GraphVersion version(final Graph graph) {
+        synchronized (versions) {
+            GraphVersion version = versions.get(graph);
+            if (version == null) {
+                version = new GraphVersion(graphIds.incrementAndGet());
+                versions.put(graph, version);
+            }
+            return version;
+        }
+    }
+
+    // Estimate the bytes held by a cache entry: its key, its JSON, and its references to Java objects.
+    private static long weigh(final String canonical, final Object[] encoded) {
+        final String json = (String) encoded[0];
+        final Object[] references = (Object[]) encoded[1];
+        return ENTRY_BYTES + 2L * canonical.length() + 2L * json.length() + REFERENCE_BYTES * references.length;
+    }
+
+    private final static class GraphVersion {
+        private final long id;
+        private final AtomicLong version = new AtomicLong();
+
+        GraphVersion(final long id) {
+            this.id = id;
+        }
+    }
+
+    private final static class Key {
+        private final GraphVersion graph;
+        private final long version;
+        private final String canonical;
+
+        Key(final GraphVersion graph, final long version, final String canonical) {
+            this.graph = graph;
+            this.version = version;
+            this.canonical = canonical;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key that = (Key) other;
+            return this.graph == that.graph && this.version == that.version && this.canonical.equals(that.canonical);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Long.hashCode(graph.id) + Long.hashCode(version)) + canonical.hashCode();
+        }
+    }
+}
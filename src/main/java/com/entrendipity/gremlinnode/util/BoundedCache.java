@@ -0,0 +1,230 @@
+package com.entrendipity.gremlinnode.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * A bounded, thread-safe LRU map, with hit, miss, eviction and expiration counts, behind the caches of compiled
+ * lambdas, closure classes, traversal plans, memoized results and traversal results.
+ *
+ * The cache is bounded by the total weight of its entries, which is their number unless a weigher is given.  Once
+ * it is over its maximum, the least recently used entries are evicted first.  A removal listener, if given, is called
+ * for every entry that leaves the cache other than by being replaced, holding the cache's lock, so it must be quick.
+ *
+ * Values are computed by the callers, outside the lock, so that one slow computation does not stall lookups of other
+ * keys; putIfAbsent then lets the first of two racing computations win.
+ */
+public class BoundedCache<K, V> {
+
+    private final long maximumWeight;
+    private final ToLongBiFunction<? super K, ? super V> weigher;
+    private final BiConsumer<? super K, ? super V> removalListener;
+    private final Map<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Guarded by entries.
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public BoundedCache(final int maximumSize) {
+        this(maximumSize, null);
+    }
+
+    public BoundedCache(final int maximumSize, final BiConsumer<? super K, ? super V> removalListener) {
+        this(maximumSize, (key, value) -> 1L, removalListener);
+    }
+
+    /**
+     * Create a cache whose entries weigh at most *maximumWeight* in total, as weighed by *weigher*, calling
+     * *removalListener*, if it is not null, for each entry removed.
+     */
+    public BoundedCache(final long maximumWeight, final ToLongBiFunction<? super K, ? super V> weigher,
+                        final BiConsumer<? super K, ? super V> removalListener) {
+        if (maximumWeight < 1) {
+            throw new IllegalArgumentException("maximumWeight must be positive: " + maximumWeight);
+        }
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.removalListener = removalListener;
+    }
+
+    /**
+     * The value for *key*, or null on a miss.
+     */
+    public V get(final K key) {
+        return get(key, null);
+    }
+
+    /**
+     * The value for *key*, or null on a miss.  A value for which *expired* holds is removed and counted as a miss.
+     */
+    public V get(final K key, final Predicate<? super V> expired) {
+        final V value;
+        synchronized (entries) {
+            value = entries.get(key);
+            if (value != null && expired != null && expired.test(value)) {
+                remove(key, entries.remove(key));
+                expirations.increment();
+                misses.increment();
+                return null;
+            }
+        }
+        if (value == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return value;
+    }
+
+    /**
+     * Store *value* for *key* unless there already is one, and return whichever value is now cached, which may have
+     * been evicted again at once if it alone weighs more than the maximum.
+     */
+    public V putIfAbsent(final K key, final V value) {
+        synchronized (entries) {
+            final V raced = entries.putIfAbsent(key, value);
+            if (raced != null) {
+                return raced;
+            }
+            weight += weigher.applyAsLong(key, value);
+            evict();
+            return value;
+        }
+    }
+
+    /**
+     * Store *value* for *key*, replacing any value there was.
+     */
+    public void put(final K key, final V value) {
+        synchronized (entries) {
+            final V replaced = entries.put(key, value);
+            if (replaced != null) {
+                weight -= weigher.applyAsLong(key, replaced);
+            }
+            weight += weigher.applyAsLong(key, value);
+            evict();
+        }
+    }
+
+    public V remove(final K key) {
+        synchronized (entries) {
+            final V value = entries.remove(key);
+            if (value != null) {
+                remove(key, value);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Remove every entry for which *filter* holds, and return how many there were.
+     */
+    public int removeIf(final BiPredicate<? super K, ? super V> filter) {
+        int removed = 0;
+        synchronized (entries) {
+            final Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<K, V> entry = iterator.next();
+                if (filter.test(entry.getKey(), entry.getValue())) {
+                    iterator.remove();
+                    remove(entry.getKey(), entry.getValue());
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    public void clear() {
+        removeIf((key, value) -> true);
+    }
+
+    /**
+     * A copy of the cached values, least recently used first.  Neither counts as a lookup nor touches the entries.
+     */
+    public List<V> values() {
+        synchronized (entries) {
+            return new ArrayList<>(entries.values());
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * The total weight of the entries, which is their number unless a weigher was given.
+     */
+    public long getWeight() {
+        synchronized (entries) {
+            return weight;
+        }
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * The fraction of lookups that were hits, or 0 before the first lookup.
+     */
+    public double getHitRate() {
+        final long hitCount = getHitCount();
+        final long total = hitCount + getMissCount();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    public String toString() {
+        return "BoundedCache(size=" + size() + ", weight=" + getWeight() + ", maximumWeight=" + maximumWeight
+            + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + ")";
+    }
+
+    // Remove the least recently used entries until the cache is within its bound.  Called holding entries.
+    private void evict() {
+        final Iterator<Map.Entry<K, V>> eldest = entries.entrySet().iterator();
+        while (weight > maximumWeight && eldest.hasNext()) {
+            final Map.Entry<K, V> entry = eldest.next();
+            eldest.remove();
+            remove(entry.getKey(), entry.getValue());
+            evictions.increment();
+        }
+    }
+
+    // Account for an entry that has left the map.  Called holding entries.
+    private void remove(final K key, final V value) {
+        weight -= weigher.applyAsLong(key, value);
+        if (removalListener != null) {
+            removalListener.accept(key, value);
+        }
+    }
+}
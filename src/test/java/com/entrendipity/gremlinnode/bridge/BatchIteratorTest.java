@@ -0,0 +1,97 @@
+package com.entrendipity.gremlinnode.bridge;
+
+import com.entrendipity.gremlinnode.function.GroovyLambda;
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.script.ScriptException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BatchIteratorTest {
+
+    @Test
+    public void fixedBatchesDrainEverything() {
+        final BatchIterator batches = new BatchIterator(Arrays.asList(1, 2, 3, 4, 5).iterator(), 2);
+        assertFalse(batches.isAdaptive());
+        assertArrayEquals(new Object[] {1, 2}, batches.nextBatch());
+        assertArrayEquals(new Object[] {3, 4}, batches.nextBatch());
+        assertArrayEquals(new Object[] {5}, batches.nextBatch());
+        assertFalse(batches.hasNext());
+        assertEquals(0, batches.nextBatch().length);
+    }
+
+    @Test
+    public void encodedBatchesMatchResultEncoder() {
+        final Graph graph = TinkerFactory.createClassic();
+        final BatchIterator batches = new BatchIterator(graph.V().id(), 4);
+        assertEquals("[1,2,3,4]", batches.nextEncodedBatch()[0]);
+        assertEquals("[5,6]", batches.nextEncodedBatch()[0]);
+        assertEquals("[]", batches.nextEncodedBatch()[0]);
+    }
+
+    @Test
+    public void mappedBatchesCallTheFunctionOncePerBatch() {
+        try {
+            // Each result records the size of the batch it was computed in.
+            final GroovyLambda lambda =
+                new GroovyLambda("{ Object[] xs -> xs.collect { [it * 10, xs.length] } }").asBatch();
+            final BatchIterator batches = new BatchIterator(Arrays.asList(1, 2, 3, 4, 5).iterator(), 3);
+            assertArrayEquals(new Object[] {Arrays.asList(10, 3), Arrays.asList(20, 3), Arrays.asList(30, 3)},
+                              batches.nextBatch(lambda));
+            assertArrayEquals(new Object[] {Arrays.asList(40, 2), Arrays.asList(50, 2)}, batches.nextBatch(lambda));
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void adaptiveBatchesGrowWhileFast() {
+        final List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            items.add(i);
+        }
+        final BatchIterator batches = new BatchIterator(items.iterator(), 1, 64, 1000);
+        assertTrue(batches.isAdaptive());
+        int total = 0;
+        int largest = 0;
+        while (batches.hasNext()) {
+            final int size = batches.nextBatch().length;
+            largest = Math.max(largest, size);
+            total += size;
+        }
+        assertEquals(1000, total);
+        assertEquals(64, largest);
+    }
+
+    @Test
+    public void adaptiveBatchesShrinkWhenSlow() {
+        final List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            items.add(i);
+        }
+        final BatchIterator batches = new BatchIterator(items.stream().peek(i -> {
+            try {
+                Thread.sleep(1);
+            }
+            catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }).iterator(), 2, 64, 0);
+        batches.nextBatch();
+        assertEquals(2, batches.getBatchSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxBatchSizeMustNotBeSmaller() {
+        new BatchIterator(Arrays.asList(1).iterator(), 10, 5);
+    }
+}
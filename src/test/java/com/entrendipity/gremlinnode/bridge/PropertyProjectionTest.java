@@ -0,0 +1,52 @@
+package com.entrendipity.gremlinnode.bridge;
+
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.structure.Vertex;
+import com.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PropertyProjectionTest {
+
+    private Graph graph;
+
+    @Before
+    public void initGraph() {
+        graph = TinkerFactory.createClassic();
+    }
+
+    @Test
+    public void projectsColumnsWithMissingValues() {
+        final Object[][] columns = PropertyProjection.project(graph.V().has("name", "marko").out("knows", "created")
+                                                                  .order().by("name"), "name", "age", "lang");
+        assertEquals(3, columns.length);
+        assertArrayEquals(new Object[] {"josh", "lop", "vadas"}, columns[0]);
+        assertArrayEquals(new Object[] {32, PropertyProjection.MISSING, 27}, columns[1]);
+        assertArrayEquals(new Object[] {PropertyProjection.MISSING, "java", PropertyProjection.MISSING}, columns[2]);
+    }
+
+    @Test
+    public void multiplePropertiesAreLists() {
+        final Vertex marko = graph.V().has("name", "marko").next();
+        marko.property("name", "mark");
+        final Object[][] columns = PropertyProjection.project(new Object[] {marko}, "name");
+        assertEquals(Arrays.asList("marko", "mark"), columns[0][0]);
+    }
+
+    @Test
+    public void unknownIdsAreMissing() {
+        final Object[][] columns = PropertyProjection.projectVertexIds(graph, new Object[] {1, 99}, "name");
+        assertArrayEquals(new Object[] {"marko", PropertyProjection.MISSING}, columns[0]);
+    }
+
+    @Test
+    public void encodesAsMapOfColumns() {
+        final Object[] encoded = PropertyProjection.encodeVertexIds(graph, new Object[] {2, 3}, "name", "age");
+        assertEquals("{\"@\":\"m\",\"v\":{\"name\":[\"vadas\",\"lop\"],\"age\":[27,{\"@\":\"u\"}]}}", encoded[0]);
+    }
+}
@@ -0,0 +1,70 @@
+package com.entrendipity.gremlinnode.bridge;
+
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.structure.Vertex;
+import com.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ResultEncoderTest {
+
+    private Graph graph;
+
+    @Before
+    public void initGraph() {
+        graph = TinkerFactory.createClassic();
+    }
+
+    @Test
+    public void scalarsAreJson() {
+        assertEquals("null", ResultEncoder.encode(null)[0]);
+        assertEquals("true", ResultEncoder.encode(true)[0]);
+        assertEquals("42", ResultEncoder.encode(42L)[0]);
+        assertEquals("0.5", ResultEncoder.encode(0.5f)[0]);
+        assertEquals("\"a\\\"b\\\\c\\n\\u0001\"", ResultEncoder.encode("a\"b\\c\n\u0001")[0]);
+    }
+
+    @Test
+    public void nonFiniteNumbersAreReferences() {
+        final Object[] encoded = ResultEncoder.encode(Double.NaN);
+        assertEquals("{\"@\":\"o\",\"r\":0}", encoded[0]);
+        assertEquals(Double.NaN, ((Object[]) encoded[1])[0]);
+    }
+
+    @Test
+    public void elementsCarryIdAndReference() {
+        final Vertex marko = graph.V().has("name", "marko").next();
+        final Object[] encoded = ResultEncoder.encode(Arrays.asList(marko, "x"));
+        assertEquals("[{\"@\":\"v\",\"id\":1,\"r\":0},\"x\"]", encoded[0]);
+        assertSame(marko, ((Object[]) encoded[1])[0]);
+    }
+
+    @Test
+    public void mapsAreTagged() {
+        final Map<Object, Object> map = new LinkedHashMap<>();
+        map.put("created", 4L);
+        map.put(7, Arrays.asList(1, 2));
+        assertEquals("{\"@\":\"m\",\"v\":{\"created\":4,\"7\":[1,2]}}", ResultEncoder.encode(map)[0]);
+    }
+
+    @Test
+    public void bulkSetsAlternateKeysAndCounts() {
+        final Object result = graph.V().out().values("name").aggregate("x").cap("x").next();
+        final String json = (String) ResultEncoder.encode(result)[0];
+        assertEquals(true, json.startsWith("{\"@\":\"b\",\"v\":["));
+        assertEquals(true, json.contains("\"lop\",3"));
+    }
+
+    @Test
+    public void encodeAllDrainsUpToLimit() {
+        assertEquals("[1,2,3,4,5,6]", ResultEncoder.encodeAll(graph.V().id())[0]);
+        assertEquals("[1,2]", ResultEncoder.encodeAll(graph.V().id(), 2)[0]);
+    }
+}
@@ -0,0 +1,161 @@
+package com.entrendipity.gremlinnode.bridge;
+
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ResultStreamTest {
+
+    @Test
+    public void resultsArriveInOrder() throws InterruptedException {
+        final ResultStream stream = new ResultStream(IntStream.range(0, 1000).iterator(), 16);
+        final List<Object> results = drain(stream, 7);
+        assertEquals(1000, results.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, results.get(i));
+        }
+        assertTrue(stream.isDone());
+        assertEquals(1000, stream.getConsumedCount());
+    }
+
+    @Test
+    public void producerWaitsForTheConsumer() throws InterruptedException {
+        final ResultStream stream = new ResultStream(IntStream.range(0, 100).iterator(), 4);
+        Thread.sleep(50);
+        assertEquals(4, stream.getBuffered());
+        assertEquals(4, stream.getProducedCount());
+        assertTrue(stream.getProducerWaitCount() > 0);
+        assertEquals(100, drain(stream, 3).size());
+    }
+
+    @Test
+    public void cancelStopsTheProducer() throws InterruptedException {
+        final Iterator<Integer> endless = Stream.iterate(0, i -> i + 1).iterator();
+        final ResultStream stream = new ResultStream(endless, 8);
+        assertEquals(2, stream.poll(2, 1000).length);
+        stream.cancel();
+        Thread.sleep(20);
+        final long produced = stream.getProducedCount();
+        Thread.sleep(20);
+        assertEquals(produced, stream.getProducedCount());
+        assertTrue(stream.isDone());
+        assertEquals(0, stream.poll(10, 10).length);
+    }
+
+    @Test
+    public void cancelInterruptsABusyProducer() throws InterruptedException {
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final AtomicInteger hasNextCalls = new AtomicInteger();
+        final Iterator<Object> slow = new Iterator<Object>() {
+            private int next = 0;
+
+            public boolean hasNext() {
+                hasNextCalls.incrementAndGet();
+                return true;
+            }
+
+            public Object next() {
+                if (next > 0) {
+                    try {
+                        Thread.sleep(10000);
+                    }
+                    catch (InterruptedException ie) {
+                        interrupted.countDown();
+                    }
+                }
+                return next++;
+            }
+        };
+        final ResultStream stream = new ResultStream(slow, 8);
+        assertEquals(1, stream.poll(1, 1000).length);
+        stream.cancel();
+        assertTrue("expected the producer to be interrupted", interrupted.await(1, TimeUnit.SECONDS));
+        Thread.sleep(20);
+        assertEquals(1, stream.getProducedCount());
+        assertEquals(2, hasNextCalls.get());
+    }
+
+    @Test
+    public void failureFollowsEarlierResults() throws InterruptedException {
+        final Iterator<Object> failing = new Iterator<Object>() {
+            private int next = 0;
+
+            public boolean hasNext() {
+                return true;
+            }
+
+            public Object next() {
+                if (next == 3) {
+                    throw new IllegalStateException("boom");
+                }
+                return next++;
+            }
+        };
+        final ResultStream stream = new ResultStream(failing, 8);
+        final List<Object> results = new ArrayList<>();
+        try {
+            while (!stream.isDone()) {
+                results.addAll(Arrays.asList(stream.poll(10, 1000)));
+            }
+            assertTrue("expected an IllegalStateException", false);
+        }
+        catch (IllegalStateException ise) {
+            assertEquals("boom", ise.getMessage());
+        }
+        assertEquals(Arrays.asList(0, 1, 2), results);
+        assertTrue(stream.isDone());
+    }
+
+    @Test
+    public void errorsEndTheStream() throws InterruptedException {
+        final Iterator<Object> failing = new Iterator<Object>() {
+            public boolean hasNext() {
+                return true;
+            }
+
+            public Object next() {
+                throw new StackOverflowError("deep");
+            }
+        };
+        final ResultStream stream = new ResultStream(failing, 8);
+        try {
+            stream.poll(10, 1000);
+            assertTrue("expected an IllegalStateException", false);
+        }
+        catch (IllegalStateException ise) {
+            assertTrue(ise.getCause() instanceof StackOverflowError);
+        }
+        assertTrue(stream.isDone());
+    }
+
+    @Test
+    public void encodedBatchesOfATraversal() throws InterruptedException {
+        final Graph graph = TinkerFactory.createClassic();
+        final ResultStream stream = new ResultStream(graph.V().has("name", "marko").values("age"), 1);
+        assertEquals("[29]", stream.pollEncoded(10, 1000)[0]);
+        assertEquals("[]", stream.pollEncoded(10, 1000)[0]);
+        assertTrue(stream.isDone());
+    }
+
+    // Utilities
+
+    private static List<Object> drain(final ResultStream stream, final int batchSize) throws InterruptedException {
+        final List<Object> results = new ArrayList<>();
+        while (!stream.isDone()) {
+            results.addAll(Arrays.asList(stream.poll(batchSize, 1000)));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,112 @@
+package com.entrendipity.gremlinnode.function;
+
+import com.tinkerpop.gremlin.groovy.jsr223.GremlinGroovyScriptEngine;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ComposedGlobFunctionTest {
+
+    @Test
+    public void longChainIsFlat() {
+        try {
+            final Function<Object, Object> increment = x -> (Integer) x + 1;
+            GlobFunction chain = new GroovyLambda("{ x -> x * 10 }");
+            for (int i = 0; i < 20; i++) {
+                chain = chain.andThen(increment);
+            }
+            assertTrue(chain instanceof ComposedGlobFunction);
+            assertEquals(chain.apply(5), 50 + 20);
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void composedThenIsSpliced() {
+        try {
+            final GroovyLambda plusTwo = new GroovyLambda("{ x -> x + 2 }");
+            final GroovyLambda timesTen = new GroovyLambda("{ x -> x * 10 }");
+            final GlobFunction tail = timesTen.andThen(plusTwo);
+            final GlobFunction combined = plusTwo.andThen(tail);
+            assertEquals(combined.apply(1), (1 + 2) * 10 + 2);
+            assertEquals(combined.toString(), plusTwo.toString() + " then " + tail.toString());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void adjacentNegationsCancel() {
+        try {
+            final GroovyLambda lambda = new GroovyLambda("{ x -> x < 100 }");
+            final GlobFunction negated = lambda.negate();
+            assertEquals(negated.toString(), "-(" + lambda.toString() + ")");
+            assertEquals(negated.negate().toString(), "-(-(" + lambda.toString() + "))");
+            assertTrue(negated.negate().test(99));
+            assertTrue(negated.negate().negate().test(100));
+            assertFalse(negated.negate().negate().test(99));
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void negationSurvivesAndThen() {
+        try {
+            // As with Predicate, andThen does not change the result of test(); only the first function is tested.
+            final GroovyLambda lambda = new GroovyLambda("{ x -> x < 100 }");
+            final Function<Object, Object> same = x -> x;
+            final GlobFunction composed = lambda.negate().andThen(same);
+            assertTrue(composed.test(100));
+            assertFalse(composed.negate().test(100));
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void identityStagesAreDropped() {
+        try {
+            final GroovyLambda lambda = new GroovyLambda("{ x -> x + 2 }");
+            final GlobFunction composed = lambda.andThen(Function.identity());
+            assertEquals(composed.toString(), lambda.toString() + " then " + Function.identity().toString());
+            assertEquals(5, composed.apply(3));
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void consumersRunInOrder() {
+        try {
+            final ScriptEngine engine = new GremlinGroovyScriptEngine();
+            final List<String> calls = new ArrayList<>();
+            engine.put("calls", calls);
+            final GroovyLambda first = new GroovyLambda("{ x -> calls.add('first:' + x) }", engine);
+            final Consumer<Object> second = x -> calls.add("second:" + x);
+            final GroovyLambda third = new GroovyLambda("{ x -> calls.add('third:' + x) }", engine);
+            first.andThen(second).andThen(third).accept(1);
+            assertEquals(3, calls.size());
+            assertEquals("first:1", calls.get(0));
+            assertEquals("second:1", calls.get(1));
+            assertEquals("third:1", calls.get(2));
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+}
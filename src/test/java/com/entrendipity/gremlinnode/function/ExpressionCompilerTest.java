@@ -0,0 +1,111 @@
+package com.entrendipity.gremlinnode.function;
+
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.structure.Vertex;
+import com.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import javax.script.ScriptException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ExpressionCompilerTest {
+
+    @Test
+    public void agreesWithGroovyOnVertices() {
+        final Graph graph = TinkerFactory.createClassic();
+        final List<String> closures = Arrays.asList(
+            "{ it.value('name').length() == 5 }",
+            "{ v -> v.value('name').contains('o') || v.label() == 'software' }",
+            "{ v -> v.value('name').startsWith('j') && !v.value('name').endsWith('h') }",
+            "{ v -> v.value('name').toUpperCase() + ':' + v.id() }",
+            "{ v -> v.label() == 'person' && v.value('age') * 2 % 7 >= 3 }");
+        for (final String groovy : closures) {
+            final ExpressionLambda lambda = ExpressionCompiler.tryCompile(groovy);
+            assertNotNull(groovy, lambda);
+            for (final Vertex v : graph.V().toList()) {
+                assertEquals(groovy, groovyApply(groovy, v), lambda.apply(v));
+            }
+        }
+    }
+
+    @Test
+    public void followsGroovyNumericSemantics() {
+        assertEquals(3, ExpressionCompiler.tryCompile("{ a, b -> a + b }").apply(1, 2));
+        assertEquals(3L, ExpressionCompiler.tryCompile("{ a, b -> a + b }").apply(1, 2L));
+        assertEquals(new BigDecimal("3.5"), ExpressionCompiler.tryCompile("{ a -> a + 2.5 }").apply(1));
+        assertEquals(3.5, ExpressionCompiler.tryCompile("{ a -> a + 2.5 }").apply(1.0));
+        assertEquals("a1", ExpressionCompiler.tryCompile("{ a, b -> a + b }").apply("a", 1));
+        assertTrue(ExpressionCompiler.tryCompile("{ a, b -> a == b }").test(1, 1L));
+        assertTrue(ExpressionCompiler.tryCompile("{ a -> a == 1.0 }").test(1));
+        assertTrue(ExpressionCompiler.tryCompile("{ a -> a < 1 }").test(null));
+        assertEquals(-7, ExpressionCompiler.tryCompile("{ -(3 + 4) }").apply(null));
+        assertEquals(2, ExpressionCompiler.tryCompile("{ -> 1 + 1 }").get());
+    }
+
+    @Test
+    public void usesGroovyTruth() {
+        final ExpressionLambda lambda = ExpressionCompiler.tryCompile("{ a -> !a }");
+        assertTrue(lambda.test(""));
+        assertTrue(lambda.test(0));
+        assertTrue(lambda.test(null));
+        assertTrue(lambda.test(Arrays.asList()));
+        assertFalse(lambda.test("x"));
+        assertFalse(lambda.test(Arrays.asList(1)));
+        assertTrue(ExpressionCompiler.tryCompile("{ a, b -> a && b }").test("x", 2));
+    }
+
+    @Test
+    public void primitiveEntryPoints() {
+        final ExpressionLambda lambda = ExpressionCompiler.tryCompile("{ x -> x * 3 > 10 }");
+        assertTrue(lambda.testInt(4));
+        assertFalse(lambda.testLong(3L));
+        assertTrue(lambda.testDouble(3.5));
+        assertEquals(7, ExpressionCompiler.tryCompile("{ s -> s.length() }").applyAsInt("gremlin"));
+        assertSame(lambda, lambda.threadSafe());
+    }
+
+    @Test
+    public void unsupportedClosuresFallBackToGroovy() {
+        final List<String> closures = Arrays.asList(
+            "{ x -> x / 2 }",
+            "{ x -> x.intdiv(2) }",
+            "{ x -> \"${x}!\" }",
+            "{ Integer x -> x + 1 }",
+            "{ x -> x.name }",
+            "{ x -> def y = x; y }",
+            "{ x -> x ? 1 : 2 }",
+            "{ x -> x + 1L }",
+            "{ x -> x + 010 }");
+        for (final String groovy : closures) {
+            assertNull(groovy, ExpressionCompiler.tryCompile(groovy));
+        }
+        try {
+            final GlobFunction fallback = ExpressionCompiler.compile("{ x -> x.intdiv(2) }");
+            assertTrue(fallback instanceof GroovyLambda);
+            assertEquals(3, fallback.apply(7));
+            assertTrue(ExpressionCompiler.compile("{ x -> x - 2 }") instanceof ExpressionLambda);
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    // Utilities
+
+    private static Object groovyApply(final String groovy, final Object a) {
+        try {
+            return new GroovyLambda(groovy).apply(a);
+        }
+        catch (ScriptException se) {
+            throw new IllegalStateException(se);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.entrendipity.gremlinnode.function;
+
+import com.tinkerpop.gremlin.groovy.jsr223.GremlinGroovyScriptEngine;
+import java.util.HashSet;
+import java.util.Set;
+import javax.script.ScriptException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GroovyLambdaCacheTest {
+
+    @Test
+    public void repeatedLookupsHitTheCache() {
+        try {
+            final GremlinGroovyScriptEngine engine = newEngine();
+            final GroovyLambdaCache cache = new GroovyLambdaCache(10);
+            final GroovyLambda first = cache.get("{ x -> x + 2 }", engine);
+            final GroovyLambda second = cache.get("{ x -> x + 2 }", engine);
+            assertSame(first, second);
+            assertEquals(second.apply(5), 7);
+            assertEquals(1, cache.getMissCount());
+            assertEquals(1, cache.getHitCount());
+            assertEquals(1, cache.size());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void distinctEnginesDoNotShareLambdas() {
+        try {
+            final GroovyLambdaCache cache = new GroovyLambdaCache(10);
+            final GroovyLambda first = cache.get("{ x -> x + 2 }", newEngine());
+            final GroovyLambda second = cache.get("{ x -> x + 2 }", newEngine());
+            assertNotSame(first, second);
+            assertEquals(2, cache.getMissCount());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedLambdaIsEvicted() {
+        try {
+            final GremlinGroovyScriptEngine engine = newEngine();
+            final GroovyLambdaCache cache = new GroovyLambdaCache(2);
+            final GroovyLambda one = cache.get("{ x -> x + 1 }", engine);
+            cache.get("{ x -> x + 2 }", engine);
+            cache.get("{ x -> x + 1 }", engine);  // Touch, so that "x + 2" is now the eldest.
+            cache.get("{ x -> x + 3 }", engine);
+            assertEquals(2, cache.size());
+            assertEquals(1, cache.getEvictionCount());
+            assertSame(one, cache.get("{ x -> x + 1 }", engine));
+            assertEquals(3, cache.getMissCount());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void addingImportsInvalidatesPriorLookups() {
+        final GremlinGroovyScriptEngine engine = newEngine();
+        final GroovyLambdaCache cache = new GroovyLambdaCache(10);
+        final String groovy = "{ -> new TestClass() }";
+
+        try {
+            cache.get(groovy, engine);
+            assertTrue("Should have thrown something about TestClass not being defined!", false);
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), se.toString().contains("unable to resolve class TestClass"));
+        }
+        assertEquals(0, cache.size());
+
+        final Set<String> imports = new HashSet<>();
+        imports.add("import com.entrendipity.gremlinnode.testing.TestClass");
+        engine.addImports(imports);
+        try {
+            assertEquals("TestClass", cache.get(groovy, engine).get().toString());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    // Utilities
+
+    private GremlinGroovyScriptEngine newEngine() {
+        return new GremlinGroovyScriptEngine();
+    }
+}
@@ -0,0 +1,159 @@
+package com.entrendipity.gremlinnode.function;
+
+import com.tinkerpop.gremlin.groovy.jsr223.GremlinGroovyScriptEngine;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.script.ScriptException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that evaluate one GroovyLambda from many threads at once.
+ */
+public class GroovyLambdaConcurrencyTest {
+
+    private final static int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private final static int CALLS_PER_THREAD = 20000;
+
+    @Test
+    public void threadSafeIsIdempotent() {
+        try {
+            final GroovyLambda lambda = new GroovyLambda("{ x -> x + 2 }", newEngine());
+            assertFalse(lambda.isThreadSafe());
+            final GroovyLambda threadSafe = lambda.threadSafe();
+            assertTrue(threadSafe.isThreadSafe());
+            assertSame(threadSafe, lambda.threadSafe());
+            assertSame(threadSafe, threadSafe.threadSafe());
+            assertEquals(lambda.toString(), threadSafe.toString());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void concurrentFunctionWorks() {
+        try {
+            final GroovyLambda lambda = new GroovyLambda("{ x -> x * 3 + 1 }", newEngine()).threadSafe();
+            final long mismatches = runConcurrently(thread -> {
+                long bad = 0;
+                for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                    final int x = thread * CALLS_PER_THREAD + i;
+                    if (!lambda.apply(x).equals(x * 3 + 1)) {
+                        bad++;
+                    }
+                }
+                return bad;
+            });
+            assertEquals(0, mismatches);
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void concurrentPredicateWorks() {
+        try {
+            final GroovyLambda lambda = new GroovyLambda("{ x -> x % 2 == 0 }", newEngine()).threadSafe();
+            final long mismatches = runConcurrently(thread -> {
+                long bad = 0;
+                for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                    if (lambda.test(i) != (i % 2 == 0)) {
+                        bad++;
+                    }
+                }
+                return bad;
+            });
+            assertEquals(0, mismatches);
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void concurrentDelegateIsIsolated() {
+        try {
+            // Each thread rebinds the delegate of its own closure; no thread may ever see another thread's delegate.
+            final GroovyLambda lambda = new GroovyLambda("{ -> delegate }", newEngine()).threadSafe();
+            final long mismatches = runConcurrently(thread -> {
+                long bad = 0;
+                final Integer mine = thread;
+                for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                    lambda.closure().setDelegate(mine);
+                    if (lambda.get() != mine) {
+                        bad++;
+                    }
+                }
+                return bad;
+            });
+            assertEquals(0, mismatches);
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void manyCallsFromManyThreads() {
+        try {
+            final GroovyLambda lambda = new GroovyLambda("{ x -> x < 100 }", newEngine()).threadSafe();
+            final long matches = runConcurrently(thread -> {
+                long count = 0;
+                for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                    if (lambda.test(i % 200)) {
+                        count++;
+                    }
+                }
+                return count;
+            });
+            assertEquals((long) THREADS * CALLS_PER_THREAD / 2, matches);
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    // Utilities
+
+    private interface Work {
+        long run(int thread);
+    }
+
+    // Run *work* on THREADS threads at once, and return the sum of the results.
+    private long runConcurrently(final Work work) {
+        final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Callable<Long>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                tasks.add(() -> work.run(thread));
+            }
+            long total = 0;
+            for (Future<Long> future : pool.invokeAll(tasks)) {
+                total += future.get();
+            }
+            return total;
+        }
+        catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    private GremlinGroovyScriptEngine newEngine() {
+        return new GremlinGroovyScriptEngine();
+    }
+}
@@ -2,9 +2,18 @@ package com.entrendipity.gremlinnode.function;
 
 import com.entrendipity.gremlinnode.testing.TestClass;
 import com.tinkerpop.gremlin.groovy.jsr223.GremlinGroovyScriptEngine;
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.structure.Vertex;
+import com.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
 import com.tinkerpop.gremlin.util.function.TriConsumer;
 import groovy.lang.Closure;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.BiConsumer;
@@ -15,6 +24,7 @@ import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
@@ -397,6 +407,222 @@ public class GroovyLambdaTest {
         }
     }
 
+    // ToIntFunction, ToLongFunction, ToDoubleFunction
+
+    @Test
+    public void primitiveFunctionsWork() {
+        try {
+            final GroovyLambda lambda = new GroovyLambda("{ x -> x * 2 }");
+            assertEquals(lambda.applyAsInt(21), 42);
+            assertEquals(lambda.applyAsLong(21L), 42L);
+            assertEquals(lambda.applyAsDouble(1.25), 2.5, 0.0);
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void primitiveBiFunctionsWork() {
+        try {
+            final GroovyLambda lambda = new GroovyLambda("{ x, y -> x * y }");
+            assertEquals(lambda.applyAsInt(6, 7), 42);
+            assertEquals(lambda.applyAsLong(6L, 7L), 42L);
+            assertEquals(lambda.applyAsDouble(0.5, 3), 1.5, 0.0);
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    // IntPredicate, LongPredicate, DoublePredicate
+
+    @Test
+    public void primitivePredicatesWork() {
+        try {
+            final GroovyLambda lambda = new GroovyLambda("{ x -> x < 100 }");
+            assertTrue(lambda.testInt(99));
+            assertFalse(lambda.testLong(100L));
+            assertTrue(lambda.asDoublePredicate().test(99.5));
+            assertFalse(lambda.asIntPredicate().negate().test(0));
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    // Comparators on primitive keys
+
+    @Test
+    public void primitiveComparatorsWork() {
+        try {
+            final GroovyLambda length = new GroovyLambda("{ s -> s.length() }");
+            final List<String> names = new ArrayList<>(Arrays.asList("marko", "lop", "ripple", "josh"));
+            Collections.sort(names, length.comparingInt());
+            assertEquals(Arrays.asList("lop", "josh", "marko", "ripple"), names);
+            Collections.sort(names, length.comparingDouble().reversed());
+            assertEquals(Arrays.asList("ripple", "marko", "josh", "lop"), names);
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    // Static compilation
+
+    @Test
+    public void compileStaticFunctionWorks() {
+        try {
+            final GroovyLambda lambda = GroovyLambda.compileStatic("{ int x -> x + 2 }", newEngine());
+            assertEquals(lambda.getCompilation(), GroovyLambda.Compilation.STATIC);
+            assertEquals(lambda.apply(5), 7);
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void compileStaticVertexPredicateWorks() {
+        try {
+            final GroovyLambda lambda = GroovyLambda.compileStatic(
+                "{ Vertex v -> ((String) v.value('name')).length() == 5 }", newEngine());
+            final Graph graph = TinkerFactory.createClassic();
+            long count = 0;
+            final Iterator<Vertex> vertices = graph.V();
+            while (vertices.hasNext()) {
+                if (lambda.test(vertices.next())) {
+                    count++;
+                }
+            }
+            assertEquals(3, count);  // marko, vadas, peter
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void typeCheckedPredicateWorks() {
+        try {
+            final GroovyLambda lambda = GroovyLambda.typeChecked("{ Integer x -> x < 100 }", newEngine());
+            assertTrue(lambda.test(99));
+            assertFalse(lambda.test(100));
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void compileStaticReportsTypeErrors() {
+        try {
+            // The parameter is untyped, so it is an Object, which has no method length().
+            GroovyLambda.compileStatic("{ x -> x.length() }", newEngine());
+            assertTrue("Should have failed static compilation!", false);
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), se.getMessage().contains("@groovy.transform.CompileStatic"));
+            assertTrue(se.toString(), se.getMessage().contains("{ x -> x.length() }"));
+        }
+    }
+
+    @Test
+    public void batchMethodsCallOrdinaryClosuresPerInput() {
+        try {
+            final GroovyLambda lambda = new GroovyLambda("{ x -> x % 2 == 0 }");
+            assertFalse(lambda.isBatch());
+            assertArrayEquals(new Object[] {false, true, false}, lambda.applyAll(new Object[] {1, 2, 3}));
+            final BitSet passed = lambda.testAll(Arrays.asList(1, 2, 3, 4));
+            assertEquals(2, passed.cardinality());
+            assertTrue(passed.get(1));
+            assertTrue(passed.get(3));
+
+            final List<Object> seen = new ArrayList<>();
+            final GroovyLambda consumer = new GroovyLambda("{ x -> delegate.add(x) }");
+            consumer.closure().setDelegate(seen);
+            consumer.acceptAll(new Object[] {"a", "b"});
+            assertEquals(Arrays.asList("a", "b"), seen);
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void batchClosuresAreCalledOncePerBatch() {
+        try {
+            // Each result records the size of the batch it was computed in.
+            final GroovyLambda lambda = new GroovyLambda("{ Object[] xs -> xs.collect { it * xs.length } }").asBatch();
+            assertTrue(lambda.isBatch());
+            assertArrayEquals(new Object[] {3, 6, 9}, lambda.applyAll(new Object[] {1, 2, 3}));
+            assertEquals(7, lambda.apply(7));
+            assertEquals(7, lambda.applyAsInt(7));
+
+            final GroovyLambda predicate = new GroovyLambda("{ xs -> xs.collect { it > 1 } }").threadSafe().asBatch();
+            assertEquals(BitSet.valueOf(new long[] {6}), predicate.testAll(new Object[] {1, 2, 3}));
+            assertTrue(predicate.test(2));
+            assertTrue(predicate.isThreadSafe());
+            assertTrue(predicate.threadSafe().isBatch());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void varargsClosuresAreNotBatchClosures() {
+        try {
+            final GroovyLambda lambda = new GroovyLambda("{ Object[] args -> args.length }");
+            assertFalse(lambda.isBatch());
+            assertEquals(1, lambda.apply("a"));
+            assertEquals(2, lambda.apply("a", "b"));
+            assertArrayEquals(new Object[] {1, 1}, lambda.applyAll(new Object[] {"a", "b"}));
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void batchClosuresTakeOneInputAtATime() {
+        try {
+            final GroovyLambda lambda = new GroovyLambda("{ xs -> xs }").asBatch();
+            lambda.apply(1, 2);
+            assertTrue("Should have rejected two arguments!", false);
+        }
+        catch (UnsupportedOperationException uoe) {
+            assertTrue(uoe.toString(), uoe.getMessage().contains("batch lambda"));
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+        try {
+            new GroovyLambda("{ a, b -> a }").asBatch();
+            assertTrue("Should have rejected a closure of two parameters!", false);
+        }
+        catch (IllegalArgumentException iae) {
+            assertTrue(iae.toString(), iae.getMessage().contains("single parameter"));
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void batchClosuresReturnOneResultPerInput() {
+        try {
+            new GroovyLambda("{ Object[] xs -> [xs.length] }").asBatch().applyAll(new Object[] {1, 2});
+            assertTrue("Should have rejected one result for two inputs!", false);
+        }
+        catch (IllegalStateException ise) {
+            assertTrue(ise.toString(), ise.getMessage().contains("for a batch of 2 inputs"));
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
     // Utilities
 
     private GremlinGroovyScriptEngine newEngine() {
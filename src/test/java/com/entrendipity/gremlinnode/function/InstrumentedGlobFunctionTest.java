@@ -0,0 +1,135 @@
+package com.entrendipity.gremlinnode.function;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.script.ScriptException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InstrumentedGlobFunctionTest {
+
+    @Test
+    public void countsInvocationsAndErrors() {
+        try {
+            final LambdaMetricsRegistry registry = new LambdaMetricsRegistry();
+            final GroovyLambda lambda = new GroovyLambda("{ x -> 10.intdiv(x) }");
+            final InstrumentedGlobFunction instrumented = new InstrumentedGlobFunction(lambda, registry);
+            assertEquals(lambda.toString(), instrumented.toString());
+
+            assertEquals(5, instrumented.apply(2));
+            assertEquals(2, instrumented.applyAsInt(5));
+            try {
+                instrumented.apply(0);
+                assertTrue("expected an ArithmeticException", false);
+            }
+            catch (ArithmeticException ae) {
+                // Expected.
+            }
+
+            final LambdaMetrics metrics = instrumented.getMetrics();
+            assertEquals(3, metrics.getInvocationCount());
+            assertEquals(1, metrics.getErrorCount());
+            assertTrue(metrics.getTotalNanos() > 0);
+            assertEquals(3, registry.getInvocationCount(lambda.toString()));
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void lambdasWithTheSameSourceShareMetrics() {
+        try {
+            final LambdaMetricsRegistry registry = new LambdaMetricsRegistry();
+            final GlobFunction first = new InstrumentedGlobFunction(new GroovyLambda("{ x -> x }"), registry);
+            final GlobFunction second = new InstrumentedGlobFunction(new GroovyLambda("{ x -> x }"), registry);
+            first.test(true);
+            second.test(true);
+            assertEquals(1, registry.getLambdaCount());
+            assertEquals(2, registry.getTotalInvocationCount());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void primitiveEntryPointsUnboxOtherFunctions() {
+        try {
+            final GlobFunction memoized = new MemoizingGlobFunction(new GroovyLambda("{ x -> x * 2 }"));
+            final InstrumentedGlobFunction instrumented =
+                new InstrumentedGlobFunction(memoized, new LambdaMetricsRegistry());
+            assertEquals(6, instrumented.applyAsInt(3));
+            assertEquals(6L, instrumented.applyAsLong(3));
+            assertEquals(6.0, instrumented.applyAsDouble(3), 0.0);
+            assertEquals(3, instrumented.getMetrics().getInvocationCount());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void registryDropsTheLeastRecentlyInstrumented() {
+        final LambdaMetricsRegistry registry = new LambdaMetricsRegistry(2);
+        registry.metricsFor("{ -> 1 }").record(100);
+        registry.metricsFor("{ -> 2 }").record(100);
+        registry.metricsFor("{ -> 1 }");
+        registry.metricsFor("{ -> 3 }");
+        assertEquals(2, registry.getLambdaCount());
+        assertEquals(1, registry.getDroppedLambdaCount());
+        assertEquals(0, registry.getInvocationCount("{ -> 2 }"));
+        assertEquals(1, registry.getInvocationCount("{ -> 1 }"));
+    }
+
+    @Test
+    public void percentilesFollowTheHistogram() {
+        final LambdaMetrics metrics = new LambdaMetrics("test");
+        for (int i = 0; i < 99; i++) {
+            metrics.record(1000);
+        }
+        metrics.record(1000000);
+        assertEquals(1024, metrics.getPercentileNanos(0.5));
+        assertEquals(1024, metrics.getPercentileNanos(0.99));
+        assertEquals(1L << 20, metrics.getPercentileNanos(1.0));
+    }
+
+    @Test
+    public void snapshotIsJson() throws IOException {
+        try {
+            final LambdaMetricsRegistry registry = new LambdaMetricsRegistry();
+            final GlobFunction instrumented = new InstrumentedGlobFunction(new GroovyLambda("{ x -> x + 1 }"),
+                                                                           registry);
+            for (int i = 0; i < 10; i++) {
+                instrumented.apply(i);
+            }
+            final JsonNode snapshot = new ObjectMapper().readTree(registry.snapshot());
+            final JsonNode lambda = snapshot.get(instrumented.toString());
+            assertEquals(10, lambda.get("invocations").asLong());
+            assertEquals(0, lambda.get("errors").asLong());
+            assertTrue(lambda.get("histogram").isArray());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void registersWithJmx() throws JMException {
+        final LambdaMetricsRegistry registry = new LambdaMetricsRegistry();
+        final ObjectName name = registry.register("com.entrendipity.gremlinnode:type=LambdaMetrics,name=test");
+        try {
+            registry.metricsFor("{ -> 1 }").record(100);
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "TotalInvocationCount"));
+        }
+        finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.entrendipity.gremlinnode.function;
+
+import com.tinkerpop.gremlin.structure.Direction;
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.structure.Vertex;
+import com.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import javax.script.ScriptException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class IsolatedClosureCompilerTest {
+
+    @Test
+    public void identicalSourcesShareAClass() {
+        try {
+            final IsolatedClosureCompiler compiler = new IsolatedClosureCompiler();
+            final GroovyLambda first = compiler.compile("{ x -> x + 1 }");
+            final GroovyLambda second = compiler.compile("{ x -> x + 1 }");
+            assertNotSame(first, second);
+            assertSame(first.closure().getClass(), second.closure().getClass());
+            assertEquals(3, second.apply(2));
+            assertEquals(1, compiler.size());
+            assertEquals(1, compiler.getHitCount());
+            assertEquals(1, compiler.getLoaderCount());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void distinctSourcesUseDistinctLoaders() {
+        try {
+            final IsolatedClosureCompiler compiler = new IsolatedClosureCompiler();
+            final GroovyLambda first = compiler.compile("{ x -> x + 1 }");
+            final GroovyLambda second = compiler.compile("{ x -> x + 2 }");
+            assertNotSame(first.closure().getClass().getClassLoader(), second.closure().getClass().getClassLoader());
+            assertEquals(2, compiler.getLoaderCount());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void staticClosuresSeeGremlinTypes() {
+        try {
+            final Graph graph = TinkerFactory.createClassic();
+            final IsolatedClosureCompiler compiler = new IsolatedClosureCompiler();
+            final String groovy = "{ Vertex v -> ((String) v.value('name')).length() }";
+            final GroovyLambda lambda = compiler.compile(groovy, GroovyLambda.Compilation.STATIC);
+            final Vertex marko = graph.V().has("name", "marko").next();
+            assertEquals(5, lambda.applyAsInt(marko));
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void importsApplyToLaterCompilations() {
+        final IsolatedClosureCompiler compiler = new IsolatedClosureCompiler();
+        final String groovy = "{ -> new TestClass() }";
+        try {
+            compiler.compile(groovy);
+            assertTrue("Should have thrown something about TestClass not being defined!", false);
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), se.toString().contains("unable to resolve class TestClass"));
+        }
+
+        compiler.addImports(Collections.singleton("import com.entrendipity.gremlinnode.testing.TestClass"));
+        try {
+            assertEquals("TestClass", compiler.compile(groovy).get().toString());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void closuresSeeTheEngineImports() {
+        try {
+            final String groovy = "{ -> [OUT, Direction.IN] }";
+            final Object expected = Arrays.asList(Direction.OUT, Direction.IN);
+            assertEquals(expected, new GroovyLambda(groovy).get());
+            assertEquals(expected, new IsolatedClosureCompiler().compile(groovy).get());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void evictedClassesAreUnloaded() throws InterruptedException {
+        try {
+            final IsolatedClosureCompiler compiler = new IsolatedClosureCompiler(2);
+            for (int i = 0; i < 20; i++) {
+                assertEquals(i, compiler.compile("{ -> " + i + " }").get());
+            }
+            assertEquals(2, compiler.size());
+            assertEquals(18, compiler.getEvictionCount());
+
+            for (int attempt = 0; attempt < 20 && compiler.getCollectedLoaderCount() == 0; attempt++) {
+                System.gc();
+                Thread.sleep(50);
+            }
+            // System.gc() is only a hint, and the JVM may keep the classes anyway, so unloading is not asserted.
+            assumeTrue(compiler.toString(), compiler.getCollectedLoaderCount() > 0);
+            assertTrue(compiler.getLiveLoaderCount() < 20);
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.entrendipity.gremlinnode.function;
+
+import com.tinkerpop.gremlin.groovy.jsr223.GremlinGroovyScriptEngine;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.script.ScriptException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LambdaWarmupTest {
+
+    @Test
+    public void compilesIntoTheCache() {
+        try {
+            final GremlinGroovyScriptEngine engine = new GremlinGroovyScriptEngine();
+            final GroovyLambdaCache cache = new GroovyLambdaCache();
+            final List<String> closures = Arrays.asList("{ x -> x + 1 }", "{ x -> x * 2 }", "{ x -> x - 3 }");
+            final List<LambdaWarmup.Report> reports = new LambdaWarmup(cache, engine, 2).warm(closures);
+
+            assertEquals(3, reports.size());
+            for (int i = 0; i < reports.size(); i++) {
+                assertEquals(closures.get(i), reports.get(i).getGroovy());
+                assertTrue(reports.get(i).isCompiled());
+                assertTrue(reports.get(i).getCompileMillis() >= 0);
+            }
+            assertEquals(3, cache.size());
+            final long hits = cache.getHitCount();
+            assertSame(cache.get("{ x -> x * 2 }", engine), cache.get("{ x -> x * 2 }", engine));
+            assertEquals(hits + 2, cache.getHitCount());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void runsSamplesAndReportsErrors() {
+        final LambdaWarmup warmup = new LambdaWarmup(new GroovyLambdaCache(), new GremlinGroovyScriptEngine(), 4);
+        final List<LambdaWarmup.Report> reports = warmup.warm(
+            Arrays.asList("{ x -> x.length() }", "{ x -> x.noSuchMethod() }", "{ x -> "),
+            new Object[] {"a", "bb"}, 10);
+
+        assertNull(reports.get(0).getError());
+        assertEquals(20, reports.get(0).getInvocations());
+
+        assertTrue(reports.get(1).isCompiled());
+        assertTrue(reports.get(1).getError().contains("noSuchMethod"));
+
+        assertFalse(reports.get(2).isCompiled());
+        assertEquals(0, reports.get(2).getInvocations());
+        assertEquals(false, LambdaWarmup.summarize(reports).get(2).get("compiled"));
+    }
+
+    @Test
+    public void importsPrecedeCompilation() {
+        final LambdaWarmup warmup = new LambdaWarmup(new GroovyLambdaCache(), new GremlinGroovyScriptEngine(), 1)
+            .addImports(Collections.singletonList("com.entrendipity.gremlinnode.testing.TestClass"));
+        final List<Map<String, Object>> summaries = LambdaWarmup.summarize(
+            warmup.warm(Collections.singletonList("{ -> new TestClass() }")));
+        assertNull(summaries.get(0).get("error"));
+    }
+}
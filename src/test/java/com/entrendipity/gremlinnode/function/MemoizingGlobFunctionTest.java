@@ -0,0 +1,140 @@
+package com.entrendipity.gremlinnode.function;
+
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.structure.Vertex;
+import com.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import javax.script.ScriptException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MemoizingGlobFunctionTest {
+
+    @Test
+    public void repeatedArgumentsAreComputedOnce() {
+        try {
+            final AtomicInteger calls = new AtomicInteger();
+            final MemoizingGlobFunction memoized = new MemoizingGlobFunction(counted("{ x -> x * 10 }", calls));
+            assertEquals(memoized.apply(1), 10);
+            assertEquals(memoized.apply(2), 20);
+            assertEquals(memoized.apply(1), 10);
+            assertEquals(memoized.apply(1), 10);
+            assertEquals(2, calls.get());
+            assertEquals(2, memoized.getHitCount());
+            assertEquals(2, memoized.getMissCount());
+            assertEquals(0.5, memoized.getHitRate(), 1e-9);
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void verticesAreKeyedById() {
+        try {
+            final Graph graph = TinkerFactory.createClassic();
+            final AtomicInteger calls = new AtomicInteger();
+            final MemoizingGlobFunction memoized =
+                new MemoizingGlobFunction(counted("{ v -> v.value('name').length() == 5 }", calls));
+            final List<Vertex> first = graph.V().toList();
+            final List<Vertex> second = graph.V().toList();
+            for (Vertex v : first) {
+                memoized.apply(v);
+            }
+            for (Vertex v : second) {
+                memoized.apply(v);
+            }
+            assertEquals(first.size(), calls.get());
+            assertEquals(first.size(), memoized.getHitCount());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void entryPointsAreCachedSeparately() {
+        try {
+            final MemoizingGlobFunction memoized = new MemoizingGlobFunction(new GroovyLambda("{ x -> x > 1 }"));
+            assertEquals(memoized.apply(2), true);
+            assertTrue(memoized.test(2));
+            assertFalse(memoized.test(1));
+            assertFalse(memoized.test(1));
+            assertEquals(1, memoized.getHitCount());
+            assertEquals(3, memoized.size());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void nullResultsAreCached() {
+        try {
+            final AtomicInteger calls = new AtomicInteger();
+            final MemoizingGlobFunction memoized = new MemoizingGlobFunction(counted("{ x -> null }", calls));
+            assertNull(memoized.apply("a"));
+            assertNull(memoized.apply("a"));
+            assertEquals(1, calls.get());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        try {
+            final AtomicInteger calls = new AtomicInteger();
+            final MemoizingGlobFunction memoized = new MemoizingGlobFunction(counted("{ x -> x }", calls), 2);
+            memoized.apply(1);
+            memoized.apply(2);
+            memoized.apply(1);
+            memoized.apply(3);  // evicts 2
+            assertEquals(2, memoized.size());
+            assertEquals(1, memoized.getEvictionCount());
+            memoized.apply(1);
+            assertEquals(3, calls.get());
+            memoized.apply(2);
+            assertEquals(4, calls.get());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void entriesExpire() throws InterruptedException {
+        try {
+            final AtomicInteger calls = new AtomicInteger();
+            final MemoizingGlobFunction memoized = new MemoizingGlobFunction(counted("{ x -> x }", calls), 10, 20);
+            memoized.apply(1);
+            memoized.apply(1);
+            assertEquals(1, calls.get());
+            Thread.sleep(50);
+            memoized.apply(1);
+            assertEquals(2, calls.get());
+            assertEquals(1, memoized.getExpirationCount());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    // Utilities
+
+    // A lambda for *groovy* that counts its invocations in *calls*.
+    private static GlobFunction counted(final String groovy, final AtomicInteger calls) throws ScriptException {
+        final Function<Object, Object> count = x -> {
+            calls.incrementAndGet();
+            return x;
+        };
+        return new GroovyLambda(groovy).andThen(count);
+    }
+}
@@ -0,0 +1,101 @@
+package com.entrendipity.gremlinnode.function;
+
+import com.tinkerpop.gremlin.groovy.jsr223.GremlinGroovyScriptEngine;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.script.ScriptException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ScriptEnginePoolTest {
+
+    @Test
+    public void compilesConcurrently() throws Exception {
+        final ScriptEnginePool pool = new ScriptEnginePool(2);
+        final ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<GroovyLambda>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                final String groovy = "{ x -> x + " + i + " }";
+                futures.add(threads.submit(() -> pool.compile(groovy)));
+            }
+            for (int i = 0; i < 32; i++) {
+                assertEquals(1 + i, futures.get(i).get().apply(1));
+            }
+        }
+        finally {
+            threads.shutdownNow();
+        }
+        assertEquals(32, pool.getBorrowCount());
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(2, pool.getIdleCount());
+        assertTrue(pool.getMeanWaitMillis() >= 0);
+    }
+
+    @Test
+    public void importsReachEveryEngine() throws InterruptedException {
+        final ScriptEnginePool pool = new ScriptEnginePool(2);
+        final String groovy = "{ -> new TestClass() }";
+
+        // Hold one engine while the import is added, so that it has to catch up when it is next borrowed.
+        final GremlinGroovyScriptEngine busy = pool.borrow();
+        pool.addImports(Collections.singleton("import com.entrendipity.gremlinnode.testing.TestClass"));
+        assertEquals(0.5, pool.getUtilization(), 1e-9);
+        pool.release(busy);
+
+        final GremlinGroovyScriptEngine first = pool.borrow();
+        final GremlinGroovyScriptEngine second = pool.borrow();
+        assertNotSame(first, second);
+        try {
+            assertEquals("TestClass", new GroovyLambda(groovy, first).get().toString());
+            assertEquals("TestClass", new GroovyLambda(groovy, second).get().toString());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+        finally {
+            pool.release(first);
+            pool.release(second);
+        }
+    }
+
+    @Test
+    public void cacheSharesLambdasAcrossThePool() {
+        try {
+            final ScriptEnginePool pool = new ScriptEnginePool(2);
+            final GroovyLambdaCache cache = new GroovyLambdaCache();
+            final GroovyLambda first = cache.get("{ x -> x * 2 }", pool, GroovyLambda.Compilation.DYNAMIC);
+            final GroovyLambda second = cache.get("{ x -> x * 2 }", pool, GroovyLambda.Compilation.DYNAMIC);
+            assertSame(first, second);
+            assertEquals(1, cache.getHitCount());
+
+            pool.addImports(Collections.singleton("import com.entrendipity.gremlinnode.testing.TestClass"));
+            assertNotSame(first, cache.get("{ x -> x * 2 }", pool, GroovyLambda.Compilation.DYNAMIC));
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void warmupCompilesOnThePool() {
+        final ScriptEnginePool pool = new ScriptEnginePool(2);
+        final GroovyLambdaCache cache = new GroovyLambdaCache();
+        final LambdaWarmup warmup = new LambdaWarmup(cache, pool, 4);
+        warmup.addImports(Collections.singleton("com.entrendipity.gremlinnode.testing.TestClass"));
+        final List<LambdaWarmup.Report> reports = warmup.warm(Arrays.asList("{ -> new TestClass() }", "{ x -> x }"));
+        assertEquals(2, reports.size());
+        assertTrue(reports.get(0).toString(), reports.get(0).isCompiled());
+        assertTrue(reports.get(1).isCompiled());
+        assertEquals(2, pool.getBorrowCount());
+    }
+}
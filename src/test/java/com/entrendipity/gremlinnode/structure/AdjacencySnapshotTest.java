@@ -0,0 +1,79 @@
+package com.entrendipity.gremlinnode.structure;
+
+import com.tinkerpop.gremlin.process.graph.traversal.GraphTraversal;
+import com.tinkerpop.gremlin.structure.Direction;
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.structure.Vertex;
+import com.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdjacencySnapshotTest {
+
+    @Test
+    public void walksMatchTraversals() {
+        final Graph graph = TinkerFactory.createClassic();
+        final AdjacencySnapshot snapshot = AdjacencySnapshot.build(graph);
+        assertEquals(6, snapshot.getVertexCount());
+        assertEquals(6, snapshot.getEdgeCount());
+        assertEquals(2, snapshot.getLabelCount());
+
+        assertArrayEquals(ids(graph.V(1).out()), sorted(snapshot.walk(new Object[] {1}, "[[\"out\"]]")));
+        assertArrayEquals(ids(graph.V(1).out("knows").out("created")),
+                          sorted(snapshot.walk(new Object[] {1}, "[[\"out\", \"knows\"], [\"out\", \"created\"]]")));
+        assertArrayEquals(ids(graph.V(3).in("created").both()),
+                          sorted(snapshot.walk(new Object[] {3}, "[[\"in\", \"created\"], [\"both\"]]")));
+        assertArrayEquals(ids(graph.V(1, 4).both("knows", "created")),
+                          sorted(snapshot.walk(new Object[] {1, 4, 99}, "[[\"both\", \"created\", \"knows\"]]")));
+        assertEquals(0, snapshot.walk(new Object[] {1}, "[[\"out\", \"unknown\"]]").length);
+    }
+
+    @Test
+    public void reachVisitsEachVertexOnce() {
+        final AdjacencySnapshot snapshot = AdjacencySnapshot.build(TinkerFactory.createClassic());
+        final BitSet frontier = new BitSet();
+        frontier.set(snapshot.indexOf(3));
+        frontier.set(snapshot.indexOf(5));
+        final BitSet creators = snapshot.reach(frontier, Direction.IN, "created");
+        assertEquals(3, creators.cardinality());
+        assertTrue(creators.get(snapshot.indexOf(4)));
+        assertEquals(4, snapshot.expand(new int[] {snapshot.indexOf(3), snapshot.indexOf(5)}, Direction.IN).length);
+        assertEquals(2, snapshot.degree(snapshot.indexOf(1), Direction.OUT, snapshot.labelIndexOf("knows")));
+    }
+
+    @Test
+    public void rebuildRereadsChangedVertices() {
+        final Graph graph = TinkerFactory.createClassic();
+        final AdjacencySnapshot before = AdjacencySnapshot.build(graph);
+        final Vertex marko = graph.V(1).next();
+        final Vertex stephen = graph.addVertex("name", "stephen");
+        marko.addEdge("mentors", stephen);
+        graph.V(4).outE("created").has("weight", 0.4f).next().remove();
+
+        final AdjacencySnapshot after = before.rebuild(graph, Arrays.asList(1, stephen.id(), 4, 3));
+        assertEquals(7, after.getVertexCount());
+        assertEquals(6, after.getEdgeCount());
+        assertArrayEquals(new Object[] {stephen.id()}, after.walk(new Object[] {1}, "[[\"out\", \"mentors\"]]"));
+        assertArrayEquals(ids(graph.V(4).out()), sorted(after.walk(new Object[] {4}, "[[\"out\"]]")));
+        assertArrayEquals(ids(graph.V().out().in()), sorted(after.walk(graph.V().id().toList().toArray(),
+                                                                        "[[\"out\"], [\"in\"]]")));
+        assertEquals(6, before.getEdgeCount());
+    }
+
+    // Utilities
+
+    private static Object[] ids(final GraphTraversal<?, Vertex> traversal) {
+        return sorted(traversal.id().toList().toArray());
+    }
+
+    private static Object[] sorted(final Object[] ids) {
+        Arrays.sort(ids);
+        return ids;
+    }
+}
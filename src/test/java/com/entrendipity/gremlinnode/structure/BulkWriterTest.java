@@ -0,0 +1,109 @@
+package com.entrendipity.gremlinnode.structure;
+
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BulkWriterTest {
+
+    @Test
+    public void writesColumnarBatches() {
+        final Graph graph = TinkerGraph.open();
+        final BulkWriter writer = BulkWriter.build().batchSize(2).create(graph);
+        assertEquals(3, writer.addVertices("{\"ids\": [1, 2, 3], \"labels\": [\"person\", \"person\", \"software\"],"
+                                           + " \"properties\": {\"name\": [\"marko\", \"vadas\", \"lop\"],"
+                                           + " \"age\": [29, 27, null]}}"));
+        assertEquals(2, writer.addEdges("{\"out\": [1, 1], \"in\": [2, 3], \"labels\": [\"knows\", \"created\"],"
+                                        + " \"properties\": {\"weight\": [0.5, 0.4]}}"));
+
+        assertEquals("tinkergraph[vertices:3 edges:2]", graph.toString());
+        assertEquals(29, (int) graph.V().has("name", "marko").values("age").next());
+        assertEquals(0L, (long) graph.V().has("name", "lop").values("age").count().next());
+        assertEquals("software", graph.V().has("name", "marko").out("created").label().next());
+        assertEquals(0.5, graph.V().has("name", "marko").outE("knows").values("weight").next());
+        assertEquals(3, writer.getVertexCount());
+        assertEquals(2, writer.getEdgeCount());
+    }
+
+    @Test
+    public void setsVertexProperties() {
+        final Graph graph = TinkerGraph.open();
+        final BulkWriter writer = BulkWriter.build().create(graph);
+        writer.addVertices(new Object[] {1, 2}, null,
+                           Collections.singletonMap("name", new Object[] {"marko", "vadas"}));
+        assertEquals(2, writer.setVertexProperties(new Object[] {2, 1},
+                                                   Collections.singletonMap("age", new Object[] {27, 29})));
+        assertEquals(27, (int) graph.V().has("name", "vadas").values("age").next());
+        assertEquals(1L, (long) graph.V().has("name", "marko").values("age").count().next());
+        assertEquals(2, writer.getUpdateCount());
+    }
+
+    @Test
+    public void nullPropertyColumnsAreSkipped() {
+        final Graph graph = TinkerGraph.open();
+        final BulkWriter writer = BulkWriter.build().create(graph);
+        assertEquals(2, writer.addVertices("{\"ids\": [1, 2], \"properties\": {\"name\": [\"marko\", \"vadas\"],"
+                                           + " \"age\": null}}"));
+        assertEquals(1, writer.addEdges("{\"out\": [1], \"in\": [2], \"labels\": [\"knows\"],"
+                                        + " \"properties\": {\"weight\": null}}"));
+        final Map<String, Object[]> properties = new HashMap<>();
+        properties.put("age", new Object[] {29});
+        properties.put("name", null);
+        assertEquals(1, writer.setVertexProperties(new Object[] {1}, properties));
+
+        assertEquals("tinkergraph[vertices:2 edges:1]", graph.toString());
+        assertEquals(29, (int) graph.V().has("name", "marko").values("age").next());
+        assertEquals(0L, (long) graph.E().values("weight").count().next());
+    }
+
+    @Test
+    public void badBatchesAreReported() {
+        final BulkWriter writer = BulkWriter.build().create(TinkerGraph.open());
+        try {
+            writer.addVertices("{\"ids\": [1, 2], \"labels\": [\"person\"]}");
+            assertTrue("expected columns of different lengths to be rejected", false);
+        }
+        catch (IllegalArgumentException iae) {
+            assertTrue(iae.getMessage(), iae.getMessage().contains("differ in length"));
+        }
+        try {
+            writer.addEdges("{\"out\": [1], \"in\": [2], \"labels\": [\"knows\"]}");
+            assertTrue("expected an edge to a missing vertex to be rejected", false);
+        }
+        catch (IllegalArgumentException iae) {
+            assertTrue(iae.getMessage(), iae.getMessage().contains("no vertex with id 1"));
+        }
+    }
+
+    @Test
+    public void failedRowsEndTheBatch() {
+        // TinkerGraph has no transactions, so the rows before the failure are kept.
+        final Graph graph = TinkerGraph.open();
+        final BulkWriter writer = BulkWriter.build().create(graph);
+        writer.addVertices(new Object[] {1, 2}, null, null);
+        try {
+            writer.setVertexProperties(new Object[] {1, 99, 2},
+                                       Collections.singletonMap("name", new Object[] {"marko", "nobody", "vadas"}));
+            assertTrue("expected a missing vertex to be rejected", false);
+        }
+        catch (IllegalArgumentException iae) {
+            assertTrue(iae.getMessage(), iae.getMessage().contains("no vertex with id 99"));
+            assertEquals(0, iae.getSuppressed().length);
+        }
+        assertEquals(1, writer.getUpdateCount());
+        assertEquals(1L, (long) graph.V().has("name", "marko").count().next());
+        assertEquals(0L, (long) graph.V().has("name", "vadas").count().next());
+        assertEquals(0, writer.getCommitCount());
+
+        assertEquals(1, writer.setVertexProperties(new Object[] {2},
+                                                   Collections.singletonMap("name", new Object[] {"vadas"})));
+        assertEquals(2, writer.getUpdateCount());
+    }
+}
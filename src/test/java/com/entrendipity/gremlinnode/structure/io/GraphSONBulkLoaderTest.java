@@ -0,0 +1,58 @@
+package com.entrendipity.gremlinnode.structure.io;
+
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.structure.io.graphson.GraphSONMapper;
+import com.tinkerpop.gremlin.structure.io.graphson.GraphSONWriter;
+import com.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import com.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GraphSONBulkLoaderTest {
+
+    @Test
+    public void roundTripsTheClassicGraph() throws IOException {
+        final Graph graph = TinkerGraph.open();
+        final List<GraphSONBulkLoader.Progress> reports = new ArrayList<>();
+        final GraphSONBulkLoader loader = GraphSONBulkLoader.build()
+            .batchSize(2).workers(3).queueSize(2).progress(reports::add, 4).create();
+        final GraphSONBulkLoader.Progress progress = loader.load(classicGraphSON(), graph);
+
+        assertEquals(6, progress.getVertexCount());
+        assertEquals(6, progress.getEdgeCount());
+        assertEquals(graph.toString(), "tinkergraph[vertices:6 edges:6]");
+        assertEquals(4, reports.size());
+        assertEquals(29, (int) graph.V().has("name", "marko").values("age").next());
+        // The classic graph's weights are floats, which the embedded types preserve.
+        assertEquals(1.0f, graph.V().has("name", "josh").outE("created").has("weight", 1.0f).values("weight").next());
+        assertEquals(3L, (long) graph.V().has("name", "lop").in("created").count().next());
+    }
+
+    @Test
+    public void malformedInputIsReported() {
+        try {
+            GraphSONBulkLoader.build().create().load(new ByteArrayInputStream("[1,2]".getBytes()), TinkerGraph.open());
+            assertTrue("expected an IOException", false);
+        }
+        catch (IOException ioe) {
+            assertTrue(ioe.getMessage(), ioe.getMessage().contains("Expected GraphSON to start with an Object"));
+        }
+    }
+
+    // Utilities
+
+    private static ByteArrayInputStream classicGraphSON() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GraphSONWriter.build().mapper(GraphSONMapper.build().embedTypes(true).create()).create()
+            .writeGraph(out, TinkerFactory.createClassic());
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+}
@@ -0,0 +1,172 @@
+package com.entrendipity.gremlinnode.structure.io;
+
+import com.tinkerpop.gremlin.process.T;
+import com.tinkerpop.gremlin.structure.Direction;
+import com.tinkerpop.gremlin.structure.Edge;
+import com.tinkerpop.gremlin.structure.Element;
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.structure.Vertex;
+import com.tinkerpop.gremlin.structure.io.graphson.GraphSONMapper;
+import com.tinkerpop.gremlin.structure.io.graphson.GraphSONReader;
+import com.tinkerpop.gremlin.structure.io.graphson.GraphSONWriter;
+import com.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import com.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GraphSnapshotTest {
+
+    @Test
+    public void roundTripMatchesGraphSON() throws IOException {
+        final Graph original = TinkerFactory.createClassic();
+
+        final ByteArrayOutputStream graphson = new ByteArrayOutputStream();
+        final GraphSONMapper mapper = GraphSONMapper.build().embedTypes(true).create();
+        GraphSONWriter.build().mapper(mapper).create().writeGraph(graphson, original);
+        final Graph fromGraphSON = TinkerGraph.open();
+        GraphSONReader.build().mapper(mapper).create()
+            .readGraph(new ByteArrayInputStream(graphson.toByteArray()), fromGraphSON);
+
+        final File file = File.createTempFile("snapshot", ".gns");
+        file.deleteOnExit();
+        GraphSnapshot.write(original, file.getPath());
+        final Graph fromSnapshot = TinkerGraph.open();
+        GraphSnapshot.read(file.getPath(), fromSnapshot);
+
+        assertEquals(describe(fromGraphSON), describe(fromSnapshot));
+        assertTrue(file.length() < graphson.size());
+    }
+
+    @Test
+    public void valuesOfEveryTypeSurvive() throws IOException {
+        final Graph graph = TinkerGraph.open();
+        final Vertex v = graph.addVertex(T.label, "thing", "int", -7, "long", Long.MAX_VALUE, "double", 0.25,
+                                         "float", 1.5f, "bool", true, "short", (short) -3, "byte", (byte) 9,
+                                         "string", "été", "list", new ArrayList<>(Collections.nCopies(2, 1)));
+        v.addEdge("self", v, "weight", 2.0);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GraphSnapshot.write(graph, out);
+        final Graph copy = TinkerGraph.open();
+        GraphSnapshot.read(new ByteArrayInputStream(out.toByteArray()), copy);
+
+        assertEquals(describe(graph), describe(copy));
+    }
+
+    @Test
+    public void unsupportedPropertyTypesAreRejected() throws IOException {
+        final Graph graph = TinkerGraph.open();
+        graph.addVertex("big", new BigDecimal("1.25"), "counter", new AtomicInteger(3));
+        try {
+            GraphSnapshot.write(graph, new ByteArrayOutputStream());
+            assertTrue("expected an AtomicInteger property to be rejected", false);
+        }
+        catch (InvalidClassException ice) {
+            assertTrue(ice.getMessage(), ice.getMessage().contains("AtomicInteger"));
+        }
+
+        final Graph supported = TinkerGraph.open();
+        supported.addVertex("big", new BigDecimal("1.25"));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GraphSnapshot.write(supported, out);
+        final Graph copy = TinkerGraph.open();
+        GraphSnapshot.read(new ByteArrayInputStream(out.toByteArray()), copy);
+        assertEquals(new BigDecimal("1.25"), copy.V().values("big").next());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        GraphSnapshot.read(new ByteArrayInputStream("{\"vertices\":[]}".getBytes()), TinkerGraph.open());
+    }
+
+    @Test
+    public void corruptHeadersAreRejected() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GraphSnapshot.write(TinkerFactory.createClassic(), out);
+        final byte[] snapshot = out.toByteArray();
+
+        final byte[] negativeDictionary = snapshot.clone();
+        ByteBuffer.wrap(negativeDictionary).putInt(4, -1);
+        assertRejected(negativeDictionary, false, "dictionary size");
+
+        final byte[] hugeVertexCount = snapshot.clone();
+        ByteBuffer.wrap(hugeVertexCount).putLong(8, Long.MAX_VALUE);
+        assertRejected(hugeVertexCount, false, "vertex count");
+
+        // Plausible on its own, but more vertices than the file has bytes left.
+        final byte[] longVertexCount = snapshot.clone();
+        ByteBuffer.wrap(longVertexCount).putLong(8, 1000000);
+        assertRejected(longVertexCount, true, "vertex count");
+
+        final byte[] negativeEdgeCount = snapshot.clone();
+        ByteBuffer.wrap(negativeEdgeCount).putLong(16, -1);
+        assertRejected(negativeEdgeCount, false, "edge count");
+
+        assertRejected(Arrays.copyOf(snapshot, 24), true, "dictionary size");
+    }
+
+    // Utilities
+
+    // Read *snapshot*, from a file or a stream, and check that it fails naming *field*.
+    private static void assertRejected(final byte[] snapshot, final boolean fromFile, final String field)
+        throws IOException {
+        try {
+            if (fromFile) {
+                final File file = File.createTempFile("corrupt", ".gns");
+                file.deleteOnExit();
+                try (FileOutputStream out = new FileOutputStream(file)) {
+                    out.write(snapshot);
+                }
+                GraphSnapshot.read(file.getPath(), TinkerGraph.open());
+            }
+            else {
+                GraphSnapshot.read(new ByteArrayInputStream(snapshot), TinkerGraph.open());
+            }
+            assertTrue("expected an invalid " + field + " to be rejected", false);
+        }
+        catch (IOException ioe) {
+            assertTrue(ioe.getMessage(), ioe.getMessage().contains(field));
+        }
+    }
+
+    // A canonical description of a graph's vertices and edges, independent of iteration order.
+    private static String describe(final Graph graph) {
+        final List<String> lines = new ArrayList<>();
+        for (final Iterator<Vertex> vertices = graph.vertexIterator(); vertices.hasNext(); ) {
+            final Vertex vertex = vertices.next();
+            lines.add("v " + vertex.id() + " " + vertex.label() + " " + properties(vertex));
+        }
+        for (final Iterator<Edge> edges = graph.edgeIterator(); edges.hasNext(); ) {
+            final Edge edge = edges.next();
+            lines.add("e " + edge.id() + " " + edge.label() + " " + edge.vertexIterator(Direction.OUT).next().id()
+                      + "->" + edge.vertexIterator(Direction.IN).next().id() + " " + properties(edge));
+        }
+        Collections.sort(lines);
+        return String.join("\n", lines);
+    }
+
+    private static String properties(final Element element) {
+        final List<String> properties = new ArrayList<>();
+        element.propertyIterator().forEachRemaining(p -> properties.add(
+            p.key() + "=" + p.value() + ":" + p.value().getClass().getSimpleName()));
+        Collections.sort(properties);
+        return properties.toString();
+    }
+}
@@ -0,0 +1,146 @@
+package com.entrendipity.gremlinnode.traversal;
+
+import com.entrendipity.gremlinnode.function.ExpressionCompiler;
+import com.entrendipity.gremlinnode.function.GroovyLambda;
+import com.entrendipity.gremlinnode.function.LambdaFactory;
+import com.tinkerpop.gremlin.process.graph.traversal.GraphTraversal;
+import com.tinkerpop.gremlin.structure.Compare;
+import com.tinkerpop.gremlin.structure.Contains;
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import java.util.Arrays;
+import java.util.List;
+import javax.script.ScriptException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FilterPushdownTest {
+
+    private Graph graph;
+
+    @Before
+    public void initGraph() {
+        graph = TinkerFactory.createClassic();
+    }
+
+    @Test
+    public void recognizesComparisonsAndContainment() {
+        final List<ExpressionCompiler.Condition> conditions = ExpressionCompiler.filterConditions(
+            "{ t -> t.get().value('age') >= 29 && 32 > t.get().value('age') && ['marko', 'josh'].contains(t.get()"
+            + ".value('name')) }");
+        assertEquals(3, conditions.size());
+        assertEquals("age", conditions.get(0).getKey());
+        assertEquals(Compare.gte.toString(), conditions.get(0).getPredicate().toString());
+        assertEquals(29, conditions.get(0).getValue());
+        assertEquals(Compare.lt.toString(), conditions.get(1).getPredicate().toString());
+        assertEquals(32, conditions.get(1).getValue());
+        assertEquals(Contains.within, conditions.get(2).getPredicate());
+        assertEquals(Arrays.asList("marko", "josh"), conditions.get(2).getValue());
+    }
+
+    @Test
+    public void leavesOtherClosuresAlone() {
+        assertNull(ExpressionCompiler.filterConditions("{ it.get().value('age') > 29 || it.get().value('age') < 5 }"));
+        assertNull(ExpressionCompiler.filterConditions("{ it.get().value('name').length() == 5 }"));
+        assertNull(ExpressionCompiler.filterConditions("{ it.value('age') > 29 }"));
+        assertNull(ExpressionCompiler.filterConditions("{ a, b -> a.get().value('age') > 29 }"));
+        assertNull(ExpressionCompiler.filterConditions("{ it.get().value('age') > it.get().value('weight') }"));
+        assertFalse(FilterPushdown.canPushDown("{ it.get().value('age') == null }"));
+        assertFalse(FilterPushdown.canPushDown("{ it.get().value('weight') == 0.5 }"));
+        assertFalse(FilterPushdown.canPushDown("{ it.get().value('weight') < 1.0 && it.get().value('weight') > 0 }"));
+        assertFalse(FilterPushdown.canPushDown("{ it.get().value('id') == 5000000000 }"));
+        assertFalse(FilterPushdown.canPushDown("{ it.get().value('active') == true }"));
+        assertFalse(FilterPushdown.canPushDown("{ [0.2, 0.4].contains(it.get().value('weight')) }"));
+        assertTrue(FilterPushdown.canPushDown("{ it -> it.get().value(\"name\") == \"marko\" }"));
+    }
+
+    @Test
+    public void pushedDownFiltersMatchTheirClosures() {
+        final List<String> closures = Arrays.asList(
+            "{ it.get().value('name') == 'marko' }",
+            "{ it.get().value('name') != 'marko' && it.get().value('lang') == 'java' }",
+            "{ t -> 30 <= t.get().value('age') }",
+            "{ t -> t.get().value('age') > 27 && t.get().value('age') <= 32 }",
+            "{ t -> ['lop', 'ripple', 'peter'].contains(t.get().value('name')) }");
+        for (final String groovy : closures) {
+            final GraphTraversal<?, ?> pushedDown = FilterPushdown.filter(graph.V(), groovy);
+            assertTrue(groovy, pushedDown.toString().contains("HasStep"));
+            assertEquals(groovy, sorted(withLambda(graph.V(), groovy).values("name")),
+                         sorted(pushedDown.values("name")));
+        }
+    }
+
+    @Test
+    public void intLiteralsCompareWithFloatAndDoubleProperties() {
+        graph.addVertex("name", "half", "score", 0.5d);
+        graph.addVertex("name", "two", "score", 2.0d);
+        graph.addVertex("name", "three", "score", 3.0d);
+        final List<String> edgeClosures = Arrays.asList(
+            "{ it.get().value('weight') == 1 }",
+            "{ it.get().value('weight') != 1 }",
+            "{ t -> t.get().value('weight') > 0 && t.get().value('weight') < 1 }");
+        for (final String groovy : edgeClosures) {
+            final GraphTraversal<?, ?> pushedDown = FilterPushdown.filter(graph.E(), groovy);
+            assertEquals(groovy, sorted(withLambda(graph.E(), groovy).id()), sorted(pushedDown.id()));
+        }
+        final List<String> vertexClosures = Arrays.asList(
+            "{ it.get().value('score') == 2 }",
+            "{ t -> 1 <= t.get().value('score') && t.get().value('score') < 3 }",
+            "{ it.get().value('score') >= 0 }");
+        for (final String groovy : vertexClosures) {
+            final GraphTraversal<?, ?> pushedDown = FilterPushdown.filter(graph.V(), groovy);
+            assertEquals(groovy, sorted(withLambda(graph.V(), groovy).values("name")),
+                         sorted(pushedDown.values("name")));
+        }
+        assertEquals(Arrays.asList("two"), FilterPushdown.filter(graph.V(), "{ it.get().value('score') == 2 }")
+            .values("name").toList());
+    }
+
+    @Test
+    public void planFiltersArePushedDown() {
+        try {
+            final String json = "[[\"V\"], [\"filter\", {\"lambda\": \"{ it.get().value('name') == 'lop' }\"}],"
+                + " [\"values\", \"lang\"]]";
+            final GraphTraversal<?, ?> pushedDown = TraversalPlan.compile(json, LambdaFactory.build().create(), true)
+                .bind(graph, "{}");
+            assertFalse(pushedDown.toString(), pushedDown.toString().contains("Lambda"));
+            assertEquals(Arrays.asList("java"), pushedDown.toList());
+
+            // Pushdown is opt-in.
+            final GraphTraversal<?, ?> traversal = TraversalPlan.compile(json).bind(graph, "{}");
+            assertTrue(traversal.toString(), traversal.toString().contains("Lambda"));
+            assertEquals(Arrays.asList("java"), traversal.toList());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    // Utilities
+
+    // The elements of *start* that pass the closure, evaluated by Groovy.  Only elements with every property the
+    // closure reads are tested, since the closure fails on the others.
+    private GraphTraversal<?, ?> withLambda(final GraphTraversal<?, ?> start, final String groovy) {
+        try {
+            GraphTraversal<?, ?> traversal = start;
+            for (final ExpressionCompiler.Condition condition : ExpressionCompiler.filterConditions(groovy)) {
+                traversal = traversal.has(condition.getKey());
+            }
+            return traversal.filter(new GroovyLambda(groovy));
+        }
+        catch (ScriptException se) {
+            throw new IllegalStateException(se);
+        }
+    }
+
+    private static List<Object> sorted(final GraphTraversal<?, ?> traversal) {
+        final List<Object> list = (List<Object>) traversal.toList();
+        list.sort(null);
+        return list;
+    }
+}
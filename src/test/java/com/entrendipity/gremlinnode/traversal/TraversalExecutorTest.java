@@ -0,0 +1,111 @@
+package com.entrendipity.gremlinnode.traversal;
+
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TraversalExecutorTest {
+
+    @Test
+    public void traversalsRunConcurrently() throws Exception {
+        final Graph graph = TinkerFactory.createClassic();
+        try (TraversalExecutor executor = TraversalExecutor.build().threads(4).create()) {
+            final List<CompletableFuture<List<Object>>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(executor.submit(graph.V().out().values("name")));
+            }
+            for (CompletableFuture<List<Object>> future : futures) {
+                assertEquals(6, future.get().size());
+            }
+            assertEquals(100, executor.getCompletedCount());
+            assertEquals(0, executor.getQueueDepth());
+            assertTrue(executor.getMeanRunMillis() >= 0);
+        }
+    }
+
+    @Test
+    public void higherPriorityStartsFirst() throws Exception {
+        try (TraversalExecutor executor = TraversalExecutor.build().threads(1).create()) {
+            final CountDownLatch blocked = new CountDownLatch(1);
+            final CountDownLatch started = new CountDownLatch(1);
+            final List<String> order = Collections.synchronizedList(new ArrayList<>());
+            final CompletableFuture<?> blocker = executor.submit(() -> {
+                started.countDown();
+                blocked.await();
+                return null;
+            });
+            started.await();
+            final CompletableFuture<?> low = executor.submit(() -> order.add("low"), -1);
+            final CompletableFuture<?> normal = executor.submit(() -> order.add("normal"));
+            final CompletableFuture<?> high = executor.submit(() -> order.add("high"), 10);
+            assertEquals(3, executor.getQueueDepth());
+            blocked.countDown();
+            CompletableFuture.allOf(blocker, low, normal, high).get();
+            assertTrue(executor.getPeakQueueDepth() >= 3);
+            assertEquals(order.toString(), "[high, normal, low]");
+        }
+    }
+
+    @Test
+    public void fullQueueRejects() throws Exception {
+        try (TraversalExecutor executor = TraversalExecutor.build().threads(1).queueSize(1).create()) {
+            final CountDownLatch blocked = new CountDownLatch(1);
+            final CountDownLatch started = new CountDownLatch(1);
+            executor.submit(() -> {
+                started.countDown();
+                blocked.await();
+                return null;
+            });
+            started.await();
+            executor.submit(() -> null);
+            try {
+                executor.submit(() -> null);
+                assertTrue("expected a RejectedExecutionException", false);
+            }
+            catch (RejectedExecutionException ree) {
+                assertEquals(1, executor.getRejectedCount());
+            }
+            finally {
+                blocked.countDown();
+            }
+        }
+    }
+
+    @Test
+    public void failuresCompleteExceptionally() throws InterruptedException {
+        try (TraversalExecutor executor = TraversalExecutor.build().threads(1).create()) {
+            try {
+                executor.submit(() -> {
+                    throw new IllegalStateException("boom");
+                }).get();
+                assertTrue("expected an ExecutionException", false);
+            }
+            catch (ExecutionException ee) {
+                assertTrue(ee.getCause() instanceof IllegalStateException);
+            }
+            assertEquals(1, executor.getFailedCount());
+        }
+    }
+
+    @Test
+    public void encodedResultsArriveThroughTheCallback() throws Exception {
+        final Graph graph = TinkerFactory.createClassic();
+        try (TraversalExecutor executor = TraversalExecutor.build().virtualThreads(true).create()) {
+            assertEquals(TraversalExecutor.isVirtualThreadSupported(), executor.isVirtualThreads());
+            final CompletableFuture<String> json = new CompletableFuture<>();
+            executor.submitEncoded(graph.V().has("name", "marko").values("age"), 0,
+                                   (encoded, error) -> json.complete(error == null ? (String) encoded[0] : null));
+            assertEquals("[29]", json.get());
+        }
+    }
+}
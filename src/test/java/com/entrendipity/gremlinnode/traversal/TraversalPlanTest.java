@@ -0,0 +1,154 @@
+package com.entrendipity.gremlinnode.traversal;
+
+import com.entrendipity.gremlinnode.function.GroovyLambdaCache;
+import com.entrendipity.gremlinnode.function.LambdaFactory;
+import com.entrendipity.gremlinnode.function.LambdaMetricsRegistry;
+import com.tinkerpop.gremlin.process.Traversal;
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.script.ScriptException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TraversalPlanTest {
+
+    private Graph graph;
+
+    @Before
+    public void initGraph() {
+        graph = TinkerFactory.createClassic();
+    }
+
+    @Test
+    public void buildsTraversalWithParameters() {
+        try {
+            final TraversalPlan plan = TraversalPlan.compile(
+                "[[\"V\"], [\"has\", \"name\", {\"$\": \"name\"}], [\"out\", \"knows\"], [\"values\", \"name\"]]");
+            assertEquals(Collections.singleton("name"), plan.getParameterNames());
+            assertEquals(sorted(plan.bind(graph, "{\"name\": \"marko\"}")), listOf("josh", "vadas"));
+            assertEquals(sorted(plan.bind(graph, "{\"name\": \"josh\"}")), listOf());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void supportsLambdasEnumsAndAnonymousTraversals() {
+        try {
+            final TraversalPlan plan = TraversalPlan.compile(
+                "[[\"V\"], [\"has\", {\"T\": \"label\"}, \"person\"],"
+                + " [\"filter\", {\"lambda\": \"{ it -> it.get().value('age') > 27 }\"}],"
+                + " [\"choose\", {\"lambda\": \"{ v -> v.value('age') > 30 }\"},"
+                + " {\"__\": [[\"out\", \"created\"]]}, {\"__\": [[\"out\", \"knows\"]]}],"
+                + " [\"values\", \"name\"]]");
+            assertEquals(sorted(plan.bind(graph, new HashMap<String, Object>())),
+                         listOf("josh", "lop", "lop", "ripple", "vadas"));
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void varargsAcceptArraysAndObjectParameters() {
+        try {
+            final TraversalPlan plan = TraversalPlan.compile(
+                "[[\"V\", {\"$\": \"id\"}], [\"out\", [\"knows\", \"created\"]], [\"values\", \"name\"]]");
+            final Map<String, Object> parameters = new HashMap<>();
+            parameters.put("id", 1);
+            assertEquals(sorted(plan.bind(graph, parameters)), listOf("josh", "lop", "vadas"));
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingParametersAreReported() {
+        try {
+            TraversalPlan.compile("[[\"V\"], [\"has\", \"name\", {\"$\": \"name\"}]]").bind(graph, "{}");
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void cacheReturnsTheSamePlan() {
+        try {
+            final TraversalPlanCache cache = new TraversalPlanCache();
+            final String json = "[[\"V\"], [\"has\", \"name\", {\"$\": \"name\"}]]";
+            final TraversalPlan plan = cache.get(json);
+            assertSame(plan, cache.get(json));
+            assertEquals(1, cache.getHitCount());
+            assertEquals(1, cache.getMissCount());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void integersWidenToLongParameters() {
+        try {
+            final TraversalPlan limit = TraversalPlan.compile(
+                "[[\"V\"], [\"values\", \"name\"], [\"order\"], [\"limit\", 2]]");
+            assertEquals(listOf("josh", "lop"), limit.bind(graph, "{}").toList());
+            final TraversalPlan range = TraversalPlan.compile(
+                "[[\"V\"], [\"values\", \"name\"], [\"order\"], [\"range\", {\"$\": \"low\"}, {\"$\": \"high\"}]]");
+            assertEquals(listOf("lop", "marko"), range.bind(graph, "{\"low\": 1, \"high\": 3}").toList());
+            assertEquals(listOf("josh"), range.bind(graph, "{\"low\": 0, \"high\": 1}").toList());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void lambdasAreCreatedByTheFactory() {
+        try {
+            final GroovyLambdaCache lambdas = new GroovyLambdaCache();
+            final LambdaMetricsRegistry metrics = new LambdaMetricsRegistry();
+            final LambdaFactory factory = LambdaFactory.build().lambdaCache(lambdas).metrics(metrics).create();
+            final String json = "[[\"V\"], [\"has\", {\"T\": \"label\"}, \"person\"],"
+                + " [\"choose\", {\"lambda\": \"{ v -> v.value('age') > 30 }\"},"
+                + " {\"__\": [[\"values\", \"name\"]]}, {\"__\": [[\"values\", \"age\"]]}]]";
+            final TraversalPlanCache cache = new TraversalPlanCache();
+            final TraversalPlan plan = cache.get(json, factory);
+            assertEquals(1, lambdas.size());
+            assertEquals(sorted(plan.bind(graph, "{}")), listOf(27, 29, "josh", "peter"));
+            assertEquals(4, metrics.getTotalInvocationCount());
+            assertNotSame(plan, cache.get(json, LambdaFactory.build().create()));
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    // Utilities
+
+    private static List<Object> sorted(final Traversal<?, ?> traversal) {
+        final List<Object> results = new ArrayList<>();
+        traversal.forEachRemaining(results::add);
+        results.sort((a, b) -> a.toString().compareTo(b.toString()));
+        return results;
+    }
+
+    private static List<Object> listOf(final Object... items) {
+        final List<Object> list = new ArrayList<>();
+        Collections.addAll(list, items);
+        return list;
+    }
+}
@@ -0,0 +1,94 @@
+package com.entrendipity.gremlinnode.traversal;
+
+import com.entrendipity.gremlinnode.function.GroovyLambda;
+import com.tinkerpop.gremlin.structure.Graph;
+import com.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import javax.script.ScriptException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TraversalResultCacheTest {
+
+    private Graph graph;
+
+    @Before
+    public void initGraph() {
+        graph = TinkerFactory.createClassic();
+    }
+
+    @Test
+    public void repeatedTraversalsAreServedFromTheCache() {
+        final TraversalResultCache cache = new TraversalResultCache();
+        final Object[] first = cache.encodeAll(graph, graph.V().has("name", "marko").out().values("name"));
+        final Object[] second = cache.encodeAll(graph, graph.V().has("name", "marko").out().values("name"));
+        assertSame(first, second);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+        assertTrue(cache.getWeight() > 0);
+
+        cache.encodeAll(graph, graph.V().has("name", "josh").out().values("name"));
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void lambdaSourcesArePartOfTheKey() {
+        try {
+            final TraversalResultCache cache = new TraversalResultCache();
+            final Object[] exact = cache.encodeAll(
+                graph, graph.V().filter(new GroovyLambda("{ it.get().value('name').length() == 5 }")).id());
+            final Object[] longer = cache.encodeAll(
+                graph, graph.V().filter(new GroovyLambda("{ it.get().value('name').length() > 4 }")).id());
+            assertNotEquals(exact[0], longer[0]);
+            assertEquals(2, cache.getMissCount());
+            cache.encodeAll(graph, graph.V().filter(new GroovyLambda("{ it.get().value('name').length() > 4 }")).id());
+            assertEquals(1, cache.getHitCount());
+        }
+        catch (ScriptException se) {
+            assertTrue(se.toString(), false);
+        }
+    }
+
+    @Test
+    public void bumpingTheVersionInvalidatesResults() {
+        final TraversalResultCache cache = new TraversalResultCache();
+        final Graph other = TinkerFactory.createClassic();
+        assertEquals("[6]", cache.encodeAll(graph, graph.V().count())[0]);
+        cache.encodeAll(other, other.V().count());
+
+        graph.addVertex("name", "stephen");
+        assertEquals(1, cache.bump(graph));
+        assertEquals(1, cache.getVersion(graph));
+        assertEquals(0, cache.getVersion(other));
+        assertEquals(1, cache.getInvalidationCount());
+        assertEquals("[7]", cache.encodeAll(graph, graph.V().count())[0]);
+        assertEquals("[6]", cache.encodeAll(other, other.V().count())[0]);
+        assertEquals(1, cache.getHitCount());
+
+        cache.bumpAll();
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getVersion(other));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedResultsBeyondTheBound() {
+        final TraversalResultCache cache = new TraversalResultCache(600);
+        for (int i = 0; i < 10; i++) {
+            cache.encodeAll(graph, "names " + i, graph.V().values("name"));
+        }
+        assertTrue(cache.toString(), cache.getWeight() <= 600);
+        assertTrue(cache.getEvictionCount() > 0);
+        assertEquals(10, cache.size() + cache.getEvictionCount());
+
+        // A single result larger than the bound is returned, but not cached.
+        final TraversalResultCache tiny = new TraversalResultCache(10);
+        tiny.encodeAll(graph, graph.V().values("name"));
+        assertEquals(0, tiny.size());
+        assertEquals(1, tiny.getUncacheableCount());
+    }
+}
@@ -0,0 +1,65 @@
+package com.entrendipity.gremlinnode.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BoundedCacheTest {
+
+    @Test
+    public void evictsLeastRecentlyUsedFirst() {
+        final List<String> removed = new ArrayList<>();
+        final BoundedCache<String, Integer> cache = new BoundedCache<>(2, (key, value) -> removed.add(key));
+        cache.putIfAbsent("a", 1);
+        cache.putIfAbsent("b", 2);
+        assertEquals(1, (int) cache.get("a"));  // Touch, so that "b" is now the eldest.
+        cache.putIfAbsent("c", 3);
+        assertNull(cache.get("b"));
+        assertEquals(Arrays.asList("b"), removed);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getEvictionCount());
+
+        cache.clear();
+        assertEquals(Arrays.asList("b", "a", "c"), removed);
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void firstValueStoredWins() {
+        final BoundedCache<String, Integer> cache = new BoundedCache<>(10);
+        assertEquals(1, (int) cache.putIfAbsent("a", 1));
+        assertEquals(1, (int) cache.putIfAbsent("a", 2));
+        cache.put("a", 3);
+        assertEquals(3, (int) cache.get("a"));
+        assertEquals(1, cache.getWeight());
+    }
+
+    @Test
+    public void boundsTotalWeight() {
+        final BoundedCache<String, String> cache = new BoundedCache<>(10L, (key, value) -> value.length(), null);
+        cache.putIfAbsent("a", "xxxx");
+        cache.putIfAbsent("b", "xxxx");
+        cache.putIfAbsent("c", "xxxx");
+        assertEquals(2, cache.size());
+        assertEquals(8, cache.getWeight());
+        assertEquals(1, cache.removeIf((key, value) -> key.equals("c")));
+        assertEquals(4, cache.getWeight());
+    }
+
+    @Test
+    public void expiredValuesAreMisses() {
+        final BoundedCache<String, Integer> cache = new BoundedCache<>(10);
+        cache.putIfAbsent("a", 1);
+        assertNull(cache.get("a", value -> value < 2));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getExpirationCount());
+        assertEquals(1, cache.getMissCount());
+    }
+}
@@ -247,8 +247,10 @@ suite('graph-wrapper', function () {
     g.getVertex(1, function (err, v) {
       assert.ifError(err);
       assert(v instanceof VertexWrapper);
-      v.setProperty('fruit', 'lemon', function (err) {
+      v.setProperty('fruit', 'lemon', function (err, prop) {
         assert.ifError(err);
+        assert.strictEqual(prop.keySync(), 'fruit');
+        assert.strictEqual(prop.valueSync(), 'lemon');
         v.value('fruit', function (err, name) {
           assert.ifError(err);
           assert.strictEqual(name, 'lemon');
@@ -270,6 +272,20 @@ suite('graph-wrapper', function () {
       .done(done);
   });
 
+  test('setProperty(key, value) resolves to the property of vertices and edges', function (done) {
+    Q.all([g.getVertex(1), g.getEdge(7)])
+      .spread(function (v, e) {
+        return Q.all([v.setProperty('name', 'john'), e.setProperty('weight', 0.7)]);
+      })
+      .spread(function (vertexProperty, edgeProperty) {
+        assert.strictEqual(vertexProperty.keySync(), 'name');
+        assert.strictEqual(vertexProperty.valueSync(), 'john');
+        assert.strictEqual(edgeProperty.keySync(), 'weight');
+        assert.strictEqual(edgeProperty.valueSync(), 0.7);
+      })
+      .done(done);
+  });
+
   test('setProperty(key, value) / valueSync(key) using promise API', function (done) {
     var v;
     g.getVertex(1)
@@ -459,6 +475,103 @@ suite('graph-wrapper', function () {
       .done(done);
   });
 
+  test('g.plan()', function (done) {
+    var steps = [['V'], ['has', 'name', {$: 'name'}], ['out', 'knows'], ['filter', '{ it -> true }'], ['values', 'name']];
+    var cache = gremlin.getPlanCache();
+    var misses = Number(cache.getMissCountSync());
+    g.plan(steps, {name: 'marko'}).toArray()
+      .then(function (names) {
+        assert.deepEqual(names.sort(), ['josh', 'vadas']);
+        return g.plan(steps, {name: 'josh'}).toArray();
+      })
+      .then(function (names) {
+        assert.deepEqual(names, []);
+        assert.strictEqual(Number(cache.getMissCountSync()), misses + 1);
+      })
+      .done(done);
+  });
+
+  test('toArrayCached() until the graph changes', function (done) {
+    var cache = new gremlin.TraversalResultCache();
+    gremlin._resultCache = cache;
+    g.V().values('name').toArrayCached()
+      .then(function (names) {
+        assert.strictEqual(names.length, 6);
+        return g.V().values('name').toArrayCached();
+      })
+      .then(function (names) {
+        assert.strictEqual(names.length, 6);
+        assert.strictEqual(Number(cache.getHitCountSync()), 1);
+        return g.addVertex({name: 'ripple2'});
+      })
+      .then(function () {
+        return g.V().values('name').toArrayCached();
+      })
+      .then(function (names) {
+        assert.strictEqual(names.length, 7);
+        assert.strictEqual(Number(cache.getInvalidationCountSync()), 1);
+      })
+      .fin(function () { gremlin._resultCache = null; })
+      .done(done);
+  });
+
+  test('element writes invalidate only their own graph, once they succeed', function (done) {
+    var cache = new gremlin.TraversalResultCache();
+    gremlin._resultCache = cache;
+    var TinkerGraphFactory = gremlin.java.import('com.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory');
+    var other = TinkerGraphFactory.createClassicSync();
+    var otherVersion = Number(cache.getVersionSync(other));
+    var version = Number(cache.getVersionSync(graph));
+    var marko;
+    g.getVertex(1)
+      .then(function (v) {
+        marko = v;
+        return marko.setProperty('age', 30);
+      })
+      .then(function () {
+        assert.strictEqual(Number(cache.getVersionSync(graph)), version + 1);
+        assert.strictEqual(Number(cache.getVersionSync(other)), otherVersion);
+        return marko.setProperty('', 1);
+      })
+      .then(function () {
+        assert.ok(false, 'Should have rejected an empty property key');
+      }, function (err) {
+        assert.ok(err);
+        assert.strictEqual(Number(cache.getVersionSync(graph)), version + 1);
+      })
+      .fin(function () { gremlin._resultCache = null; })
+      .done(done);
+  });
+
+  test('g.bulkWriter()', function (done) {
+    var writer = g.bulkWriter({batchSize: 2});
+    writer.addVertices({ids: [100, 101], labels: ['person', 'person'], properties: {name: ['ann', 'bob']}})
+      .then(function (rows) {
+        assert.strictEqual(rows, 2);
+        return writer.addEdges({out: [100, 1], in: [101, 101], labels: ['knows', 'knows']});
+      })
+      .then(function (rows) {
+        assert.strictEqual(rows, 2);
+        assert.strictEqual(writer.setVertexPropertiesSync({ids: [101], properties: {age: [40]}}), 1);
+        return g.V().has('name', 'bob').in('knows').values('name').toArray();
+      })
+      .then(function (names) {
+        assert.deepEqual(names.sort(), ['ann', 'marko']);
+        assert.strictEqual(g.V().has('age', 40).values('name').toArraySync()[0], 'bob');
+      })
+      .done(done);
+  });
+
+  test('g.adjacencySnapshot()', function (done) {
+    g.adjacencySnapshot()
+      .then(function (snapshot) {
+        var ids = snapshot.walkSync([1], JSON.stringify([['out', 'knows'], ['out', 'created']]));
+        assert.deepEqual(ids.sort(), g.V(1).out('knows').out('created').id().toArraySync().sort());
+        assert.strictEqual(snapshot.getEdgeCountSync(), 6);
+      })
+      .done(done);
+  });
+
   test('g.toStringSync()', function (done) {
     var str = g.toStringSync();
     var expected = 'tinkergraph[vertices:6 edges:6]';
@@ -508,6 +621,52 @@ suite('graph-wrapper', function () {
     });
   });
 
+  test('g.saveGraphSON() and bulkLoadGraphSON()', function (done) {
+    tmp.tmpName(function (err, path) {
+      if (err) {
+        // A failure in tmpName is not a failure in gremlin-node.
+        // If this ever fails, it is likely some environmental problem.
+        throw err;
+      }
+      g.saveGraphSONSync(path);
+      var tinker = gremlin.java.callStaticMethodSync('com.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph', 'open');
+      var h = gremlin.wrap(tinker);
+      h.bulkLoadGraphSON(path, { batchSize: 2, workers: 2 }, function (err, graph) {
+        assert.ifError(err);
+        assert.strictEqual(h, graph, 'bulkLoadGraphSON did not return graph');
+        assert.strictEqual(h.toStringSync(), 'tinkergraph[vertices:6 edges:6]');
+        fs.unlink(path, done);
+      });
+    });
+  });
+
+  test('g.saveSnapshot() and loadSnapshot()', function (done) {
+    tmp.tmpName(function (err, path) {
+      if (err) {
+        // A failure in tmpName is not a failure in gremlin-node.
+        // If this ever fails, it is likely some environmental problem.
+        throw err;
+      }
+      var tinker = gremlin.java.callStaticMethodSync('com.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph', 'open');
+      var h = gremlin.wrap(tinker);
+      g.saveSnapshot(path)
+        .then(function (graph) {
+          assert.strictEqual(g, graph, 'saveSnapshot did not return graph');
+          return h.loadSnapshot(path);
+        })
+        .then(function (graph) {
+          assert.strictEqual(h, graph, 'loadSnapshot did not return graph');
+          assert.strictEqual(h.toStringSync(), 'tinkergraph[vertices:6 edges:6]');
+          return h.V().has('name', 'marko').out('knows').values('name').toArray();
+        })
+        .then(function (names) {
+          assert.deepEqual(names.sort(), ['josh', 'vadas']);
+          fs.unlink(path, done);
+        })
+        .done();
+    });
+  });
+
   test('g.saveAndLoadGraphSON() async callback', function (done) {
     tmp.tmpName(function (err, path) {
       if (err) {
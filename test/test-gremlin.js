@@ -62,6 +62,34 @@ suite('gremlin', function () {
     .done(done);
   });
 
+  test('gremlin.forEach() Traversal in small batches', function (done) {
+    var batchSize = gremlin._batchSize;
+    gremlin._batchSize = 4;
+    var ids = [];
+    gremlin.forEach(g.V().id(), function (id) {
+      ids.push(id);
+    })
+    .then(function () {
+      assert.deepEqual(ids, [1, 2, 3, 4, 5, 6]);
+    })
+    .finally(function () {
+      gremlin._batchSize = batchSize;
+    })
+    .done(done);
+  });
+
+  test('BatchIterator adapts its batch size', function () {
+    var list = gremlin.toListSync(_.range(100));
+    var batchIterator = new gremlin.BatchIterator(list.iteratorSync(), 1, 8, 1000);
+    assert.ok(batchIterator.isAdaptiveSync());
+    var sizes = [];
+    while (batchIterator.hasNextSync()) {
+      sizes.push(batchIterator.nextBatchSync().length);
+    }
+    assert.strictEqual(_.reduce(sizes, function (sum, size) { return sum + size; }), 100);
+    assert.strictEqual(_.max(sizes), 8);
+  });
+
   test('newGroovyLambda', function () {
     var lambda = gremlin.newGroovyLambda('{ a -> a < 100 }');
     assert.equal(lambda.applySync(0), true);
@@ -69,6 +97,111 @@ suite('gremlin', function () {
     assert.equal(lambda.applySync(100), false);
   });
 
+  test('newGroovyLambda caches compiled closures', function () {
+    var cache = gremlin.getLambdaCache();
+    var hits = Number(cache.getHitCountSync());
+    var first = gremlin.newGroovyLambda('{ a -> a * 3 }');
+    var second = gremlin.newGroovyLambda('{ a -> a * 3 }');
+    assert.ok(first.equalsSync(second));
+    assert.strictEqual(Number(cache.getHitCountSync()), hits + 1);
+    assert.equal(second.applySync(4), 12);
+  });
+
+  test('newStaticGroovyLambda', function () {
+    var lambda = gremlin.newStaticGroovyLambda('{ int a -> a < 100 }');
+    assert.equal(lambda.testSync(99), true);
+    assert.equal(lambda.testSync(100), false);
+    assert.throws(function () { gremlin.newStaticGroovyLambda('{ a -> a.length() }'); }, /CompileStatic/);
+  });
+
+  test('warmUp', function (done) {
+    var closures = ['{ a -> a + 11 }', '{ a -> a.foo() }'];
+    gremlin.warmUp({ closures: closures, samples: [1, 2], iterations: 5 })
+      .then(function (reports) {
+        assert.strictEqual(reports.length, 2);
+        assert.strictEqual(reports[0].groovy, closures[0]);
+        assert.strictEqual(reports[0].invocations, 10);
+        assert.strictEqual(reports[0].error, null);
+        assert.ok(reports[0].compileMillis >= 0);
+        assert.ok(/foo/.test(reports[1].error));
+        assert.strictEqual(reports[1].compiled, true);
+
+        var hits = Number(gremlin.getLambdaCache().getHitCountSync());
+        assert.strictEqual(gremlin.newGroovyLambda(closures[0]).applySync(1), 12);
+        assert.strictEqual(Number(gremlin.getLambdaCache().getHitCountSync()), hits + 1);
+      })
+      .done(done);
+  });
+
+  test('InstrumentedGlobFunction', function () {
+    var registry = new gremlin.LambdaMetricsRegistry();
+    var lambda = new gremlin.InstrumentedGlobFunction(gremlin.newGroovyLambda('{ a -> a * 3 }'), registry);
+    assert.strictEqual(lambda.applySync(2), 6);
+    assert.strictEqual(lambda.applySync(5), 15);
+
+    var snapshot = JSON.parse(registry.snapshotSync());
+    var metrics = snapshot[lambda.toStringSync()];
+    assert.strictEqual(metrics.invocations, 2);
+    assert.strictEqual(metrics.errors, 0);
+    assert.ok(metrics.totalMillis >= 0);
+    assert.strictEqual(gremlin.getLambdaMetrics(), null);
+  });
+
+  test('memoize', function () {
+    var memoized = gremlin.memoize('{ a -> a * 7 }', { maximumSize: 10 });
+    assert.strictEqual(memoized.applySync(3), 21);
+    assert.strictEqual(memoized.applySync(3), 21);
+    assert.strictEqual(memoized.applySync(4), 28);
+    assert.strictEqual(Number(memoized.getHitCountSync()), 1);
+    assert.strictEqual(Number(memoized.getMissCountSync()), 2);
+    assert.strictEqual(memoized.sizeSync(), 2);
+  });
+
+  test('ScriptEnginePool', function () {
+    var pool = new gremlin.ScriptEnginePool(2);
+    var cache = gremlin.getLambdaCache();
+    var first = cache.getSync('{ a -> a - 1 }', pool, gremlin.Compilation.DYNAMIC);
+    var second = cache.getSync('{ a -> a - 1 }', pool, gremlin.Compilation.DYNAMIC);
+    assert.ok(first.equalsSync(second));
+    assert.strictEqual(first.applySync(10), 9);
+    assert.strictEqual(Number(pool.getBorrowCountSync()), 1);
+    assert.strictEqual(pool.getActiveCountSync(), 0);
+    assert.strictEqual(gremlin.getEnginePool(), null);
+  });
+
+  test('IsolatedClosureCompiler', function () {
+    var compiler = new gremlin.IsolatedClosureCompiler(10);
+    var lambda = gremlin.getLambdaCache().getSync('{ a -> a + 100 }', compiler, gremlin.Compilation.DYNAMIC);
+    assert.strictEqual(lambda.applySync(1), 101);
+    var stats = gremlin._jsify(compiler.getStatsSync());
+    assert.strictEqual(stats.classes, 1);
+    assert.strictEqual(stats.loaders, 1);
+    assert.ok(stats.jvmLoadedClasses > 0);
+    assert.strictEqual(gremlin.getClosureCompiler(), null);
+  });
+
+  test('ExpressionCompiler', function () {
+    var lambda = gremlin.ExpressionCompiler.tryCompileSync('{ a, b -> a.length() + b > 5 && a.contains("e") }');
+    assert.ok(lambda);
+    assert.strictEqual(lambda.testSync('gremlin', 0), true);
+    assert.strictEqual(lambda.testSync('node', 1), false);
+    assert.strictEqual(gremlin.ExpressionCompiler.tryCompileSync('{ a -> a / 2 }'), null);
+    var fallback = gremlin.ExpressionCompiler.compileSync('{ a -> a.intdiv(2) }', gremlin.getEngine());
+    assert.strictEqual(fallback.toString(), 'GroovyLambda({ a -> a.intdiv(2) })');
+  });
+
+  test('batch lambdas', function () {
+    var lambda = gremlin.newBatchGroovyLambda('{ Object[] xs -> xs.collect { it * xs.length } }');
+    assert.strictEqual(lambda.isBatchSync(), true);
+    var inputs = gremlin.java.newArray('java.lang.Object', [1, 2, 3].map(gremlin._javify.bind(gremlin)));
+    assert.deepEqual(lambda.applyAllSync(inputs), [3, 6, 9]);
+    var varargs = gremlin.newGroovyLambda('{ Object[] args -> args.length }');
+    assert.strictEqual(varargs.isBatchSync(), false);
+    assert.deepEqual(varargs.applyAllSync(inputs), [1, 1, 1]);
+    var bits = gremlin.newGroovyLambda('{ x -> x > 1 }').testAllSync(gremlin.toListSync([1, 2, 3]));
+    assert.strictEqual(bits.cardinalitySync(), 2);
+  });
+
   test('importGroovy', function () {
     // We're going to try to define a closure that references an application-specific datatype.
     var groovy = '{ -> new TestClass() }';
@@ -88,6 +221,32 @@ suite('gremlin', function () {
     assert.equal(lambda.applySync('0, 99, 100'), 'true, true, false');
   });
 
+  test('_jsify decodes nested results', function () {
+    var HashMap = gremlin.HashMap;
+    var map = new HashMap();
+    var marko = g.V().has('name', 'marko').unwrap().nextSync();
+    map.putSync('marko', gremlin.toListSync([marko, 'x']));
+    map.putSync('count', gremlin.java.newLong(3));
+    var result = gremlin._jsify(map);
+    assert.deepEqual(_.keys(result).sort(), ['count', 'marko']);
+    assert.strictEqual(result.count, 3);
+    assert.ok(result.marko[0] instanceof Gremlin.VertexWrapper);
+    assert.strictEqual(Number(result.marko[0].getId()), 1);
+    assert.strictEqual(result.marko[1], 'x');
+  });
+
+  test('gremlin.projectProperties()', function (done) {
+    gremlin.projectProperties(g.V().has('name', 'marko').out().order().by('name'), ['name', 'age', 'lang'])
+      .then(function (columns) {
+        assert.deepEqual(columns, {
+          name: ['josh', 'lop', 'vadas'],
+          age: [32, undefined, 27],
+          lang: [undefined, 'java', undefined]
+        });
+      })
+      .done(done);
+  });
+
   test('propertiesToVarArgs', function () {
     var properties = { foo: 123, bar: 456, baz: 'one', quux: 'two' };
     var actual = gremlin.propertiesToVarArgs(properties);
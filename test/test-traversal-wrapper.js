@@ -258,6 +258,84 @@ suite('traversal-wrapper', function () {
     });
   });
 
+  test('submit() runs traversals on the TraversalExecutor', function (done) {
+    Q.all([g.V().has('name', 'josh').values('name').submit(),
+           g.V().values('age').submit(5),
+           g.E().count().submit()])
+      .spread(function (names, ages, counts) {
+        assert.deepEqual(names, ['josh']);
+        assert.deepEqual(ages.sort(), [27, 29, 32, 35]);
+        assert.strictEqual(Number(counts[0]), 6);
+        assert.ok(Number(gremlin.getTraversalExecutor().getCompletedCountSync()) >= 3);
+      })
+      .done(done);
+  });
+
+  test('submit() releases its completion proxy', function (done) {
+    var newProxy = java.newProxy;
+    var released = 0;
+    java.newProxy = function () {
+      var proxy = newProxy.apply(java, arguments);
+      var unref = proxy.unref;
+      proxy.unref = function () {
+        released++;
+        if (unref) {
+          unref.call(proxy);
+        }
+      };
+      return proxy;
+    };
+    var submitted = g.V().count().submit();
+    java.newProxy = newProxy;
+    submitted
+      .then(function (counts) {
+        assert.strictEqual(Number(counts[0]), 6);
+        assert.strictEqual(released, 1);
+      })
+      .done(done);
+  });
+
+  test('stream() reads results through a bounded buffer', function (done) {
+    var names = [];
+    g.V().values('name').stream({ capacity: 2, batchSize: 1 })
+      .on('data', function (name) {
+        names.push(name);
+      })
+      .on('error', done)
+      .on('end', function () {
+        assert.deepEqual(names.sort(), ['josh', 'lop', 'marko', 'peter', 'ripple', 'vadas']);
+        done();
+      });
+  });
+
+  test('stream().nextBatch() and cancel()', function (done) {
+    var results = g.V().out().stream({ capacity: 2, batchSize: 2 });
+    results.nextBatch()
+      .then(function (batch) {
+        assert.strictEqual(batch.length, 2);
+        assert.ok(batch[0] instanceof VertexWrapper);
+        results.cancel();
+        assert.ok(results.unwrap().isCancelledSync());
+        return results.nextBatch();
+      })
+      .then(function (batch) {
+        assert.strictEqual(batch, null);
+      })
+      .done(done);
+  });
+
+  test('stream().destroy() stops the traversal and closes the stream', function (done) {
+    var results = g.V().out().stream({ capacity: 2, batchSize: 2 });
+    results
+      .on('error', done)
+      .on('close', function () {
+        assert.ok(results.destroyed);
+        assert.ok(results.unwrap().isCancelledSync());
+        done();
+      });
+    results.destroy();
+  });
+
   test('g.V().asJSONSync()', function (done) {
     var traversal = g.V();
     assert.ok(traversal instanceof TraversalWrapper);
@@ -734,6 +812,26 @@ suite('traversal-wrapper', function () {
     });
   });
 
+  test('filter() pushes property comparisons down into has() with opts.filterPushdown', function (done) {
+    var closure = '{ it.get().value("age") > 30 && it.get().value("age") <= 35 }';
+    assert.ok(!/HasStep/.test(g.V().filter(closure).unwrap().toString()));
+    gremlin._filterPushdown = true;
+    var traversal = g.V().filter(closure);
+    var floats = g.E().filter('{ it.get().value("weight") == 0.5 }');
+    var ints = g.E().filter('{ it.get().value("weight") < 1 }');
+    gremlin._filterPushdown = false;
+    assert.ok(/HasStep/.test(traversal.unwrap().toString()));
+    assert.ok(!/HasStep/.test(floats.unwrap().toString()));
+    assert.ok(/HasStep/.test(ints.unwrap().toString()));
+    Q.all([traversal.values('name').toArray(), floats.id().toArray(), ints.id().toArray()])
+      .spread(function (names, halves, lighter) {
+        assert.deepEqual(names.sort(), ['josh', 'peter']);
+        assert.deepEqual(halves, [7]);
+        assert.deepEqual(lighter.sort(), [11, 12, 7, 9]);
+      })
+      .done(done);
+  });
+
   test('filter() with JavaScript lambda', function (done) {
     this.timeout(5000); // A longer timeout is required on Travis
     var js = 'a.get().value("name") == "lop"';